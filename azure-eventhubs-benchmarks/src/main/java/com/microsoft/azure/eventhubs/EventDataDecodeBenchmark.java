@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+package com.microsoft.azure.eventhubs;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.qpid.proton.Proton;
+import org.apache.qpid.proton.amqp.Binary;
+import org.apache.qpid.proton.amqp.Symbol;
+import org.apache.qpid.proton.amqp.messaging.ApplicationProperties;
+import org.apache.qpid.proton.amqp.messaging.Data;
+import org.apache.qpid.proton.amqp.messaging.MessageAnnotations;
+import org.apache.qpid.proton.message.Message;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.microsoft.azure.eventhubs.amqp.AmqpConstants;
+
+/**
+ * Receive path deserialization: the bytes of a delivery to an AMQP message - as MessageReceiver does -
+ * and the AMQP message to {@link EventData}, with the system properties the service stamps on every event.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventDataDecodeBenchmark {
+    @Param({"128", "1024", "16384"})
+    int payloadSize;
+
+    byte[] encodedMessage;
+    int encodedMessageSize;
+
+    @Setup
+    public void setup() {
+        final Message receivedMessage = Proton.message();
+        receivedMessage.setBody(new Data(new Binary(new byte[this.payloadSize])));
+
+        final Map<Symbol, Object> annotations = new HashMap<>();
+        annotations.put(AmqpConstants.OFFSET, "4294967296");
+        annotations.put(AmqpConstants.SEQUENCE_NUMBER, 1000000L);
+        annotations.put(AmqpConstants.ENQUEUED_TIME_UTC, new Date());
+        annotations.put(AmqpConstants.PARTITION_KEY, "partitionKey");
+        receivedMessage.setMessageAnnotations(new MessageAnnotations(annotations));
+
+        final Map<String, Object> properties = new HashMap<>();
+        properties.put("property", "value");
+        receivedMessage.setApplicationProperties(new ApplicationProperties(properties));
+
+        this.encodedMessage = new byte[this.payloadSize + ClientConstants.MAX_EVENTHUB_AMQP_HEADER_SIZE_BYTES];
+        this.encodedMessageSize = receivedMessage.encode(this.encodedMessage, 0, this.encodedMessage.length);
+    }
+
+    @Benchmark
+    public Message decodeMessage() {
+        final Message message = Proton.message();
+        message.decode(this.encodedMessage, 0, this.encodedMessageSize);
+        return message;
+    }
+
+    @Benchmark
+    public EventData decode() {
+        return new EventData(this.decodeMessage());
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+package com.microsoft.azure.eventhubs;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.qpid.proton.message.Message;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.microsoft.azure.eventhubs.amqp.AmqpUtil;
+
+/**
+ * Send path serialization: {@link EventData} to an AMQP message, and the AMQP message to the bytes handed to proton -
+ * for a single event ({@code PartitionSender.send(EventData)}) and for a batch ({@code PartitionSender.send(Iterable)}).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventDataEncodeBenchmark {
+    static final int BATCH_SIZE = 100;
+
+    // a batch of 100 has to fit in the max message size - 256kb
+    @Param({"128", "1024", "2048"})
+    int payloadSize;
+
+    EventData eventData;
+    List<EventData> batch;
+
+    @Setup
+    public void setup() {
+        final byte[] payload = new byte[this.payloadSize];
+        this.eventData = new EventData(payload);
+        this.eventData.getProperties().put("property", "value");
+
+        this.batch = new ArrayList<>(BATCH_SIZE);
+        for (int index = 0; index < BATCH_SIZE; index++) {
+            this.batch.add(new EventData(payload));
+        }
+    }
+
+    @Benchmark
+    public Message toAmqpMessage() {
+        return this.eventData.toAmqpMessage();
+    }
+
+    @Benchmark
+    public Message toAmqpMessageWithPartitionKey() {
+        return this.eventData.toAmqpMessage("partitionKey");
+    }
+
+    // mirrors MessageSender.send(Message) - which sizes a new buffer for every send
+    @Benchmark
+    public byte[] encodeSingle() {
+        final Message amqpMessage = this.eventData.toAmqpMessage();
+        final int allocationSize = Math.min(AmqpUtil.getDataSerializedSize(amqpMessage) + ClientConstants.MAX_EVENTHUB_AMQP_HEADER_SIZE_BYTES,
+                ClientConstants.MAX_MESSAGE_LENGTH_BYTES);
+        final byte[] bytes = new byte[allocationSize];
+        amqpMessage.encode(bytes, 0, allocationSize);
+        return bytes;
+    }
+
+    // mirrors MessageSender.send(Iterable) - which encodes into a new max message size buffer for every send
+    @Benchmark
+    public int encodeBatch() {
+        final List<Message> amqpMessages = new ArrayList<>(BATCH_SIZE);
+        for (final EventData event : this.batch) {
+            amqpMessages.add(event.toAmqpMessage());
+        }
+
+        return MessageSender.encodeBatch(amqpMessages, new byte[ClientConstants.MAX_MESSAGE_LENGTH_BYTES]);
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+package com.microsoft.azure.eventhubs;
+
+import java.time.Duration;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.microsoft.azure.eventhubs.amqp.AmqpConstants;
+
+/**
+ * Per send bookkeeping of {@link MessageSender}, outside of proton: the delivery tag, the pending send work item and its send timeout -
+ * tracked from sendCore till the delivery is settled. Uses the same types and collections as {@link MessageSender}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageSenderBookkeepingBenchmark {
+    static final String CLIENT_ID = "MessageSenderBookkeepingBenchmark";
+    static final Duration SEND_TIMEOUT = Duration.ofSeconds(60);
+
+    final ConcurrentHashMap<String, ReplayableWorkItem<Void>> pendingSendsData = new ConcurrentHashMap<>();
+    final PriorityQueue<MessageSender.WeightedDeliveryTag> pendingSends = new PriorityQueue<>(1000, new MessageSender.DeliveryTagComparator());
+    final TimeoutTracker sendTracker = TimeoutTracker.create(SEND_TIMEOUT);
+    final byte[] encodedMessage = new byte[1024];
+    final Runnable onSendTimeout = new Runnable() {
+        @Override
+        public void run() {
+        }
+    };
+
+    @Setup
+    public void setup() {
+        Timer.register(CLIENT_ID);
+    }
+
+    @TearDown
+    public void tearDown() {
+        Timer.unregister(CLIENT_ID);
+    }
+
+    @Benchmark
+    public String createDeliveryTag() {
+        return MessageSender.createDeliveryTag(this.sendTracker);
+    }
+
+    // sendCore, then the processing of the send acknowledgement (onSendComplete)
+    @Benchmark
+    public ReplayableWorkItem<Void> trackAndSettleSend() {
+        final ReplayableWorkItem<Void> sendWaiterData = new ReplayableWorkItem<>(
+                this.encodedMessage, this.encodedMessage.length, AmqpConstants.AMQP_BATCH_MESSAGE_FORMAT, new CompletableFuture<Void>(), SEND_TIMEOUT);
+        final String deliveryTag = MessageSender.createDeliveryTag(sendWaiterData.getTimeoutTracker());
+
+        final ScheduledFuture<?> timeoutTask = Timer.schedule(this.onSendTimeout, SEND_TIMEOUT, TimerType.OneTimeRun);
+        sendWaiterData.setTimeoutTask(timeoutTask);
+
+        this.pendingSendsData.put(deliveryTag, sendWaiterData);
+        this.pendingSends.offer(new MessageSender.WeightedDeliveryTag(deliveryTag, 0));
+
+        // processSendWork dequeues the tag and hands the delivery to proton
+        final MessageSender.WeightedDeliveryTag nextTag = this.pendingSends.poll();
+
+        // the delivery is settled with Accepted
+        final ReplayableWorkItem<Void> pendingSendWorkItem = this.pendingSendsData.remove(nextTag.getDeliveryTag());
+        pendingSendWorkItem.getTimeoutTask().cancel(false);
+        pendingSendWorkItem.getWork().complete(null);
+        return pendingSendWorkItem;
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+package com.microsoft.azure.eventhubs;
+
+import java.io.IOException;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Token generation of {@link SharedAccessSignatureTokenProvider} - done for every link open and every token renewal.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SharedAccessSignatureTokenProviderBenchmark {
+    static final String KEY_NAME = "RootManageSharedAccessKey";
+    static final String KEY = "/7ryi/v8nBkCLmRRbW4sPeDbHcTmGHdYd4kEMasCD7g=";
+    static final String RESOURCE = "amqp://namespace.servicebus.windows.net/eventhub/Partitions/0";
+    static final Duration TOKEN_TIME_TO_LIVE = ClientConstants.TOKEN_VALIDITY;
+
+    final SharedAccessSignatureTokenProvider keyTokenProvider = new SharedAccessSignatureTokenProvider(KEY_NAME, KEY);
+
+    @Benchmark
+    public String generateSharedAccessSignature() throws IOException, InvalidKeyException, NoSuchAlgorithmException {
+        return SharedAccessSignatureTokenProvider.generateSharedAccessSignature(KEY_NAME, KEY, RESOURCE, TOKEN_TIME_TO_LIVE);
+    }
+
+    @Benchmark
+    public String getToken() throws IOException, InvalidKeyException, NoSuchAlgorithmException {
+        return this.keyTokenProvider.getToken(RESOURCE, TOKEN_TIME_TO_LIVE);
+    }
+}
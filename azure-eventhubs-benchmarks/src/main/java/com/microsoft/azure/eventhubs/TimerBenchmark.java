@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+package com.microsoft.azure.eventhubs;
+
+import java.time.Duration;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link Timer} scheduling and cancellation - every send schedules its send timeout and cancels it on acknowledgement;
+ * so, neither of them should fire in the common case.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TimerBenchmark {
+    static final String CLIENT_ID = "TimerBenchmark";
+    static final Duration TIMEOUT = Duration.ofSeconds(60);
+
+    final Runnable onTimeout = new Runnable() {
+        @Override
+        public void run() {
+        }
+    };
+
+    @Setup
+    public void setup() {
+        Timer.register(CLIENT_ID);
+    }
+
+    @TearDown
+    public void tearDown() {
+        Timer.unregister(CLIENT_ID);
+    }
+
+    @Benchmark
+    public boolean scheduleAndCancel() {
+        final ScheduledFuture<?> timeoutTask = Timer.schedule(this.onTimeout, TIMEOUT, TimerType.OneTimeRun);
+        return timeoutTask.cancel(false);
+    }
+
+    @Benchmark
+    public boolean scheduleRepeatAndCancel() {
+        final ScheduledFuture<?> timerTask = Timer.schedule(this.onTimeout, TIMEOUT, TimerType.RepeatRun);
+        return timerTask.cancel(false);
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+package com.microsoft.azure.eventhubs.amqp;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.qpid.proton.Proton;
+import org.apache.qpid.proton.reactor.Reactor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of handing work to the Reactor thread via {@link ReactorDispatcher#invoke(DispatchHandler)} - which every send,
+ * receive credit flow and link open goes through. Run with -t to measure contended invokes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReactorDispatcherBenchmark {
+    static final int BATCH_SIZE = 1000;
+
+    Reactor reactor;
+    ReactorDispatcher dispatcher;
+    Thread reactorThread;
+    volatile boolean isStopped;
+
+    @Setup
+    public void setup() throws IOException {
+        this.reactor = Proton.reactor();
+        this.dispatcher = new ReactorDispatcher(this.reactor);
+        this.reactorThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                final Reactor reactor = ReactorDispatcherBenchmark.this.reactor;
+                reactor.start();
+                while (!ReactorDispatcherBenchmark.this.isStopped && reactor.process()) {
+                }
+
+                reactor.stop();
+                reactor.free();
+            }
+        }, "benchmark-reactor");
+        this.reactorThread.start();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException, InterruptedException {
+        this.dispatcher.invoke(new DispatchHandler() {
+            @Override
+            public void onEvent() {
+                ReactorDispatcherBenchmark.this.isStopped = true;
+            }
+        });
+
+        this.reactorThread.join();
+    }
+
+    // round trip of one work item - the latency a lone send sees before proton gets its bytes
+    @Benchmark
+    public void invokeAndWait() throws IOException, InterruptedException {
+        final CountDownLatch done = new CountDownLatch(1);
+        this.dispatcher.invoke(new DispatchHandler() {
+            @Override
+            public void onEvent() {
+                done.countDown();
+            }
+        });
+
+        done.await();
+    }
+
+    // many work items in flight - wakeups coalesce and the Reactor drains the work queue in bulk
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void invokeBatch() throws IOException, InterruptedException {
+        final CountDownLatch done = new CountDownLatch(BATCH_SIZE);
+        final DispatchHandler work = new DispatchHandler() {
+            @Override
+            public void onEvent() {
+                done.countDown();
+            }
+        };
+
+        for (int index = 0; index < BATCH_SIZE; index++) {
+            this.dispatcher.invoke(work);
+        }
+
+        done.await();
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+package com.microsoft.azure.eventhubs.emulator;
+
+import java.util.Date;
+
+/**
+ * An event hub hosted by the emulator - its partitions and its ingress limit.
+ * <p>
+ * Only to be used on the emulator's reactor thread.
+ */
+final class EmulatedEventHub {
+    private final String name;
+    private final Date createdAt;
+    private final EmulatedPartition[] partitions;
+    private final String[] partitionIds;
+    private final IngressThrottle ingressThrottle;
+    private int nextPartition;
+
+    EmulatedEventHub(final String name, final int partitionCount, final EmulatorOptions options) {
+        this.name = name;
+        this.createdAt = new Date();
+        this.partitions = new EmulatedPartition[partitionCount];
+        this.partitionIds = new String[partitionCount];
+        for (int index = 0; index < partitionCount; index++) {
+            this.partitionIds[index] = Integer.toString(index);
+            this.partitions[index] = new EmulatedPartition(name, this.partitionIds[index], options.getMaxRetainedEventsPerPartition());
+        }
+
+        this.ingressThrottle = new IngressThrottle(options.getThroughputUnits());
+    }
+
+    String getName() {
+        return this.name;
+    }
+
+    Date getCreatedAt() {
+        return this.createdAt;
+    }
+
+    String[] getPartitionIds() {
+        return this.partitionIds.clone();
+    }
+
+    IngressThrottle getIngressThrottle() {
+        return this.ingressThrottle;
+    }
+
+    /**
+     * @return the partition - null if there is no partition with the id
+     */
+    EmulatedPartition getPartition(final String partitionId) {
+        final int index;
+        try {
+            index = Integer.parseInt(partitionId);
+        } catch (NumberFormatException exception) {
+            return null;
+        }
+
+        return index >= 0 && index < this.partitions.length ? this.partitions[index] : null;
+    }
+
+    /**
+     * events with the same partition key land in the same partition; events without one are spread round-robin
+     */
+    EmulatedPartition selectPartition(final String partitionKey) {
+        if (partitionKey != null) {
+            return this.partitions[(partitionKey.hashCode() & Integer.MAX_VALUE) % this.partitions.length];
+        }
+
+        final EmulatedPartition partition = this.partitions[this.nextPartition];
+        this.nextPartition = (this.nextPartition + 1) % this.partitions.length;
+        return partition;
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+package com.microsoft.azure.eventhubs.emulator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.qpid.proton.message.Message;
+
+/**
+ * In-memory log of a partition - a ring of the last maxRetainedEvents events, addressable by sequence number.
+ * Offsets are byte positions in the log (the sum of the sizes of the events before), as on the service.
+ * <p>
+ * Only to be used on the emulator's reactor thread.
+ */
+final class EmulatedPartition {
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final String eventHubName;
+    private final String partitionId;
+    private final int maxRetainedEvents;
+    private final List<ReceiveCursor> receivers;
+
+    private StoredEvent[] events;
+    private int head;
+    private int count;
+    private long beginSequenceNumber;
+    private long nextOffset;
+    private long lastEnqueuedTimeMillis;
+
+    EmulatedPartition(final String eventHubName, final String partitionId, final int maxRetainedEvents) {
+        this.eventHubName = eventHubName;
+        this.partitionId = partitionId;
+        this.maxRetainedEvents = maxRetainedEvents;
+        this.receivers = new ArrayList<>();
+        this.events = new StoredEvent[Math.min(INITIAL_CAPACITY, maxRetainedEvents)];
+    }
+
+    String getEventHubName() {
+        return this.eventHubName;
+    }
+
+    String getPartitionId() {
+        return this.partitionId;
+    }
+
+    List<ReceiveCursor> getReceivers() {
+        return this.receivers;
+    }
+
+    /**
+     * Enqueues an event - stamps its sequence number, offset and enqueued time.
+     */
+    void append(final Message event, final String partitionKey, final EventCodec codec) {
+        // enqueued times never go back - time filters rely on the log being ordered by it
+        final long enqueuedTimeMillis = Math.max(System.currentTimeMillis(), this.lastEnqueuedTimeMillis);
+        final long sequenceNumber = this.getNextSequenceNumber();
+        EventCodec.annotate(event, partitionKey, sequenceNumber, this.nextOffset, enqueuedTimeMillis);
+
+        final byte[] bytes = codec.encode(event);
+        if (this.count == this.maxRetainedEvents) {
+            this.events[this.head] = null;
+            this.head = (this.head + 1) % this.events.length;
+            this.count--;
+            this.beginSequenceNumber++;
+        } else if (this.count == this.events.length) {
+            this.grow();
+        }
+
+        this.events[(this.head + this.count) % this.events.length] = new StoredEvent(sequenceNumber, this.nextOffset, enqueuedTimeMillis, bytes);
+        this.count++;
+        this.nextOffset += bytes.length;
+        this.lastEnqueuedTimeMillis = enqueuedTimeMillis;
+    }
+
+    /**
+     * @return the event with the sequence number - null if it isn't (or is no longer) in the log
+     */
+    StoredEvent get(final long sequenceNumber) {
+        if (sequenceNumber < this.beginSequenceNumber || sequenceNumber >= this.getNextSequenceNumber()) {
+            return null;
+        }
+
+        return this.events[(int) ((this.head + sequenceNumber - this.beginSequenceNumber) % this.events.length)];
+    }
+
+    long getBeginSequenceNumber() {
+        return this.beginSequenceNumber;
+    }
+
+    long getNextSequenceNumber() {
+        return this.beginSequenceNumber + this.count;
+    }
+
+    /**
+     * @return the last enqueued event - null if the partition is empty
+     */
+    StoredEvent getLastEnqueuedEvent() {
+        return this.count == 0 ? null : this.get(this.getNextSequenceNumber() - 1);
+    }
+
+    /**
+     * @return sequence number of the first event past the offset - or at it, if inclusive
+     */
+    long findByOffset(final long offset, final boolean inclusive) {
+        long low = this.beginSequenceNumber;
+        long high = this.getNextSequenceNumber();
+        while (low < high) {
+            final long middle = (low + high) >>> 1;
+            final long middleOffset = this.get(middle).offset;
+            if (middleOffset < offset || (!inclusive && middleOffset == offset)) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+    /**
+     * @return sequence number of the first event enqueued after the time
+     */
+    long findByEnqueuedTime(final long enqueuedTimeMillis) {
+        long low = this.beginSequenceNumber;
+        long high = this.getNextSequenceNumber();
+        while (low < high) {
+            final long middle = (low + high) >>> 1;
+            if (this.get(middle).enqueuedTimeMillis <= enqueuedTimeMillis) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+    /**
+     * delivers newly appended events to the receivers which have credit
+     */
+    void pumpReceivers() {
+        for (int index = 0; index < this.receivers.size(); index++) {
+            this.receivers.get(index).pump();
+        }
+    }
+
+    private void grow() {
+        final StoredEvent[] grown = new StoredEvent[Math.min(this.events.length * 2, this.maxRetainedEvents)];
+        for (int index = 0; index < this.count; index++) {
+            grown[index] = this.events[(this.head + index) % this.events.length];
+        }
+
+        this.events = grown;
+        this.head = 0;
+    }
+
+    static final class StoredEvent {
+        final long sequenceNumber;
+        final long offset;
+        final long enqueuedTimeMillis;
+        // encoded with the service annotations - delivered to receivers as is
+        final byte[] bytes;
+
+        StoredEvent(final long sequenceNumber, final long offset, final long enqueuedTimeMillis, final byte[] bytes) {
+            this.sequenceNumber = sequenceNumber;
+            this.offset = offset;
+            this.enqueuedTimeMillis = enqueuedTimeMillis;
+            this.bytes = bytes;
+        }
+    }
+}
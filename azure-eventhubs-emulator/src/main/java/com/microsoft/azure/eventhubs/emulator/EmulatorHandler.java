@@ -0,0 +1,591 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+package com.microsoft.azure.eventhubs.emulator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.qpid.proton.Proton;
+import org.apache.qpid.proton.amqp.DescribedType;
+import org.apache.qpid.proton.amqp.Symbol;
+import org.apache.qpid.proton.amqp.UnsignedLong;
+import org.apache.qpid.proton.amqp.messaging.Accepted;
+import org.apache.qpid.proton.amqp.messaging.AmqpValue;
+import org.apache.qpid.proton.amqp.messaging.ApplicationProperties;
+import org.apache.qpid.proton.amqp.messaging.Rejected;
+import org.apache.qpid.proton.amqp.messaging.Source;
+import org.apache.qpid.proton.amqp.messaging.Target;
+import org.apache.qpid.proton.amqp.transport.DeliveryState;
+import org.apache.qpid.proton.amqp.transport.ErrorCondition;
+import org.apache.qpid.proton.engine.BaseHandler;
+import org.apache.qpid.proton.engine.Connection;
+import org.apache.qpid.proton.engine.Delivery;
+import org.apache.qpid.proton.engine.EndpointState;
+import org.apache.qpid.proton.engine.Event;
+import org.apache.qpid.proton.engine.Link;
+import org.apache.qpid.proton.engine.Receiver;
+import org.apache.qpid.proton.engine.Sasl;
+import org.apache.qpid.proton.engine.Sender;
+import org.apache.qpid.proton.engine.Session;
+import org.apache.qpid.proton.engine.SslDomain;
+import org.apache.qpid.proton.engine.Transport;
+import org.apache.qpid.proton.message.Message;
+
+import com.microsoft.azure.eventhubs.ClientConstants;
+import com.microsoft.azure.eventhubs.PartitionReceiver;
+import com.microsoft.azure.eventhubs.amqp.AmqpConstants;
+import com.microsoft.azure.eventhubs.amqp.AmqpErrorCode;
+import com.microsoft.azure.eventhubs.amqp.AmqpResponseCode;
+
+/**
+ * The AMQP surface of the emulator - handles the events of all the connections accepted by it:
+ * <ul>
+ * <li>$cbs put-token requests - accepted without validating the token</li>
+ * <li>$management READ requests - event hub and partition runtime information, from the partition logs</li>
+ * <li>send links to an event hub or to a partition - single and batch transfers; rejected with ServerBusy beyond the ingress limit</li>
+ * <li>receive links from a partition of a consumer group - offset, sequence number and enqueued time filters; epoch receivers</li>
+ * </ul>
+ * Only to be used on the emulator's reactor thread.
+ */
+final class EmulatorHandler extends BaseHandler {
+    private static final Logger TRACE_LOGGER = Logger.getLogger(EventHubEmulator.EMULATOR_TRACE);
+
+    static final int LINK_CREDIT = 1000;
+    // the service allows upto 5 non-epoch receivers per partition, per consumer group
+    static final int MAX_NON_EPOCH_RECEIVERS = 5;
+
+    private static final String PARTITIONS = "Partitions";
+    private static final String CONSUMER_GROUPS = "ConsumerGroups";
+    private static final Pattern FILTER_EXPRESSION = Pattern.compile(
+            "amqp\\.annotation\\.(" + AmqpConstants.OFFSET_ANNOTATION_NAME
+                    + "|" + AmqpConstants.SEQUENCE_NUMBER_ANNOTATION_NAME
+                    + "|" + AmqpConstants.ENQUEUED_TIME_UTC_ANNOTATION_NAME + ")\\s*(>=?)\\s*'([^']*)'");
+
+    private final EmulatorOptions options;
+    private final Map<String, EmulatedEventHub> eventHubs;
+    private final Set<Connection> connections;
+    private final EventCodec codec;
+
+    EmulatorHandler(final EmulatorOptions options) {
+        this.options = options;
+        this.eventHubs = new HashMap<>();
+        for (Map.Entry<String, Integer> eventHub : options.getEventHubs().entrySet()) {
+            this.eventHubs.put(eventHub.getKey(), new EmulatedEventHub(eventHub.getKey(), eventHub.getValue(), options));
+        }
+
+        this.connections = new HashSet<>();
+        this.codec = new EventCodec();
+    }
+
+    /**
+     * force-closes all connections - the emulator is shutting down
+     */
+    void closeConnections() {
+        for (Connection connection : new ArrayList<>(this.connections)) {
+            if (connection.getLocalState() != EndpointState.CLOSED) {
+                connection.setCondition(new ErrorCondition(AmqpErrorCode.ConnectionForced, "the emulator is shutting down"));
+                connection.close();
+            }
+        }
+    }
+
+    int getConnectionCount() {
+        return this.connections.size();
+    }
+
+    @Override
+    public void onConnectionBound(Event event) {
+        final Transport transport = event.getTransport();
+
+        // the emulator has no certificate - clients negotiate an anonymous cipher suite, see EventHubEmulator#enableAnonymousTls
+        final SslDomain domain = Proton.sslDomain();
+        domain.init(SslDomain.Mode.SERVER);
+        domain.setPeerAuthentication(SslDomain.VerifyMode.ANONYMOUS_PEER);
+        transport.ssl(domain);
+
+        final Sasl sasl = transport.sasl();
+        sasl.server();
+        sasl.setMechanisms("ANONYMOUS");
+        sasl.done(Sasl.SaslOutcome.PN_SASL_OK);
+    }
+
+    @Override
+    public void onConnectionRemoteOpen(Event event) {
+        final Connection connection = event.getConnection();
+        if (connection.getLocalState() != EndpointState.UNINITIALIZED) {
+            return;
+        }
+
+        connection.setContainer(EventHubEmulator.CONTAINER_ID);
+        connection.open();
+        this.connections.add(connection);
+    }
+
+    @Override
+    public void onConnectionRemoteClose(Event event) {
+        final Connection connection = event.getConnection();
+        if (connection.getLocalState() != EndpointState.CLOSED) {
+            connection.close();
+        }
+    }
+
+    @Override
+    public void onTransportClosed(Event event) {
+        final Connection connection = event.getConnection();
+        if (connection == null) {
+            return;
+        }
+
+        // links of a dropped connection never see a detach - their receivers are removed here
+        Link link = connection.linkHead(null, null);
+        while (link != null) {
+            this.removeReceiver(link);
+            link = link.next(null, null);
+        }
+
+        this.connections.remove(connection);
+    }
+
+    @Override
+    public void onSessionRemoteOpen(Event event) {
+        final Session session = event.getSession();
+        if (session.getLocalState() == EndpointState.UNINITIALIZED) {
+            session.open();
+        }
+    }
+
+    @Override
+    public void onSessionRemoteClose(Event event) {
+        final Session session = event.getSession();
+        if (session.getLocalState() != EndpointState.CLOSED) {
+            session.close();
+        }
+    }
+
+    @Override
+    public void onLinkRemoteOpen(Event event) {
+        final Link link = event.getLink();
+        if (link.getLocalState() != EndpointState.UNINITIALIZED) {
+            return;
+        }
+
+        link.setSource(link.getRemoteSource());
+        link.setTarget(link.getRemoteTarget());
+        link.setMaxMessageSize(UnsignedLong.valueOf(this.options.getMaxMessageSize()));
+
+        if (link instanceof Receiver) {
+            this.onSendLinkOpen((Receiver) link);
+        } else {
+            this.onReceiveLinkOpen((Sender) link);
+        }
+    }
+
+    @Override
+    public void onLinkRemoteClose(Event event) {
+        final Link link = event.getLink();
+        this.removeReceiver(link);
+        if (link.getLocalState() != EndpointState.CLOSED) {
+            link.close();
+        }
+    }
+
+    @Override
+    public void onLinkRemoteDetach(Event event) {
+        this.onLinkRemoteClose(event);
+    }
+
+    @Override
+    public void onLinkFlow(Event event) {
+        final Link link = event.getLink();
+        if (link instanceof Sender && link.getContext() instanceof ReceiveCursor) {
+            ((ReceiveCursor) link.getContext()).pump();
+        }
+    }
+
+    @Override
+    public void onDelivery(Event event) {
+        final Delivery delivery = event.getDelivery();
+        if (event.getLink() instanceof Sender) {
+            // deliveries to receivers - settled by the client, once it accepts them
+            if (delivery.remotelySettled()) {
+                delivery.settle();
+            }
+
+            return;
+        }
+
+        if (!delivery.isReadable() || delivery.isPartial()) {
+            return;
+        }
+
+        final Receiver receiver = (Receiver) event.getLink();
+        final byte[] bytes = new byte[delivery.pending()];
+        final int length = receiver.recv(bytes, 0, bytes.length);
+        receiver.advance();
+
+        final DeliveryState outcome;
+        final Object target = receiver.getContext();
+        if (target instanceof String) {
+            this.onRequest(receiver.getSession().getConnection(), (String) target, bytes, length);
+            outcome = Accepted.getInstance();
+        } else {
+            outcome = this.onEvents(target, bytes, length, delivery.getMessageFormat());
+        }
+
+        if (!delivery.remotelySettled()) {
+            delivery.disposition(outcome);
+        }
+
+        delivery.settle();
+
+        if (receiver.getCredit() < LINK_CREDIT / 2) {
+            receiver.flow(LINK_CREDIT - receiver.getCredit());
+        }
+    }
+
+    // the client's send link - to an event hub, a partition, $cbs or $management
+    private void onSendLinkOpen(final Receiver link) {
+        final String address = link.getRemoteTarget() instanceof Target ? ((Target) link.getRemoteTarget()).getAddress() : null;
+        if (ClientConstants.CBS_ADDRESS.equals(address) || ClientConstants.MANAGEMENT_ADDRESS.equals(address)) {
+            link.setContext(address);
+        } else {
+            // <eventHub> or <eventHub>/Partitions/<partitionId>
+            final String[] segments = address != null ? address.split("/") : new String[0];
+            final EmulatedEventHub eventHub = segments.length > 0 ? this.eventHubs.get(segments[0]) : null;
+            if (eventHub != null && segments.length == 1) {
+                link.setContext(eventHub);
+            } else if (eventHub != null && segments.length == 3 && PARTITIONS.equalsIgnoreCase(segments[1]) && eventHub.getPartition(segments[2]) != null) {
+                link.setContext(eventHub.getPartition(segments[2]));
+            } else {
+                openAndClose(link, AmqpErrorCode.NotFound, String.format(Locale.US, "The messaging entity '%s' could not be found.", address));
+                return;
+            }
+        }
+
+        link.open();
+        link.flow(LINK_CREDIT);
+    }
+
+    // the client's receive link - from a partition of a consumer group, or the reply link of $cbs or $management
+    private void onReceiveLinkOpen(final Sender link) {
+        final Source source = link.getRemoteSource() instanceof Source ? (Source) link.getRemoteSource() : null;
+        final String address = source != null ? source.getAddress() : null;
+        if (ClientConstants.CBS_ADDRESS.equals(address) || ClientConstants.MANAGEMENT_ADDRESS.equals(address)) {
+            link.open();
+            return;
+        }
+
+        // <eventHub>/ConsumerGroups/<consumerGroup>/Partitions/<partitionId>
+        final String[] segments = address != null ? address.split("/") : new String[0];
+        final EmulatedEventHub eventHub = segments.length == 5 ? this.eventHubs.get(segments[0]) : null;
+        final EmulatedPartition partition = eventHub != null && CONSUMER_GROUPS.equalsIgnoreCase(segments[1]) && PARTITIONS.equalsIgnoreCase(segments[3])
+                ? eventHub.getPartition(segments[4])
+                : null;
+        if (partition == null) {
+            openAndClose(link, AmqpErrorCode.NotFound, String.format(Locale.US, "The messaging entity '%s' could not be found.", address));
+            return;
+        }
+
+        final String consumerGroup = segments[2];
+        final long startSequenceNumber;
+        try {
+            startSequenceNumber = this.getStartSequenceNumber(partition, source.getFilter());
+        } catch (IllegalArgumentException exception) {
+            openAndClose(link, ClientConstants.ARGUMENT_ERROR, exception.getMessage());
+            return;
+        }
+
+        final Map<Symbol, Object> properties = link.getRemoteProperties();
+        final Object epochProperty = properties != null ? properties.get(AmqpConstants.EPOCH) : null;
+        final Long epoch = epochProperty instanceof Number ? ((Number) epochProperty).longValue() : null;
+
+        if (!this.admitReceiver(link, partition, consumerGroup, epoch)) {
+            return;
+        }
+
+        final Symbol[] desiredCapabilities = link.getRemoteDesiredCapabilities();
+        final boolean isRuntimeMetricEnabled = desiredCapabilities != null
+                && Arrays.asList(desiredCapabilities).contains(AmqpConstants.ENABLE_RECEIVER_RUNTIME_METRIC_NAME);
+        if (isRuntimeMetricEnabled) {
+            link.setOfferedCapabilities(new Symbol[]{AmqpConstants.ENABLE_RECEIVER_RUNTIME_METRIC_NAME});
+        }
+
+        final ReceiveCursor receiver = new ReceiveCursor(link, partition, consumerGroup, epoch, isRuntimeMetricEnabled, startSequenceNumber, this.codec);
+        link.setContext(receiver);
+        partition.getReceivers().add(receiver);
+        link.open();
+
+        if (TRACE_LOGGER.isLoggable(Level.FINE)) {
+            TRACE_LOGGER.log(Level.FINE, String.format(Locale.US, "linkName[%s], path[%s], epoch[%s], startSequenceNumber[%s] - receiver opened",
+                    link.getName(), address, epoch, startSequenceNumber));
+        }
+    }
+
+    /**
+     * Enforces the receiver rules of a partition, in a consumer group: a receiver with a higher (or the same) epoch disconnects the
+     * receivers already there; a receiver with a lower epoch, or without one while an epoch receiver is there, is refused.
+     *
+     * @return false if the link was refused (and closed)
+     */
+    private boolean admitReceiver(final Sender link, final EmulatedPartition partition, final String consumerGroup, final Long epoch) {
+        final List<ReceiveCursor> existingReceivers = new ArrayList<>();
+        int nonEpochReceivers = 0;
+        for (ReceiveCursor existing : partition.getReceivers()) {
+            if (!existing.getConsumerGroup().equalsIgnoreCase(consumerGroup)) {
+                continue;
+            }
+
+            if (existing.getEpoch() != null && (epoch == null || existing.getEpoch() > epoch)) {
+                openAndClose(link, AmqpErrorCode.Stolen, String.format(Locale.US,
+                        "Receiver with epoch '%s' already exists. Receiver with epoch '%s' cannot be created.", existing.getEpoch(), epoch));
+                return false;
+            }
+
+            if (existing.getEpoch() == null) {
+                nonEpochReceivers++;
+            }
+
+            existingReceivers.add(existing);
+        }
+
+        if (epoch == null) {
+            if (nonEpochReceivers >= MAX_NON_EPOCH_RECEIVERS) {
+                openAndClose(link, AmqpErrorCode.ResourceLimitExceeded, String.format(Locale.US,
+                        "Exceeded the maximum number of allowed receivers per partition in a consumer group which is %s.", MAX_NON_EPOCH_RECEIVERS));
+                return false;
+            }
+
+            return true;
+        }
+
+        for (ReceiveCursor existing : existingReceivers) {
+            partition.getReceivers().remove(existing);
+            existing.getLink().setCondition(new ErrorCondition(AmqpErrorCode.Stolen, String.format(Locale.US,
+                    "New receiver with higher epoch of '%s' is created hence current receiver with epoch '%s' is getting disconnected.", epoch, existing.getEpoch())));
+            existing.getLink().close();
+        }
+
+        return true;
+    }
+
+    /**
+     * @return the sequence number a receiver starts at - as selected by the filter of its link
+     * @throws IllegalArgumentException if the filter isn't one which the service supports
+     */
+    private long getStartSequenceNumber(final EmulatedPartition partition, final Map<Symbol, Object> filters) {
+        final Object filter = filters != null ? filters.get(AmqpConstants.STRING_FILTER) : null;
+        if (filter == null) {
+            return partition.getBeginSequenceNumber();
+        }
+
+        final Object expression = filter instanceof DescribedType ? ((DescribedType) filter).getDescribed() : filter;
+        final Matcher matcher = FILTER_EXPRESSION.matcher(String.valueOf(expression).trim());
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException(String.format(Locale.US, "The filter expression '%s' is not supported.", expression));
+        }
+
+        final String annotation = matcher.group(1);
+        final boolean inclusive = matcher.group(2).length() > 1;
+        final String value = matcher.group(3);
+        try {
+            if (AmqpConstants.OFFSET_ANNOTATION_NAME.equals(annotation)) {
+                if (PartitionReceiver.END_OF_STREAM.equals(value)) {
+                    return partition.getNextSequenceNumber();
+                }
+
+                return partition.findByOffset(Long.parseLong(value), inclusive);
+            } else if (AmqpConstants.SEQUENCE_NUMBER_ANNOTATION_NAME.equals(annotation)) {
+                final long sequenceNumber = Long.parseLong(value);
+                return inclusive ? sequenceNumber : sequenceNumber + 1;
+            } else {
+                final long enqueuedTimeMillis = Long.parseLong(value);
+                return partition.findByEnqueuedTime(inclusive ? enqueuedTimeMillis - 1 : enqueuedTimeMillis);
+            }
+        } catch (NumberFormatException exception) {
+            throw new IllegalArgumentException(String.format(Locale.US, "The value '%s' of the filter on '%s' is not valid.", value, annotation));
+        }
+    }
+
+    private DeliveryState onEvents(final Object target, final byte[] bytes, final int length, final int messageFormat) {
+        final EventCodec.Transfer transfer;
+        try {
+            transfer = this.codec.decode(bytes, length, messageFormat);
+        } catch (RuntimeException exception) {
+            return rejected(ClientConstants.ARGUMENT_ERROR, String.format(Locale.US, "The message could not be decoded: %s", exception.getMessage()));
+        }
+
+        final EmulatedPartition partition;
+        if (target instanceof EmulatedPartition) {
+            partition = (EmulatedPartition) target;
+        } else {
+            partition = ((EmulatedEventHub) target).selectPartition(transfer.partitionKey);
+        }
+
+        final EmulatedEventHub eventHub = this.eventHubs.get(partition.getEventHubName());
+        if (!eventHub.getIngressThrottle().tryAdmit(transfer.events.size(), length)) {
+            return rejected(ClientConstants.SERVER_BUSY_ERROR, String.format(Locale.US,
+                    "The request was terminated because the entity is being throttled. Please wait and retry. EventHub: %s, ThroughputUnits: %s",
+                    eventHub.getName(), this.options.getThroughputUnits()));
+        }
+
+        for (Message event : transfer.events) {
+            partition.append(event, transfer.partitionKey, this.codec);
+        }
+
+        partition.pumpReceivers();
+        return Accepted.getInstance();
+    }
+
+    private void onRequest(final Connection connection, final String address, final byte[] bytes, final int length) {
+        final Message request = Proton.message();
+        request.decode(bytes, 0, length);
+
+        final Map<?, ?> properties = request.getApplicationProperties() != null && request.getApplicationProperties().getValue() != null
+                ? request.getApplicationProperties().getValue()
+                : Collections.emptyMap();
+
+        if (ClientConstants.CBS_ADDRESS.equals(address)) {
+            // tokens aren't validated - any client can put any token
+            if (ClientConstants.PUT_TOKEN_OPERATION_VALUE.equals(properties.get(ClientConstants.PUT_TOKEN_OPERATION))) {
+                this.respond(connection, request, AmqpResponseCode.ACCEPTED, "Accepted", null);
+            } else {
+                this.respond(connection, request, AmqpResponseCode.BAD_REQUEST,
+                        String.format(Locale.US, "The operation '%s' is not supported.", properties.get(ClientConstants.PUT_TOKEN_OPERATION)), null);
+            }
+
+            return;
+        }
+
+        if (!ClientConstants.READ_OPERATION_VALUE.equals(properties.get(ClientConstants.MANAGEMENT_OPERATION_KEY))) {
+            this.respond(connection, request, AmqpResponseCode.BAD_REQUEST,
+                    String.format(Locale.US, "The operation '%s' is not supported.", properties.get(ClientConstants.MANAGEMENT_OPERATION_KEY)), null);
+            return;
+        }
+
+        final Object eventHubName = properties.get(ClientConstants.MANAGEMENT_ENTITY_NAME_KEY);
+        final EmulatedEventHub eventHub = eventHubName != null ? this.eventHubs.get(eventHubName.toString()) : null;
+        if (eventHub == null) {
+            this.respond(connection, request, AmqpResponseCode.NOT_FOUND,
+                    String.format(Locale.US, "The messaging entity '%s' could not be found.", eventHubName), null);
+            return;
+        }
+
+        final Object entityType = properties.get(ClientConstants.MANAGEMENT_ENTITY_TYPE_KEY);
+        final Map<String, Object> result = new HashMap<>();
+        result.put(ClientConstants.MANAGEMENT_ENTITY_NAME_KEY, eventHub.getName());
+        result.put(ClientConstants.MANAGEMENT_ENTITY_TYPE_KEY, entityType);
+        if (ClientConstants.MANAGEMENT_EVENTHUB_ENTITY_TYPE.equals(entityType)) {
+            result.put(ClientConstants.MANAGEMENT_RESULT_CREATED_AT, eventHub.getCreatedAt());
+            result.put(ClientConstants.MANAGEMENT_RESULT_PARTITION_COUNT, eventHub.getPartitionIds().length);
+            result.put(ClientConstants.MANAGEMENT_RESULT_PARTITION_IDS, eventHub.getPartitionIds());
+        } else if (ClientConstants.MANAGEMENT_PARTITION_ENTITY_TYPE.equals(entityType)) {
+            final Object partitionId = properties.get(ClientConstants.MANAGEMENT_PARTITION_NAME_KEY);
+            final EmulatedPartition partition = partitionId != null ? eventHub.getPartition(partitionId.toString()) : null;
+            if (partition == null) {
+                this.respond(connection, request, AmqpResponseCode.NOT_FOUND,
+                        String.format(Locale.US, "The partition '%s' of '%s' could not be found.", partitionId, eventHubName), null);
+                return;
+            }
+
+            final EmulatedPartition.StoredEvent lastEnqueued = partition.getLastEnqueuedEvent();
+            result.put(ClientConstants.MANAGEMENT_PARTITION_NAME_KEY, partition.getPartitionId());
+            result.put(ClientConstants.MANAGEMENT_RESULT_BEGIN_SEQUENCE_NUMBER, partition.getBeginSequenceNumber());
+            result.put(ClientConstants.MANAGEMENT_RESULT_LAST_ENQUEUED_SEQUENCE_NUMBER, lastEnqueued != null ? lastEnqueued.sequenceNumber : -1L);
+            result.put(ClientConstants.MANAGEMENT_RESULT_LAST_ENQUEUED_OFFSET, lastEnqueued != null ? Long.toString(lastEnqueued.offset) : PartitionReceiver.START_OF_STREAM);
+            result.put(ClientConstants.MANAGEMENT_RESULT_LAST_ENQUEUED_TIME_UTC, new Date(lastEnqueued != null ? lastEnqueued.enqueuedTimeMillis : 0));
+        } else {
+            this.respond(connection, request, AmqpResponseCode.BAD_REQUEST,
+                    String.format(Locale.US, "The entity type '%s' is not supported.", entityType), null);
+            return;
+        }
+
+        this.respond(connection, request, AmqpResponseCode.OK, "OK", result);
+    }
+
+    private void respond(final Connection connection, final Message request, final AmqpResponseCode statusCode, final String statusDescription,
+                         final Map<String, Object> body) {
+        final Sender replyLink = findReplyLink(connection, request.getReplyTo());
+        if (replyLink == null) {
+            if (TRACE_LOGGER.isLoggable(Level.WARNING)) {
+                TRACE_LOGGER.log(Level.WARNING, String.format(Locale.US, "replyTo[%s], messageId[%s] - no reply link, response dropped",
+                        request.getReplyTo(), request.getMessageId()));
+            }
+
+            return;
+        }
+
+        final Message response = Proton.message();
+        response.setCorrelationId(request.getMessageId());
+        final Map<String, Object> properties = new HashMap<>();
+        properties.put(ClientConstants.MANAGEMENT_STATUS_CODE_KEY, statusCode.getValue());
+        properties.put(ClientConstants.MANAGEMENT_STATUS_DESCRIPTION_KEY, statusDescription);
+        response.setApplicationProperties(new ApplicationProperties(properties));
+        if (body != null) {
+            response.setBody(new AmqpValue(body));
+        }
+
+        final byte[] bytes = this.codec.encode(response);
+        replyLink.delivery(String.valueOf(request.getMessageId()).getBytes());
+        replyLink.send(bytes, 0, bytes.length);
+        replyLink.advance();
+    }
+
+    private void removeReceiver(final Link link) {
+        if (link.getContext() instanceof ReceiveCursor) {
+            final ReceiveCursor receiver = (ReceiveCursor) link.getContext();
+            receiver.getPartition().getReceivers().remove(receiver);
+            link.setContext(null);
+        }
+    }
+
+    private static Sender findReplyLink(final Connection connection, final String replyTo) {
+        if (replyTo == null) {
+            return null;
+        }
+
+        Link link = connection.linkHead(null, null);
+        while (link != null) {
+            if (link instanceof Sender && link.getLocalState() == EndpointState.ACTIVE && link.getRemoteTarget() instanceof Target
+                    && replyTo.equals(((Target) link.getRemoteTarget()).getAddress())) {
+                return (Sender) link;
+            }
+
+            link = link.next(null, null);
+        }
+
+        return null;
+    }
+
+    // the service refuses a link by attaching it without a source and target (which clients don't take as opened) - and detaching it right away, with the error
+    private static void openAndClose(final Link link, final Symbol errorCondition, final String description) {
+        if (TRACE_LOGGER.isLoggable(Level.FINE)) {
+            TRACE_LOGGER.log(Level.FINE, String.format(Locale.US, "linkName[%s], error[%s, %s] - link refused", link.getName(), errorCondition, description));
+        }
+
+        link.setSource(null);
+        link.setTarget(null);
+        link.open();
+        link.setCondition(new ErrorCondition(errorCondition, description));
+        link.close();
+    }
+
+    private static Rejected rejected(final Symbol errorCondition, final String description) {
+        final Rejected rejected = new Rejected();
+        rejected.setError(new ErrorCondition(errorCondition, description));
+        return rejected;
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+package com.microsoft.azure.eventhubs.emulator;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import com.microsoft.azure.eventhubs.ClientConstants;
+
+/**
+ * Settings of an {@link EventHubEmulator} - the event hubs it hosts, and the limits it enforces.
+ */
+public final class EmulatorOptions {
+    public static final String DEFAULT_HOST_NAME = "127.0.0.1";
+    public static final int DEFAULT_MAX_RETAINED_EVENTS_PER_PARTITION = 100000;
+
+    // ingress of 1 throughput unit - beyond which the service rejects sends with ServerBusy
+    static final int EVENTS_PER_SECOND_PER_THROUGHPUT_UNIT = 1000;
+    static final int BYTES_PER_SECOND_PER_THROUGHPUT_UNIT = 1024 * 1024;
+
+    private final Map<String, Integer> eventHubs;
+    private String hostName;
+    private int port;
+    private int throughputUnits;
+    private int maxRetainedEventsPerPartition;
+    private int maxMessageSize;
+
+    public EmulatorOptions() {
+        this.eventHubs = new LinkedHashMap<>();
+        this.hostName = DEFAULT_HOST_NAME;
+        this.port = ClientConstants.AMQPS_PORT;
+        this.throughputUnits = 0;
+        this.maxRetainedEventsPerPartition = DEFAULT_MAX_RETAINED_EVENTS_PER_PARTITION;
+        this.maxMessageSize = ClientConstants.MAX_MESSAGE_LENGTH_BYTES;
+    }
+
+    /**
+     * Hosts an event hub in the emulator - all consumer groups are implicitly present.
+     *
+     * @param eventHubName   name of the event hub - the EntityPath of its connection string
+     * @param partitionCount number of partitions - partition ids are 0 to partitionCount - 1
+     */
+    public void addEventHub(final String eventHubName, final int partitionCount) {
+        if (eventHubName == null || eventHubName.isEmpty()) {
+            throw new IllegalArgumentException("eventHubName cannot be null or empty");
+        }
+
+        if (partitionCount < 1) {
+            throw new IllegalArgumentException(String.format(Locale.US, "partitionCount should be positive - was %s", partitionCount));
+        }
+
+        this.eventHubs.put(eventHubName, partitionCount);
+    }
+
+    public Map<String, Integer> getEventHubs() {
+        return Collections.unmodifiableMap(this.eventHubs);
+    }
+
+    public String getHostName() {
+        return this.hostName;
+    }
+
+    /**
+     * @param hostName interface the emulator listens on. Defaults to {@link #DEFAULT_HOST_NAME}
+     */
+    public void setHostName(final String hostName) {
+        this.hostName = hostName;
+    }
+
+    public int getPort() {
+        return this.port;
+    }
+
+    /**
+     * The client always connects to {@link ClientConstants#AMQPS_PORT} - a different port is only useful for clients which can be pointed at it.
+     *
+     * @param port port the emulator listens on. Defaults to {@link ClientConstants#AMQPS_PORT}
+     */
+    public void setPort(final int port) {
+        this.port = port;
+    }
+
+    public int getThroughputUnits() {
+        return this.throughputUnits;
+    }
+
+    /**
+     * Each throughput unit admits 1000 events or 1 MB per second of ingress, per event hub - sends beyond that are rejected with ServerBusy,
+     * the way the service throttles.
+     *
+     * @param throughputUnits ingress limit in throughput units - 0 (the default) doesn't limit ingress
+     */
+    public void setThroughputUnits(final int throughputUnits) {
+        if (throughputUnits < 0) {
+            throw new IllegalArgumentException(String.format(Locale.US, "throughputUnits cannot be negative - was %s", throughputUnits));
+        }
+
+        this.throughputUnits = throughputUnits;
+    }
+
+    public int getMaxRetainedEventsPerPartition() {
+        return this.maxRetainedEventsPerPartition;
+    }
+
+    /**
+     * Partitions are in-memory logs - once a partition holds this many events, the oldest event is dropped for each new one
+     * (and the partition's begin sequence number moves ahead), the way retention expires events on the service.
+     *
+     * @param maxRetainedEventsPerPartition number of events retained by each partition. Defaults to {@link #DEFAULT_MAX_RETAINED_EVENTS_PER_PARTITION}
+     */
+    public void setMaxRetainedEventsPerPartition(final int maxRetainedEventsPerPartition) {
+        if (maxRetainedEventsPerPartition < 1) {
+            throw new IllegalArgumentException(String.format(Locale.US, "maxRetainedEventsPerPartition should be positive - was %s", maxRetainedEventsPerPartition));
+        }
+
+        this.maxRetainedEventsPerPartition = maxRetainedEventsPerPartition;
+    }
+
+    public int getMaxMessageSize() {
+        return this.maxMessageSize;
+    }
+
+    /**
+     * @param maxMessageSize max-message-size advertised on the links. Defaults to {@link ClientConstants#MAX_MESSAGE_LENGTH_BYTES}
+     */
+    public void setMaxMessageSize(final int maxMessageSize) {
+        if (maxMessageSize < 1) {
+            throw new IllegalArgumentException(String.format(Locale.US, "maxMessageSize should be positive - was %s", maxMessageSize));
+        }
+
+        this.maxMessageSize = maxMessageSize;
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+package com.microsoft.azure.eventhubs.emulator;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.qpid.proton.Proton;
+import org.apache.qpid.proton.amqp.Binary;
+import org.apache.qpid.proton.amqp.Symbol;
+import org.apache.qpid.proton.amqp.messaging.Data;
+import org.apache.qpid.proton.amqp.messaging.DeliveryAnnotations;
+import org.apache.qpid.proton.amqp.messaging.MessageAnnotations;
+import org.apache.qpid.proton.codec.AMQPDefinedTypes;
+import org.apache.qpid.proton.codec.DecoderImpl;
+import org.apache.qpid.proton.codec.EncoderImpl;
+import org.apache.qpid.proton.message.Message;
+
+import com.microsoft.azure.eventhubs.amqp.AmqpConstants;
+
+/**
+ * Decodes the transfers sent by publishers into events - and encodes events (and responses) for the wire.
+ * Holds a decoder and an encode buffer - so, an instance is to be used on one thread (the emulator's reactor thread).
+ */
+final class EventCodec {
+    private static final int INITIAL_ENCODE_BUFFER_SIZE = 4 * 1024;
+
+    private final DecoderImpl decoder;
+    private byte[] encodeBuffer;
+
+    EventCodec() {
+        this.decoder = new DecoderImpl();
+        AMQPDefinedTypes.registerAllTypes(this.decoder, new EncoderImpl(this.decoder));
+        this.encodeBuffer = new byte[INITIAL_ENCODE_BUFFER_SIZE];
+    }
+
+    /**
+     * A batch transfer ({@link AmqpConstants#AMQP_BATCH_MESSAGE_FORMAT}) is an envelope - the message annotations of the batch,
+     * followed by one data section per event, each holding an encoded event. proton-j's {@link Message} keeps only the last
+     * body section - so, the sections are read one by one.
+     *
+     * @param bytes         payload of the transfer
+     * @param length        number of bytes of the payload
+     * @param messageFormat message-format of the transfer
+     * @return the events in the transfer
+     */
+    Transfer decode(final byte[] bytes, final int length, final int messageFormat) {
+        if (messageFormat != AmqpConstants.AMQP_BATCH_MESSAGE_FORMAT) {
+            final Message event = Proton.message();
+            event.decode(bytes, 0, length);
+            return new Transfer(Collections.singletonList(event), getPartitionKey(event.getMessageAnnotations()));
+        }
+
+        final ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, length);
+        this.decoder.setByteBuffer(buffer);
+
+        final List<Message> events = new ArrayList<>();
+        String partitionKey = null;
+        try {
+            while (buffer.hasRemaining()) {
+                final Object section = this.decoder.readObject();
+                if (section instanceof MessageAnnotations) {
+                    partitionKey = getPartitionKey((MessageAnnotations) section);
+                } else if (section instanceof Data) {
+                    final Binary encodedEvent = ((Data) section).getValue();
+                    final Message event = Proton.message();
+                    event.decode(encodedEvent.getArray(), encodedEvent.getArrayOffset(), encodedEvent.getLength());
+                    events.add(event);
+                }
+            }
+        } finally {
+            this.decoder.setByteBuffer(null);
+        }
+
+        return new Transfer(events, partitionKey);
+    }
+
+    /**
+     * stamps the annotations the service adds to an event, when it is enqueued
+     */
+    static void annotate(final Message event, final String partitionKey, final long sequenceNumber, final long offset, final long enqueuedTimeMillis) {
+        final MessageAnnotations received = event.getMessageAnnotations();
+        final Map<Symbol, Object> annotations = received != null && received.getValue() != null
+                ? new HashMap<>(received.getValue())
+                : new HashMap<Symbol, Object>();
+
+        annotations.put(AmqpConstants.OFFSET, Long.toString(offset));
+        annotations.put(AmqpConstants.SEQUENCE_NUMBER, sequenceNumber);
+        annotations.put(AmqpConstants.ENQUEUED_TIME_UTC, new Date(enqueuedTimeMillis));
+        if (partitionKey != null && !annotations.containsKey(AmqpConstants.PARTITION_KEY)) {
+            annotations.put(AmqpConstants.PARTITION_KEY, partitionKey);
+        }
+
+        event.setMessageAnnotations(new MessageAnnotations(annotations));
+    }
+
+    /**
+     * @return a copy of the encoded event, with the given delivery annotations
+     */
+    byte[] withDeliveryAnnotations(final byte[] encodedEvent, final Map<Symbol, Object> deliveryAnnotations) {
+        final Message event = Proton.message();
+        event.decode(encodedEvent, 0, encodedEvent.length);
+        event.setDeliveryAnnotations(new DeliveryAnnotations(deliveryAnnotations));
+        return this.encode(event);
+    }
+
+    byte[] encode(final Message message) {
+        while (true) {
+            try {
+                final int length = message.encode(this.encodeBuffer, 0, this.encodeBuffer.length);
+                return Arrays.copyOf(this.encodeBuffer, length);
+            } catch (BufferOverflowException exception) {
+                this.encodeBuffer = new byte[this.encodeBuffer.length * 2];
+            }
+        }
+    }
+
+    private static String getPartitionKey(final MessageAnnotations annotations) {
+        if (annotations == null || annotations.getValue() == null) {
+            return null;
+        }
+
+        final Object partitionKey = annotations.getValue().get(AmqpConstants.PARTITION_KEY);
+        return partitionKey != null ? partitionKey.toString() : null;
+    }
+
+    static final class Transfer {
+        final List<Message> events;
+        final String partitionKey;
+
+        Transfer(final List<Message> events, final String partitionKey) {
+            this.events = events;
+            this.partitionKey = partitionKey;
+        }
+    }
+}
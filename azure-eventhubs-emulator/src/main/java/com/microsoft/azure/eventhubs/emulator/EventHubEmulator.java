@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+package com.microsoft.azure.eventhubs.emulator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.security.Security;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.qpid.proton.Proton;
+import org.apache.qpid.proton.engine.BaseHandler;
+import org.apache.qpid.proton.engine.Event;
+import org.apache.qpid.proton.engine.HandlerException;
+import org.apache.qpid.proton.reactor.Acceptor;
+import org.apache.qpid.proton.reactor.Reactor;
+
+import com.microsoft.azure.eventhubs.ClientConstants;
+import com.microsoft.azure.eventhubs.ConnectionStringBuilder;
+import com.microsoft.azure.eventhubs.amqp.DispatchHandler;
+import com.microsoft.azure.eventhubs.amqp.ReactorDispatcher;
+
+/**
+ * In-process emulator of the EventHubs AMQP endpoint - for load and integration tests, without a network or an EventHubs namespace.
+ * <p>
+ * Hosts the event hubs configured in {@link EmulatorOptions} as in-memory partition logs; serves $cbs put-token, $management READ,
+ * sends (single and batch) to event hubs and partitions, and receives from partitions with offset, sequence number and enqueued time
+ * filters and epochs. Sends beyond the configured throughput units are rejected with ServerBusy.
+ * <pre>{@code
+ * EventHubEmulator.enableAnonymousTls();
+ * EmulatorOptions options = new EmulatorOptions();
+ * options.addEventHub("hub", 4);
+ * try (EventHubEmulator emulator = EventHubEmulator.start(options)) {
+ *     EventHubClient client = EventHubClient.createFromConnectionStringSync(emulator.getConnectionString("hub"));
+ *     ...
+ * }
+ * }</pre>
+ * All AMQP work runs on one reactor thread.
+ */
+public final class EventHubEmulator implements Closeable {
+    public static final String EMULATOR_TRACE = "eventhub.emulator.trace";
+    public static final String SHARED_ACCESS_KEY_NAME = "emulator";
+    public static final String SHARED_ACCESS_KEY = "emulator";
+
+    static final String CONTAINER_ID = "eventhub-emulator";
+    // how long clients get to see the connection close, when the emulator shuts down
+    static final int SHUTDOWN_GRACE_MS = 1000;
+    static final int SHUTDOWN_POLL_INTERVAL_MS = 10;
+
+    private static final Logger TRACE_LOGGER = Logger.getLogger(EMULATOR_TRACE);
+
+    private final EmulatorOptions options;
+    private final Reactor reactor;
+    private final EmulatorHandler handler;
+    private final Acceptor acceptor;
+    private final ReactorDispatcher dispatcher;
+    private final Thread reactorThread;
+
+    private volatile boolean isStopped;
+    private boolean isClosed;
+
+    private EventHubEmulator(final EmulatorOptions options) throws IOException {
+        this.options = options;
+        this.reactor = Proton.reactor();
+        // without a timeout the reactor polls its sockets without blocking - and spins, when there is nothing to do
+        this.reactor.setTimeout(ClientConstants.REACTOR_IO_POLL_TIMEOUT);
+        this.handler = new EmulatorHandler(options);
+        this.acceptor = this.reactor.acceptor(options.getHostName(), options.getPort(), this.handler);
+        this.dispatcher = new ReactorDispatcher(this.reactor);
+        this.reactorThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                EventHubEmulator.this.runReactor();
+            }
+        }, CONTAINER_ID);
+        this.reactorThread.setDaemon(true);
+    }
+
+    /**
+     * Starts listening for connections.
+     *
+     * @param options the event hubs to host and the limits to enforce
+     * @return the running emulator - to be closed when done
+     * @throws IOException if the emulator cannot listen on the host and port of the options
+     */
+    public static EventHubEmulator start(final EmulatorOptions options) throws IOException {
+        if (options == null || options.getEventHubs().isEmpty()) {
+            throw new IllegalArgumentException("options should have atleast one event hub");
+        }
+
+        final EventHubEmulator emulator = new EventHubEmulator(options);
+        emulator.reactorThread.start();
+
+        if (TRACE_LOGGER.isLoggable(Level.INFO)) {
+            TRACE_LOGGER.log(Level.INFO, String.format(Locale.US, "emulator listening on %s:%s, eventHubs[%s], throughputUnits[%s]",
+                    options.getHostName(), options.getPort(), options.getEventHubs(), options.getThroughputUnits()));
+        }
+
+        return emulator;
+    }
+
+    /**
+     * The emulator has no certificate - so, clients have to negotiate an anonymous TLS cipher suite, which the JDK disables by default.
+     * This enables them, for the whole JVM - and limits TLS to TLSv1.2 (TLSv1.3 has no anonymous cipher suites).
+     * To be called before the first TLS connection is made in the JVM; only meant for processes which talk to the emulator.
+     */
+    public static void enableAnonymousTls() {
+        final String disabledAlgorithms = Security.getProperty("jdk.tls.disabledAlgorithms");
+        if (disabledAlgorithms != null) {
+            final List<String> stillDisabled = new ArrayList<>();
+            for (String algorithm : disabledAlgorithms.split(",")) {
+                final String trimmed = algorithm.trim();
+                if (!trimmed.isEmpty() && !trimmed.equals("anon") && !trimmed.equals("NULL")) {
+                    stillDisabled.add(trimmed);
+                }
+            }
+
+            Security.setProperty("jdk.tls.disabledAlgorithms", String.join(", ", stillDisabled));
+        }
+
+        System.setProperty("jdk.tls.server.protocols", "TLSv1.2");
+        System.setProperty("jdk.tls.client.protocols", "TLSv1.2");
+    }
+
+    /**
+     * @param eventHubName one of the event hubs in the options
+     * @return a connection string, which clients in this process can use to reach the event hub
+     */
+    public String getConnectionString(final String eventHubName) {
+        if (!this.options.getEventHubs().containsKey(eventHubName)) {
+            throw new IllegalArgumentException(String.format(Locale.US, "eventHub[%s] is not hosted by the emulator", eventHubName));
+        }
+
+        try {
+            return new ConnectionStringBuilder(new URI("amqps://" + this.options.getHostName()), eventHubName, SHARED_ACCESS_KEY_NAME, SHARED_ACCESS_KEY).toString();
+        } catch (URISyntaxException exception) {
+            throw new IllegalArgumentException(String.format(Locale.US, "hostName[%s] is not valid", this.options.getHostName()), exception);
+        }
+    }
+
+    /**
+     * Closes all client connections and stops listening - the events in the partitions are discarded.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (this.isClosed) {
+            return;
+        }
+
+        this.isClosed = true;
+        this.dispatcher.invoke(new DispatchHandler() {
+            @Override
+            public void onEvent() {
+                EventHubEmulator.this.acceptor.close();
+                EventHubEmulator.this.handler.closeConnections();
+                EventHubEmulator.this.reactor.schedule(SHUTDOWN_POLL_INTERVAL_MS, new ShutdownHandler(System.currentTimeMillis() + SHUTDOWN_GRACE_MS));
+            }
+        });
+
+        try {
+            this.reactorThread.join(2 * SHUTDOWN_GRACE_MS);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void runReactor() {
+        try {
+            this.reactor.start();
+            while (!this.isStopped && this.reactor.process()) {
+            }
+
+            this.reactor.stop();
+        } catch (HandlerException handlerException) {
+            if (TRACE_LOGGER.isLoggable(Level.WARNING)) {
+                TRACE_LOGGER.log(Level.WARNING, "emulator reactor stopped with an error", handlerException);
+            }
+        } finally {
+            this.reactor.free();
+        }
+    }
+
+    // waits for the closed connections to go away - upto the grace period - and then stops the reactor
+    private final class ShutdownHandler extends BaseHandler {
+        private final long deadlineMillis;
+
+        ShutdownHandler(final long deadlineMillis) {
+            this.deadlineMillis = deadlineMillis;
+        }
+
+        @Override
+        public void onTimerTask(Event event) {
+            if (EventHubEmulator.this.handler.getConnectionCount() == 0 || System.currentTimeMillis() >= this.deadlineMillis) {
+                EventHubEmulator.this.isStopped = true;
+            } else {
+                event.getReactor().schedule(SHUTDOWN_POLL_INTERVAL_MS, this);
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+package com.microsoft.azure.eventhubs.emulator;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ingress limit of an event hub - events and bytes admitted per 1 second window, for its throughput units.
+ * <p>
+ * Only to be used on the emulator's reactor thread.
+ */
+final class IngressThrottle {
+    private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final long eventsPerSecond;
+    private final long bytesPerSecond;
+
+    private long windowStartNanos;
+    private long windowEvents;
+    private long windowBytes;
+
+    /**
+     * @param throughputUnits 0 admits everything
+     */
+    IngressThrottle(final int throughputUnits) {
+        this.eventsPerSecond = (long) throughputUnits * EmulatorOptions.EVENTS_PER_SECOND_PER_THROUGHPUT_UNIT;
+        this.bytesPerSecond = (long) throughputUnits * EmulatorOptions.BYTES_PER_SECOND_PER_THROUGHPUT_UNIT;
+        this.windowStartNanos = System.nanoTime();
+    }
+
+    /**
+     * @return true if the transfer is within the limit (and is accounted for) - false if it is to be rejected with ServerBusy
+     */
+    boolean tryAdmit(final int events, final int bytes) {
+        if (this.eventsPerSecond == 0) {
+            return true;
+        }
+
+        final long now = System.nanoTime();
+        if (now - this.windowStartNanos >= WINDOW_NANOS) {
+            this.windowStartNanos = now;
+            this.windowEvents = 0;
+            this.windowBytes = 0;
+        }
+
+        // a transfer bigger than the whole limit is still admitted into an empty window - otherwise, it could never go through
+        final boolean isWindowEmpty = this.windowEvents == 0;
+        if (!isWindowEmpty && (this.windowEvents + events > this.eventsPerSecond || this.windowBytes + bytes > this.bytesPerSecond)) {
+            return false;
+        }
+
+        this.windowEvents += events;
+        this.windowBytes += bytes;
+        return true;
+    }
+}
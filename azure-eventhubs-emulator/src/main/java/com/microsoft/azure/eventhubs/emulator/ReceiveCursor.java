@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+package com.microsoft.azure.eventhubs.emulator;
+
+import java.nio.ByteBuffer;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.qpid.proton.amqp.Symbol;
+import org.apache.qpid.proton.engine.EndpointState;
+import org.apache.qpid.proton.engine.Sender;
+
+import com.microsoft.azure.eventhubs.ClientConstants;
+
+/**
+ * Position of a receive link in a partition - delivers the events from it, as the link has credit.
+ * <p>
+ * Only to be used on the emulator's reactor thread.
+ */
+final class ReceiveCursor {
+    private final Sender link;
+    private final EmulatedPartition partition;
+    private final String consumerGroup;
+    private final Long epoch;
+    private final boolean isRuntimeMetricEnabled;
+    private final EventCodec codec;
+
+    private long nextSequenceNumber;
+    private long deliveryCount;
+
+    ReceiveCursor(final Sender link, final EmulatedPartition partition, final String consumerGroup, final Long epoch,
+                  final boolean isRuntimeMetricEnabled, final long startSequenceNumber, final EventCodec codec) {
+        this.link = link;
+        this.partition = partition;
+        this.consumerGroup = consumerGroup;
+        this.epoch = epoch;
+        this.isRuntimeMetricEnabled = isRuntimeMetricEnabled;
+        this.nextSequenceNumber = startSequenceNumber;
+        this.codec = codec;
+    }
+
+    Sender getLink() {
+        return this.link;
+    }
+
+    EmulatedPartition getPartition() {
+        return this.partition;
+    }
+
+    String getConsumerGroup() {
+        return this.consumerGroup;
+    }
+
+    /**
+     * @return epoch of the receiver - null for a non-epoch receiver
+     */
+    Long getEpoch() {
+        return this.epoch;
+    }
+
+    void pump() {
+        while (this.link.getCredit() > 0 && this.link.getLocalState() == EndpointState.ACTIVE) {
+            // events expired from the log are skipped - the receiver continues from the oldest retained event
+            if (this.nextSequenceNumber < this.partition.getBeginSequenceNumber()) {
+                this.nextSequenceNumber = this.partition.getBeginSequenceNumber();
+            }
+
+            final EmulatedPartition.StoredEvent event = this.partition.get(this.nextSequenceNumber);
+            if (event == null) {
+                return;
+            }
+
+            final byte[] bytes = this.isRuntimeMetricEnabled
+                    ? this.codec.withDeliveryAnnotations(event.bytes, this.lastEnqueuedEventProperties())
+                    : event.bytes;
+
+            this.link.delivery(ByteBuffer.allocate(Long.BYTES).putLong(this.deliveryCount++).array());
+            this.link.send(bytes, 0, bytes.length);
+            this.link.advance();
+            this.nextSequenceNumber++;
+        }
+    }
+
+    private Map<Symbol, Object> lastEnqueuedEventProperties() {
+        final EmulatedPartition.StoredEvent lastEnqueued = this.partition.getLastEnqueuedEvent();
+        final Map<Symbol, Object> properties = new HashMap<>();
+        properties.put(ClientConstants.LAST_ENQUEUED_SEQUENCE_NUMBER, lastEnqueued.sequenceNumber);
+        properties.put(ClientConstants.LAST_ENQUEUED_OFFSET, Long.toString(lastEnqueued.offset));
+        properties.put(ClientConstants.LAST_ENQUEUED_TIME_UTC, new Date(lastEnqueued.enqueuedTimeMillis));
+        return properties;
+    }
+}
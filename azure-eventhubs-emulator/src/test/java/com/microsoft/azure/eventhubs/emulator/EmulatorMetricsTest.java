@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+package com.microsoft.azure.eventhubs.emulator;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.microsoft.azure.eventhubs.EventData;
+import com.microsoft.azure.eventhubs.EventHubClient;
+import com.microsoft.azure.eventhubs.PartitionReceiver;
+import com.microsoft.azure.eventhubs.PartitionSender;
+import com.microsoft.azure.eventhubs.metrics.EventHubMetrics;
+import com.microsoft.azure.eventhubs.metrics.InMemoryMetricsProvider;
+import com.microsoft.azure.eventhubs.metrics.MetricNames;
+import com.microsoft.azure.eventhubs.metrics.MetricTags;
+
+public class EmulatorMetricsTest
+{
+	static final String EVENT_HUB = "metered";
+	static final String PARTITION_ID = "0";
+	static final int EVENT_COUNT = 10;
+	static final int EVENT_SIZE = 64;
+
+	static EventHubEmulator emulator;
+	static EventHubClient ehClient;
+	static InMemoryMetricsProvider metrics;
+
+	@BeforeClass
+	public static void startEmulator() throws Exception
+	{
+		EventHubEmulator.enableAnonymousTls();
+
+		final EmulatorOptions options = new EmulatorOptions();
+		options.addEventHub(EVENT_HUB, 2);
+		emulator = EventHubEmulator.start(options);
+
+		// instruments are resolved when the connection, senders and receivers are created
+		metrics = new InMemoryMetricsProvider();
+		EventHubMetrics.setProvider(metrics);
+
+		ehClient = EventHubClient.createFromConnectionStringSync(emulator.getConnectionString(EVENT_HUB));
+	}
+
+	@Test
+	public void sendAndReceiveAreMetered() throws Exception
+	{
+		final PartitionSender sender = ehClient.createPartitionSenderSync(PARTITION_ID);
+		for (int index = 0; index < EVENT_COUNT; index++)
+			sender.sendSync(new EventData(new byte[EVENT_SIZE]));
+
+		sender.closeSync();
+
+		final MetricTags senderTags = MetricTags.forEntityPath(EVENT_HUB + "/Partitions/" + PARTITION_ID);
+		Assert.assertEquals(PARTITION_ID, senderTags.getPartitionId());
+		Assert.assertEquals(EVENT_COUNT, metrics.getCount(MetricNames.SENDER_SENDS, senderTags));
+		Assert.assertEquals(EVENT_COUNT, metrics.getCount(MetricNames.SENDER_ACKS, senderTags));
+		Assert.assertEquals(0, metrics.getCount(MetricNames.SENDER_REJECTS, senderTags));
+		Assert.assertTrue(metrics.getCount(MetricNames.SENDER_BYTES, senderTags) > EVENT_COUNT * EVENT_SIZE);
+		Assert.assertEquals(0, metrics.getGaugeValue(MetricNames.SENDER_IN_FLIGHT, senderTags));
+		Assert.assertEquals(EVENT_COUNT, metrics.getHistogram(MetricNames.SENDER_ACK_LATENCY, senderTags).getCount());
+
+		final PartitionReceiver receiver = ehClient.createReceiverSync(EventHubClient.DEFAULT_CONSUMER_GROUP_NAME, PARTITION_ID, PartitionReceiver.START_OF_STREAM);
+		try
+		{
+			Assert.assertEquals(EVENT_COUNT, EventHubEmulatorTest.receive(receiver, EVENT_COUNT).size());
+		}
+		finally
+		{
+			receiver.closeSync();
+		}
+
+		final MetricTags receiverTags = MetricTags.of(EVENT_HUB + "/ConsumerGroups/" + EventHubClient.DEFAULT_CONSUMER_GROUP_NAME, PARTITION_ID);
+		Assert.assertEquals(EVENT_COUNT, metrics.getCount(MetricNames.RECEIVER_DELIVERIES, receiverTags));
+		Assert.assertTrue(metrics.getCount(MetricNames.RECEIVER_CREDIT_ISSUED, receiverTags) >= EVENT_COUNT);
+
+		Assert.assertEquals(1, metrics.getTotalCount(MetricNames.CONNECTION_OPENS));
+		Assert.assertEquals(0, metrics.getTotalCount(MetricNames.CONNECTION_RECONNECTS));
+	}
+
+	@AfterClass
+	public static void stopEmulator() throws Exception
+	{
+		if (ehClient != null)
+			ehClient.closeSync();
+
+		if (emulator != null)
+			emulator.close();
+
+		EventHubMetrics.setProvider(null);
+	}
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+package com.microsoft.azure.eventhubs.emulator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.microsoft.azure.eventhubs.EventData;
+import com.microsoft.azure.eventhubs.EventHubClient;
+import com.microsoft.azure.eventhubs.PartitionSender;
+import com.microsoft.azure.eventhubs.RetryPolicy;
+import com.microsoft.azure.eventhubs.ServerBusyException;
+
+public class EmulatorThrottlingTest
+{
+	static final String EVENT_HUB = "throttled";
+	static final int BATCH_SIZE = 100;
+
+	static EventHubEmulator emulator;
+	static EventHubClient ehClient;
+
+	@BeforeClass
+	public static void startEmulator() throws Exception
+	{
+		EventHubEmulator.enableAnonymousTls();
+
+		final EmulatorOptions options = new EmulatorOptions();
+		options.addEventHub(EVENT_HUB, 2);
+		options.setThroughputUnits(1);
+		emulator = EventHubEmulator.start(options);
+
+		// without retries, the first throttled send surfaces ServerBusy
+		ehClient = EventHubClient.createFromConnectionStringSync(emulator.getConnectionString(EVENT_HUB), RetryPolicy.getNoRetry());
+	}
+
+	@Test
+	public void sendsBeyondThroughputUnitsAreRejected() throws Exception
+	{
+		final List<EventData> batch = new ArrayList<>();
+		for (int index = 0; index < BATCH_SIZE; index++)
+			batch.add(new EventData(new byte[16]));
+
+		final PartitionSender sender = ehClient.createPartitionSenderSync("0");
+		int acceptedEvents = 0;
+		try
+		{
+			// 1 throughput unit admits 1000 events per second
+			for (int attempt = 0; attempt < 20; attempt++)
+			{
+				sender.sendSync(batch);
+				acceptedEvents += BATCH_SIZE;
+			}
+
+			Assert.fail("sends beyond the throughput units should be throttled");
+		}
+		catch (ServerBusyException expected)
+		{
+		}
+		finally
+		{
+			sender.closeSync();
+		}
+
+		Assert.assertTrue(acceptedEvents >= 1000);
+		Assert.assertEquals(acceptedEvents - 1, ehClient.getPartitionRuntimeInformation("0").get().getLastEnqueuedSequenceNumber());
+	}
+
+	@AfterClass
+	public static void stopEmulator() throws Exception
+	{
+		if (ehClient != null)
+			ehClient.closeSync();
+
+		if (emulator != null)
+			emulator.close();
+	}
+}
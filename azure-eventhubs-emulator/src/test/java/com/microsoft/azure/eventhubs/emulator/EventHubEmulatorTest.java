@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+package com.microsoft.azure.eventhubs.emulator;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.microsoft.azure.eventhubs.EventData;
+import com.microsoft.azure.eventhubs.EventHubClient;
+import com.microsoft.azure.eventhubs.EventHubPartitionRuntimeInformation;
+import com.microsoft.azure.eventhubs.EventHubRuntimeInformation;
+import com.microsoft.azure.eventhubs.PartitionReceiver;
+import com.microsoft.azure.eventhubs.PartitionSender;
+import com.microsoft.azure.eventhubs.ReceiverDisconnectedException;
+
+public class EventHubEmulatorTest
+{
+	static final String EVENT_HUB = "hub";
+	static final String KEYED_EVENT_HUB = "keyed";
+	static final int PARTITION_COUNT = 4;
+	static final String CONSUMER_GROUP = EventHubClient.DEFAULT_CONSUMER_GROUP_NAME;
+
+	static EventHubEmulator emulator;
+	static EventHubClient ehClient;
+	static EventHubClient keyedEhClient;
+
+	@BeforeClass
+	public static void startEmulator() throws Exception
+	{
+		EventHubEmulator.enableAnonymousTls();
+
+		final EmulatorOptions options = new EmulatorOptions();
+		options.addEventHub(EVENT_HUB, PARTITION_COUNT);
+		options.addEventHub(KEYED_EVENT_HUB, PARTITION_COUNT);
+		emulator = EventHubEmulator.start(options);
+
+		ehClient = EventHubClient.createFromConnectionStringSync(emulator.getConnectionString(EVENT_HUB));
+		keyedEhClient = EventHubClient.createFromConnectionStringSync(emulator.getConnectionString(KEYED_EVENT_HUB));
+	}
+
+	@Test
+	public void receiveFromOffsetsAndSequenceNumbers() throws Exception
+	{
+		final PartitionSender sender = ehClient.createPartitionSenderSync("0");
+		for (int index = 0; index < 10; index++)
+			sender.sendSync(new EventData(("event" + index).getBytes()));
+
+		final List<EventData> events = receiveAndClose(ehClient.createReceiverSync(CONSUMER_GROUP, "0", PartitionReceiver.START_OF_STREAM), 10);
+		for (int index = 0; index < 10; index++)
+		{
+			Assert.assertEquals("event" + index, new String(events.get(index).getBytes()));
+			Assert.assertEquals(index, events.get(index).getSystemProperties().getSequenceNumber());
+		}
+
+		final String offset = events.get(4).getSystemProperties().getOffset();
+		Assert.assertEquals(5, receiveAndClose(ehClient.createReceiverSync(CONSUMER_GROUP, "0", offset), 1).get(0).getSystemProperties().getSequenceNumber());
+		Assert.assertEquals(4, receiveAndClose(ehClient.createReceiverSync(CONSUMER_GROUP, "0", offset, true), 1).get(0).getSystemProperties().getSequenceNumber());
+
+		final EventHubPartitionRuntimeInformation partitionInfo = ehClient.getPartitionRuntimeInformation("0").get();
+		Assert.assertEquals(9, partitionInfo.getLastEnqueuedSequenceNumber());
+		Assert.assertEquals(events.get(9).getSystemProperties().getOffset(), partitionInfo.getLastEnqueuedOffset());
+
+		sender.closeSync();
+	}
+
+	@Test
+	public void receiveFromEnqueuedTime() throws Exception
+	{
+		final PartitionSender sender = ehClient.createPartitionSenderSync("1");
+		sender.sendSync(new EventData("before".getBytes()));
+		final Instant between = Instant.now();
+		Thread.sleep(10);
+		sender.sendSync(new EventData("after".getBytes()));
+
+		final List<EventData> events = receiveAndClose(ehClient.createReceiverSync(CONSUMER_GROUP, "1", between), 1);
+		Assert.assertEquals("after", new String(events.get(0).getBytes()));
+
+		sender.closeSync();
+	}
+
+	@Test
+	public void batchWithPartitionKeyLandsInOnePartition() throws Exception
+	{
+		final List<EventData> batch = new ArrayList<>();
+		for (int index = 0; index < 5; index++)
+			batch.add(new EventData(("keyed" + index).getBytes()));
+
+		keyedEhClient.sendSync(batch, "key");
+		keyedEhClient.sendSync(batch, "key");
+
+		final EventHubRuntimeInformation eventHubInfo = keyedEhClient.getRuntimeInformation().get();
+		Assert.assertEquals(PARTITION_COUNT, eventHubInfo.getPartitionCount());
+
+		final Set<String> partitionsWithEvents = new HashSet<>();
+		for (String partitionId : eventHubInfo.getPartitionIds())
+		{
+			final EventHubPartitionRuntimeInformation partitionInfo = keyedEhClient.getPartitionRuntimeInformation(partitionId).get();
+			if (partitionInfo.getLastEnqueuedSequenceNumber() >= 0)
+			{
+				partitionsWithEvents.add(partitionId);
+				Assert.assertEquals(9, partitionInfo.getLastEnqueuedSequenceNumber());
+
+				final List<EventData> events = receiveAndClose(keyedEhClient.createReceiverSync(CONSUMER_GROUP, partitionId, PartitionReceiver.START_OF_STREAM), 10);
+				Assert.assertEquals("keyed4", new String(events.get(9).getBytes()));
+				Assert.assertEquals("key", events.get(9).getSystemProperties().getPartitionKey());
+			}
+		}
+
+		Assert.assertEquals(1, partitionsWithEvents.size());
+	}
+
+	@Test
+	public void epochReceiverDisconnectsOtherReceivers() throws Exception
+	{
+		ehClient.createPartitionSenderSync("3").sendSync(new EventData("epoch".getBytes()));
+
+		final PartitionReceiver receiver = ehClient.createReceiverSync(CONSUMER_GROUP, "3", PartitionReceiver.START_OF_STREAM);
+		Assert.assertEquals(1, receive(receiver, 1).size());
+
+		final PartitionReceiver epochReceiver = ehClient.createEpochReceiverSync(CONSUMER_GROUP, "3", PartitionReceiver.START_OF_STREAM, 2);
+		try
+		{
+			receiver.receiveSync(10);
+			Assert.fail("a non-epoch receiver should be disconnected by an epoch receiver");
+		}
+		catch (ReceiverDisconnectedException expected)
+		{
+		}
+
+		try
+		{
+			ehClient.createEpochReceiverSync(CONSUMER_GROUP, "3", PartitionReceiver.START_OF_STREAM, 1);
+			Assert.fail("a receiver with a lower epoch should be refused");
+		}
+		catch (ReceiverDisconnectedException expected)
+		{
+		}
+
+		Assert.assertEquals(1, receiveAndClose(epochReceiver, 1).size());
+	}
+
+	static List<EventData> receive(final PartitionReceiver receiver, final int count) throws Exception
+	{
+		final List<EventData> events = new ArrayList<>();
+		while (events.size() < count)
+		{
+			final Iterable<EventData> received = receiver.receiveSync(count - events.size());
+			Assert.assertNotNull("receive timed out", received);
+			for (EventData event : received)
+				events.add(event);
+		}
+
+		return events;
+	}
+
+	static List<EventData> receiveAndClose(final PartitionReceiver receiver, final int count) throws Exception
+	{
+		try
+		{
+			return receive(receiver, count);
+		}
+		finally
+		{
+			receiver.closeSync();
+		}
+	}
+
+	@AfterClass
+	public static void stopEmulator() throws Exception
+	{
+		if (ehClient != null)
+			ehClient.closeSync();
+
+		if (keyedEhClient != null)
+			keyedEhClient.closeSync();
+
+		if (emulator != null)
+			emulator.close();
+	}
+}
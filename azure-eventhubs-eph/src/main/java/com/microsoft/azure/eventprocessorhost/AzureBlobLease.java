@@ -17,6 +17,9 @@ class AzureBlobLease extends Lease
 	private transient BlobRequestOptions options; // do not serialize
 	private String offset = null; // null means checkpoint is uninitialized
 	private long sequenceNumber = 0;
+	// Leases read from a blob listing only know the ownership - the checkpoint fields are not loaded from the blob content.
+	private transient boolean checkpointLoaded = true; // do not serialize
+	private transient LeaseState listedLeaseState = null; // do not serialize
 
 	// not intended to be used; built for GSon
 	private AzureBlobLease()
@@ -36,6 +39,7 @@ class AzureBlobLease extends Lease
 		super(source);
 		this.offset = source.offset;
 		this.sequenceNumber = source.sequenceNumber;
+		this.checkpointLoaded = source.checkpointLoaded;
 		this.blob = source.blob;
 		this.options = source.options;
 	}
@@ -58,6 +62,22 @@ class AzureBlobLease extends Lease
 	
 	CloudBlockBlob getBlob() { return this.blob; }
 	
+	boolean isCheckpointLoaded() { return this.checkpointLoaded; }
+	
+	// A lease built from a blob listing: the lease state comes from the listing, the checkpoint is not known
+	void setListed(LeaseState leaseState)
+	{
+		this.checkpointLoaded = false;
+		this.listedLeaseState = leaseState;
+	}
+	
+	void setCheckpointLoaded(String offset, long sequenceNumber)
+	{
+		this.offset = offset;
+		this.sequenceNumber = sequenceNumber;
+		this.checkpointLoaded = true;
+	}
+	
 	void setOffset(String offset) { this.offset = offset; }
 	
 	String getOffset() { return this.offset; }
@@ -74,8 +94,17 @@ class AzureBlobLease extends Lease
 	@Override
 	public boolean isExpired() throws Exception
 	{
-		this.blob.downloadAttributes(null, options, null); // Get the latest metadata
-		LeaseState currentState = this.blob.getProperties().getLeaseState();
+		LeaseState currentState = this.listedLeaseState;
+		if (currentState != null)
+		{
+			// The state from the listing is only as fresh as the scan - use it once, go to storage after that
+			this.listedLeaseState = null;
+		}
+		else
+		{
+			this.blob.downloadAttributes(null, options, null); // Get the latest metadata
+			currentState = this.blob.getProperties().getLeaseState();
+		}
 		return (currentState != LeaseState.LEASED); 
 	}
 	
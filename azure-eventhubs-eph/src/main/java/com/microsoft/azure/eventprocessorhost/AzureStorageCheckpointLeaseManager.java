@@ -6,11 +6,17 @@
 package com.microsoft.azure.eventprocessorhost;
 
 import java.io.IOException;
+import java.io.UnsupportedEncodingException;
 import java.net.URISyntaxException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
 import java.security.InvalidKeyException;
 import java.util.ArrayList;
 import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.Hashtable;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.concurrent.*;
 import java.util.logging.Level;
 import java.util.regex.Matcher;
@@ -47,12 +53,21 @@ class AzureStorageCheckpointLeaseManager implements ICheckpointManager, ILeaseMa
     
     private Gson gson;
     
+    // Storage calls run on a bounded pool of their own, not on the host's executor
+    private StorageIoExecutor storageIo;
+    
     private final BlobRequestOptions leaseOperationOptions = new BlobRequestOptions();
     private final BlobRequestOptions checkpointOperationOptions = new BlobRequestOptions();
     private final BlobRequestOptions renewRequestOptions = new BlobRequestOptions();
     
     private enum UploadActivity { Create, Acquire, Release, Update };
 
+    // Ownership is also kept in the metadata of the lease blobs, so that one listing can read it for all partitions
+    private static final String METADATA_OWNER = "OWNINGHOST";
+    private static final String METADATA_EPOCH = "EPOCH";
+    private static final String METADATA_TOKEN = "LEASETOKEN";
+    private static final String METADATA_ENCODING = "UTF-8";
+
     private Hashtable<String, Checkpoint> latestCheckpoint = new Hashtable<String, Checkpoint>(); 
 
     
@@ -119,6 +134,11 @@ class AzureStorageCheckpointLeaseManager implements ICheckpointManager, ILeaseMa
         this.consumerGroupDirectory = this.eventHubContainer.getDirectoryReference(this.storageBlobPrefix + this.host.getConsumerGroupName());
         
         this.gson = new Gson();
+        
+        PartitionManagerOptions options = host.getPartitionManagerOptions();
+        int storageIoThreadCount = (options instanceof AzureStoragePartitionManagerOptions) ?
+        		((AzureStoragePartitionManagerOptions)options).getStorageIoThreadCount() : AzureStoragePartitionManagerOptions.DefaultStorageIoThreadCount;
+        this.storageIo = new StorageIoExecutor(this.host.getEventHubPath(), storageIoThreadCount);
 
         this.leaseOperationOptions.setMaximumExecutionTimeInMs(host.getPartitionManagerOptions().getLeaseDurationInSeconds() * 1000);
         this.storageClient.setDefaultRequestOptions(this.leaseOperationOptions);
@@ -156,7 +176,7 @@ class AzureStorageCheckpointLeaseManager implements ICheckpointManager, ILeaseMa
     @Override
     public Future<Checkpoint> getCheckpoint(String partitionId)
     {
-        return EventProcessorHost.getExecutorService().submit(() -> getCheckpointSync(partitionId));
+        return this.storageIo.submit(() -> getCheckpointSync(partitionId));
     }
     
     private Checkpoint getCheckpointSync(String partitionId) throws URISyntaxException, IOException, StorageException
@@ -176,7 +196,7 @@ class AzureStorageCheckpointLeaseManager implements ICheckpointManager, ILeaseMa
     @Override
     public Future<Checkpoint> createCheckpointIfNotExists(String partitionId)
     {
-        return EventProcessorHost.getExecutorService().submit(() -> createCheckpointIfNotExistsSync(partitionId));
+        return this.storageIo.submit(() -> createCheckpointIfNotExistsSync(partitionId));
     }
     
     private Checkpoint createCheckpointIfNotExistsSync(String partitionId) throws Exception
@@ -203,7 +223,7 @@ class AzureStorageCheckpointLeaseManager implements ICheckpointManager, ILeaseMa
     @Override
     public Future<Void> updateCheckpoint(Lease lease, Checkpoint checkpoint)
     {
-    	return EventProcessorHost.getExecutorService().submit(() -> updateCheckpointSync(lease, checkpoint));
+    	return this.storageIo.submit(() -> updateCheckpointSync(lease, checkpoint));
     }
     
     private Void updateCheckpointSync(Lease lease, Checkpoint checkpoint) throws Exception
@@ -219,7 +239,7 @@ class AzureStorageCheckpointLeaseManager implements ICheckpointManager, ILeaseMa
     @Override
     public Future<Void> deleteCheckpoint(String partitionId)
     {
-    	return EventProcessorHost.getExecutorService().submit(() -> deleteCheckpointSync(partitionId));
+    	return this.storageIo.submit(() -> deleteCheckpointSync(partitionId));
     }
     
     private Void deleteCheckpointSync(String partitionId) throws Exception
@@ -258,7 +278,7 @@ class AzureStorageCheckpointLeaseManager implements ICheckpointManager, ILeaseMa
     
     private Future<Boolean> leaseStoreExists(BlobRequestOptions options)
     {
-    	return EventProcessorHost.getExecutorService().submit(() -> this.eventHubContainer.exists(null, options, null));
+    	return this.storageIo.submit(() -> this.eventHubContainer.exists(null, options, null));
     }
 
     @Override
@@ -269,18 +289,18 @@ class AzureStorageCheckpointLeaseManager implements ICheckpointManager, ILeaseMa
     
     private Future<Boolean> createLeaseStoreIfNotExists(BlobRequestOptions options)
     {
-    	return EventProcessorHost.getExecutorService().submit(() -> this.eventHubContainer.createIfNotExists(options, null));
+    	return this.storageIo.submit(() -> this.eventHubContainer.createIfNotExists(options, null));
     }
 
     @Override
     public Future<Boolean> deleteLeaseStore()
     {
-    	return EventProcessorHost.getExecutorService().submit(() -> deleteLeaseStoreSync(this.leaseOperationOptions));
+    	return this.storageIo.submit(() -> deleteLeaseStoreSync(this.leaseOperationOptions));
     }
     
     private Future<Boolean> deleteLeaseStore(BlobRequestOptions options)
     {
-    	return EventProcessorHost.getExecutorService().submit(() -> deleteLeaseStoreSync(options));
+    	return this.storageIo.submit(() -> deleteLeaseStoreSync(options));
     }
     
     private Boolean deleteLeaseStoreSync(BlobRequestOptions options)
@@ -334,7 +354,7 @@ class AzureStorageCheckpointLeaseManager implements ICheckpointManager, ILeaseMa
     @Override
     public Future<Lease> getLease(String partitionId)
     {
-        return EventProcessorHost.getExecutorService().submit(() -> getLeaseSync(partitionId, this.leaseOperationOptions));
+        return this.storageIo.submit(() -> getLeaseSync(partitionId, this.leaseOperationOptions));
     }
     
     private AzureBlobLease getLeaseSync(String partitionId, BlobRequestOptions options) throws URISyntaxException, IOException, StorageException
@@ -353,19 +373,99 @@ class AzureStorageCheckpointLeaseManager implements ICheckpointManager, ILeaseMa
     @Override
     public Iterable<Future<Lease>> getAllLeases() throws IllegalEntityException
     {
-        ArrayList<Future<Lease>> leaseFutures = new ArrayList<Future<Lease>>();
         String[] partitionIds = this.host.getPartitionManager().getPartitionIds();
+        PartitionManagerOptions options = this.host.getPartitionManagerOptions();
+        if ((options instanceof AzureStoragePartitionManagerOptions) && ((AzureStoragePartitionManagerOptions)options).getUseBlobListingForLeaseScan())
+        {
+        	return getAllLeasesFromListing(partitionIds);
+        }
+        
+        ArrayList<Future<Lease>> leaseFutures = new ArrayList<Future<Lease>>();
         for (String id : partitionIds)
         {
             leaseFutures.add(getLease(id));
         }
         return leaseFutures;
     }
+    
+    // One listing of the consumer group directory - with metadata, lease state comes with the blob properties - answers for
+    // all partitions whose lease blob has the ownership metadata. The others are read one by one, as without the listing.
+    private Iterable<Future<Lease>> getAllLeasesFromListing(String[] partitionIds)
+    {
+    	LinkedHashMap<String, CompletableFuture<Lease>> leaseFutures = new LinkedHashMap<String, CompletableFuture<Lease>>();
+        for (String id : partitionIds)
+        {
+            leaseFutures.put(id, new CompletableFuture<Lease>());
+        }
+        
+        this.storageIo.submit(() ->
+        {
+        	try
+        	{
+        		for (ListBlobItem item : this.consumerGroupDirectory.listBlobs(null, false, EnumSet.of(BlobListingDetails.METADATA), this.leaseOperationOptions, null))
+        		{
+        			if (item instanceof CloudBlockBlob)
+        			{
+        				CloudBlockBlob leaseBlob = (CloudBlockBlob)item;
+        				String partitionId = leaseBlob.getName().substring(leaseBlob.getName().lastIndexOf('/') + 1);
+        				CompletableFuture<Lease> leaseFuture = leaseFutures.get(partitionId);
+        				AzureBlobLease listedLease = (leaseFuture != null) ? leaseFromListing(partitionId, leaseBlob) : null;
+        				if (listedLease != null)
+        				{
+        					leaseFuture.complete(listedLease);
+        				}
+        			}
+        		}
+        	}
+        	catch (Exception e)
+        	{
+        		this.host.logWithHost(Level.WARNING, "Failure listing leases, reading them one by one", e);
+        	}
+        	
+        	for (Map.Entry<String, CompletableFuture<Lease>> entry : leaseFutures.entrySet())
+        	{
+        		if (!entry.getValue().isDone())
+        		{
+        			try
+        			{
+        				entry.getValue().complete(getLeaseSync(entry.getKey(), this.leaseOperationOptions));
+        			}
+        			catch (Exception e)
+        			{
+        				entry.getValue().completeExceptionally(e);
+        			}
+        		}
+        	}
+        	return null;
+        });
+        
+        return new ArrayList<Future<Lease>>(leaseFutures.values());
+    }
+    
+    private AzureBlobLease leaseFromListing(String partitionId, CloudBlockBlob leaseBlob) throws UnsupportedEncodingException
+    {
+    	HashMap<String, String> metadata = leaseBlob.getMetadata();
+    	String epoch = metadata.get(AzureStorageCheckpointLeaseManager.METADATA_EPOCH);
+    	if (epoch == null)
+    	{
+    		// written by a host which doesn't keep the ownership in the metadata
+    		return null;
+    	}
+    	
+    	AzureBlobLease listedLease = new AzureBlobLease(partitionId, leaseBlob, this.leaseOperationOptions);
+    	listedLease.setEpoch(Long.parseLong(epoch));
+    	String owner = metadata.get(AzureStorageCheckpointLeaseManager.METADATA_OWNER);
+    	listedLease.setOwner((owner != null) ? URLDecoder.decode(owner, AzureStorageCheckpointLeaseManager.METADATA_ENCODING) : "");
+    	String token = metadata.get(AzureStorageCheckpointLeaseManager.METADATA_TOKEN);
+    	listedLease.setToken((token != null) ? token : "");
+    	listedLease.setListed(leaseBlob.getProperties().getLeaseState());
+    	return listedLease;
+    }
 
     @Override
     public Future<Lease> createLeaseIfNotExists(String partitionId)
     {
-        return EventProcessorHost.getExecutorService().submit(() -> createLeaseIfNotExistsSync(partitionId, this.leaseOperationOptions));
+        return this.storageIo.submit(() -> createLeaseIfNotExistsSync(partitionId, this.leaseOperationOptions));
     }
     
     private AzureBlobLease createLeaseIfNotExistsSync(String partitionId, BlobRequestOptions options) throws URISyntaxException, IOException, StorageException
@@ -407,7 +507,7 @@ class AzureStorageCheckpointLeaseManager implements ICheckpointManager, ILeaseMa
     @Override
     public Future<Void> deleteLease(Lease lease)
     {
-        return EventProcessorHost.getExecutorService().submit(() -> deleteLeaseSync((AzureBlobLease)lease));
+        return this.storageIo.submit(() -> deleteLeaseSync((AzureBlobLease)lease));
     }
     
     private Void deleteLeaseSync(AzureBlobLease lease) throws StorageException
@@ -420,7 +520,7 @@ class AzureStorageCheckpointLeaseManager implements ICheckpointManager, ILeaseMa
     @Override
     public Future<Boolean> acquireLease(Lease lease)
     {
-        return EventProcessorHost.getExecutorService().submit(() -> acquireLeaseSync((AzureBlobLease)lease));
+        return this.storageIo.submit(() -> acquireLeaseSync((AzureBlobLease)lease));
     }
     
     private Boolean acquireLeaseSync(AzureBlobLease lease) throws Exception
@@ -488,7 +588,7 @@ class AzureStorageCheckpointLeaseManager implements ICheckpointManager, ILeaseMa
     @Override
     public Future<Boolean> renewLease(Lease lease)
     {
-        return EventProcessorHost.getExecutorService().submit(() -> renewLeaseSync((AzureBlobLease)lease));
+        return this.storageIo.submit(() -> renewLeaseSync((AzureBlobLease)lease));
     }
     
     private Boolean renewLeaseSync(AzureBlobLease lease) throws Exception
@@ -520,7 +620,7 @@ class AzureStorageCheckpointLeaseManager implements ICheckpointManager, ILeaseMa
     @Override
     public Future<Boolean> releaseLease(Lease lease)
     {
-        return EventProcessorHost.getExecutorService().submit(() -> releaseLeaseSync((AzureBlobLease)lease));
+        return this.storageIo.submit(() -> releaseLeaseSync((AzureBlobLease)lease));
     }
     
     private Boolean releaseLeaseSync(AzureBlobLease lease) throws Exception
@@ -556,7 +656,7 @@ class AzureStorageCheckpointLeaseManager implements ICheckpointManager, ILeaseMa
     @Override
     public Future<Boolean> updateLease(Lease lease)
     {
-        return EventProcessorHost.getExecutorService().submit(() -> updateLeaseSync((AzureBlobLease)lease, this.leaseOperationOptions));
+        return this.storageIo.submit(() -> updateLeaseSync((AzureBlobLease)lease, this.leaseOperationOptions));
     }
     
     public Boolean updateLeaseSync(AzureBlobLease lease, BlobRequestOptions options) throws Exception
@@ -620,6 +720,14 @@ class AzureStorageCheckpointLeaseManager implements ICheckpointManager, ILeaseMa
     private void uploadLease(AzureBlobLease lease, CloudBlockBlob blob, AccessCondition condition, UploadActivity activity, BlobRequestOptions options)
     		throws StorageException, IOException
     {
+    	if ((activity != UploadActivity.Create) && !lease.isCheckpointLoaded() && (lease.getOffset() == null) &&
+    			!this.latestCheckpoint.containsKey(lease.getPartitionId()))
+    	{
+    		// A lease from a blob listing doesn't carry the checkpoint - read it, so that the upload doesn't erase it.
+    		AzureBlobLease stored = this.gson.fromJson(blob.downloadText(null, null, options, null), AzureBlobLease.class);
+    		lease.setCheckpointLoaded(stored.getOffset(), stored.getSequenceNumber());
+    	}
+    	
     	if (activity != UploadActivity.Create)
     	{
     		// It is possible for AzureBlobLease objects in memory to have stale offset/sequence number fields if a
@@ -642,7 +750,23 @@ class AzureStorageCheckpointLeaseManager implements ICheckpointManager, ILeaseMa
     	}
     	
     	String jsonLease = this.gson.toJson(lease);
- 		blob.uploadText(jsonLease, null, condition, options, null);
+    	HashMap<String, String> metadata = new HashMap<String, String>();
+    	metadata.put(AzureStorageCheckpointLeaseManager.METADATA_EPOCH, Long.toString(lease.getEpoch()));
+    	if ((lease.getOwner() != null) && !lease.getOwner().isEmpty())
+    	{
+    		// metadata travels as http headers - so, only ASCII
+    		metadata.put(AzureStorageCheckpointLeaseManager.METADATA_OWNER, URLEncoder.encode(lease.getOwner(), AzureStorageCheckpointLeaseManager.METADATA_ENCODING));
+    	}
+    	if ((lease.getToken() != null) && !lease.getToken().isEmpty())
+    	{
+    		metadata.put(AzureStorageCheckpointLeaseManager.METADATA_TOKEN, lease.getToken());
+    	}
+    	// the blob object is shared by all copies of the lease - keep its metadata and the upload together
+    	synchronized (blob)
+    	{
+    		blob.setMetadata(metadata);
+    		blob.uploadText(jsonLease, null, condition, options, null);
+    	}
 		// During create, we blindly try upload and it may throw. Doing the logging after the upload
 		// avoids a spurious trace in that case.
 		this.host.logWithHostAndPartition(Level.FINEST, lease.getPartitionId(), "Raw JSON uploading for " + activity + ": " + jsonLease);
@@ -7,9 +7,62 @@ package com.microsoft.azure.eventprocessorhost;
 
 public final class AzureStoragePartitionManagerOptions extends PartitionManagerOptions
 {
+	public final static int DefaultStorageIoThreadCount = 32;
+	
+	private boolean useBlobListingForLeaseScan = false;
+	private int storageIoThreadCount = AzureStoragePartitionManagerOptions.DefaultStorageIoThreadCount;
+	
 	public AzureStoragePartitionManagerOptions()
 	{
 	}
+	
+	/**
+	 * Gets whether each lease scan reads the ownership of all partitions with one listing of the lease blobs. Defaults to false.
+	 *
+	 * @return
+	 */
+	public boolean getUseBlobListingForLeaseScan() { return this.useBlobListingForLeaseScan; }
+	
+	/**
+	 * Sets whether each lease scan reads the ownership of all partitions - lease state, owner and epoch - with one listing
+	 * of the lease blobs, instead of about three storage calls per partition. The blob contents, which hold the checkpoints,
+	 * are then only downloaded to read checkpoints.
+	 * <p>
+	 * The listing depends on owner and epoch being kept in the metadata of the lease blobs, which hosts of earlier versions
+	 * don't do. Only enable it once all hosts which share the leases run this version or later. Partitions whose lease blob
+	 * has no such metadata are still read one by one.
+	 *
+	 * @param useBlobListing
+	 */
+	public void setUseBlobListingForLeaseScan(boolean useBlobListing)
+	{
+		this.useBlobListingForLeaseScan = useBlobListing;
+	}
+
+	/**
+	 * Gets the number of threads which make the Azure Storage calls of the lease and checkpoint manager. Defaults to
+	 * DefaultStorageIoThreadCount.
+	 *
+	 * @return
+	 */
+	public int getStorageIoThreadCount() { return this.storageIoThreadCount; }
+	
+	/**
+	 * Sets the number of threads which make the Azure Storage calls of the lease and checkpoint manager - lease scans,
+	 * acquires, renewals and checkpoints. Calls beyond that wait in a queue, so that slow storage doesn't make the number
+	 * of threads grow. Size it for the calls which should be in flight at once: about the lease operations of one scan
+	 * plus the renewals and checkpoints of the partitions the host owns.
+	 *
+	 * @param threadCount
+	 */
+	public void setStorageIoThreadCount(int threadCount)
+	{
+		if (threadCount <= 0)
+		{
+			throw new IllegalArgumentException("Storage I/O thread count must be greater than 0");
+		}
+		this.storageIoThreadCount = threadCount;
+	}
 
 	@Override
 	public void setLeaseDurationInSeconds(int duration)
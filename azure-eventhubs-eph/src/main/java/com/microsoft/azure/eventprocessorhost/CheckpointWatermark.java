@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.eventprocessorhost;
+
+import java.util.ArrayDeque;
+
+/**
+ * Tracks the batches of a partition which are processed concurrently, in the order they were received, and finds how far the
+ * partition has been processed without gaps: up to the last event of the latest batch which - along with every batch received
+ * before it - has completed. A checkpoint at that position never skips an event which is still being processed, however the
+ * batches complete.
+ * <p>
+ * A batch which fails holds the watermark before it for good: the batches received after it are no longer tracked. The partition
+ * pump then closes, and the partition is reopened from the last checkpoint - with a new watermark.
+ */
+final class CheckpointWatermark
+{
+	static final class Batch
+	{
+		private final Checkpoint last;
+		private boolean completed = false;
+		private boolean failed = false;
+
+		private Batch(Checkpoint last)
+		{
+			this.last = last;
+		}
+	}
+
+	// guarded by this
+	private final ArrayDeque<Batch> inFlight = new ArrayDeque<Batch>();
+	private boolean held = false;
+
+	/**
+	 * @param last	position of the last event of the batch, or null for a batch without events
+	 */
+	synchronized Batch started(Checkpoint last)
+	{
+		Batch batch = new Batch(last);
+		if (!this.held)
+		{
+			this.inFlight.addLast(batch);
+		}
+		return batch;
+	}
+
+	/**
+	 * @return the position up to which the partition is now processed without gaps, or null if that didn't move
+	 */
+	synchronized Checkpoint completed(Batch batch)
+	{
+		batch.completed = true;
+
+		Checkpoint advancedTo = null;
+		while (!this.inFlight.isEmpty() && this.inFlight.peekFirst().completed)
+		{
+			Batch done = this.inFlight.removeFirst();
+			if (done.last != null)
+			{
+				advancedTo = done.last;
+			}
+		}
+		return advancedTo;
+	}
+
+	/**
+	 * Holds the watermark before the batch - the batches received before it may still complete and move it that far.
+	 */
+	synchronized void failed(Batch batch)
+	{
+		batch.failed = true;
+		this.held = true;
+		while (!this.inFlight.isEmpty() && !this.inFlight.peekLast().failed)
+		{
+			// can't move the watermark any more
+			this.inFlight.removeLast();
+		}
+	}
+
+	synchronized int getInFlightCount()
+	{
+		return this.inFlight.size();
+	}
+}
@@ -0,0 +1,289 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.eventprocessorhost;
+
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+import com.microsoft.azure.eventhubs.metrics.IHistogram;
+
+/**
+ * Writes the checkpoints of one partition, one write at a time, and coalesces the ones which aren't needed right away:
+ * only the latest position is written, once the checkpoint interval has passed since the first unwritten one, or once the
+ * position has moved by the checkpoint event count since the last write - whichever comes first. Each checkpoint's future
+ * completes when a write at or past its position does.
+ */
+final class CoalescingCheckpointer
+{
+	// Only hands due writes to the host's executor - shared by all partitions of all hosts in the process
+	private static final ScheduledThreadPoolExecutor timer;
+
+	static
+	{
+		timer = new ScheduledThreadPoolExecutor(1, (runnable) ->
+		{
+			Thread timerThread = new Thread(runnable, "eph-checkpoint-timer");
+			timerThread.setDaemon(true);
+			return timerThread;
+		});
+		timer.setRemoveOnCancelPolicy(true);
+	}
+
+	private final EventProcessorHost host;
+	private final PartitionContext context;
+	private final IHistogram latencyMetric;
+	private final long intervalMillis;
+	private final long eventCount;
+
+	// guarded by this
+	private Checkpoint pending = null;
+	private ArrayList<CompletableFuture<Void>> pendingWaiters = new ArrayList<CompletableFuture<Void>>();
+	private boolean writeRequested = false;
+	private CompletableFuture<Void> inFlight = null;
+	private ScheduledFuture<?> scheduledWrite = null;
+	private long countFromSequenceNumber = -1;
+
+	CoalescingCheckpointer(EventProcessorHost host, PartitionContext context, IHistogram latencyMetric, long intervalMillis, long eventCount)
+	{
+		this.host = host;
+		this.context = context;
+		this.latencyMetric = latencyMetric;
+		this.intervalMillis = intervalMillis;
+		this.eventCount = eventCount;
+	}
+
+	/**
+	 * @param checkpoint	position to write
+	 * @param now			true to write without waiting for the interval or the event count
+	 */
+	CompletableFuture<Void> checkpoint(Checkpoint checkpoint, boolean now)
+	{
+		CompletableFuture<Void> waiter = new CompletableFuture<Void>();
+		synchronized (this)
+		{
+			// a position behind the pending one is covered by writing the pending one
+			if ((this.pending == null) || (checkpoint.getSequenceNumber() >= this.pending.getSequenceNumber()))
+			{
+				this.pending = checkpoint;
+			}
+			this.pendingWaiters.add(waiter);
+
+			if (this.countFromSequenceNumber < 0)
+			{
+				this.countFromSequenceNumber = checkpoint.getSequenceNumber();
+			}
+
+			if (now || ((this.pending.getSequenceNumber() - this.countFromSequenceNumber) >= this.eventCount))
+			{
+				this.writeRequested = true;
+			}
+			else
+			{
+				scheduleWrite();
+			}
+		}
+
+		startWriteIfDue();
+		return waiter;
+	}
+
+	/**
+	 * Writes the pending checkpoint right away - if there is one - and completes when all checkpoints so far are written.
+	 */
+	CompletableFuture<Void> flush()
+	{
+		CompletableFuture<Void> flushed = null;
+		synchronized (this)
+		{
+			if (this.pending != null)
+			{
+				flushed = new CompletableFuture<Void>();
+				this.pendingWaiters.add(flushed);
+				this.writeRequested = true;
+			}
+			else
+			{
+				flushed = (this.inFlight != null) ? this.inFlight : CompletableFuture.completedFuture(null);
+			}
+		}
+
+		startWriteIfDue();
+		return flushed;
+	}
+
+	// guarded by this
+	private void scheduleWrite()
+	{
+		if (this.scheduledWrite == null)
+		{
+			try
+			{
+				this.scheduledWrite = CoalescingCheckpointer.timer.schedule(() -> onInterval(), this.intervalMillis, TimeUnit.MILLISECONDS);
+			}
+			catch (RejectedExecutionException e)
+			{
+				this.writeRequested = true;
+			}
+		}
+	}
+
+	private void onInterval()
+	{
+		synchronized (this)
+		{
+			this.scheduledWrite = null;
+			this.writeRequested = true;
+		}
+		startWriteIfDue();
+	}
+
+	private void startWriteIfDue()
+	{
+		Checkpoint toWrite = null;
+		ArrayList<CompletableFuture<Void>> waiters = null;
+		CompletableFuture<Void> written = null;
+		synchronized (this)
+		{
+			if ((this.inFlight != null) || (this.pending == null) || !this.writeRequested)
+			{
+				return;
+			}
+
+			toWrite = this.pending;
+			waiters = this.pendingWaiters;
+			this.pending = null;
+			this.pendingWaiters = new ArrayList<CompletableFuture<Void>>();
+			this.writeRequested = false;
+			if (this.scheduledWrite != null)
+			{
+				this.scheduledWrite.cancel(false);
+				this.scheduledWrite = null;
+			}
+			written = new CompletableFuture<Void>();
+			this.inFlight = written;
+		}
+
+		final Checkpoint capturedCheckpoint = toWrite;
+		final ArrayList<CompletableFuture<Void>> capturedWaiters = waiters;
+		final CompletableFuture<Void> capturedWritten = written;
+		try
+		{
+			EventProcessorHost.getExecutorService().submit(() -> write(capturedCheckpoint, capturedWaiters, capturedWritten));
+		}
+		catch (RejectedExecutionException e)
+		{
+			// the host is shutting down
+			completeWrite(capturedCheckpoint, capturedWaiters, capturedWritten, e);
+		}
+	}
+
+	private void write(Checkpoint checkpoint, ArrayList<CompletableFuture<Void>> waiters, CompletableFuture<Void> written)
+	{
+		this.host.logWithHostAndPartition(Level.FINER, checkpoint.getPartitionId(), "Saving checkpoint: " +
+				checkpoint.getOffset() + "//" + checkpoint.getSequenceNumber());
+
+		final long startNanos = System.nanoTime();
+		Future<Void> writing = null;
+		try
+		{
+			writing = this.host.getCheckpointManager().updateCheckpoint(this.context.getLease(), checkpoint);
+		}
+		catch (Exception e)
+		{
+			completeWrite(checkpoint, waiters, written, e);
+			return;
+		}
+
+		if (writing instanceof CompletableFuture)
+		{
+			// the checkpoint manager completes the write on its own threads, so no thread of the host waits for storage
+			((CompletableFuture<Void>)writing).whenComplete((result, failure) -> onWritten(checkpoint, waiters, written, startNanos, failure));
+			return;
+		}
+
+		Throwable failure = null;
+		try
+		{
+			writing.get();
+		}
+		catch (ExecutionException e)
+		{
+			failure = (e.getCause() != null) ? e.getCause() : e;
+		}
+		catch (Exception e)
+		{
+			if (e instanceof InterruptedException)
+			{
+				Thread.currentThread().interrupt();
+			}
+			failure = e;
+		}
+		onWritten(checkpoint, waiters, written, startNanos, failure);
+	}
+
+	private void onWritten(Checkpoint checkpoint, ArrayList<CompletableFuture<Void>> waiters, CompletableFuture<Void> written, long startNanos, Throwable failure)
+	{
+		if (failure == null)
+		{
+			this.latencyMetric.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos));
+		}
+		completeWrite(checkpoint, waiters, written, failure);
+	}
+
+	private void completeWrite(Checkpoint checkpoint, ArrayList<CompletableFuture<Void>> waiters, CompletableFuture<Void> written, Throwable failure)
+	{
+		synchronized (this)
+		{
+			this.inFlight = null;
+			if (failure == null)
+			{
+				this.countFromSequenceNumber = checkpoint.getSequenceNumber();
+			}
+
+			// checkpoints which came in during the write are written when they are due
+			if ((this.pending != null) && !this.writeRequested)
+			{
+				if ((this.pending.getSequenceNumber() - this.countFromSequenceNumber) >= this.eventCount)
+				{
+					this.writeRequested = true;
+				}
+				else
+				{
+					scheduleWrite();
+				}
+			}
+		}
+
+		for (CompletableFuture<Void> waiter : waiters)
+		{
+			if (failure == null)
+			{
+				waiter.complete(null);
+			}
+			else
+			{
+				waiter.completeExceptionally(failure);
+			}
+		}
+		if (failure == null)
+		{
+			written.complete(null);
+		}
+		else
+		{
+			written.completeExceptionally(failure);
+		}
+
+		startWriteIfDue();
+	}
+}
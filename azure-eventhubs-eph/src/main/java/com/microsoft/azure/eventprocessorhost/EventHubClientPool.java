@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.eventprocessorhost;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.logging.Level;
+
+import com.microsoft.azure.eventhubs.EventHubClient;
+import com.microsoft.azure.eventhubs.EventHubException;
+
+/**
+ * Shares a small set of EventHubClients - each with its own connection and reactor thread - among the partition pumps of a host,
+ * instead of one client per pump. Clients are created on first use, and each pump is given the client with the fewest receivers.
+ * <p>
+ * Receivers on a shared client fail and recover independently: a link error only reaches the pump which owns the link, and a lost
+ * connection is re-established with all of its links by the client. A client which a pump reports as faulted is only retired for
+ * pumps which open later - pumps still using it keep it until they release it, and it is closed when the last one does.
+ */
+final class EventHubClientPool
+{
+	private final EventProcessorHost host;
+	private final PooledClient[] clients;
+	private boolean closed = false;
+
+	EventHubClientPool(EventProcessorHost host, int connectionCount)
+	{
+		if (connectionCount <= 0)
+		{
+			throw new IllegalArgumentException("connectionCount must be greater than 0");
+		}
+
+		this.host = host;
+		this.clients = new PooledClient[connectionCount];
+	}
+
+	/**
+	 * Hands out the client with the fewest users - creating it if needed, and waiting for it to open.
+	 * Every successful acquire must be paired with a {@link #release(PooledClient, boolean)}.
+	 */
+	PooledClient acquire() throws EventHubException, IOException, InterruptedException, ExecutionException
+	{
+		PooledClient chosen = null;
+		synchronized (this)
+		{
+			if (this.closed)
+			{
+				throw new IllegalStateException("EventHubClient pool of host " + this.host.getHostName() + " is closed");
+			}
+
+			int chosenIndex = -1;
+			for (int index = 0; index < this.clients.length; index++)
+			{
+				if (this.clients[index] == null)
+				{
+					chosenIndex = index;
+					break;
+				}
+
+				if ((chosenIndex < 0) || (this.clients[index].users < this.clients[chosenIndex].users))
+				{
+					chosenIndex = index;
+				}
+			}
+
+			if (this.clients[chosenIndex] == null)
+			{
+				this.host.logWithHost(Level.FINER, "Opening shared EH client " + chosenIndex);
+				this.clients[chosenIndex] = new PooledClient(chosenIndex, EventHubClient.createFromConnectionString(this.host.getEventHubConnectionString()));
+			}
+
+			chosen = this.clients[chosenIndex];
+			chosen.users++;
+		}
+
+		try
+		{
+			chosen.client = chosen.opening.get();
+		}
+		catch (InterruptedException | ExecutionException e)
+		{
+			// a client which failed to open is of no use to anyone - the next acquire opens a new one in its place
+			release(chosen, true);
+			throw e;
+		}
+
+		return chosen;
+	}
+
+	/**
+	 * @param pooledClient	client handed out by {@link #acquire()}
+	 * @param faulted		true to stop handing out this client - ex: because creating a receiver on it failed
+	 */
+	void release(PooledClient pooledClient, boolean faulted)
+	{
+		boolean closeNow = false;
+		synchronized (this)
+		{
+			pooledClient.users--;
+			if (faulted && (this.clients[pooledClient.index] == pooledClient))
+			{
+				this.host.logWithHost(Level.FINE, "Retiring shared EH client " + pooledClient.index);
+				this.clients[pooledClient.index] = null;
+				pooledClient.retired = true;
+			}
+
+			closeNow = pooledClient.retired && (pooledClient.users == 0);
+		}
+
+		if (closeNow)
+		{
+			closeClient(pooledClient);
+		}
+	}
+
+	/**
+	 * Closes all clients - to be called once all pumps are shut down.
+	 */
+	void close()
+	{
+		ArrayList<PooledClient> toClose = new ArrayList<PooledClient>();
+		synchronized (this)
+		{
+			this.closed = true;
+			for (int index = 0; index < this.clients.length; index++)
+			{
+				if (this.clients[index] != null)
+				{
+					this.clients[index].retired = true;
+					toClose.add(this.clients[index]);
+					this.clients[index] = null;
+				}
+			}
+		}
+
+		for (PooledClient pooledClient : toClose)
+		{
+			closeClient(pooledClient);
+		}
+	}
+
+	private void closeClient(PooledClient pooledClient)
+	{
+		this.host.logWithHost(Level.FINER, "Closing shared EH client " + pooledClient.index);
+		// close() doesn't block - so, it is safe even if this continuation runs on the thread which completes the open
+		pooledClient.opening.thenCompose((client) -> client.close()).whenComplete((result, exception) ->
+		{
+			if (exception != null)
+			{
+				this.host.logWithHost(Level.FINE, "Closing shared EH client " + pooledClient.index + " failed.", exception);
+			}
+		});
+	}
+
+	static final class PooledClient
+	{
+		private final int index;
+		private final CompletableFuture<EventHubClient> opening;
+
+		// guarded by the pool
+		private int users = 0;
+		private boolean retired = false;
+
+		private volatile EventHubClient client;
+
+		private PooledClient(int index, CompletableFuture<EventHubClient> opening)
+		{
+			this.index = index;
+			this.opening = opening;
+		}
+
+		EventHubClient getClient()
+		{
+			return this.client;
+		}
+	}
+}
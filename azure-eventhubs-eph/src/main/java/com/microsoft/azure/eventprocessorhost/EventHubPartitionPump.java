@@ -13,7 +13,6 @@ import java.util.concurrent.ExecutionException;
 import java.util.logging.Level;
 
 import com.microsoft.azure.eventhubs.EventData;
-import com.microsoft.azure.eventhubs.EventHubClient;
 import com.microsoft.azure.eventhubs.PartitionReceiveHandler;
 import com.microsoft.azure.eventhubs.PartitionReceiver;
 import com.microsoft.azure.eventhubs.ReceiverOptions;
@@ -24,7 +23,8 @@ class EventHubPartitionPump extends PartitionPump
 {
     private CompletableFuture<?> internalOperationFuture = null;
     
-	private EventHubClient eventHubClient = null;
+	private EventHubClientPool.PooledClient eventHubClient = null;
+	private boolean eventHubClientFaulted = false;
 	private PartitionReceiver partitionReceiver = null;
     private InternalReceiveHandler internalReceiveHandler = null;
 
@@ -51,6 +51,7 @@ class EventHubPartitionPump extends PartitionPump
 	        	lastException = e;
 	        	if ((e instanceof ExecutionException) && (e.getCause() instanceof ReceiverDisconnectedException))
 	        	{
+	        		releaseClient();
 	        		// TODO Assuming this is due to a receiver with a higher epoch.
 	        		// Is there a way to be sure without checking the exception text?
 	        		this.host.logWithHostAndPartition(Level.WARNING, this.partitionContext, "Receiver disconnected on create, bad epoch?", e);
@@ -60,6 +61,9 @@ class EventHubPartitionPump extends PartitionPump
 	        	else
 	        	{
 					this.host.logWithHostAndPartition(Level.WARNING, this.partitionContext, "Failure creating client or receiver, retrying", e);
+					// don't retry on the same shared client - it may be the cause
+					this.eventHubClientFaulted = true;
+					releaseClient();
 					retryCount++;
 	        	}
 			}
@@ -92,11 +96,10 @@ class EventHubPartitionPump extends PartitionPump
     
     private void openClients() throws EventHubException, IOException, InterruptedException, ExecutionException
     {
-    	// Create new client
-    	this.host.logWithHostAndPartition(Level.FINER, this.partitionContext, "Opening EH client");
-		this.internalOperationFuture = EventHubClient.createFromConnectionString(this.host.getEventHubConnectionString());
-		this.eventHubClient = (EventHubClient) this.internalOperationFuture.get();
-		this.internalOperationFuture = null;
+    	// Get a client shared with the other pumps of this host
+    	this.host.logWithHostAndPartition(Level.FINER, this.partitionContext, "Acquiring shared EH client");
+		this.eventHubClient = this.host.getPartitionManager().getClientPool().acquire();
+		this.eventHubClientFaulted = false;
 		
 	// Create new receiver and set options
         ReceiverOptions options = new ReceiverOptions();
@@ -106,12 +109,12 @@ class EventHubPartitionPump extends PartitionPump
     	this.host.logWithHostAndPartition(Level.FINER, this.partitionContext, "Opening EH receiver with epoch " + epoch + " at location " + startAt);
     	if (startAt instanceof String)
     	{
-    		this.internalOperationFuture = this.eventHubClient.createEpochReceiver(this.partitionContext.getConsumerGroupName(), this.partitionContext.getPartitionId(),
+    		this.internalOperationFuture = this.eventHubClient.getClient().createEpochReceiver(this.partitionContext.getConsumerGroupName(), this.partitionContext.getPartitionId(),
     				(String)startAt, epoch, options);
     	}
     	else if (startAt instanceof Instant) 
     	{
-    		this.internalOperationFuture = this.eventHubClient.createEpochReceiver(this.partitionContext.getConsumerGroupName(), this.partitionContext.getPartitionId(),
+    		this.internalOperationFuture = this.eventHubClient.getClient().createEpochReceiver(this.partitionContext.getConsumerGroupName(), this.partitionContext.getPartitionId(),
     				(Instant)startAt, epoch, options);
     	}
     	else
@@ -186,24 +189,25 @@ class EventHubPartitionPump extends PartitionPump
 
         if (this.eventHubClient != null)
 		{
-			this.host.logWithHostAndPartition(Level.FINER, this.partitionContext, "Closing EH client");
-			final EventHubClient eventHubClientTemp = this.eventHubClient;
-			this.eventHubClient = null;
-
-			try
-			{
-				eventHubClientTemp.closeSync();
-			}
-			catch (EventHubException exception)
-			{
-				this.host.logWithHostAndPartition(Level.FINE, this.partitionContext, "Closing EH client failed.", exception);
-			}
+        	releaseClient();
 		}
         else
         {
             this.host.logWithHostAndPartition(Level.FINER, this.partitionContext, "eventHubClient is null in cleanup");
         }
     }
+    
+    // The client is shared with other pumps - so it is only released here, never closed.
+    private void releaseClient()
+    {
+    	final EventHubClientPool.PooledClient eventHubClientTemp = this.eventHubClient;
+    	this.eventHubClient = null;
+    	if (eventHubClientTemp != null)
+    	{
+    		this.host.logWithHostAndPartition(Level.FINER, this.partitionContext, "Releasing shared EH client");
+    		this.host.getPartitionManager().releaseClient(eventHubClientTemp, this.eventHubClientFaulted);
+    	}
+    }
 
     @Override
     void specializedShutdown(CloseReason reason)
@@ -239,8 +243,8 @@ class EventHubPartitionPump extends PartitionPump
                     }
                     
                     // This method is called on the thread that the Java EH client uses to run the pump.
-                    // There is one pump per EventHubClient. Since each PartitionPump creates a new EventHubClient,
-                    // using that thread to call onEvents does no harm. Even if onEvents is slow, the pump will
+                    // There is one such thread per PartitionReceiver - not per EventHubClient - so, even though the client
+                    // is shared with other pumps, using that thread to call onEvents does no harm. Even if onEvents is slow, the pump will
                     // get control back each time onEvents returns, and be able to receive a new batch of messages
                     // with which to make the next onEvents call. The pump gains nothing by running faster than onEvents.
 
@@ -537,6 +537,14 @@ public final class EventProcessorHost
             	throw new RuntimeException("Failure initializing Storage lease manager", e);
 			}
         }
+        if (this.leaseManager instanceof LocalFileCheckpointLeaseManager)
+        {
+        	((LocalFileCheckpointLeaseManager)this.leaseManager).initialize(this);
+        }
+        if ((this.checkpointManager instanceof LocalFileCheckpointLeaseManager) && (this.checkpointManager != this.leaseManager))
+        {
+        	((LocalFileCheckpointLeaseManager)this.checkpointManager).initialize(this);
+        }
         
         logWithHost(Level.FINE, "Starting event processing");
         this.processorFactory = factory;
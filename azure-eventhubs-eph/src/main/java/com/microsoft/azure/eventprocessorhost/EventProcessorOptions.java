@@ -13,12 +13,38 @@ import com.microsoft.azure.eventhubs.PartitionReceiver;
 
 public final class EventProcessorOptions
 {
+	/**
+	 * The default number of connections to the Event Hub, shared by the partition pumps of a host.
+	 */
+	public final static int DefaultConnectionCount = 4;
+
+	/**
+	 * The default longest time that checkpoints from PartitionContext.checkpointAsync wait to be written.
+	 */
+	public final static Duration DefaultCheckpointInterval = Duration.ofSeconds(10);
+
+	/**
+	 * The default number of events after which checkpoints from PartitionContext.checkpointAsync are written, without waiting
+	 * for the checkpoint interval.
+	 */
+	public final static long DefaultCheckpointEventCount = 10000;
+
+	/**
+	 * The default number of batches of a partition which are processed at once: one, so that IEventProcessor.onEvents is
+	 * called for a partition one batch at a time, in order.
+	 */
+	public final static int DefaultMaxConcurrentBatchesPerPartition = 1;
+
 	private Consumer<ExceptionReceivedEventArgs> exceptionNotificationHandler = null;
     private Boolean invokeProcessorAfterReceiveTimeout = false;
     private boolean receiverRuntimeMetricEnabled = false;
     private int maxBatchSize = 10;
     private int prefetchCount = 300;
     private Duration receiveTimeOut = Duration.ofMinutes(1);
+    private int connectionCount = EventProcessorOptions.DefaultConnectionCount;
+    private Duration checkpointInterval = EventProcessorOptions.DefaultCheckpointInterval;
+    private long checkpointEventCount = EventProcessorOptions.DefaultCheckpointEventCount;
+    private int maxConcurrentBatchesPerPartition = EventProcessorOptions.DefaultMaxConcurrentBatchesPerPartition;
     private Function<String, Object> initialOffsetProvider = (partitionId) -> { return PartitionReceiver.START_OF_STREAM; };
 
     /***
@@ -32,6 +58,10 @@ public final class EventProcessorOptions
      * InitialOffsetProvider: uses the last offset checkpointed, or START_OF_STREAM
      * InvokeProcessorAfterReceiveTimeout: false
      * ReceiverRuntimeMetricEnabled: false
+     * ConnectionCount: 4
+     * CheckpointInterval: 10 seconds
+     * CheckpointEventCount: 10000
+     * MaxConcurrentBatchesPerPartition: 1
      * </pre>
      * 
      * @return an EventProcessorOptions instance with all options set to the default values
@@ -122,6 +152,123 @@ public final class EventProcessorOptions
         this.prefetchCount = prefetchCount;
     }
 
+    /***
+     * Returns the number of connections to the Event Hub which the host spreads its partition receivers over.
+     * 
+     * @return the number of connections shared by the partition pumps
+     */
+    public int getConnectionCount()
+    {
+        return this.connectionCount;
+    }
+
+    /***
+     * Sets the number of connections to the Event Hub which the host spreads its partition receivers over.
+     * Each connection has its own thread for network IO - a host which owns many busy partitions may need more.
+     * 
+     * The default is 4. A host never opens more connections than it owns partitions.
+     * 
+     * @param connectionCount  The new connection count. Must be greater than 0.
+     */
+    public void setConnectionCount(int connectionCount)
+    {
+        if (connectionCount <= 0)
+        {
+            throw new IllegalArgumentException("Connection count must be greater than 0");
+        }
+        this.connectionCount = connectionCount;
+    }
+
+    /***
+     * Returns the longest time that a checkpoint from PartitionContext.checkpointAsync waits to be written.
+     * 
+     * @return the checkpoint interval
+     */
+    public Duration getCheckpointInterval()
+    {
+        return this.checkpointInterval;
+    }
+
+    /***
+     * Sets the longest time that a checkpoint from PartitionContext.checkpointAsync waits to be written. Checkpoints made
+     * in the meantime are coalesced: only the latest position is written.
+     * 
+     * The default is 10 seconds.
+     * 
+     * @param checkpointInterval  The new checkpoint interval. Must be greater than 0.
+     */
+    public void setCheckpointInterval(Duration checkpointInterval)
+    {
+        if ((checkpointInterval == null) || checkpointInterval.isNegative() || checkpointInterval.isZero())
+        {
+            throw new IllegalArgumentException("Checkpoint interval must be greater than 0");
+        }
+        this.checkpointInterval = checkpointInterval;
+    }
+
+    /***
+     * Returns the number of events after which a checkpoint from PartitionContext.checkpointAsync is written, without
+     * waiting for the checkpoint interval.
+     * 
+     * @return the checkpoint event count
+     */
+    public long getCheckpointEventCount()
+    {
+        return this.checkpointEventCount;
+    }
+
+    /***
+     * Sets the number of events - counted by sequence number, from the last written checkpoint - after which a checkpoint from
+     * PartitionContext.checkpointAsync is written, without waiting for the checkpoint interval.
+     * 
+     * The default is 10000.
+     * 
+     * @param checkpointEventCount  The new checkpoint event count. Must be greater than 0.
+     */
+    public void setCheckpointEventCount(long checkpointEventCount)
+    {
+        if (checkpointEventCount <= 0)
+        {
+            throw new IllegalArgumentException("Checkpoint event count must be greater than 0");
+        }
+        this.checkpointEventCount = checkpointEventCount;
+    }
+
+    /***
+     * Returns the number of batches of a partition which IEventProcessor.onEvents may be processing at once.
+     * 
+     * @return the maximum number of concurrent batches per partition
+     */
+    public int getMaxConcurrentBatchesPerPartition()
+    {
+        return this.maxConcurrentBatchesPerPartition;
+    }
+
+    /***
+     * Sets the number of batches of a partition which IEventProcessor.onEvents may be processing at once. With more than
+     * one, the batches of a partition are processed concurrently on the host's executor, so CPU-heavy processing of one
+     * partition can use more than one core. The event processor must then be safe to call from several threads at once,
+     * and the batches may complete out of order. Receiving waits while this many batches of the partition are in progress.
+     * <p>
+     * Checkpoints then never skip a batch still in progress. The argument-less PartitionContext.checkpoint and checkpointAsync
+     * write the last event before which every batch has completed. A checkpoint of a specific event is held back to that
+     * position, and the rest of it is written in the background as the batches before the event complete. If onEvents throws,
+     * the exception is passed to the exception notification handler and the partition is closed. The checkpoint stays before
+     * the failed batch, so the partition is reopened from the last checkpoint and the batch's events are received again.
+     * 
+     * The default is 1: one batch at a time, in order.
+     * 
+     * @param maxConcurrentBatches  The new maximum number of concurrent batches per partition. Must be greater than 0.
+     */
+    public void setMaxConcurrentBatchesPerPartition(int maxConcurrentBatches)
+    {
+        if (maxConcurrentBatches <= 0)
+        {
+            throw new IllegalArgumentException("Maximum concurrent batches per partition must be greater than 0");
+        }
+        this.maxConcurrentBatchesPerPartition = maxConcurrentBatches;
+    }
+
     /***
      * If there is no checkpoint for a partition, the initialOffsetProvider function is used to determine
      * the offset at which to start receiving events for that partition.
@@ -0,0 +1,227 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.eventprocessorhost;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+import com.microsoft.azure.eventhubs.metrics.EventHubMetrics;
+import com.microsoft.azure.eventhubs.metrics.IMetricsProvider;
+import com.microsoft.azure.eventhubs.metrics.MetricNames;
+import com.microsoft.azure.eventhubs.metrics.MetricTags;
+
+/**
+ * Renews each lease owned by the host on a timer of its own, every lease renew interval, so that a slow lease scan - stealing,
+ * waiting for pumps to close, slow storage - can't hold up renewals and let the leases expire.
+ * <p>
+ * The timer thread only hands the renewals to the host's executor, so a slow renewal doesn't delay the others either. How late
+ * each renewal starts is recorded, and a renewal which starts after the lease duration has passed since the last one is logged.
+ * When a renewal finds that the lease was lost, the pump of the partition is removed without waiting for the next scan.
+ */
+final class LeaseRenewer
+{
+	private final EventProcessorHost host;
+	private final Pump pump;
+	private final ScheduledThreadPoolExecutor timer;
+	private final ConcurrentHashMap<String, Renewal> renewals;
+	private final IMetricsProvider metrics;
+
+	LeaseRenewer(EventProcessorHost host, Pump pump)
+	{
+		this.host = host;
+		this.pump = pump;
+		this.renewals = new ConcurrentHashMap<String, Renewal>();
+		this.metrics = EventHubMetrics.getProvider();
+		this.timer = new ScheduledThreadPoolExecutor(1, (runnable) ->
+		{
+			Thread timerThread = new Thread(runnable, "eph-lease-renewer-" + host.getHostName());
+			timerThread.setDaemon(true);
+			return timerThread;
+		});
+		this.timer.setRemoveOnCancelPolicy(true);
+	}
+
+	/**
+	 * Starts renewing the lease - or, if it is renewed already, renews the given lease object from now on.
+	 */
+	void track(Lease lease)
+	{
+		Renewal renewal = this.renewals.get(lease.getPartitionId());
+		if (renewal != null)
+		{
+			renewal.lease = lease;
+			return;
+		}
+
+		renewal = new Renewal(lease);
+		if (this.renewals.putIfAbsent(lease.getPartitionId(), renewal) == null)
+		{
+			this.host.logWithHostAndPartition(Level.FINER, lease.getPartitionId(), "Starting lease renewal timer");
+			renewal.schedule(System.currentTimeMillis());
+		}
+		else
+		{
+			this.renewals.get(lease.getPartitionId()).lease = lease;
+		}
+	}
+
+	void untrack(String partitionId)
+	{
+		Renewal renewal = this.renewals.remove(partitionId);
+		if (renewal != null)
+		{
+			this.host.logWithHostAndPartition(Level.FINER, partitionId, "Stopping lease renewal timer");
+			renewal.cancel();
+		}
+	}
+
+	/**
+	 * Stops all renewals - to be called before the pumps release their leases, at shutdown.
+	 */
+	void close()
+	{
+		for (String partitionId : this.renewals.keySet())
+		{
+			untrack(partitionId);
+		}
+		this.timer.shutdownNow();
+	}
+
+	private final class Renewal
+	{
+		private final MetricTags tags;
+		private volatile Lease lease;
+		private volatile boolean cancelled = false;
+		private ScheduledFuture<?> scheduled = null;
+		private volatile long dueNanos;
+		private volatile long lastRenewedMillis;
+
+		Renewal(Lease lease)
+		{
+			this.lease = lease;
+			this.tags = MetricTags.of(LeaseRenewer.this.host.getEventHubPath(), lease.getPartitionId());
+			// the lease was just acquired or renewed by the scan
+			this.lastRenewedMillis = System.currentTimeMillis();
+		}
+
+		synchronized void schedule(long fromMillis)
+		{
+			if (this.cancelled)
+			{
+				return;
+			}
+
+			long delayMillis = Math.max(fromMillis + LeaseRenewer.this.host.getLeaseManager().getLeaseRenewIntervalInMilliseconds() - System.currentTimeMillis(), 0);
+			this.dueNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis);
+			try
+			{
+				this.scheduled = LeaseRenewer.this.timer.schedule(() -> startRenewal(), delayMillis, TimeUnit.MILLISECONDS);
+			}
+			catch (RejectedExecutionException e)
+			{
+				// the renewer is closed
+			}
+		}
+
+		synchronized void cancel()
+		{
+			this.cancelled = true;
+			if (this.scheduled != null)
+			{
+				this.scheduled.cancel(false);
+			}
+		}
+
+		// Runs on the timer thread
+		private void startRenewal()
+		{
+			try
+			{
+				EventProcessorHost.getExecutorService().submit(() -> renew());
+			}
+			catch (RejectedExecutionException e)
+			{
+				// the host is shutting down
+			}
+		}
+
+		private void renew()
+		{
+			if (this.cancelled)
+			{
+				return;
+			}
+
+			String partitionId = this.lease.getPartitionId();
+			long startMillis = System.currentTimeMillis();
+			LeaseRenewer.this.metrics.histogram(MetricNames.EPH_LEASE_RENEWAL_LATENESS, this.tags).record(TimeUnit.NANOSECONDS.toMicros(Math.max(System.nanoTime() - this.dueNanos, 0)));
+			if ((startMillis - this.lastRenewedMillis) > LeaseRenewer.this.host.getLeaseManager().getLeaseDurationInMilliseconds())
+			{
+				LeaseRenewer.this.host.logWithHostAndPartition(Level.WARNING, partitionId, "Lease renewal started " + (startMillis - this.lastRenewedMillis) +
+						"ms after the last one, the lease may have expired");
+			}
+
+			LeaseRenewer.this.metrics.counter(MetricNames.EPH_LEASE_RENEWALS, this.tags).increment(1);
+			Future<Boolean> renewing = LeaseRenewer.this.host.getLeaseManager().renewLease(this.lease);
+			if (renewing instanceof CompletableFuture)
+			{
+				// the lease manager completes the renewal on its own threads, so no thread of the host waits for storage
+				((CompletableFuture<Boolean>)renewing).whenComplete((renewed, failure) -> onRenewed(startMillis, renewed, failure));
+				return;
+			}
+
+			try
+			{
+				onRenewed(startMillis, renewing.get(), null);
+			}
+			catch (InterruptedException e)
+			{
+				// whether the lease was renewed is unknown - the next renewal is tried as usual, unless the renewer is closed by then
+				Thread.currentThread().interrupt();
+				LeaseRenewer.this.host.logWithHostAndPartition(Level.FINE, partitionId, "Interrupted while renewing lease");
+				schedule(startMillis);
+			}
+			catch (ExecutionException e)
+			{
+				onRenewed(startMillis, null, (e.getCause() != null) ? e.getCause() : e);
+			}
+		}
+
+		private void onRenewed(long startMillis, Boolean renewed, Throwable failure)
+		{
+			String partitionId = this.lease.getPartitionId();
+			if (failure != null)
+			{
+				// the next renewal is tried as usual - the lease doesn't expire until the lease duration has passed
+				LeaseRenewer.this.host.logWithHostAndPartition(Level.WARNING, partitionId, "Failure renewing lease", failure);
+				Exception notifyWith = (failure instanceof Exception) ? (Exception)failure : new ExecutionException(failure);
+				LeaseRenewer.this.host.getEventProcessorOptions().notifyOfException(LeaseRenewer.this.host.getHostName(), notifyWith,
+						EventProcessorHostActionStrings.RENEWING_LEASE, partitionId);
+			}
+			else if (renewed)
+			{
+				this.lastRenewedMillis = startMillis;
+			}
+			else if (!this.cancelled)
+			{
+				LeaseRenewer.this.host.logWithHostAndPartition(Level.FINE, partitionId, "Lease lost while renewing, removing pump");
+				LeaseRenewer.this.metrics.counter(MetricNames.EPH_LEASES_LOST, this.tags).increment(1);
+				LeaseRenewer.this.untrack(partitionId);
+				LeaseRenewer.this.pump.removePump(partitionId, CloseReason.LeaseLost);
+				return;
+			}
+
+			schedule(startMillis);
+		}
+	}
+}
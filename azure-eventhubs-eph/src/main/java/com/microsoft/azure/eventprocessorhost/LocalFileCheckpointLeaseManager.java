@@ -0,0 +1,401 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.eventprocessorhost;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+
+/**
+ * Lease and checkpoint manager which keeps the leases and checkpoints of a consumer group in a memory-mapped file on the
+ * local machine - for single-machine and edge deployments, which don't want to depend on Azure Storage. Several host
+ * processes on the machine can share the file, and so balance the partitions among themselves.
+ * <p>
+ * Operations are a few memory accesses under a file lock, so they complete before returning - the futures are already done.
+ * Checkpoints are forced to disk before they complete; leases, which expire anyway, are not.
+ * <pre>{@code
+ * LocalFileCheckpointLeaseManager manager = new LocalFileCheckpointLeaseManager("/var/lib/myapp/eph");
+ * EventProcessorHost host = new EventProcessorHost(hostName, eventHubPath, consumerGroupName, eventHubConnectionString, manager, manager);
+ * }</pre>
+ */
+public class LocalFileCheckpointLeaseManager implements ICheckpointManager, ILeaseManager
+{
+	private final Path directory;
+	private EventProcessorHost host;
+	private Path path;
+	private LocalLeaseFile file = null;
+
+	/**
+	 * @param directory	directory for the lease files - one per event hub and consumer group - to be the same for all hosts sharing the leases
+	 */
+	public LocalFileCheckpointLeaseManager(String directory)
+	{
+		if ((directory == null) || directory.isEmpty())
+		{
+			throw new IllegalArgumentException("Directory must not be null or empty string");
+		}
+		this.directory = Paths.get(directory);
+	}
+
+	// The EventProcessorHost can't pass itself to the constructor because it is still being constructed.
+	void initialize(EventProcessorHost host)
+	{
+		this.host = host;
+		this.path = this.directory.resolve(LocalFileCheckpointLeaseManager.toFileName(host.getEventHubPath()))
+				.resolve(LocalFileCheckpointLeaseManager.toFileName(host.getConsumerGroupName()) + ".leases");
+	}
+
+	private static String toFileName(String name)
+	{
+		return name.replaceAll("[^A-Za-z0-9._-]", "_");
+	}
+
+	//
+	// In this implementation, checkpoints are data that's actually in the lease file, so checkpoint operations
+	// turn into lease operations under the covers.
+	//
+
+	@Override
+	public Future<Boolean> checkpointStoreExists()
+	{
+		return leaseStoreExists();
+	}
+
+	@Override
+	public Future<Boolean> createCheckpointStoreIfNotExists()
+	{
+		return createLeaseStoreIfNotExists();
+	}
+
+	@Override
+	public Future<Boolean> deleteCheckpointStore()
+	{
+		return deleteLeaseStore();
+	}
+
+	@Override
+	public Future<Checkpoint> getCheckpoint(String partitionId)
+	{
+		return LocalFileCheckpointLeaseManager.run(() -> getFile().withSlot(partitionId, (slot) -> readCheckpoint(partitionId, slot)));
+	}
+
+	@Override
+	public Future<Checkpoint> createCheckpointIfNotExists(String partitionId)
+	{
+		// slots hold the checkpoint from the start - there is nothing to create
+		return getCheckpoint(partitionId);
+	}
+
+	@Deprecated
+	@Override
+	public Future<Void> updateCheckpoint(Checkpoint checkpoint)
+	{
+		throw new RuntimeException("Use updateCheckpoint(checkpoint, lease) instead.");
+	}
+
+	@Override
+	public Future<Void> updateCheckpoint(Lease lease, Checkpoint checkpoint)
+	{
+		return LocalFileCheckpointLeaseManager.run(() ->
+		{
+			this.host.logWithHostAndPartition(Level.FINER, checkpoint.getPartitionId(), "Checkpointing at " + checkpoint.getOffset() + " // " + checkpoint.getSequenceNumber());
+			LocalLeaseFile leaseFile = getFile();
+			leaseFile.withSlot(checkpoint.getPartitionId(), (slot) ->
+			{
+				if (!holdsLease(lease, slot))
+				{
+					throw new LeaseLostException(lease, null);
+				}
+				slot.putLong(LocalLeaseFile.EXPIRATION_POSITION, System.currentTimeMillis() + getLeaseDurationInMilliseconds());
+				writeCheckpoint(slot, checkpoint.getOffset(), checkpoint.getSequenceNumber());
+				return null;
+			});
+			leaseFile.force();
+			return null;
+		});
+	}
+
+	@Override
+	public Future<Void> deleteCheckpoint(String partitionId)
+	{
+		return LocalFileCheckpointLeaseManager.run(() ->
+		{
+			this.host.logWithHostAndPartition(Level.FINER, partitionId, "Deleting checkpoint for " + partitionId);
+			LocalLeaseFile leaseFile = getFile();
+			leaseFile.withSlot(partitionId, (slot) ->
+			{
+				writeCheckpoint(slot, null, 0L);
+				return null;
+			});
+			leaseFile.force();
+			return null;
+		});
+	}
+
+	//
+	// Lease operations.
+	//
+
+	@Override
+	public int getLeaseRenewIntervalInMilliseconds()
+	{
+		return this.host.getPartitionManagerOptions().getLeaseRenewIntervalInSeconds() * 1000;
+	}
+
+	@Override
+	public int getLeaseDurationInMilliseconds()
+	{
+		return this.host.getPartitionManagerOptions().getLeaseDurationInSeconds() * 1000;
+	}
+
+	@Override
+	public Future<Boolean> leaseStoreExists()
+	{
+		return LocalFileCheckpointLeaseManager.run(() -> LocalLeaseFile.exists(this.path));
+	}
+
+	@Override
+	public Future<Boolean> createLeaseStoreIfNotExists()
+	{
+		return LocalFileCheckpointLeaseManager.run(() ->
+		{
+			LocalLeaseFile leaseFile = LocalLeaseFile.open(this.path, this.host.getPartitionManager().getPartitionIds().length);
+			synchronized (this)
+			{
+				this.file = leaseFile;
+			}
+			this.host.logWithHost(Level.FINE, "Lease file is " + leaseFile.getPath());
+			return true;
+		});
+	}
+
+	@Override
+	public Future<Boolean> deleteLeaseStore()
+	{
+		return LocalFileCheckpointLeaseManager.run(() ->
+		{
+			synchronized (this)
+			{
+				this.file = null;
+			}
+			LocalLeaseFile.delete(this.path);
+			return true;
+		});
+	}
+
+	@Override
+	public Future<Lease> getLease(String partitionId)
+	{
+		return LocalFileCheckpointLeaseManager.run(() -> getLeaseSync(partitionId));
+	}
+
+	@Override
+	public Iterable<Future<Lease>> getAllLeases() throws Exception
+	{
+		ArrayList<Future<Lease>> leaseFutures = new ArrayList<Future<Lease>>();
+		for (String id : this.host.getPartitionManager().getPartitionIds())
+		{
+			leaseFutures.add(getLease(id));
+		}
+		return leaseFutures;
+	}
+
+	@Override
+	public Future<Lease> createLeaseIfNotExists(String partitionId)
+	{
+		// the first use of a partition gives it a slot, with an unowned lease
+		return getLease(partitionId);
+	}
+
+	@Override
+	public Future<Void> deleteLease(Lease lease)
+	{
+		return LocalFileCheckpointLeaseManager.run(() ->
+		{
+			this.host.logWithHostAndPartition(Level.FINE, lease.getPartitionId(), "Deleting lease");
+			LocalLeaseFile leaseFile = getFile();
+			leaseFile.withSlot(lease.getPartitionId(), (slot) ->
+			{
+				slot.putLong(LocalLeaseFile.EPOCH_POSITION, 0L);
+				writeLease(slot, 0L, "", "");
+				writeCheckpoint(slot, null, 0L);
+				return null;
+			});
+			leaseFile.force();
+			return null;
+		});
+	}
+
+	@Override
+	public Future<Boolean> acquireLease(Lease lease)
+	{
+		return LocalFileCheckpointLeaseManager.run(() ->
+		{
+			this.host.logWithHostAndPartition(Level.FINE, lease.getPartitionId(), "Acquiring lease");
+			String newToken = EventProcessorHost.safeCreateUUID();
+			return getFile().withSlot(lease.getPartitionId(), (slot) ->
+			{
+				if (!isExpired(slot))
+				{
+					// Stealing: only from the owner the caller saw - as with Azure Storage's change lease
+					String token = LocalLeaseFile.readString(slot, LocalLeaseFile.TOKEN_POSITION);
+					if ((lease.getToken() == null) || lease.getToken().isEmpty() || !lease.getToken().equals(token))
+					{
+						this.host.logWithHostAndPartition(Level.FINE, lease.getPartitionId(), "Lease changed hands since it was read, not acquired");
+						return false;
+					}
+				}
+
+				// Increment epoch each time lease is acquired or stolen by a new host
+				long epoch = Math.max(lease.getEpoch(), slot.getLong(LocalLeaseFile.EPOCH_POSITION)) + 1;
+				slot.putLong(LocalLeaseFile.EPOCH_POSITION, epoch);
+				writeLease(slot, System.currentTimeMillis() + getLeaseDurationInMilliseconds(), this.host.getHostName(), newToken);
+				lease.setEpoch(epoch);
+				lease.setOwner(this.host.getHostName());
+				lease.setToken(newToken);
+				return true;
+			});
+		});
+	}
+
+	@Override
+	public Future<Boolean> renewLease(Lease lease)
+	{
+		return LocalFileCheckpointLeaseManager.run(() ->
+		{
+			this.host.logWithHostAndPartition(Level.FINE, lease.getPartitionId(), "Renewing lease");
+			return getFile().withSlot(lease.getPartitionId(), (slot) ->
+			{
+				// as with Azure Storage, a lease which expired can be renewed until someone else acquires it
+				if (!holdsLease(lease, slot))
+				{
+					return false;
+				}
+				slot.putLong(LocalLeaseFile.EXPIRATION_POSITION, System.currentTimeMillis() + getLeaseDurationInMilliseconds());
+				return true;
+			});
+		});
+	}
+
+	@Override
+	public Future<Boolean> releaseLease(Lease lease)
+	{
+		return LocalFileCheckpointLeaseManager.run(() ->
+		{
+			this.host.logWithHostAndPartition(Level.FINE, lease.getPartitionId(), "Releasing lease");
+			return getFile().withSlot(lease.getPartitionId(), (slot) ->
+			{
+				if (!holdsLease(lease, slot))
+				{
+					return false;
+				}
+				writeLease(slot, 0L, "", "");
+				return true;
+			});
+		});
+	}
+
+	@Override
+	public Future<Boolean> updateLease(Lease lease)
+	{
+		return LocalFileCheckpointLeaseManager.run(() ->
+		{
+			this.host.logWithHostAndPartition(Level.FINE, lease.getPartitionId(), "Updating lease");
+			return getFile().withSlot(lease.getPartitionId(), (slot) ->
+			{
+				if (!holdsLease(lease, slot))
+				{
+					return false;
+				}
+				slot.putLong(LocalLeaseFile.EPOCH_POSITION, lease.getEpoch());
+				writeLease(slot, System.currentTimeMillis() + getLeaseDurationInMilliseconds(), lease.getOwner(), lease.getToken());
+				return true;
+			});
+		});
+	}
+
+	// Reads the slot as it is now - for LocalFileLease.isExpired
+	boolean isExpired(Lease lease) throws Exception
+	{
+		return getFile().withSlot(lease.getPartitionId(), (slot) -> isExpired(slot));
+	}
+
+	private Lease getLeaseSync(String partitionId) throws Exception
+	{
+		return getFile().withSlot(partitionId, (slot) ->
+		{
+			LocalFileLease lease = new LocalFileLease(partitionId, this);
+			lease.setEpoch(slot.getLong(LocalLeaseFile.EPOCH_POSITION));
+			lease.setOwner(LocalLeaseFile.readString(slot, LocalLeaseFile.OWNER_POSITION));
+			lease.setToken(LocalLeaseFile.readString(slot, LocalLeaseFile.TOKEN_POSITION));
+			return lease;
+		});
+	}
+
+	private synchronized LocalLeaseFile getFile() throws Exception
+	{
+		if ((this.file == null) || !this.file.isUsable())
+		{
+			// created by another host - or deleted since it was opened, and maybe created again
+			this.file = LocalLeaseFile.open(this.path, 0);
+		}
+		return this.file;
+	}
+
+	private static boolean isExpired(ByteBuffer slot)
+	{
+		return slot.getLong(LocalLeaseFile.EXPIRATION_POSITION) <= System.currentTimeMillis();
+	}
+
+	private static boolean holdsLease(Lease lease, ByteBuffer slot)
+	{
+		String token = LocalLeaseFile.readString(slot, LocalLeaseFile.TOKEN_POSITION);
+		return (lease.getToken() != null) && !lease.getToken().isEmpty() && lease.getToken().equals(token);
+	}
+
+	private static void writeLease(ByteBuffer slot, long expiration, String owner, String token)
+	{
+		LocalLeaseFile.writeString(slot, LocalLeaseFile.OWNER_POSITION, LocalLeaseFile.OWNER_SIZE, owner);
+		LocalLeaseFile.writeString(slot, LocalLeaseFile.TOKEN_POSITION, LocalLeaseFile.TOKEN_SIZE, token);
+		slot.putLong(LocalLeaseFile.EXPIRATION_POSITION, expiration);
+	}
+
+	private static Checkpoint readCheckpoint(String partitionId, ByteBuffer slot)
+	{
+		if (slot.get(LocalLeaseFile.HAS_CHECKPOINT_POSITION) == 0)
+		{
+			return null;
+		}
+		return new Checkpoint(partitionId, LocalLeaseFile.readString(slot, LocalLeaseFile.OFFSET_POSITION), slot.getLong(LocalLeaseFile.SEQUENCE_NUMBER_POSITION));
+	}
+
+	private static void writeCheckpoint(ByteBuffer slot, String offset, long sequenceNumber)
+	{
+		LocalLeaseFile.writeString(slot, LocalLeaseFile.OFFSET_POSITION, LocalLeaseFile.OFFSET_SIZE, offset);
+		slot.putLong(LocalLeaseFile.SEQUENCE_NUMBER_POSITION, sequenceNumber);
+		slot.put(LocalLeaseFile.HAS_CHECKPOINT_POSITION, (byte)((offset != null) ? 1 : 0));
+	}
+
+	// Operations take microseconds, so they run on the caller's thread instead of the executor.
+	private static <T> Future<T> run(Callable<T> operation)
+	{
+		CompletableFuture<T> result = new CompletableFuture<T>();
+		try
+		{
+			result.complete(operation.call());
+		}
+		catch (Exception e)
+		{
+			result.completeExceptionally(e);
+		}
+		return result;
+	}
+}
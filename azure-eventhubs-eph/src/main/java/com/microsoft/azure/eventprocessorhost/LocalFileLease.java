@@ -0,0 +1,23 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.eventprocessorhost;
+
+class LocalFileLease extends Lease
+{
+	private final transient LocalFileCheckpointLeaseManager manager;
+	
+	LocalFileLease(String partitionId, LocalFileCheckpointLeaseManager manager)
+	{
+		super(partitionId);
+		this.manager = manager;
+	}
+	
+	@Override
+	public boolean isExpired() throws Exception
+	{
+		return this.manager.isExpired(this);
+	}
+}
@@ -0,0 +1,319 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.eventprocessorhost;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A memory-mapped file of fixed-size slots - one per partition - holding the lease and the checkpoint of the partition,
+ * which the hosts of one consumer group on one machine share.
+ * <p>
+ * A slot is read and written under a lock on its byte range of the file, which serializes the processes, and under the
+ * slot's monitor, which serializes the threads of this process - file locks are held per process, and the JVM refuses
+ * overlapping ones. For the same reason there is one instance per file in the process, shared by all managers using it.
+ * <p>
+ * Deleting the file - or removing it from another process - leaves the instance closed or stale for every manager sharing it;
+ * they check {@link #isUsable()} and open the file again if it has been created since. The mapping of the old instance is
+ * released once the last of them has dropped it.
+ */
+final class LocalLeaseFile
+{
+	private static final int MAGIC = 0x4550484C; // "EPHL"
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 64;
+	private static final int SLOT_SIZE = 512;
+
+	// Header: magic, version, slot size, slot count
+	private static final int MAGIC_POSITION = 0;
+	private static final int VERSION_POSITION = 4;
+	private static final int SLOT_SIZE_POSITION = 8;
+	private static final int SLOT_COUNT_POSITION = 12;
+
+	// Slot: numbers first, then strings as a short byte count followed by UTF-8 bytes, each in a fixed field
+	static final int EPOCH_POSITION = 0;
+	static final int EXPIRATION_POSITION = 8; // System.currentTimeMillis() at which the lease expires, 0 when not leased
+	static final int SEQUENCE_NUMBER_POSITION = 16;
+	static final int HAS_CHECKPOINT_POSITION = 24;
+	static final int PARTITION_ID_POSITION = 32;
+	static final int PARTITION_ID_SIZE = 64;
+	static final int OWNER_POSITION = PARTITION_ID_POSITION + PARTITION_ID_SIZE;
+	static final int OWNER_SIZE = 192;
+	static final int TOKEN_POSITION = OWNER_POSITION + OWNER_SIZE;
+	static final int TOKEN_SIZE = 64;
+	static final int OFFSET_POSITION = TOKEN_POSITION + TOKEN_SIZE;
+	static final int OFFSET_SIZE = SLOT_SIZE - OFFSET_POSITION;
+
+	private static final ConcurrentHashMap<Path, LocalLeaseFile> openFiles = new ConcurrentHashMap<Path, LocalLeaseFile>();
+
+	private final Path path;
+	private final FileChannel channel;
+	private final Object fileKey;
+	private final MappedByteBuffer mapped;
+	private final int slotCount;
+	private final Object[] slotMonitors;
+	private final ConcurrentHashMap<String, Integer> slotsByPartitionId = new ConcurrentHashMap<String, Integer>();
+	private volatile boolean closed = false;
+
+	interface SlotOperation<T>
+	{
+		T apply(ByteBuffer slot) throws Exception;
+	}
+
+	private LocalLeaseFile(Path path, int slotCount) throws IOException
+	{
+		this.path = path;
+		this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try
+		{
+			// tells this file from one created at the same path after it was removed - null where the file system has no such key
+			this.fileKey = Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+
+			int fileSlotCount;
+			try (FileLock headerLock = this.channel.lock(0, LocalLeaseFile.HEADER_SIZE, false))
+			{
+				ByteBuffer header = ByteBuffer.allocate(LocalLeaseFile.HEADER_SIZE);
+				if (this.channel.size() < LocalLeaseFile.HEADER_SIZE)
+				{
+					// a new file - written by whichever process gets here first
+					if (slotCount <= 0)
+					{
+						throw new IllegalStateException("Lease file " + path + " doesn't exist");
+					}
+					header.putInt(LocalLeaseFile.MAGIC_POSITION, LocalLeaseFile.MAGIC);
+					header.putInt(LocalLeaseFile.VERSION_POSITION, LocalLeaseFile.VERSION);
+					header.putInt(LocalLeaseFile.SLOT_SIZE_POSITION, LocalLeaseFile.SLOT_SIZE);
+					header.putInt(LocalLeaseFile.SLOT_COUNT_POSITION, slotCount);
+					this.channel.write(header, 0);
+					this.channel.write(ByteBuffer.allocate(1), LocalLeaseFile.HEADER_SIZE + ((long)slotCount * LocalLeaseFile.SLOT_SIZE) - 1);
+					this.channel.force(true);
+					fileSlotCount = slotCount;
+				}
+				else
+				{
+					this.channel.read(header, 0);
+					if ((header.getInt(LocalLeaseFile.MAGIC_POSITION) != LocalLeaseFile.MAGIC) ||
+							(header.getInt(LocalLeaseFile.VERSION_POSITION) != LocalLeaseFile.VERSION) ||
+							(header.getInt(LocalLeaseFile.SLOT_SIZE_POSITION) != LocalLeaseFile.SLOT_SIZE))
+					{
+						throw new IllegalStateException("File " + path + " is not a lease file of this version");
+					}
+					fileSlotCount = header.getInt(LocalLeaseFile.SLOT_COUNT_POSITION);
+				}
+			}
+
+			this.slotCount = fileSlotCount;
+			this.mapped = this.channel.map(FileChannel.MapMode.READ_WRITE, 0, LocalLeaseFile.HEADER_SIZE + ((long)this.slotCount * LocalLeaseFile.SLOT_SIZE));
+			this.slotMonitors = new Object[this.slotCount];
+			for (int slot = 0; slot < this.slotCount; slot++)
+			{
+				this.slotMonitors[slot] = new Object();
+			}
+		}
+		catch (IOException | RuntimeException e)
+		{
+			this.channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * @param slotCount	number of slots of a new file - or 0, to only open an existing one
+	 */
+	static LocalLeaseFile open(Path path, int slotCount) throws IOException
+	{
+		Path key = path.toAbsolutePath().normalize();
+		synchronized (LocalLeaseFile.openFiles)
+		{
+			LocalLeaseFile file = LocalLeaseFile.openFiles.get(key);
+			if ((file != null) && !file.isUsable())
+			{
+				// removed by another process - the file there now, if any, is a new one
+				LocalLeaseFile.openFiles.remove(key);
+				file.close();
+				file = null;
+			}
+			if (file == null)
+			{
+				if (slotCount > 0)
+				{
+					Files.createDirectories(key.getParent());
+				}
+				file = new LocalLeaseFile(key, slotCount);
+				LocalLeaseFile.openFiles.put(key, file);
+			}
+			return file;
+		}
+	}
+
+	static boolean exists(Path path)
+	{
+		// not whether it is open here - another process may have removed it since
+		return Files.exists(path);
+	}
+
+	static void delete(Path path) throws IOException
+	{
+		Path key = path.toAbsolutePath().normalize();
+		synchronized (LocalLeaseFile.openFiles)
+		{
+			LocalLeaseFile file = LocalLeaseFile.openFiles.remove(key);
+			if (file != null)
+			{
+				file.close();
+			}
+			Files.deleteIfExists(key);
+		}
+	}
+
+	Path getPath()
+	{
+		return this.path;
+	}
+
+	/**
+	 * @return false once the file is deleted, by this process or another one - it has to be opened again then
+	 */
+	boolean isUsable()
+	{
+		if (this.closed)
+		{
+			return false;
+		}
+
+		try
+		{
+			Object currentFileKey = Files.readAttributes(this.path, BasicFileAttributes.class).fileKey();
+			return (currentFileKey == null) || currentFileKey.equals(this.fileKey);
+		}
+		catch (IOException e)
+		{
+			// removed
+			return false;
+		}
+	}
+
+	private void close() throws IOException
+	{
+		this.closed = true;
+		this.channel.close();
+	}
+
+	/**
+	 * Runs the operation on the slot of the partition - which is given a free slot on first use - holding the slot's locks.
+	 */
+	<T> T withSlot(String partitionId, SlotOperation<T> operation) throws Exception
+	{
+		int slot = findSlot(partitionId);
+		synchronized (this.slotMonitors[slot])
+		{
+			try (FileLock slotLock = this.channel.lock(slotStart(slot), LocalLeaseFile.SLOT_SIZE, false))
+			{
+				return operation.apply(slotBuffer(slot));
+			}
+		}
+	}
+
+	/**
+	 * Makes the writes so far durable.
+	 */
+	void force()
+	{
+		this.mapped.force();
+	}
+
+	private int findSlot(String partitionId) throws IOException
+	{
+		Integer known = this.slotsByPartitionId.get(partitionId);
+		if (known != null)
+		{
+			return known;
+		}
+
+		if (partitionId.getBytes(StandardCharsets.UTF_8).length > (LocalLeaseFile.PARTITION_ID_SIZE - 2))
+		{
+			throw new IllegalArgumentException("Partition id " + partitionId + " is too long for a lease file slot");
+		}
+
+		// slots are given out under the header lock
+		synchronized (this.slotsByPartitionId)
+		{
+			try (FileLock headerLock = this.channel.lock(0, LocalLeaseFile.HEADER_SIZE, false))
+			{
+				int free = -1;
+				for (int slot = 0; slot < this.slotCount; slot++)
+				{
+					String slotPartitionId = readString(slotBuffer(slot), LocalLeaseFile.PARTITION_ID_POSITION);
+					if (slotPartitionId.equals(partitionId))
+					{
+						this.slotsByPartitionId.put(partitionId, slot);
+						return slot;
+					}
+					if (slotPartitionId.isEmpty() && (free < 0))
+					{
+						free = slot;
+					}
+				}
+
+				if (free < 0)
+				{
+					throw new IllegalStateException("Lease file " + this.path + " has no free slot for partition " + partitionId);
+				}
+				writeString(slotBuffer(free), LocalLeaseFile.PARTITION_ID_POSITION, LocalLeaseFile.PARTITION_ID_SIZE, partitionId);
+				this.mapped.force();
+				this.slotsByPartitionId.put(partitionId, free);
+				return free;
+			}
+		}
+	}
+
+	private long slotStart(int slot)
+	{
+		return LocalLeaseFile.HEADER_SIZE + ((long)slot * LocalLeaseFile.SLOT_SIZE);
+	}
+
+	private ByteBuffer slotBuffer(int slot)
+	{
+		ByteBuffer slotBuffer = this.mapped.duplicate();
+		slotBuffer.position((int)slotStart(slot));
+		slotBuffer.limit((int)slotStart(slot) + LocalLeaseFile.SLOT_SIZE);
+		return slotBuffer.slice();
+	}
+
+	static String readString(ByteBuffer slot, int position)
+	{
+		int length = slot.getShort(position);
+		byte[] bytes = new byte[length];
+		for (int index = 0; index < length; index++)
+		{
+			bytes[index] = slot.get(position + 2 + index);
+		}
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	static void writeString(ByteBuffer slot, int position, int size, String value)
+	{
+		byte[] bytes = (value != null) ? value.getBytes(StandardCharsets.UTF_8) : new byte[0];
+		if (bytes.length > (size - 2))
+		{
+			throw new IllegalArgumentException("Value " + value + " is too long for a lease file slot");
+		}
+		slot.putShort(position, (short)bytes.length);
+		for (int index = 0; index < bytes.length; index++)
+		{
+			slot.put(position + 2 + index, bytes[index]);
+		}
+	}
+}
@@ -6,6 +6,7 @@
 package com.microsoft.azure.eventprocessorhost;
 
 import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.function.Function;
 import java.util.logging.Level;
@@ -13,6 +14,9 @@ import java.util.logging.Level;
 import com.microsoft.azure.eventhubs.EventData;
 import com.microsoft.azure.eventhubs.PartitionReceiver;
 import com.microsoft.azure.eventhubs.ReceiverRuntimeInformation;
+import com.microsoft.azure.eventhubs.metrics.EventHubMetrics;
+import com.microsoft.azure.eventhubs.metrics.MetricNames;
+import com.microsoft.azure.eventhubs.metrics.MetricTags;
 
 public class PartitionContext
 {
@@ -20,10 +24,16 @@ public class PartitionContext
     private final String partitionId;
     private final String eventHubPath;
     private final String consumerGroupName;
+    private final CoalescingCheckpointer checkpointer;
+    private final boolean concurrentBatches;
     
     private Lease lease;
     private String offset = PartitionReceiver.START_OF_STREAM;
     private long sequenceNumber = 0;
+    // With batches processed concurrently: the position up to which every batch has completed, null until one has
+    private Checkpoint processedPosition = null;
+    // ... and the furthest checkpoint of an event which was held back to it, null if none is waiting
+    private Checkpoint heldBackCheckpoint = null;
     private ReceiverRuntimeInformation runtimeInformation;
     
     PartitionContext(EventProcessorHost host, String partitionId, String eventHubPath, String consumerGroupName)
@@ -32,6 +42,12 @@ public class PartitionContext
         this.partitionId = partitionId;
         this.eventHubPath = eventHubPath;
         this.consumerGroupName = consumerGroupName;
+        EventProcessorOptions options = host.getEventProcessorOptions();
+        this.checkpointer = new CoalescingCheckpointer(host, this,
+        		EventHubMetrics.getProvider().histogram(MetricNames.EPH_CHECKPOINT_LATENCY, MetricTags.of(eventHubPath, partitionId)),
+        		((options != null) ? options.getCheckpointInterval() : EventProcessorOptions.DefaultCheckpointInterval).toMillis(),
+        		(options != null) ? options.getCheckpointEventCount() : EventProcessorOptions.DefaultCheckpointEventCount);
+        this.concurrentBatches = (options != null) && (options.getMaxConcurrentBatchesPerPartition() > 1);
 
       this.runtimeInformation = new ReceiverRuntimeInformation(partitionId);
     }
@@ -86,6 +102,72 @@ public class PartitionContext
 		}
     }
     
+    // Moves to the position up to which batches processed concurrently have all completed - never backwards. A checkpoint
+    // which was held back is written as far as the new position allows: the processor asked for it, so it is not lost.
+    void setProcessedPosition(Checkpoint position)
+    {
+    	Checkpoint releasedCheckpoint = null;
+    	synchronized (this)
+    	{
+    		if (position.getSequenceNumber() < this.sequenceNumber)
+    		{
+    			return;
+    		}
+    		
+    		this.offset = position.getOffset();
+    		this.sequenceNumber = position.getSequenceNumber();
+    		this.processedPosition = position;
+    		if (this.heldBackCheckpoint != null)
+    		{
+    			if (this.heldBackCheckpoint.getSequenceNumber() <= position.getSequenceNumber())
+    			{
+    				releasedCheckpoint = this.heldBackCheckpoint;
+    				this.heldBackCheckpoint = null;
+    			}
+    			else
+    			{
+    				releasedCheckpoint = position;
+    			}
+    		}
+    	}
+    	
+    	if (releasedCheckpoint != null)
+    	{
+    		this.checkpointer.checkpoint(releasedCheckpoint, false).whenComplete((result, failure) ->
+    		{
+    			if (failure != null)
+    			{
+    				this.host.logWithHostAndPartition(Level.FINE, this.partitionId, "Failure writing a held back checkpoint", failure);
+    			}
+    		});
+    	}
+    }
+    
+    // With batches processed concurrently, a checkpoint of a specific event can't go past a batch still in progress: it is held
+    // back to the position up to which every batch has completed, and the rest of it is written as those batches complete.
+    // Returns null when there is nothing to checkpoint yet.
+    private synchronized Checkpoint holdBackToProcessedPosition(Checkpoint requested)
+    {
+    	if (!this.concurrentBatches ||
+    			((this.processedPosition != null) && (requested.getSequenceNumber() <= this.processedPosition.getSequenceNumber())))
+    	{
+    		return requested;
+    	}
+    	
+		this.host.logWithHostAndPartition(Level.FINER, this.partitionId, "Checkpoint at " + requested.getOffset() + "//" + requested.getSequenceNumber() +
+				" is past a batch still in progress, holding it back");
+		if ((this.heldBackCheckpoint == null) || (requested.getSequenceNumber() > this.heldBackCheckpoint.getSequenceNumber()))
+		{
+			this.heldBackCheckpoint = requested;
+		}
+    	return this.processedPosition;
+    }
+    
+    private synchronized Checkpoint capturePosition()
+    {
+    	return new Checkpoint(this.partitionId, this.offset, this.sequenceNumber);
+    }
+    
     public String getPartitionId()
     {
     	return this.partitionId;
@@ -145,13 +227,47 @@ public class PartitionContext
     	// of events, and no other thread should be updating this PartitionContext, unless perhaps the
     	// event processor is itself multithreaded... Whether it's required or not, the amount of work
     	// required is trivial, so we might as well do it to be sure.
-    	Checkpoint capturedCheckpoint = new Checkpoint(this.partitionId, this.offset, this.sequenceNumber);
+    	Checkpoint capturedCheckpoint = capturePosition();
     	persistCheckpoint(capturedCheckpoint);
     }
 
+    /**
+     * Like checkpoint(), but without waiting: the current offset and sequenceNumber are written in the background, along
+     * with - or replaced by - later checkpoints of the partition, at most every EventProcessorOptions.getCheckpointInterval(),
+     * or sooner after getCheckpointEventCount() events. Pending checkpoints are written when the partition is closed.
+     *  
+     * @return a future which completes when this position, or a later one, is in the checkpoint store
+     */
+    public CompletableFuture<Void> checkpointAsync()
+    {
+    	return this.checkpointer.checkpoint(capturePosition(), false);
+    }
+
+    /**
+     * Like checkpoint(EventData), but without waiting - see checkpointAsync().
+     *  
+     * @param event  A received EventData with valid offset and sequenceNumber
+     * @return a future which completes when this position - or the one it is held back to, or a later one - is in the checkpoint store
+     */
+    public CompletableFuture<Void> checkpointAsync(EventData event)
+    {
+    	Checkpoint checkpoint = holdBackToProcessedPosition(new Checkpoint(this.partitionId, event.getSystemProperties().getOffset(), event.getSystemProperties().getSequenceNumber()));
+    	return (checkpoint != null) ? this.checkpointer.checkpoint(checkpoint, false) : CompletableFuture.completedFuture(null);
+    }
+    
+    // Writes the checkpoints which checkpointAsync() hasn't written yet.
+    CompletableFuture<Void> flushCheckpoints()
+    {
+    	return this.checkpointer.flush();
+    }
+
     /**
      * Stores the offset and sequenceNumber from the provided received EventData instance, then writes those
      * values to the checkpoint store via the checkpoint manager.
+     * 
+     * When batches of the partition are processed concurrently - see EventProcessorOptions.setMaxConcurrentBatchesPerPartition -
+     * the checkpoint is held back to the last event before which every batch has completed, and the rest of it is written in the
+     * background as the batches before the event complete.
      *  
      * @param event  A received EventData with valid offset and sequenceNumber
      * @throws IllegalArgumentException  If the sequenceNumber in the provided event is less than the last checkpointed value  
@@ -160,14 +276,16 @@ public class PartitionContext
      */
     public void checkpoint(EventData event) throws IllegalArgumentException, InterruptedException, ExecutionException
     {
-    	persistCheckpoint(new Checkpoint(this.partitionId, event.getSystemProperties().getOffset(), event.getSystemProperties().getSequenceNumber()));
+    	Checkpoint checkpoint = holdBackToProcessedPosition(new Checkpoint(this.partitionId, event.getSystemProperties().getOffset(), event.getSystemProperties().getSequenceNumber()));
+    	if (checkpoint != null)
+    	{
+    		persistCheckpoint(checkpoint);
+    	}
     }
     
     private void persistCheckpoint(Checkpoint persistThis) throws IllegalArgumentException, InterruptedException, ExecutionException
     {
-    	this.host.logWithHostAndPartition(Level.FINER, persistThis.getPartitionId(), "Saving checkpoint: " +
-    			persistThis.getOffset() + "//" + persistThis.getSequenceNumber());
-		
-        this.host.getCheckpointManager().updateCheckpoint(this.lease, persistThis).get();
+    	// Goes through the checkpointer, so that it is ordered with the checkpoints of checkpointAsync()
+        this.checkpointer.checkpoint(persistThis, true).get();
     }
 }
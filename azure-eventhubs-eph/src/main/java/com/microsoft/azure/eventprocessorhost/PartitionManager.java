@@ -10,15 +10,20 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.logging.Level;
 
-import com.microsoft.azure.eventhubs.EventHubClient;
 import com.microsoft.azure.eventhubs.EventHubRuntimeInformation;
 import com.microsoft.azure.eventhubs.IllegalEntityException;
 import com.microsoft.azure.eventhubs.EventHubException;
 import com.microsoft.azure.eventhubs.TimeoutException;
+import com.microsoft.azure.eventhubs.metrics.EventHubMetrics;
+import com.microsoft.azure.eventhubs.metrics.ICounter;
+import com.microsoft.azure.eventhubs.metrics.IMetricsProvider;
+import com.microsoft.azure.eventhubs.metrics.MetricNames;
+import com.microsoft.azure.eventhubs.metrics.MetricTags;
 import com.microsoft.azure.storage.StorageException;
 
 class PartitionManager
@@ -26,15 +31,63 @@ class PartitionManager
 	// Protected instead of private for testability
     protected final EventProcessorHost host;
     protected Pump pump;
+    private LeaseRenewer leaseRenewer = null;
+    private StartupTimeline startupTimeline = null;
 
     private String partitionIds[] = null;
     
     private Future<?> partitionsFuture = null;
     private boolean keepGoing = true;
+    private EventHubClientPool clientPool = null;
+    private boolean clientPoolClosed = false;
+
+    private final IMetricsProvider metrics;
+    private final ICounter scansMetric;
+    // by partition id
+    private final ConcurrentHashMap<String, ICounter> acquiresMetrics = new ConcurrentHashMap<String, ICounter>();
+    private final ConcurrentHashMap<String, ICounter> stealsMetrics = new ConcurrentHashMap<String, ICounter>();
 
     PartitionManager(EventProcessorHost host)
     {
         this.host = host;
+        this.metrics = EventHubMetrics.getProvider();
+        this.scansMetric = this.metrics.counter(MetricNames.EPH_LEASE_SCANS, MetricTags.of(host.getEventHubPath(), null));
+    }
+    
+    // Clients are shared by all pumps of the host - and by the partition id lookup.
+    synchronized EventHubClientPool getClientPool()
+    {
+    	if (this.clientPoolClosed)
+    	{
+    		// a new pool would never be closed, and would leak its connections
+    		throw new IllegalStateException("EventHubClient pool of host " + this.host.getHostName() + " is closed");
+    	}
+    	if (this.clientPool == null)
+    	{
+    		EventProcessorOptions options = this.host.getEventProcessorOptions();
+    		this.clientPool = new EventHubClientPool(this.host,
+    				(options != null) ? options.getConnectionCount() : EventProcessorOptions.DefaultConnectionCount);
+    	}
+    	return this.clientPool;
+    }
+    
+    // A client released after shutdown was already closed with the pool.
+    synchronized void releaseClient(EventHubClientPool.PooledClient pooledClient, boolean faulted)
+    {
+    	if (!this.clientPoolClosed)
+    	{
+    		this.clientPool.release(pooledClient, faulted);
+    	}
+    }
+    
+    synchronized void closeClientPool()
+    {
+    	this.clientPoolClosed = true;
+    	if (this.clientPool != null)
+    	{
+    		this.clientPool.close();
+    		this.clientPool = null;
+    	}
     }
     
     String[] getPartitionIds() throws IllegalEntityException
@@ -43,10 +96,11 @@ class PartitionManager
 
         if (this.partitionIds == null)
         {
+			EventHubClientPool.PooledClient pooledClient = null;
 			try
 			{
-				EventHubClient ehClient = EventHubClient.createFromConnectionStringSync(this.host.getEventHubConnectionString());
-				EventHubRuntimeInformation ehInfo = ehClient.getRuntimeInformation().get();
+				pooledClient = getClientPool().acquire();
+				EventHubRuntimeInformation ehInfo = pooledClient.getClient().getRuntimeInformation().get();
 				if (ehInfo != null)
 				{
 					this.partitionIds = ehInfo.getPartitionIds();
@@ -66,6 +120,13 @@ class PartitionManager
 			{
 				saved = e;
 			}
+			finally
+			{
+				if (pooledClient != null)
+				{
+					releaseClient(pooledClient, false);
+				}
+			}
         }
         if (this.partitionIds == null)
         {
@@ -91,6 +152,11 @@ class PartitionManager
     {
     }
     
+    StartupTimeline getStartupTimeline()
+    {
+    	return this.startupTimeline;
+    }
+    
     Future<?> stopPartitions()
     {
     	this.keepGoing = false;
@@ -100,11 +166,14 @@ class PartitionManager
     // Return Void so it can be called from a lambda.
     public Void initialize() throws Exception
     {
+    	this.startupTimeline = new StartupTimeline(this.host);
     	this.pump = createPumpTestHook();
     	
     	try
     	{
+    		this.startupTimeline.trace("initializing stores");
     		initializeStores();
+    		this.startupTimeline.trace("stores, leases and checkpoints ready");
     		onInitializeCompleteTestHook();
     	}
     	catch (ExceptionWithAction e)
@@ -118,6 +187,7 @@ class PartitionManager
     		throw e;
     	}
     	
+    	this.leaseRenewer = new LeaseRenewer(this.host, this.pump);
     	this.partitionsFuture = EventProcessorHost.getExecutorService().submit(() -> runAndCleanUp());
     	
     	return null;
@@ -159,6 +229,8 @@ class PartitionManager
     	}
     	
     	// Cleanup
+    	// Stop renewing first, the pumps release their leases as they shut down.
+    	this.leaseRenewer.close();
     	this.host.logWithHost(Level.FINE, "Shutting down all pumps");
     	Iterable<Future<?>> pumpRemovals = this.pump.removeAllPumps(CloseReason.Shutdown);
     	
@@ -190,6 +262,9 @@ class PartitionManager
 			}
     	}
     	
+    	// Pumps are all closed, so their receivers are gone and the shared clients can go too.
+    	closeClientPool();
+    	
     	this.host.logWithHost(Level.FINE, "Partition manager exiting");
     	
     	return null;
@@ -208,13 +283,6 @@ class PartitionManager
         // else
         //	lease store already exists, no work needed
         
-        // Now make sure the leases exist
-        for (String id : getPartitionIds())
-        {
-        	retryWrapper(() -> leaseManager.createLeaseIfNotExists(id), id, "Failure creating lease for partition, retrying",
-        			"Out of retries creating lease for partition", EventProcessorHostActionStrings.CREATING_LEASE, 5);
-        }
-        
         ICheckpointManager checkpointManager = this.host.getCheckpointManager();
         
         // Make sure the checkpoint store exists
@@ -226,14 +294,50 @@ class PartitionManager
         // else
         //	checkpoint store already exists, no work needed
         
-        // Now make sure the checkpoints exist
+        // Now make sure the leases and checkpoints exist. A partition's checkpoint is created after its lease, but
+        // the partitions go side by side - upto maxConcurrentLeaseOperations at a time - so a cold start costs a few
+        // store round-trips instead of a few per partition.
+        int maxConcurrentCreates = this.host.getPartitionManagerOptions().getMaxConcurrentLeaseOperations();
+        ArrayList<Future<Void>> creations = new ArrayList<Future<Void>>();
         for (String id : getPartitionIds())
         {
-        	retryWrapper(() -> checkpointManager.createCheckpointIfNotExists(id), id, "Failure creating checkpoint for partition, retrying",
-        			"Out of retries creating checkpoint blob for partition", EventProcessorHostActionStrings.CREATING_CHECKPOINT, 5);
+        	if (creations.size() >= maxConcurrentCreates)
+        	{
+        		// wait for a slot
+        		waitForCreation(creations.get(creations.size() - maxConcurrentCreates));
+        	}
+        	creations.add(EventProcessorHost.getExecutorService().submit(() ->
+        	{
+	        	retryWrapper(() -> leaseManager.createLeaseIfNotExists(id), id, "Failure creating lease for partition, retrying",
+	        			"Out of retries creating lease for partition", EventProcessorHostActionStrings.CREATING_LEASE, 5);
+	        	retryWrapper(() -> checkpointManager.createCheckpointIfNotExists(id), id, "Failure creating checkpoint for partition, retrying",
+	        			"Out of retries creating checkpoint blob for partition", EventProcessorHostActionStrings.CREATING_CHECKPOINT, 5);
+	        	return null;
+        	}));
+        }
+        for (Future<Void> creation : creations)
+        {
+        	waitForCreation(creation);
         }
     }
     
+    private void waitForCreation(Future<Void> creation) throws InterruptedException, ExecutionException, ExceptionWithAction
+    {
+    	try
+    	{
+    		creation.get();
+    	}
+    	catch (ExecutionException e)
+    	{
+    		// retryWrapper gave up
+    		if (e.getCause() instanceof ExceptionWithAction)
+    		{
+    			throw (ExceptionWithAction)e.getCause();
+    		}
+    		throw e;
+    	}
+    }
+    
     // Throws if it runs out of retries. If it returns, action succeeded.
     private void retryWrapper(Callable<Future<?>> lambda, String partitionId, String retryMessage, String finalFailureMessage, String action, int maxRetries) throws ExceptionWithAction
     {
@@ -278,68 +382,43 @@ class PartitionManager
     	while (this.keepGoing)
     	{
             ILeaseManager leaseManager = this.host.getLeaseManager();
+            this.scansMetric.increment(1);
             HashMap<String, Lease> allLeases = new HashMap<String, Lease>();
 
             // Inspect all leases.
             // Acquire any expired leases.
-            // Renew any leases that currently belong to us.
+            // Leases that currently belong to us are renewed by the lease renewer, not by the scan.
+            // Partitions are checked concurrently - upto maxConcurrentLeaseOperations at a time - so a scan costs
+            // about one lease store round-trip, instead of one per partition.
             Iterable<Future<Lease>> gettingAllLeases = leaseManager.getAllLeases();
-            ArrayList<Lease> leasesOwnedByOthers = new ArrayList<Lease>();
-            int ourLeasesCount = 0;
+            int maxConcurrentChecks = this.host.getPartitionManagerOptions().getMaxConcurrentLeaseOperations();
+            ArrayList<Future<LeaseCheckResult>> leaseChecks = new ArrayList<Future<LeaseCheckResult>>();
             for (Future<Lease> leaseFuture : gettingAllLeases)
             {
-            	Lease possibleLease = null;
-            	try
+            	if (leaseChecks.size() >= maxConcurrentChecks)
             	{
-                    possibleLease = leaseFuture.get();
-                    if (possibleLease.isExpired())
-                    {
-                    	if (leaseManager.acquireLease(possibleLease).get())
-                    	{
-                    		allLeases.put(possibleLease.getPartitionId(), possibleLease);
-                    		ourLeasesCount++;
-                    	}
-                    	else
-                    	{
-                    		// Probably failed because another host stole it between get and acquire
-                        	allLeases.put(possibleLease.getPartitionId(), possibleLease);
-                        	leasesOwnedByOthers.add(possibleLease);
-                    	}
-                    }
-                    else if (possibleLease.getOwner().compareTo(this.host.getHostName()) == 0)
-                    {
-                        if (leaseManager.renewLease(possibleLease).get())
-                        {
-                            allLeases.put(possibleLease.getPartitionId(), possibleLease);
-                            ourLeasesCount++;
-                        }
-                    	else
-                    	{
-                    		// Probably failed because another host stole it between get and renew
-                        	allLeases.put(possibleLease.getPartitionId(), possibleLease);
-                        	leasesOwnedByOthers.add(possibleLease);
-                    	}
-                    }
-                    else
-                    {
-                    	allLeases.put(possibleLease.getPartitionId(), possibleLease);
-                    	leasesOwnedByOthers.add(possibleLease);
-                    }
+            		// wait for a slot
+            		leaseChecks.get(leaseChecks.size() - maxConcurrentChecks).get();
             	}
-        		// Most exceptions will arrive packaged as ExecutionException because they occur during a short-lived thread
-        		// down in AzureStorageCheckpointLeastManager. However, AzureBlobLease.isExpired calls Storage directly and
-        		// therefore can throw a plain StorageException. Handling is the same for all: log, notify, and move on to the
-            	// next partition.
-            	catch (ExecutionException|StorageException e)
+            	leaseChecks.add(EventProcessorHost.getExecutorService().submit(() -> checkLease(leaseManager, leaseFuture)));
+            }
+            
+            ArrayList<Lease> leasesOwnedByOthers = new ArrayList<Lease>();
+            int ourLeasesCount = 0;
+            for (Future<LeaseCheckResult> leaseCheck : leaseChecks)
+            {
+            	LeaseCheckResult result = leaseCheck.get();
+            	if (result != null)
             	{
-            		this.host.logWithHost(Level.WARNING, "Failure getting/acquiring/renewing lease, skipping", e);
-            		Exception notifyWith = e;
-            		if ((e instanceof ExecutionException) && (e.getCause() != null) && (e.getCause() instanceof Exception))
+            		allLeases.put(result.lease.getPartitionId(), result.lease);
+            		if (result.isOurs)
             		{
-            			notifyWith = (Exception)e.getCause();
+            			ourLeasesCount++;
+            		}
+            		else
+            		{
+            			leasesOwnedByOthers.add(result.lease);
             		}
-            		this.host.getEventProcessorOptions().notifyOfException(this.host.getHostName(), notifyWith, EventProcessorHostActionStrings.CHECKING_LEASES,
-            				((possibleLease != null) ? possibleLease.getPartitionId() : ExceptionReceivedEventArgs.NO_ASSOCIATED_PARTITION));
             	}
             }
             
@@ -349,13 +428,20 @@ class PartitionManager
 	            Iterable<Lease> stealTheseLeases = whichLeasesToSteal(leasesOwnedByOthers, ourLeasesCount);
 	            if (stealTheseLeases != null)
 	            {
+	            	// Steals of several leases go to the lease store side by side
+	            	HashMap<Lease, Future<Boolean>> stealing = new HashMap<Lease, Future<Boolean>>();
+	            	for (Lease stealee : stealTheseLeases)
+	            	{
+	            		stealing.put(stealee, leaseManager.acquireLease(stealee));
+	            	}
 	            	for (Lease stealee : stealTheseLeases)
 	            	{
 	            		try
 	            		{
-    	                	if (leaseManager.acquireLease(stealee).get())
+    	                	if (stealing.get(stealee).get())
     	                	{
     	                		this.host.logWithHostAndPartition(Level.FINE, stealee.getPartitionId(), "Stole lease");
+    	                		partitionCounter(this.stealsMetrics, MetricNames.EPH_LEASE_STEALS, stealee.getPartitionId()).increment(1);
     	                		allLeases.put(stealee.getPartitionId(), stealee);
     	                		ourLeasesCount++;
     	                	}
@@ -374,6 +460,8 @@ class PartitionManager
 	            }
             }
 
+            this.startupTimeline.firstScanComplete(ourLeasesCount);
+            
             // Update pump with new state of leases.
             for (String partitionId : allLeases.keySet())
             {
@@ -382,9 +470,11 @@ class PartitionManager
             	if (updatedLease.getOwner().compareTo(this.host.getHostName()) == 0)
             	{
             		this.pump.addPump(partitionId, updatedLease);
+            		this.leaseRenewer.track(updatedLease);
             	}
             	else
             	{
+            		this.leaseRenewer.untrack(partitionId);
             		Future<?> removing = this.pump.removePump(partitionId, CloseReason.LeaseLost);
             		if (removing != null)
             		{
@@ -397,7 +487,7 @@ class PartitionManager
     		
             try
             {
-                Thread.sleep(leaseManager.getLeaseRenewIntervalInMilliseconds());
+                Thread.sleep(this.host.getPartitionManagerOptions().getLeaseScanIntervalInSeconds() * 1000L);
             }
             catch (InterruptedException e)
             {
@@ -410,12 +500,84 @@ class PartitionManager
     	}
     }
     
+    // Resolved on the first use for the partition, then reused by every scan
+    private ICounter partitionCounter(ConcurrentHashMap<String, ICounter> counters, String name, String partitionId)
+    {
+    	return counters.computeIfAbsent(partitionId, (key) -> this.metrics.counter(name, MetricTags.of(this.host.getEventHubPath(), key)));
+    }
+    
+    private static class LeaseCheckResult
+    {
+    	final Lease lease;
+    	final boolean isOurs;
+    	
+    	LeaseCheckResult(Lease lease, boolean isOurs)
+    	{
+    		this.lease = lease;
+    		this.isOurs = isOurs;
+    	}
+    }
+    
+    // Runs on the executor, concurrently with the checks of the other partitions. Returns null if the lease couldn't be checked.
+    private LeaseCheckResult checkLease(ILeaseManager leaseManager, Future<Lease> leaseFuture) throws Exception
+    {
+    	Lease possibleLease = null;
+    	try
+    	{
+            possibleLease = leaseFuture.get();
+            if (possibleLease.isExpired())
+            {
+            	if (leaseManager.acquireLease(possibleLease).get())
+            	{
+            		partitionCounter(this.acquiresMetrics, MetricNames.EPH_LEASE_ACQUIRES, possibleLease.getPartitionId()).increment(1);
+            		return new LeaseCheckResult(possibleLease, true);
+            	}
+            	else
+            	{
+            		// Probably failed because another host stole it between get and acquire
+            		return new LeaseCheckResult(possibleLease, false);
+            	}
+            }
+            else
+            {
+            	// Ours and not expired: the renewer keeps it renewed.
+            	return new LeaseCheckResult(possibleLease, possibleLease.getOwner().compareTo(this.host.getHostName()) == 0);
+            }
+    	}
+		// Most exceptions will arrive packaged as ExecutionException because they occur during a short-lived thread
+		// down in AzureStorageCheckpointLeastManager. However, AzureBlobLease.isExpired calls Storage directly and
+		// therefore can throw a plain StorageException. Handling is the same for all: log, notify, and move on to the
+    	// next partition.
+    	catch (ExecutionException|StorageException e)
+    	{
+    		this.host.logWithHost(Level.WARNING, "Failure getting/acquiring lease, skipping", e);
+    		Exception notifyWith = e;
+    		if ((e instanceof ExecutionException) && (e.getCause() != null) && (e.getCause() instanceof Exception))
+    		{
+    			notifyWith = (Exception)e.getCause();
+    		}
+    		this.host.getEventProcessorOptions().notifyOfException(this.host.getHostName(), notifyWith, EventProcessorHostActionStrings.CHECKING_LEASES,
+    				((possibleLease != null) ? possibleLease.getPartitionId() : ExceptionReceivedEventArgs.NO_ASSOCIATED_PARTITION));
+    		return null;
+    	}
+    }
+    
     private Iterable<Lease> whichLeasesToSteal(ArrayList<Lease> stealableLeases, int haveLeaseCount)
     {
     	HashMap<String, Integer> countsByOwner = countLeasesByOwner(stealableLeases);
-    	String biggestOwner = findBiggestOwner(countsByOwner);
-    	int biggestCount = countsByOwner.get(biggestOwner);
-    	ArrayList<Lease> stealTheseLeases = null;
+    	ArrayList<Lease> stealTheseLeases = selectLeasesToSteal(stealableLeases, countsByOwner, haveLeaseCount,
+    			this.host.getPartitionManagerOptions().getMaxLeasesStolenPerScan());
+    	for (Lease l : stealTheseLeases)
+    	{
+    		this.host.logWithHost(Level.FINER, "Proposed to steal lease for partition " + l.getPartitionId() + " from " + l.getOwner());
+    	}
+    	return stealTheseLeases.isEmpty() ? null : stealTheseLeases;
+    }
+    
+    // Static, without side effects on the leases, so that balancing can be simulated. Consumes countsByOwner.
+    static ArrayList<Lease> selectLeasesToSteal(Iterable<Lease> stealableLeases, HashMap<String, Integer> countsByOwner, int haveLeaseCount, int maxSteals)
+    {
+    	ArrayList<Lease> stealTheseLeases = new ArrayList<Lease>();
     	
     	// If the number of leases is a multiple of the number of hosts, then the desired configuration is
     	// that all hosts own the name number of leases, and the difference between the "biggest" owner and
@@ -435,24 +597,57 @@ class PartitionManager
     	// this host by two at a time. If the starting difference is two or greater, then the difference cannot
     	// end up below 0. This host may become tied for biggest, but it cannot become larger than the host that
     	// it is stealing from.
+    	//
+    	// When more than one steal per scan is allowed, the same step is repeated against the updated counts,
+    	// so each step keeps that guarantee. On top of that, the extra steals stop at this host's share of the
+    	// leases - rounded up - among the hosts which own leases. Hosts which own none yet can't be seen in the
+    	// leases, so a new host may still take more than its final share; the guard keeps that to the share it
+    	// can see, and the other hosts take the excess back one step at a time, without going past it.
+    	
+    	int totalLeases = haveLeaseCount;
+    	for (int count : countsByOwner.values())
+    	{
+    		totalLeases += count;
+    	}
+    	int hostCount = countsByOwner.size() + 1;
+    	int shareCount = (totalLeases + hostCount - 1) / hostCount;
     	
-    	if ((biggestCount - haveLeaseCount) >= 2)
+    	int willHaveCount = haveLeaseCount;
+    	while (stealTheseLeases.size() < maxSteals)
     	{
-    		stealTheseLeases = new ArrayList<Lease>();
+    		if (!stealTheseLeases.isEmpty() && (willHaveCount >= shareCount))
+    		{
+    			break;
+    		}
+    		
+	    	String biggestOwner = findBiggestOwner(countsByOwner);
+	    	if ((biggestOwner == null) || ((countsByOwner.get(biggestOwner) - willHaveCount) < 2))
+	    	{
+	    		break;
+	    	}
+	    	
+	    	Lease stealee = null;
     		for (Lease l : stealableLeases)
     		{
-    			if (l.getOwner().compareTo(biggestOwner) == 0)
+    			if ((l.getOwner().compareTo(biggestOwner) == 0) && !stealTheseLeases.contains(l))
     			{
-    				stealTheseLeases.add(l);
-    				this.host.logWithHost(Level.FINER, "Proposed to steal lease for partition " + l.getPartitionId() + " from " + biggestOwner);
+    				stealee = l;
   					break;
     			}
     		}
+    		if (stealee == null)
+    		{
+    			break;
+    		}
+    		
+    		stealTheseLeases.add(stealee);
+    		countsByOwner.put(biggestOwner, countsByOwner.get(biggestOwner) - 1);
+    		willHaveCount++;
     	}
     	return stealTheseLeases;
     }
     
-    private String findBiggestOwner(HashMap<String, Integer> countsByOwner)
+    private static String findBiggestOwner(HashMap<String, Integer> countsByOwner)
     {
     	int biggestCount = 0;
     	String biggestOwner = null;
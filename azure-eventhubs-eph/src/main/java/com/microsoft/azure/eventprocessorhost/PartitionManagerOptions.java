@@ -17,14 +17,32 @@ public class PartitionManagerOptions
 	 */
 	public final static int DefaultLeaseRenewIntervalInSeconds = 10;
 
+	/**
+	 * The default duration between scans of all leases, which acquire and steal leases.
+	 */
+	public final static int DefaultLeaseScanIntervalInSeconds = 10;
+
 	/**
 	 * The default timeout for checkpoint operations.
 	 */
 	public final static int DefaultCheckpointTimeoutInSeconds = 120;
 
+	/**
+	 * The default number of partitions whose leases are checked at the same time, in each lease scan.
+	 */
+	public final static int DefaultMaxConcurrentLeaseOperations = 32;
+
+	/**
+	 * The default number of leases a host steals from other hosts in one lease scan.
+	 */
+	public final static int DefaultMaxLeasesStolenPerScan = 1;
+
 	protected int leaseDurationInSeconds = PartitionManagerOptions.DefaultLeaseDurationInSeconds;
 	protected int leaseRenewIntervalInSeconds = PartitionManagerOptions.DefaultLeaseRenewIntervalInSeconds;
+	protected int leaseScanIntervalInSeconds = PartitionManagerOptions.DefaultLeaseScanIntervalInSeconds;
 	protected int checkpointTimeoutInSeconds = PartitionManagerOptions.DefaultCheckpointTimeoutInSeconds;
+	protected int maxConcurrentLeaseOperations = PartitionManagerOptions.DefaultMaxConcurrentLeaseOperations;
+	protected int maxLeasesStolenPerScan = PartitionManagerOptions.DefaultMaxLeasesStolenPerScan;
 	
 	public PartitionManagerOptions()
 	{
@@ -75,6 +93,29 @@ public class PartitionManagerOptions
 		this.leaseRenewIntervalInSeconds = interval;
 	}
 	
+	/**
+	 * Gets the duration between scans of all leases. Defaults to DefaultLeaseScanIntervalInSeconds.
+	 *
+	 * @return
+	 */
+	public int getLeaseScanIntervalInSeconds() { return this.leaseScanIntervalInSeconds; }
+	
+	/**
+	 * Sets the duration between scans of all leases, which pick up expired leases and balance the load between hosts.
+	 * Must be greater than 0. Leases owned by the host are renewed on their own timers, every renew interval,
+	 * whatever the scan interval - so, it can be longer than the lease duration.
+	 *
+	 * @param interval
+	 */
+	public void setLeaseScanIntervalInSeconds(int interval)
+	{
+		if (interval <= 0)
+		{
+			throw new IllegalArgumentException("Lease scan interval must be greater than 0");
+		}
+		this.leaseScanIntervalInSeconds = interval;
+	}
+	
 	/**
 	 * Gets the timeout for checkpoint operations. Defaults to DefaultCheckpointTimeoutInSeconds.
 	 *
@@ -95,4 +136,53 @@ public class PartitionManagerOptions
 		}
 		this.checkpointTimeoutInSeconds = timeout;
 	}
+	
+	/**
+	 * Gets the number of partitions whose leases are checked - read, and acquired if expired - at the same time,
+	 * in each lease scan. Defaults to DefaultMaxConcurrentLeaseOperations.
+	 *
+	 * @return
+	 */
+	public int getMaxConcurrentLeaseOperations() { return this.maxConcurrentLeaseOperations; }
+	
+	/**
+	 * Sets the number of partitions whose leases are checked at the same time, in each lease scan. Must be greater than 0.
+	 * A scan takes about one lease store round-trip for every this many partitions; each partition being checked
+	 * holds a thread of the host's executor.
+	 *
+	 * @param maxConcurrentLeaseOperations
+	 */
+	public void setMaxConcurrentLeaseOperations(int maxConcurrentLeaseOperations)
+	{
+		if (maxConcurrentLeaseOperations <= 0)
+		{
+			throw new IllegalArgumentException("Max concurrent lease operations must be greater than 0");
+		}
+		this.maxConcurrentLeaseOperations = maxConcurrentLeaseOperations;
+	}
+	
+	/**
+	 * Gets the number of leases a host steals from other hosts in one lease scan, when it owns less than its share.
+	 * Defaults to DefaultMaxLeasesStolenPerScan.
+	 *
+	 * @return
+	 */
+	public int getMaxLeasesStolenPerScan() { return this.maxLeasesStolenPerScan; }
+	
+	/**
+	 * Sets the number of leases a host steals from other hosts in one lease scan. Must be greater than 0.
+	 * With 1, a host which joins takes a lease per scan until the load is balanced. With more, it takes its whole
+	 * share of the leases - as far as it can tell from the hosts which own leases - in one scan, and the load
+	 * balances in a few scans instead of about one per lease to move.
+	 *
+	 * @param maxLeasesStolenPerScan
+	 */
+	public void setMaxLeasesStolenPerScan(int maxLeasesStolenPerScan)
+	{
+		if (maxLeasesStolenPerScan <= 0)
+		{
+			throw new IllegalArgumentException("Max leases stolen per scan must be greater than 0");
+		}
+		this.maxLeasesStolenPerScan = maxLeasesStolenPerScan;
+	}
 }
@@ -6,6 +6,11 @@
 package com.microsoft.azure.eventprocessorhost;
 
 import java.util.Iterator;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.logging.Level;
 
 import com.microsoft.azure.eventhubs.EventData;
@@ -23,12 +28,22 @@ abstract class PartitionPump
     
     protected final Object processingSynchronizer;
     
+    // Only when batches of the partition are processed concurrently - see EventProcessorOptions.setMaxConcurrentBatchesPerPartition
+    private final int maxConcurrentBatches;
+    private final Semaphore batchPermits;
+    private final CheckpointWatermark watermark;
+    
 	PartitionPump(EventProcessorHost host, Pump pump, Lease lease)
 	{
 		this.host = host;
 		this.pump = pump;
 		this.lease = lease;
 		this.processingSynchronizer = new Object();
+		
+		EventProcessorOptions options = host.getEventProcessorOptions();
+		this.maxConcurrentBatches = (options != null) ? options.getMaxConcurrentBatchesPerPartition() : EventProcessorOptions.DefaultMaxConcurrentBatchesPerPartition;
+		this.batchPermits = (this.maxConcurrentBatches > 1) ? new Semaphore(this.maxConcurrentBatches) : null;
+		this.watermark = (this.maxConcurrentBatches > 1) ? new CheckpointWatermark() : null;
 	}
 	
 	void setLease(Lease newLease)
@@ -125,6 +140,11 @@ abstract class PartitionPump
         {
             try
             {
+            	if (this.batchPermits != null)
+            	{
+            		// No more batches are received once the receiver is closed. Wait for the ones in progress.
+            		this.batchPermits.acquireUninterruptibly(this.maxConcurrentBatches);
+            	}
             	synchronized(this.processingSynchronizer)
             	{
             		// When we take the lock, any existing onEvents call has finished.
@@ -142,6 +162,25 @@ abstract class PartitionPump
             }
         }
         
+        if (this.partitionContext != null)
+        {
+        	// Write what checkpointAsync() hasn't yet - including checkpoints from onClose. Without the lease it will most
+        	// likely fail, but the lease may also be lost only as far as this host knows.
+        	try
+        	{
+        		this.partitionContext.flushCheckpoints().get(this.host.getPartitionManagerOptions().getCheckpointTimeoutInSeconds(), TimeUnit.SECONDS);
+        	}
+        	catch (InterruptedException e)
+        	{
+        		Thread.currentThread().interrupt();
+        	}
+        	catch (ExecutionException | TimeoutException e)
+        	{
+        		this.host.logWithHostAndPartition((reason == CloseReason.LeaseLost) ? Level.FINE : Level.WARNING, this.partitionContext,
+        				"Failure writing pending checkpoints", e);
+        	}
+        }
+        
         if (reason != CloseReason.LeaseLost)
         {
 	        // Since this pump is dead, release the lease. 
@@ -156,19 +195,26 @@ abstract class PartitionPump
     
     protected void onEvents(Iterable<EventData> events)
 	{
-    	// Update offset and sequence number in the PartitionContext to support argument-less overload of PartitionContext.checkpoint()
+    	EventData last = null;
 		if (events != null)
 		{
     		Iterator<EventData> blah = events.iterator();
-    		EventData last = null;
     		while (blah.hasNext())
     		{
     			last = blah.next();
     		}
-    		if (last != null)
-    		{
-    			this.partitionContext.setOffsetAndSequenceNumber(last);
-    		}
+		}
+		
+		if (this.batchPermits != null)
+		{
+			onEventsConcurrently(events, last);
+			return;
+		}
+		
+    	// Update offset and sequence number in the PartitionContext to support argument-less overload of PartitionContext.checkpoint()
+		if (last != null)
+		{
+			this.partitionContext.setOffsetAndSequenceNumber(last);
 		}
 		
     	try
@@ -192,6 +238,71 @@ abstract class PartitionPump
         }
 	}
     
+    // Hands the batch to the executor. Waiting for a permit holds up the receive thread, so that no more than maxConcurrentBatches
+    // batches of the partition are in progress, and shutdown can wait for them by taking all the permits.
+    private void onEventsConcurrently(Iterable<EventData> events, EventData last)
+    {
+    	this.batchPermits.acquireUninterruptibly();
+    	Checkpoint lastPosition = (last != null) ?
+    			new Checkpoint(this.partitionContext.getPartitionId(), last.getSystemProperties().getOffset(), last.getSystemProperties().getSequenceNumber()) : null;
+    	final CheckpointWatermark.Batch batch = this.watermark.started(lastPosition);
+    	try
+    	{
+    		EventProcessorHost.getExecutorService().submit(() -> processBatch(events, batch));
+    	}
+    	catch (RejectedExecutionException e)
+    	{
+    		// The host is shutting down. The batch never completes, so the checkpoint doesn't move past it.
+    		this.batchPermits.release();
+    	}
+    }
+    
+    private Void processBatch(Iterable<EventData> events, CheckpointWatermark.Batch batch)
+    {
+    	boolean failed = false;
+    	try
+    	{
+    		try
+    		{
+    			this.processor.onEvents(this.partitionContext, events);
+    		}
+    		catch (Exception e)
+    		{
+    			// The checkpoint stays before the batch, so its events are received again when the partition is reopened.
+    			this.host.logWithHostAndPartition(Level.SEVERE, this.partitionContext, "Got exception from onEvents, closing the partition", e);
+    			this.watermark.failed(batch);
+    			this.host.getEventProcessorOptions().notifyOfException(this.host.getHostName(), e, EventProcessorHostActionStrings.PROCESSING_EVENTS,
+    					this.partitionContext.getPartitionId());
+    			failed = true;
+    		}
+    		
+    		if (!failed)
+    		{
+	    		// Under the watermark's lock, so that concurrent completions move the position in order
+	    		synchronized (this.watermark)
+	    		{
+	    			Checkpoint advancedTo = this.watermark.completed(batch);
+	    			if (advancedTo != null)
+	    			{
+	    				this.partitionContext.setProcessedPosition(advancedTo);
+	    			}
+	    		}
+    		}
+    	}
+    	finally
+    	{
+    		this.batchPermits.release();
+    	}
+    	
+    	if (failed)
+    	{
+    		// The batches after the failed one can't be checkpointed any more: reopen the partition from the last checkpoint.
+    		// Shutdown waits for every batch permit, so this must come after the permit of this batch is released.
+    		this.pump.onPumpError(this.partitionContext.getPartitionId());
+    	}
+    	return null;
+    }
+    
     // Returns Void so it can be called from a lambda.
     protected Void onError(Throwable error)
     {
@@ -71,6 +71,7 @@ class Pump
 					{
 						Pump.this.pumpStates.put(partitionId, newPartitionPump); // do the put after start, if the start fails then put doesn't happen
 						Pump.this.host.logWithHostAndPartition(Level.FINE, partitionId, "created new pump");
+						Pump.this.host.getPartitionManager().getStartupTimeline().pumpOpened(partitionId);
 					}
 					return null;
 				}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.eventprocessorhost;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+/**
+ * Traces the steps of a host's start - stores ready, first lease scan, pumps open - with the time since the start, at INFO
+ * and with a common prefix, to measure cold start. Tracing ends when the pumps for the leases owned after the first scan are open.
+ */
+final class StartupTimeline
+{
+	private static final String PREFIX = "Startup timeline: ";
+
+	private final EventProcessorHost host;
+	private final long startMillis;
+	private final AtomicInteger pumpsOpened = new AtomicInteger(0);
+	private volatile int pumpsExpected = -1;
+	private volatile boolean done = false;
+
+	StartupTimeline(EventProcessorHost host)
+	{
+		this.host = host;
+		this.startMillis = System.currentTimeMillis();
+	}
+
+	void trace(String step)
+	{
+		if (!this.done)
+		{
+			this.host.logWithHost(Level.INFO, StartupTimeline.PREFIX + step + " +" + (System.currentTimeMillis() - this.startMillis) + "ms");
+		}
+	}
+
+	// To be called before the pumps of the first scan are added
+	void firstScanComplete(int ownedLeaseCount)
+	{
+		if (this.pumpsExpected >= 0)
+		{
+			return;
+		}
+
+		trace("first lease scan complete, " + ownedLeaseCount + " leases owned");
+		this.pumpsExpected = ownedLeaseCount;
+		if (ownedLeaseCount == 0)
+		{
+			this.done = true;
+		}
+	}
+
+	void pumpOpened(String partitionId)
+	{
+		if (this.done || (this.pumpsExpected < 0))
+		{
+			return;
+		}
+
+		trace("pump open for partition " + partitionId);
+		if (this.pumpsOpened.incrementAndGet() >= this.pumpsExpected)
+		{
+			trace("all " + this.pumpsExpected + " pumps of the first lease scan open");
+			this.done = true;
+		}
+	}
+}
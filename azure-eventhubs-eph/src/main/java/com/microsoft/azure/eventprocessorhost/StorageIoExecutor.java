@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.eventprocessorhost;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.microsoft.azure.eventhubs.metrics.EventHubMetrics;
+import com.microsoft.azure.eventhubs.metrics.IGauge;
+import com.microsoft.azure.eventhubs.metrics.IHistogram;
+import com.microsoft.azure.eventhubs.metrics.IMetricsProvider;
+import com.microsoft.azure.eventhubs.metrics.MetricNames;
+import com.microsoft.azure.eventhubs.metrics.MetricTags;
+
+/**
+ * Runs the blocking storage calls of a lease and checkpoint manager on a fixed number of threads, queueing the calls beyond
+ * that, so that the number of threads doesn't grow with storage latency: when storage slows down, calls wait in the queue
+ * instead of each holding a thread of the host's executor. Idle threads exit.
+ * <p>
+ * The calls queued and running, and how long calls waited in the queue, are recorded, tagged with the event hub.
+ */
+final class StorageIoExecutor
+{
+	private static final long IDLE_THREAD_SECONDS = 60;
+
+	private final ThreadPoolExecutor pool;
+	private final IGauge queueDepthMetric;
+	private final IGauge activeMetric;
+	private final IHistogram queueWaitMetric;
+
+	StorageIoExecutor(String eventHubPath, int threadCount)
+	{
+		final AtomicInteger threadNumber = new AtomicInteger();
+		this.pool = new ThreadPoolExecutor(threadCount, threadCount, StorageIoExecutor.IDLE_THREAD_SECONDS, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(), (runnable) ->
+		{
+			Thread ioThread = new Thread(runnable, "eph-storage-io-" + eventHubPath + "-" + threadNumber.incrementAndGet());
+			ioThread.setDaemon(true);
+			return ioThread;
+		});
+		this.pool.allowCoreThreadTimeOut(true);
+
+		IMetricsProvider metrics = EventHubMetrics.getProvider();
+		MetricTags tags = MetricTags.of(eventHubPath, null);
+		this.queueDepthMetric = metrics.gauge(MetricNames.EPH_STORAGE_QUEUE_DEPTH, tags);
+		this.activeMetric = metrics.gauge(MetricNames.EPH_STORAGE_ACTIVE, tags);
+		this.queueWaitMetric = metrics.histogram(MetricNames.EPH_STORAGE_QUEUE_WAIT, tags);
+	}
+
+	/**
+	 * Queues the call. The returned future completes with the call's result, or exceptionally with what it threw.
+	 */
+	<T> CompletableFuture<T> submit(Callable<T> call)
+	{
+		final CompletableFuture<T> result = new CompletableFuture<T>();
+		final long queuedNanos = System.nanoTime();
+		this.queueDepthMetric.add(1);
+		try
+		{
+			this.pool.execute(() ->
+			{
+				this.queueDepthMetric.add(-1);
+				this.queueWaitMetric.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - queuedNanos));
+				this.activeMetric.add(1);
+				try
+				{
+					result.complete(call.call());
+				}
+				catch (Throwable e)
+				{
+					result.completeExceptionally(e);
+				}
+				finally
+				{
+					this.activeMetric.add(-1);
+				}
+			});
+		}
+		catch (RejectedExecutionException e)
+		{
+			this.queueDepthMetric.add(-1);
+			result.completeExceptionally(e);
+		}
+		return result;
+	}
+
+	int getThreadCount()
+	{
+		return this.pool.getPoolSize();
+	}
+}
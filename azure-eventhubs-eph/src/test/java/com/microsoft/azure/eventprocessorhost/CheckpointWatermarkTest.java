@@ -0,0 +1,95 @@
+package com.microsoft.azure.eventprocessorhost;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CheckpointWatermarkTest
+{
+	@Test
+	public void watermarkWaitsForEarlierBatches() throws Exception
+	{
+		CheckpointWatermark watermark = new CheckpointWatermark();
+		CheckpointWatermark.Batch first = watermark.started(position(9));
+		CheckpointWatermark.Batch second = watermark.started(position(19));
+		CheckpointWatermark.Batch third = watermark.started(position(29));
+
+		Assert.assertNull(watermark.completed(third));
+		Assert.assertNull(watermark.completed(second));
+		Assert.assertEquals(29, watermark.completed(first).getSequenceNumber());
+		Assert.assertEquals(0, watermark.getInFlightCount());
+	}
+
+	@Test
+	public void emptyBatchesDontMoveTheWatermark() throws Exception
+	{
+		CheckpointWatermark watermark = new CheckpointWatermark();
+		CheckpointWatermark.Batch first = watermark.started(position(9));
+		CheckpointWatermark.Batch empty = watermark.started(null);
+		CheckpointWatermark.Batch last = watermark.started(position(19));
+
+		Assert.assertEquals(9, watermark.completed(first).getSequenceNumber());
+		Assert.assertNull(watermark.completed(empty));
+		Assert.assertEquals(19, watermark.completed(last).getSequenceNumber());
+	}
+
+	@Test
+	public void failedBatchHoldsTheWatermark() throws Exception
+	{
+		CheckpointWatermark watermark = new CheckpointWatermark();
+		CheckpointWatermark.Batch first = watermark.started(position(9));
+		CheckpointWatermark.Batch failed = watermark.started(position(19));
+		CheckpointWatermark.Batch after = watermark.started(position(29));
+
+		watermark.failed(failed);
+		Assert.assertNull(watermark.completed(after));
+		Assert.assertEquals(9, watermark.completed(first).getSequenceNumber());
+
+		// the batches received later aren't tracked any more
+		CheckpointWatermark.Batch later = watermark.started(position(39));
+		Assert.assertNull(watermark.completed(later));
+		Assert.assertEquals(1, watermark.getInFlightCount());
+	}
+
+	@Test
+	public void watermarkOnlyMovesForwardAndEndsAtTheLastBatch() throws Exception
+	{
+		final int batchCount = 1000;
+		CheckpointWatermark watermark = new CheckpointWatermark();
+		ArrayList<CheckpointWatermark.Batch> batches = new ArrayList<CheckpointWatermark.Batch>();
+		ArrayList<Integer> completionOrder = new ArrayList<Integer>();
+		for (int batch = 0; batch < batchCount; batch++)
+		{
+			batches.add(watermark.started(position((batch * 10) + 9)));
+			completionOrder.add(batch);
+		}
+		Collections.shuffle(completionOrder, new Random(1));
+
+		long highest = -1;
+		boolean[] completed = new boolean[batchCount];
+		for (int batch : completionOrder)
+		{
+			completed[batch] = true;
+			Checkpoint advancedTo = watermark.completed(batches.get(batch));
+			if (advancedTo != null)
+			{
+				Assert.assertTrue(advancedTo.getSequenceNumber() > highest);
+				highest = advancedTo.getSequenceNumber();
+				// every batch up to the watermark has completed
+				for (int earlier = 0; (earlier * 10) + 9 <= highest; earlier++)
+				{
+					Assert.assertTrue(completed[earlier]);
+				}
+			}
+		}
+		Assert.assertEquals(((batchCount - 1) * 10) + 9, highest);
+	}
+
+	private static Checkpoint position(long sequenceNumber)
+	{
+		return new Checkpoint("0", String.valueOf(sequenceNumber * 100), sequenceNumber);
+	}
+}
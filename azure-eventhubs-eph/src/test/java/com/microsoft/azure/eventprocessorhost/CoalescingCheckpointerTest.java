@@ -0,0 +1,159 @@
+package com.microsoft.azure.eventprocessorhost;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.microsoft.azure.eventhubs.EventHubClient;
+import com.microsoft.azure.eventhubs.metrics.NoopMetricsProvider;
+
+public class CoalescingCheckpointerTest
+{
+	static final String CONNECTION_STRING = "Endpoint=sb://coalesce.servicebus.windows.net;EntityPath=coalesce;SharedAccessKeyName=k;SharedAccessKey=v";
+	static final long INTERVAL_MILLIS = 200;
+
+	static RecordingCheckpointManager checkpointManager;
+	static EventProcessorHost host;
+	static PartitionContext context;
+
+	@BeforeClass
+	public static void createHost() throws Exception
+	{
+		checkpointManager = new RecordingCheckpointManager();
+		host = new EventProcessorHost("coalesceHost", "coalesce", EventHubClient.DEFAULT_CONSUMER_GROUP_NAME, CONNECTION_STRING,
+				checkpointManager, new InMemoryLeaseManager());
+		context = new PartitionContext(host, "0", "coalesce", EventHubClient.DEFAULT_CONSUMER_GROUP_NAME);
+	}
+
+	@Test
+	public void onlyTheLatestPositionIsWrittenPerInterval() throws Exception
+	{
+		CoalescingCheckpointer checkpointer = createCheckpointer(1000000);
+		ArrayList<CompletableFuture<Void>> checkpoints = new ArrayList<CompletableFuture<Void>>();
+		for (long sequenceNumber = 0; sequenceNumber < 100; sequenceNumber++)
+		{
+			checkpoints.add(checkpointer.checkpoint(new Checkpoint("0", String.valueOf(sequenceNumber * 10), sequenceNumber), false));
+		}
+
+		// nothing is written before the interval
+		Assert.assertEquals(0, checkpointManager.getWrites().size());
+
+		CompletableFuture.allOf(checkpoints.toArray(new CompletableFuture[checkpoints.size()])).get(10, TimeUnit.SECONDS);
+		List<Checkpoint> writes = checkpointManager.getWrites();
+		Assert.assertEquals(1, writes.size());
+		Assert.assertEquals(99, writes.get(0).getSequenceNumber());
+	}
+
+	@Test
+	public void eventCountTriggersAWriteBeforeTheInterval() throws Exception
+	{
+		CoalescingCheckpointer checkpointer = createCheckpointer(50);
+		checkpointer.checkpoint(new Checkpoint("0", "0", 0), false);
+		checkpointer.checkpoint(new Checkpoint("0", "500", 50), false).get(INTERVAL_MILLIS / 2, TimeUnit.MILLISECONDS);
+
+		Assert.assertEquals(50, checkpointManager.getWrites().get(0).getSequenceNumber());
+	}
+
+	@Test
+	public void flushWritesThePendingPosition() throws Exception
+	{
+		CoalescingCheckpointer checkpointer = createCheckpointer(1000000);
+		checkpointer.checkpoint(new Checkpoint("0", "70", 7), false);
+		checkpointer.flush().get(INTERVAL_MILLIS / 2, TimeUnit.MILLISECONDS);
+
+		Assert.assertEquals(1, checkpointManager.getWrites().size());
+		Assert.assertEquals(7, checkpointManager.getWrites().get(0).getSequenceNumber());
+
+		// nothing pending
+		checkpointer.flush().get(INTERVAL_MILLIS / 2, TimeUnit.MILLISECONDS);
+		Assert.assertEquals(1, checkpointManager.getWrites().size());
+	}
+
+	@Test
+	public void synchronousCheckpointIsWrittenRightAway() throws Exception
+	{
+		CoalescingCheckpointer checkpointer = createCheckpointer(1000000);
+		checkpointer.checkpoint(new Checkpoint("0", "10", 1), false);
+		checkpointer.checkpoint(new Checkpoint("0", "20", 2), true).get(INTERVAL_MILLIS / 2, TimeUnit.MILLISECONDS);
+
+		Assert.assertEquals(1, checkpointManager.getWrites().size());
+		Assert.assertEquals(2, checkpointManager.getWrites().get(0).getSequenceNumber());
+	}
+
+	private CoalescingCheckpointer createCheckpointer(long eventCount)
+	{
+		checkpointManager.clear();
+		return new CoalescingCheckpointer(host, context, NoopMetricsProvider.INSTANCE.histogram(null, null), INTERVAL_MILLIS, eventCount);
+	}
+
+	static class RecordingCheckpointManager implements ICheckpointManager
+	{
+		private final ArrayList<Checkpoint> writes = new ArrayList<Checkpoint>();
+
+		synchronized List<Checkpoint> getWrites()
+		{
+			return new ArrayList<Checkpoint>(this.writes);
+		}
+
+		synchronized void clear()
+		{
+			this.writes.clear();
+		}
+
+		@Override
+		public Future<Boolean> checkpointStoreExists()
+		{
+			return CompletableFuture.completedFuture(true);
+		}
+
+		@Override
+		public Future<Boolean> createCheckpointStoreIfNotExists()
+		{
+			return CompletableFuture.completedFuture(true);
+		}
+
+		@Override
+		public Future<Boolean> deleteCheckpointStore()
+		{
+			return CompletableFuture.completedFuture(true);
+		}
+
+		@Override
+		public Future<Checkpoint> getCheckpoint(String partitionId)
+		{
+			return CompletableFuture.completedFuture(null);
+		}
+
+		@Override
+		public Future<Checkpoint> createCheckpointIfNotExists(String partitionId)
+		{
+			return CompletableFuture.completedFuture(null);
+		}
+
+		@Deprecated
+		@Override
+		public Future<Void> updateCheckpoint(Checkpoint checkpoint)
+		{
+			return null;
+		}
+
+		@Override
+		public synchronized Future<Void> updateCheckpoint(Lease lease, Checkpoint checkpoint)
+		{
+			this.writes.add(checkpoint);
+			return CompletableFuture.completedFuture(null);
+		}
+
+		@Override
+		public Future<Void> deleteCheckpoint(String partitionId)
+		{
+			return CompletableFuture.completedFuture(null);
+		}
+	}
+}
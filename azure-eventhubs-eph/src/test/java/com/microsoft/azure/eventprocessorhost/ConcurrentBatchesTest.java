@@ -0,0 +1,348 @@
+package com.microsoft.azure.eventprocessorhost;
+
+import java.lang.reflect.Field;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.microsoft.azure.eventhubs.EventData;
+import com.microsoft.azure.eventhubs.EventHubClient;
+import com.microsoft.azure.eventhubs.amqp.AmqpConstants;
+
+/**
+ * Drives a partition pump with batches processed concurrently - see EventProcessorOptions.setMaxConcurrentBatchesPerPartition -
+ * without an Event Hub: the test hands the batches to the pump, and each batch is held in onEvents until the test releases it.
+ */
+public class ConcurrentBatchesTest
+{
+	static final String CONNECTION_STRING = "Endpoint=sb://batches.servicebus.windows.net;EntityPath=batches;SharedAccessKeyName=k;SharedAccessKey=v";
+	static final int MAX_CONCURRENT_BATCHES = 4;
+	static final long CHECKPOINT_INTERVAL_MILLIS = 50;
+	static final long WAIT_MILLIS = 10000;
+
+	CoalescingCheckpointerTest.RecordingCheckpointManager checkpointManager;
+	AtomicInteger processingFailures;
+	TestPartitionPump pump;
+	GatedEventProcessor processor;
+
+	@Test
+	public void checkpointWaitsForEarlierBatches() throws Exception
+	{
+		startPump("batches0");
+		this.pump.receive(0, 1);
+		this.pump.receive(2, 3);
+		this.pump.receive(4, 5);
+
+		// the later batches complete first - nothing before them is processed yet, so they don't checkpoint
+		release(4);
+		release(2);
+		assertNoCheckpointPast(-1);
+
+		release(0);
+		awaitCheckpoint(5);
+		shutdown();
+	}
+
+	@Test
+	public void checkpointOfAnEventIsHeldBackToTheCompletedBatches() throws Exception
+	{
+		startPump("batches1");
+		this.pump.receive(0, 1);
+		this.pump.receive(2, 3);
+		this.pump.receive(4, 5);
+
+		release(0);
+		awaitCheckpoint(1);
+
+		// the third batch checkpoints its last event while the second is still in progress
+		release(4);
+		assertNoCheckpointPast(1);
+
+		release(2);
+		awaitCheckpoint(5);
+		shutdown();
+	}
+
+	@Test
+	public void failedBatchClosesThePartitionBeforeItsCheckpoint() throws Exception
+	{
+		startPump("batches2");
+		this.processor.failBatch(2);
+		this.pump.receive(0, 1);
+		this.pump.receive(2, 3);
+		this.pump.receive(4, 5);
+
+		release(0);
+		awaitCheckpoint(1);
+		release(2);
+
+		// the partition is closed, to be reopened from the checkpoint before the failed batch
+		awaitPumpRemoved("batches2");
+		Assert.assertEquals(1, this.processingFailures.get());
+
+		release(4);
+		assertNoCheckpointPast(1);
+		shutdown();
+		assertNoCheckpointPast(1);
+	}
+
+	@Test
+	public void shutdownClosesTheProcessorAfterTheBatchesInProgress() throws Exception
+	{
+		startPump("batches3");
+		this.pump.receive(0, 1);
+		this.pump.receive(2, 3);
+
+		Future<?> shuttingDown = EventProcessorHost.getExecutorService().submit(() -> this.pump.shutdown(CloseReason.Shutdown));
+		Thread.sleep(CHECKPOINT_INTERVAL_MILLIS * 4);
+		Assert.assertFalse(this.processor.isClosed());
+
+		release(2);
+		Thread.sleep(CHECKPOINT_INTERVAL_MILLIS * 4);
+		Assert.assertFalse(this.processor.isClosed());
+
+		release(0);
+		shuttingDown.get(WAIT_MILLIS, TimeUnit.MILLISECONDS);
+		Assert.assertTrue(this.processor.isClosed());
+		Assert.assertEquals(2, this.processor.getReturnedAtClose());
+
+		// the pending checkpoint is written on close
+		Assert.assertEquals(3, highestCheckpoint());
+	}
+
+	private void startPump(String hostName) throws Exception
+	{
+		this.checkpointManager = new CoalescingCheckpointerTest.RecordingCheckpointManager();
+		InMemoryLeaseManager leaseManager = new InMemoryLeaseManager();
+		EventProcessorHost host = new EventProcessorHost(hostName, "batches", EventHubClient.DEFAULT_CONSUMER_GROUP_NAME, CONNECTION_STRING,
+				this.checkpointManager, leaseManager);
+		leaseManager.initialize(host);
+		leaseManager.createLeaseStoreIfNotExists().get();
+
+		// registers the processor and the options without starting the partition manager
+		host.setPartitionManager(new PartitionManager(host)
+		{
+			@Override
+			public Void initialize()
+			{
+				return null;
+			}
+		});
+		this.processingFailures = new AtomicInteger();
+		EventProcessorOptions options = EventProcessorOptions.getDefaultOptions();
+		options.setMaxConcurrentBatchesPerPartition(MAX_CONCURRENT_BATCHES);
+		options.setCheckpointInterval(Duration.ofMillis(CHECKPOINT_INTERVAL_MILLIS));
+		options.setExceptionNotification((args) ->
+		{
+			if (EventProcessorHostActionStrings.PROCESSING_EVENTS.equals(args.getAction()))
+			{
+				this.processingFailures.incrementAndGet();
+			}
+		});
+		host.registerEventProcessorFactory((context) -> new GatedEventProcessor(), options).get();
+
+		Lease lease = leaseManager.createLeaseIfNotExists(hostName).get();
+		Assert.assertTrue(leaseManager.acquireLease(lease).get());
+		this.pump = new TestPartitionPump(host, lease);
+		this.pump.pumps.addPump(hostName, lease);
+		this.pump.startPump();
+		Assert.assertEquals(PartitionPumpStatus.PP_RUNNING, this.pump.getPumpStatus());
+		this.processor = (GatedEventProcessor)this.pump.processor;
+	}
+
+	private void shutdown()
+	{
+		this.pump.shutdown(CloseReason.Shutdown);
+		Assert.assertTrue(this.processor.isClosed());
+	}
+
+	private void awaitPumpRemoved(String partitionId) throws InterruptedException
+	{
+		long deadline = System.currentTimeMillis() + WAIT_MILLIS;
+		while (this.pump.pumps.hasPump(partitionId) && (System.currentTimeMillis() < deadline))
+		{
+			Thread.sleep(10);
+		}
+		Assert.assertFalse(this.pump.pumps.hasPump(partitionId));
+	}
+
+	private void release(long firstSequenceNumber) throws Exception
+	{
+		this.processor.release(firstSequenceNumber);
+		this.processor.awaitReturned(firstSequenceNumber);
+	}
+
+	private long highestCheckpoint()
+	{
+		long highest = -1;
+		for (Checkpoint checkpoint : this.checkpointManager.getWrites())
+		{
+			highest = Math.max(highest, checkpoint.getSequenceNumber());
+		}
+		return highest;
+	}
+
+	private void awaitCheckpoint(long sequenceNumber) throws InterruptedException
+	{
+		long deadline = System.currentTimeMillis() + WAIT_MILLIS;
+		while ((highestCheckpoint() < sequenceNumber) && (System.currentTimeMillis() < deadline))
+		{
+			Thread.sleep(10);
+		}
+		Assert.assertEquals(sequenceNumber, highestCheckpoint());
+	}
+
+	private void assertNoCheckpointPast(long sequenceNumber) throws InterruptedException
+	{
+		// long enough for a pending checkpoint to be written
+		Thread.sleep(CHECKPOINT_INTERVAL_MILLIS * 4);
+		Assert.assertTrue(highestCheckpoint() <= sequenceNumber);
+	}
+
+	static EventData event(long sequenceNumber) throws Exception
+	{
+		HashMap<String, Object> properties = new HashMap<String, Object>();
+		properties.put(AmqpConstants.OFFSET_ANNOTATION_NAME, String.valueOf(sequenceNumber * 100));
+		properties.put(AmqpConstants.SEQUENCE_NUMBER_ANNOTATION_NAME, sequenceNumber);
+
+		// received events get their system properties from the AMQP message
+		EventData event = new EventData(new byte[0]);
+		Field systemProperties = EventData.class.getDeclaredField("systemProperties");
+		systemProperties.setAccessible(true);
+		systemProperties.set(event, new EventData.SystemProperties(properties));
+		return event;
+	}
+
+	static class TestPartitionPump extends PartitionPump
+	{
+		final DummyPump pumps;
+
+		TestPartitionPump(EventProcessorHost host, Lease lease)
+		{
+			this(host, new DummyPump(host), lease);
+		}
+
+		private TestPartitionPump(EventProcessorHost host, DummyPump pumps, Lease lease)
+		{
+			super(host, pumps, lease);
+			this.pumps = pumps;
+		}
+
+		// As the receive handler would
+		void receive(long firstSequenceNumber, long lastSequenceNumber) throws Exception
+		{
+			EventData[] batch = new EventData[(int)(lastSequenceNumber - firstSequenceNumber + 1)];
+			for (int index = 0; index < batch.length; index++)
+			{
+				batch[index] = event(firstSequenceNumber + index);
+			}
+			onEvents(Arrays.asList(batch));
+		}
+
+		@Override
+		void specializedStartPump()
+		{
+			this.pumpStatus = PartitionPumpStatus.PP_RUNNING;
+		}
+
+		@Override
+		void specializedShutdown(CloseReason reason)
+		{
+		}
+	}
+
+	// Holds each batch - identified by its first sequence number - until it is released, then checkpoints its last event.
+	static class GatedEventProcessor implements IEventProcessor
+	{
+		private final ConcurrentHashMap<Long, CompletableFuture<Void>> gates = new ConcurrentHashMap<Long, CompletableFuture<Void>>();
+		private final ConcurrentHashMap<Long, CompletableFuture<Void>> returns = new ConcurrentHashMap<Long, CompletableFuture<Void>>();
+		private final Set<Long> failing = ConcurrentHashMap.newKeySet();
+		private final AtomicInteger returned = new AtomicInteger();
+		private volatile boolean closed = false;
+		private volatile int returnedAtClose = -1;
+
+		void failBatch(long firstSequenceNumber)
+		{
+			this.failing.add(firstSequenceNumber);
+		}
+
+		void release(long firstSequenceNumber)
+		{
+			gate(this.gates, firstSequenceNumber).complete(null);
+		}
+
+		void awaitReturned(long firstSequenceNumber) throws Exception
+		{
+			gate(this.returns, firstSequenceNumber).get(WAIT_MILLIS, TimeUnit.MILLISECONDS);
+		}
+
+		boolean isClosed()
+		{
+			return this.closed;
+		}
+
+		int getReturnedAtClose()
+		{
+			return this.returnedAtClose;
+		}
+
+		private static CompletableFuture<Void> gate(ConcurrentHashMap<Long, CompletableFuture<Void>> gates, long firstSequenceNumber)
+		{
+			return gates.computeIfAbsent(firstSequenceNumber, (key) -> new CompletableFuture<Void>());
+		}
+
+		@Override
+		public void onOpen(PartitionContext context)
+		{
+		}
+
+		@Override
+		public void onClose(PartitionContext context, CloseReason reason)
+		{
+			this.returnedAtClose = this.returned.get();
+			this.closed = true;
+		}
+
+		@Override
+		public void onEvents(PartitionContext context, Iterable<EventData> events) throws Exception
+		{
+			EventData first = null;
+			EventData last = null;
+			for (EventData event : events)
+			{
+				first = (first == null) ? event : first;
+				last = event;
+			}
+
+			long firstSequenceNumber = first.getSystemProperties().getSequenceNumber();
+			try
+			{
+				gate(this.gates, firstSequenceNumber).get(WAIT_MILLIS, TimeUnit.MILLISECONDS);
+				if (this.failing.contains(firstSequenceNumber))
+				{
+					throw new IllegalStateException("processing failed");
+				}
+				context.checkpointAsync(last);
+			}
+			finally
+			{
+				this.returned.incrementAndGet();
+				gate(this.returns, firstSequenceNumber).complete(null);
+			}
+		}
+
+		@Override
+		public void onError(PartitionContext context, Throwable error)
+		{
+		}
+	}
+}
@@ -0,0 +1,128 @@
+package com.microsoft.azure.eventprocessorhost;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.microsoft.azure.eventhubs.EventHubClient;
+import com.microsoft.azure.eventhubs.emulator.EmulatorOptions;
+import com.microsoft.azure.eventhubs.emulator.EventHubEmulator;
+
+public class EventHubClientPoolTest
+{
+	static final String EVENT_HUB = "pooled";
+	static final int PARTITION_COUNT = 4;
+	static final int CONNECTION_COUNT = 2;
+
+	static EventHubEmulator emulator;
+	static EventProcessorHost host;
+
+	@BeforeClass
+	public static void startEmulator() throws Exception
+	{
+		EventHubEmulator.enableAnonymousTls();
+
+		final EmulatorOptions options = new EmulatorOptions();
+		options.addEventHub(EVENT_HUB, PARTITION_COUNT);
+		emulator = EventHubEmulator.start(options);
+
+		host = new EventProcessorHost("poolTestHost", EVENT_HUB, EventHubClient.DEFAULT_CONSUMER_GROUP_NAME, emulator.getConnectionString(EVENT_HUB),
+				new InMemoryCheckpointManager(), new InMemoryLeaseManager());
+	}
+
+	@Test
+	public void pumpsAreSpreadOverTheSharedClients() throws Exception
+	{
+		final EventHubClientPool pool = new EventHubClientPool(host, CONNECTION_COUNT);
+		final Map<EventHubClient, Integer> usersPerClient = new HashMap<EventHubClient, Integer>();
+		final EventHubClientPool.PooledClient[] acquired = new EventHubClientPool.PooledClient[PARTITION_COUNT];
+		for (int index = 0; index < PARTITION_COUNT; index++)
+		{
+			acquired[index] = pool.acquire();
+			final EventHubClient client = acquired[index].getClient();
+			usersPerClient.put(client, usersPerClient.getOrDefault(client, 0) + 1);
+		}
+
+		Assert.assertEquals(CONNECTION_COUNT, usersPerClient.size());
+		for (int users : usersPerClient.values())
+		{
+			Assert.assertEquals(PARTITION_COUNT / CONNECTION_COUNT, users);
+		}
+
+		// every client can open receivers side by side
+		for (int index = 0; index < PARTITION_COUNT; index++)
+		{
+			acquired[index].getClient().createReceiverSync(EventHubClient.DEFAULT_CONSUMER_GROUP_NAME, String.valueOf(index), "-1").closeSync();
+		}
+
+		for (EventHubClientPool.PooledClient pooledClient : acquired)
+		{
+			pool.release(pooledClient, false);
+		}
+
+		pool.close();
+	}
+
+	@Test
+	public void faultedClientIsOnlyReplacedForNewUsers() throws Exception
+	{
+		final EventHubClientPool pool = new EventHubClientPool(host, 1);
+		final EventHubClientPool.PooledClient faulted = pool.acquire();
+		final EventHubClientPool.PooledClient stillUsing = pool.acquire();
+		Assert.assertSame(faulted.getClient(), stillUsing.getClient());
+
+		pool.release(faulted, true);
+
+		// the other user keeps working on the retired client
+		stillUsing.getClient().getRuntimeInformation().get();
+
+		final EventHubClientPool.PooledClient replacement = pool.acquire();
+		Assert.assertNotSame(stillUsing.getClient(), replacement.getClient());
+
+		pool.release(stillUsing, false);
+		pool.release(replacement, false);
+		pool.close();
+
+		try
+		{
+			pool.acquire();
+			Assert.fail("a closed pool should not hand out clients");
+		}
+		catch (IllegalStateException expected)
+		{
+		}
+	}
+
+	@Test
+	public void poolIsNotRecreatedAfterShutdown() throws Exception
+	{
+		final EventProcessorHost shutdownHost = new EventProcessorHost("poolShutdownHost", EVENT_HUB, EventHubClient.DEFAULT_CONSUMER_GROUP_NAME,
+				emulator.getConnectionString(EVENT_HUB), new InMemoryCheckpointManager(), new InMemoryLeaseManager());
+		final PartitionManager partitionManager = shutdownHost.getPartitionManager();
+		final EventHubClientPool.PooledClient lateRelease = partitionManager.getClientPool().acquire();
+
+		partitionManager.closeClientPool();
+
+		// a pump which was still open releases its client - the pool is already gone
+		partitionManager.releaseClient(lateRelease, false);
+		try
+		{
+			partitionManager.getClientPool();
+			Assert.fail("a shut down partition manager should not open a new pool");
+		}
+		catch (IllegalStateException expected)
+		{
+		}
+	}
+
+	@AfterClass
+	public static void stopEmulator() throws Exception
+	{
+		if (emulator != null)
+			emulator.close();
+	}
+}
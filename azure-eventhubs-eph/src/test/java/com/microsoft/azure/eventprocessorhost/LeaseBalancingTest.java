@@ -0,0 +1,157 @@
+package com.microsoft.azure.eventprocessorhost;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+// Simulates lease scans of many hosts against one set of leases - each round, every host scans once, in random order -
+// and measures how many rounds it takes for the leases to be balanced.
+public class LeaseBalancingTest
+{
+	static final int MAX_ROUNDS = 200;
+	static final int STABLE_ROUNDS = 20;
+
+	@Test
+	public void scaleOutFrom2To16HostsOn32Partitions()
+	{
+		int singleStealRounds = roundsToBalance(32, 2, 16, 1);
+		int multiStealRounds = roundsToBalance(32, 2, 16, 32);
+		TestUtilities.log("32 partitions, 2 -> 16 hosts: balanced after " + singleStealRounds + " scans stealing one lease per scan, " +
+				multiStealRounds + " scans stealing the whole share");
+		Assert.assertTrue(multiStealRounds <= singleStealRounds);
+	}
+
+	@Test
+	public void scaleOutFrom2To4HostsOn64Partitions()
+	{
+		// each new host is 16 leases short - one scan each, instead of 16
+		int singleStealRounds = roundsToBalance(64, 2, 4, 1);
+		int multiStealRounds = roundsToBalance(64, 2, 4, 64);
+		TestUtilities.log("64 partitions, 2 -> 4 hosts: balanced after " + singleStealRounds + " scans stealing one lease per scan, " +
+				multiStealRounds + " scans stealing the whole share");
+		Assert.assertTrue(multiStealRounds < singleStealRounds);
+	}
+
+	@Test
+	public void scaleOutFrom1To5HostsOn16Partitions()
+	{
+		int singleStealRounds = roundsToBalance(16, 1, 5, 1);
+		int multiStealRounds = roundsToBalance(16, 1, 5, 16);
+		TestUtilities.log("16 partitions, 1 -> 5 hosts: balanced after " + singleStealRounds + " scans stealing one lease per scan, " +
+				multiStealRounds + " scans stealing the whole share");
+		Assert.assertTrue(multiStealRounds <= singleStealRounds);
+	}
+
+	@Test
+	public void balancedLeasesAreNotStolen()
+	{
+		ArrayList<Lease> leases = createLeases(16, 4);
+		// 4 hosts, 4 leases each - and then a 5th host with none, which can't be seen in the leases
+		Assert.assertEquals(0, scanRound(leases, hostNames(4), 16, new Random(1)));
+		Assert.assertTrue(steals(leases, "host4", 16) > 0);
+	}
+
+	private int roundsToBalance(int partitionCount, int initialHostCount, int hostCount, int maxSteals)
+	{
+		ArrayList<Lease> leases = createLeases(partitionCount, initialHostCount);
+		ArrayList<String> hosts = hostNames(hostCount);
+		Random random = new Random(partitionCount * hostCount);
+
+		int rounds = 0;
+		while (!isBalanced(leases, hosts))
+		{
+			scanRound(leases, hosts, maxSteals, random);
+			rounds++;
+			Assert.assertTrue("not balanced after " + MAX_ROUNDS + " scans", rounds < MAX_ROUNDS);
+		}
+
+		// no flapping: once balanced, nothing moves
+		for (int round = 0; round < STABLE_ROUNDS; round++)
+		{
+			Assert.assertEquals(0, scanRound(leases, hosts, maxSteals, random));
+		}
+		return rounds;
+	}
+
+	private int scanRound(ArrayList<Lease> leases, ArrayList<String> hosts, int maxSteals, Random random)
+	{
+		ArrayList<String> scanOrder = new ArrayList<String>(hosts);
+		Collections.shuffle(scanOrder, random);
+		int stolen = 0;
+		for (String host : scanOrder)
+		{
+			stolen += steals(leases, host, maxSteals);
+		}
+		return stolen;
+	}
+
+	private int steals(ArrayList<Lease> leases, String host, int maxSteals)
+	{
+		ArrayList<Lease> ownedByOthers = new ArrayList<Lease>();
+		HashMap<String, Integer> countsByOwner = new HashMap<String, Integer>();
+		int haveCount = 0;
+		for (Lease lease : leases)
+		{
+			if (lease.getOwner().equals(host))
+			{
+				haveCount++;
+			}
+			else
+			{
+				ownedByOthers.add(lease);
+				countsByOwner.put(lease.getOwner(), countsByOwner.getOrDefault(lease.getOwner(), 0) + 1);
+			}
+		}
+
+		ArrayList<Lease> stealTheseLeases = PartitionManager.selectLeasesToSteal(ownedByOthers, countsByOwner, haveCount, maxSteals);
+		for (Lease stealee : stealTheseLeases)
+		{
+			stealee.setOwner(host);
+		}
+		return stealTheseLeases.size();
+	}
+
+	private boolean isBalanced(ArrayList<Lease> leases, ArrayList<String> hosts)
+	{
+		HashMap<String, Integer> counts = new HashMap<String, Integer>();
+		for (Lease lease : leases)
+		{
+			counts.put(lease.getOwner(), counts.getOrDefault(lease.getOwner(), 0) + 1);
+		}
+		int min = Integer.MAX_VALUE;
+		int max = 0;
+		for (String host : hosts)
+		{
+			int count = counts.getOrDefault(host, 0);
+			min = Math.min(min, count);
+			max = Math.max(max, count);
+		}
+		return (max - min) <= 1;
+	}
+
+	private ArrayList<Lease> createLeases(int partitionCount, int ownerCount)
+	{
+		ArrayList<Lease> leases = new ArrayList<Lease>();
+		for (int partition = 0; partition < partitionCount; partition++)
+		{
+			Lease lease = new Lease(String.valueOf(partition));
+			lease.setOwner("host" + (partition % ownerCount));
+			leases.add(lease);
+		}
+		return leases;
+	}
+
+	private ArrayList<String> hostNames(int hostCount)
+	{
+		ArrayList<String> hosts = new ArrayList<String>();
+		for (int host = 0; host < hostCount; host++)
+		{
+			hosts.add("host" + host);
+		}
+		return hosts;
+	}
+}
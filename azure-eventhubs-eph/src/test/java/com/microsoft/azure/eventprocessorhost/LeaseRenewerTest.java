@@ -0,0 +1,205 @@
+package com.microsoft.azure.eventprocessorhost;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.microsoft.azure.eventhubs.EventHubClient;
+
+public class LeaseRenewerTest
+{
+	static final String CONNECTION_STRING = "Endpoint=sb://renewer.servicebus.windows.net;EntityPath=renewer;SharedAccessKeyName=k;SharedAccessKey=v";
+	static final int RENEW_INTERVAL_MILLIS = 100;
+	static final long WAIT_MILLIS = 10000;
+
+	@Test
+	public void leaseIsRenewedEveryRenewInterval() throws Exception
+	{
+		CountingLeaseManager leaseManager = new CountingLeaseManager();
+		EventProcessorHost host = createHost("renewerHost", leaseManager);
+		Lease lease = acquireLease(leaseManager, "renew0");
+
+		LeaseRenewer renewer = new LeaseRenewer(host, new DummyPump(host));
+		renewer.track(lease);
+		Thread.sleep(RENEW_INTERVAL_MILLIS * 10);
+		int renewals = leaseManager.getRenewals();
+		renewer.close();
+
+		// the first renewal is due one interval after tracking starts
+		Assert.assertTrue("renewed " + renewals + " times", (renewals >= 5) && (renewals <= 10));
+		leaseManager.deleteLease(lease).get();
+	}
+
+	@Test
+	public void lostLeaseRemovesThePump() throws Exception
+	{
+		CountingLeaseManager leaseManager = new CountingLeaseManager();
+		EventProcessorHost host = createHost("victimHost", leaseManager);
+		Lease lease = acquireLease(leaseManager, "renew1");
+
+		DummyPump pump = new DummyPump(host);
+		pump.addPump("renew1", lease);
+		LeaseRenewer renewer = new LeaseRenewer(host, pump);
+		renewer.track(lease);
+		Thread.sleep(RENEW_INTERVAL_MILLIS * 3);
+		Assert.assertTrue(pump.hasPump("renew1"));
+
+		// another host steals the lease - the next renewal fails and removes the pump, without a lease scan
+		CountingLeaseManager thiefLeaseManager = new CountingLeaseManager();
+		createHost("thiefHost", thiefLeaseManager);
+		acquireLease(thiefLeaseManager, "renew1");
+		awaitPumpRemoved(pump, "renew1");
+
+		// and the renewals stop
+		int renewals = leaseManager.getRenewals();
+		Thread.sleep(RENEW_INTERVAL_MILLIS * 3);
+		Assert.assertEquals(renewals, leaseManager.getRenewals());
+
+		renewer.close();
+		leaseManager.deleteLease(lease).get();
+	}
+
+	@Test
+	public void interruptedRenewalIsRescheduled() throws Exception
+	{
+		CountingLeaseManager leaseManager = new CountingLeaseManager();
+		EventProcessorHost host = createHost("interruptedHost", leaseManager);
+		Lease lease = acquireLease(leaseManager, "renew2");
+
+		leaseManager.interruptRenewals(1);
+		LeaseRenewer renewer = new LeaseRenewer(host, new DummyPump(host));
+		renewer.track(lease);
+
+		long deadline = System.currentTimeMillis() + WAIT_MILLIS;
+		while ((leaseManager.getRenewals() < 3) && (System.currentTimeMillis() < deadline))
+		{
+			Thread.sleep(10);
+		}
+		renewer.close();
+
+		Assert.assertTrue(leaseManager.getRenewals() >= 3);
+		leaseManager.deleteLease(lease).get();
+	}
+
+	@Test
+	public void closeStopsTheRenewals() throws Exception
+	{
+		CountingLeaseManager leaseManager = new CountingLeaseManager();
+		EventProcessorHost host = createHost("closingHost", leaseManager);
+		Lease first = acquireLease(leaseManager, "renew3");
+		Lease second = acquireLease(leaseManager, "renew4");
+
+		LeaseRenewer renewer = new LeaseRenewer(host, new DummyPump(host));
+		renewer.track(first);
+		renewer.track(second);
+		Thread.sleep(RENEW_INTERVAL_MILLIS * 3);
+		renewer.close();
+
+		// a renewal which had already started may still finish
+		Thread.sleep(RENEW_INTERVAL_MILLIS);
+		int renewals = leaseManager.getRenewals();
+		Assert.assertTrue(renewals > 0);
+		Thread.sleep(RENEW_INTERVAL_MILLIS * 5);
+		Assert.assertEquals(renewals, leaseManager.getRenewals());
+
+		leaseManager.deleteLease(first).get();
+		leaseManager.deleteLease(second).get();
+	}
+
+	private static EventProcessorHost createHost(String hostName, CountingLeaseManager leaseManager) throws Exception
+	{
+		EventProcessorHost host = new EventProcessorHost(hostName, "renewer", EventHubClient.DEFAULT_CONSUMER_GROUP_NAME, CONNECTION_STRING,
+				new InMemoryCheckpointManager(), leaseManager);
+		leaseManager.initialize(host);
+		leaseManager.createLeaseStoreIfNotExists().get();
+		return host;
+	}
+
+	private static Lease acquireLease(CountingLeaseManager leaseManager, String partitionId) throws Exception
+	{
+		Lease lease = leaseManager.createLeaseIfNotExists(partitionId).get();
+		Assert.assertTrue(leaseManager.acquireLease(lease).get());
+		return lease;
+	}
+
+	private static void awaitPumpRemoved(DummyPump pump, String partitionId) throws InterruptedException
+	{
+		long deadline = System.currentTimeMillis() + WAIT_MILLIS;
+		while (pump.hasPump(partitionId) && (System.currentTimeMillis() < deadline))
+		{
+			Thread.sleep(10);
+		}
+		Assert.assertFalse(pump.hasPump(partitionId));
+	}
+
+	static class CountingLeaseManager extends InMemoryLeaseManager
+	{
+		private final AtomicInteger renewals = new AtomicInteger();
+		private final AtomicInteger renewalsToInterrupt = new AtomicInteger();
+
+		int getRenewals()
+		{
+			return this.renewals.get();
+		}
+
+		void interruptRenewals(int count)
+		{
+			this.renewalsToInterrupt.set(count);
+		}
+
+		@Override
+		public int getLeaseRenewIntervalInMilliseconds()
+		{
+			return RENEW_INTERVAL_MILLIS;
+		}
+
+		@Override
+		public Future<Boolean> renewLease(Lease lease)
+		{
+			this.renewals.incrementAndGet();
+			if (this.renewalsToInterrupt.getAndDecrement() > 0)
+			{
+				return new InterruptedRenewal();
+			}
+			return super.renewLease(lease);
+		}
+	}
+
+	// waiting for it fails as if the renewing thread was interrupted
+	static class InterruptedRenewal implements Future<Boolean>
+	{
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning)
+		{
+			return false;
+		}
+
+		@Override
+		public boolean isCancelled()
+		{
+			return false;
+		}
+
+		@Override
+		public boolean isDone()
+		{
+			return false;
+		}
+
+		@Override
+		public Boolean get() throws InterruptedException
+		{
+			throw new InterruptedException();
+		}
+
+		@Override
+		public Boolean get(long timeout, TimeUnit unit) throws InterruptedException, TimeoutException
+		{
+			throw new InterruptedException();
+		}
+	}
+}
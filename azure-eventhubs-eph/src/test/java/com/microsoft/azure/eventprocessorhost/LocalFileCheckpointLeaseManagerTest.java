@@ -0,0 +1,172 @@
+package com.microsoft.azure.eventprocessorhost;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.microsoft.azure.eventhubs.EventHubClient;
+import com.microsoft.azure.eventhubs.emulator.EmulatorOptions;
+import com.microsoft.azure.eventhubs.emulator.EventHubEmulator;
+
+public class LocalFileCheckpointLeaseManagerTest
+{
+	static final String EVENT_HUB = "localleases";
+	static final int PARTITION_COUNT = 4;
+	static final int RENEW_COUNT = 10000;
+
+	static EventHubEmulator emulator;
+	static Path directory;
+	static LocalFileCheckpointLeaseManager managerA;
+	static LocalFileCheckpointLeaseManager managerB;
+
+	@BeforeClass
+	public static void startEmulator() throws Exception
+	{
+		EventHubEmulator.enableAnonymousTls();
+
+		final EmulatorOptions options = new EmulatorOptions();
+		options.addEventHub(EVENT_HUB, PARTITION_COUNT);
+		emulator = EventHubEmulator.start(options);
+
+		// two hosts sharing one lease file, as two processes on a machine would
+		directory = Files.createTempDirectory("eph-leases");
+		managerA = createManager("hostA", directory);
+		managerB = createManager("hostB", directory);
+
+		Assert.assertFalse(managerA.leaseStoreExists().get());
+		Assert.assertTrue(managerA.createLeaseStoreIfNotExists().get());
+		Assert.assertTrue(managerB.leaseStoreExists().get());
+		for (int partition = 0; partition < PARTITION_COUNT; partition++)
+		{
+			Assert.assertEquals("", managerA.createLeaseIfNotExists(String.valueOf(partition)).get().getOwner());
+		}
+	}
+
+	static LocalFileCheckpointLeaseManager createManager(String hostName, Path leaseDirectory)
+	{
+		final EventProcessorHost host = new EventProcessorHost(hostName, EVENT_HUB, EventHubClient.DEFAULT_CONSUMER_GROUP_NAME, emulator.getConnectionString(EVENT_HUB),
+				new InMemoryCheckpointManager(), new InMemoryLeaseManager());
+		final LocalFileCheckpointLeaseManager manager = new LocalFileCheckpointLeaseManager(leaseDirectory.toString());
+		manager.initialize(host);
+		return manager;
+	}
+
+	@Test
+	public void stolenLeaseCannotBeRenewedOrCheckpointed() throws Exception
+	{
+		final Lease leaseOfA = managerA.getLease("0").get();
+		Assert.assertTrue(leaseOfA.isExpired());
+		Assert.assertTrue(managerA.acquireLease(leaseOfA).get());
+		Assert.assertTrue(managerA.renewLease(leaseOfA).get());
+
+		final Lease seenByB = managerB.getLease("0").get();
+		Assert.assertEquals("hostA", seenByB.getOwner());
+		Assert.assertFalse(seenByB.isExpired());
+		Assert.assertTrue(managerB.acquireLease(seenByB).get());
+		Assert.assertEquals(leaseOfA.getEpoch() + 1, seenByB.getEpoch());
+
+		Assert.assertFalse(managerA.renewLease(leaseOfA).get());
+		try
+		{
+			managerA.updateCheckpoint(leaseOfA, new Checkpoint("0", "100", 10)).get();
+			Assert.fail("a checkpoint without the lease should fail");
+		}
+		catch (ExecutionException expected)
+		{
+			Assert.assertTrue(expected.getCause() instanceof LeaseLostException);
+		}
+
+		managerB.updateCheckpoint(seenByB, new Checkpoint("0", "200", 20)).get();
+		final Checkpoint checkpoint = managerA.getCheckpoint("0").get();
+		Assert.assertEquals("200", checkpoint.getOffset());
+		Assert.assertEquals(20, checkpoint.getSequenceNumber());
+
+		Assert.assertTrue(managerB.releaseLease(seenByB).get());
+		Assert.assertTrue(managerA.getLease("0").get().isExpired());
+	}
+
+	@Test
+	public void stealOfALeaseThatChangedHandsFails() throws Exception
+	{
+		final Lease unowned = managerB.getLease("1").get();
+		final Lease leaseOfA = managerA.getLease("1").get();
+		Assert.assertTrue(managerA.acquireLease(leaseOfA).get());
+
+		// B read the lease before A acquired it, so it doesn't know whom it would steal from
+		Assert.assertFalse(managerB.acquireLease(unowned).get());
+		Assert.assertTrue(managerA.releaseLease(leaseOfA).get());
+	}
+
+	@Test
+	public void operationsTakeMicroseconds() throws Exception
+	{
+		final Lease lease = managerA.getLease("2").get();
+		Assert.assertTrue(managerA.acquireLease(lease).get());
+
+		final long startNanos = System.nanoTime();
+		for (int renewal = 0; renewal < RENEW_COUNT; renewal++)
+		{
+			Assert.assertTrue(managerA.renewLease(lease).get());
+		}
+		final long averageNanos = (System.nanoTime() - startNanos) / RENEW_COUNT;
+		TestUtilities.log("Average lease renewal took " + (averageNanos / 1000.0) + " microseconds");
+		Assert.assertTrue(managerA.releaseLease(lease).get());
+	}
+
+	@Test
+	public void deletedLeaseFileIsOpenedAgainWhenRecreated() throws Exception
+	{
+		final Path otherDirectory = Files.createTempDirectory("eph-leases");
+		final LocalFileCheckpointLeaseManager creator = createManager("hostC", otherDirectory);
+		final LocalFileCheckpointLeaseManager user = createManager("hostD", otherDirectory);
+		try
+		{
+			Assert.assertTrue(creator.createLeaseStoreIfNotExists().get());
+			final Lease leaseOfD = user.createLeaseIfNotExists("0").get();
+			Assert.assertTrue(user.acquireLease(leaseOfD).get());
+
+			// deleting the file closes it for every manager sharing it
+			Assert.assertTrue(creator.deleteLeaseStore().get());
+			Assert.assertFalse(user.leaseStoreExists().get());
+			try
+			{
+				user.getLease("0").get();
+				Assert.fail("the lease file was deleted");
+			}
+			catch (ExecutionException expected)
+			{
+			}
+
+			// the manager which had the old file open uses the new one
+			Assert.assertTrue(creator.createLeaseStoreIfNotExists().get());
+			Assert.assertEquals("", user.getLease("0").get().getOwner());
+			Assert.assertTrue(user.acquireLease(user.getLease("0").get()).get());
+			Assert.assertEquals("hostD", creator.getLease("0").get().getOwner());
+		}
+		finally
+		{
+			creator.deleteLeaseStore().get();
+			Files.deleteIfExists(otherDirectory.resolve(EVENT_HUB));
+			Files.deleteIfExists(otherDirectory);
+		}
+	}
+
+	@AfterClass
+	public static void stopEmulator() throws Exception
+	{
+		if (managerA != null)
+		{
+			managerA.deleteLeaseStore().get();
+			Files.deleteIfExists(directory.resolve(EVENT_HUB));
+			Files.deleteIfExists(directory);
+		}
+
+		if (emulator != null)
+			emulator.close();
+	}
+}
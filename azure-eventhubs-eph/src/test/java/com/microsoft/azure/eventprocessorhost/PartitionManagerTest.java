@@ -457,7 +457,7 @@ public class PartitionManagerTest
 			{
 				ids.add(String.valueOf(i));
 			}
-			return (String[])ids.toArray();
+			return ids.toArray(new String[ids.size()]);
 	    }
 	    
 		@Override
@@ -0,0 +1,65 @@
+package com.microsoft.azure.eventprocessorhost;
+
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class StorageIoExecutorTest
+{
+	static final int THREAD_COUNT = 4;
+	static final int CALL_COUNT = 100;
+	static final long CALL_MILLIS = 20;
+
+	@Test
+	public void slowCallsQueueInsteadOfAddingThreads() throws Exception
+	{
+		StorageIoExecutor storageIo = new StorageIoExecutor("storageio", THREAD_COUNT);
+		AtomicInteger running = new AtomicInteger();
+		AtomicInteger mostRunning = new AtomicInteger();
+
+		ArrayList<CompletableFuture<Integer>> calls = new ArrayList<CompletableFuture<Integer>>();
+		for (int call = 0; call < CALL_COUNT; call++)
+		{
+			final int capturedCall = call;
+			calls.add(storageIo.submit(() ->
+			{
+				mostRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+				Thread.sleep(CALL_MILLIS);
+				running.decrementAndGet();
+				return capturedCall;
+			}));
+		}
+
+		for (int call = 0; call < CALL_COUNT; call++)
+		{
+			Assert.assertEquals(call, calls.get(call).get(30, TimeUnit.SECONDS).intValue());
+		}
+		Assert.assertEquals(THREAD_COUNT, mostRunning.get());
+		Assert.assertTrue(storageIo.getThreadCount() <= THREAD_COUNT);
+	}
+
+	@Test
+	public void failureCompletesTheFutureExceptionally() throws Exception
+	{
+		StorageIoExecutor storageIo = new StorageIoExecutor("storageio", THREAD_COUNT);
+		CompletableFuture<Boolean> call = storageIo.submit(() ->
+		{
+			throw new IllegalStateException("storage failed");
+		});
+
+		try
+		{
+			call.get(30, TimeUnit.SECONDS);
+			Assert.fail("the call should fail");
+		}
+		catch (ExecutionException expected)
+		{
+			Assert.assertTrue(expected.getCause() instanceof IllegalStateException);
+		}
+	}
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+package com.microsoft.azure.eventhubs.perf;
+
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+
+import com.microsoft.azure.eventhubs.ConnectionStringBuilder;
+import com.microsoft.azure.eventhubs.EventData;
+import com.microsoft.azure.eventhubs.PartitionReceiver;
+import com.microsoft.azure.eventprocessorhost.CloseReason;
+import com.microsoft.azure.eventprocessorhost.EventProcessorHost;
+import com.microsoft.azure.eventprocessorhost.EventProcessorOptions;
+import com.microsoft.azure.eventprocessorhost.IEventProcessor;
+import com.microsoft.azure.eventprocessorhost.IEventProcessorFactory;
+import com.microsoft.azure.eventprocessorhost.PartitionContext;
+
+/**
+ * Receives with an {@link EventProcessorHost} - leases and checkpoints are in the storage container of the options.
+ * Events are not checkpointed; so, with {@link PerfOptions#isFromStartOfStream()} every run starts over.
+ */
+final class EventProcessorHostWorkload {
+    private final PerfOptions options;
+    private final String connectionString;
+    private final PerfStats stats;
+
+    private EventProcessorHost host;
+
+    EventProcessorHostWorkload(final PerfOptions options, final String connectionString, final PerfStats stats) {
+        this.options = options;
+        this.connectionString = connectionString;
+        this.stats = stats;
+    }
+
+    void start() throws Exception {
+        final String eventHubPath = new ConnectionStringBuilder(this.connectionString).getEntityPath();
+        this.host = new EventProcessorHost(EventProcessorHost.createHostName("perf"), eventHubPath, this.options.getConsumerGroup(),
+                this.connectionString, this.options.getStorageConnectionString(), this.options.getStorageContainerName());
+
+        final String startingOffset = this.options.isFromStartOfStream() ? PartitionReceiver.START_OF_STREAM : PartitionReceiver.END_OF_STREAM;
+        final EventProcessorOptions processorOptions = EventProcessorOptions.getDefaultOptions();
+        processorOptions.setPrefetchCount(this.options.getPrefetchCount());
+        processorOptions.setInitialOffsetProvider(new Function<String, Object>() {
+            @Override
+            public Object apply(String partitionId) {
+                return startingOffset;
+            }
+        });
+
+        this.host.registerEventProcessorFactory(new IEventProcessorFactory<IEventProcessor>() {
+            @Override
+            public IEventProcessor createEventProcessor(PartitionContext context) {
+                return new StatsEventProcessor();
+            }
+        }, processorOptions).get();
+    }
+
+    void stop() throws InterruptedException, ExecutionException {
+        if (this.host != null) {
+            this.host.unregisterEventProcessor();
+        }
+    }
+
+    private final class StatsEventProcessor implements IEventProcessor {
+        @Override
+        public void onOpen(PartitionContext context) {
+        }
+
+        @Override
+        public void onClose(PartitionContext context, CloseReason reason) {
+        }
+
+        @Override
+        public void onEvents(PartitionContext context, Iterable<EventData> events) {
+            EventProcessorHostWorkload.this.stats.onReceived(events);
+        }
+
+        @Override
+        public void onError(PartitionContext context, Throwable error) {
+            EventProcessorHostWorkload.this.stats.onReceiveError(error);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+package com.microsoft.azure.eventhubs.perf;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of latencies in microseconds, for percentiles.
+ * <p>
+ * Values below 64 are counted exactly; above that, every power of two is split into 64 buckets - so a percentile is off by
+ * atmost 1/64 (~1.6%) of the value. Recording is safe from any thread.
+ */
+final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = (Long.SIZE - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray counts;
+    private final AtomicLong max;
+
+    LatencyHistogram() {
+        this.counts = new AtomicLongArray(BUCKET_COUNT);
+        this.max = new AtomicLong();
+    }
+
+    void recordMicros(final long value) {
+        final long micros = Math.max(value, 0);
+        this.counts.incrementAndGet(bucketIndex(micros));
+
+        long currentMax;
+        while (micros > (currentMax = this.max.get()) && !this.max.compareAndSet(currentMax, micros)) {
+        }
+    }
+
+    /**
+     * Moves the recorded values to a new histogram - this histogram continues empty.
+     *
+     * @return histogram of the values recorded since the last call
+     */
+    LatencyHistogram drain() {
+        final LatencyHistogram drained = new LatencyHistogram();
+        for (int index = 0; index < BUCKET_COUNT; index++) {
+            final long count = this.counts.getAndSet(index, 0);
+            if (count != 0) {
+                drained.counts.set(index, count);
+            }
+        }
+
+        drained.max.set(this.max.getAndSet(0));
+        return drained;
+    }
+
+    long getCount() {
+        long count = 0;
+        for (int index = 0; index < BUCKET_COUNT; index++) {
+            count += this.counts.get(index);
+        }
+
+        return count;
+    }
+
+    long getMaxMicros() {
+        return this.max.get();
+    }
+
+    /**
+     * @param percentile in the range (0, 100]
+     * @return the highest value equivalent to the value at the percentile - 0 if nothing is recorded
+     */
+    long getValueAtPercentile(final double percentile) {
+        final long count = this.getCount();
+        if (count == 0) {
+            return 0;
+        }
+
+        final long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int index = 0; index < BUCKET_COUNT; index++) {
+            seen += this.counts.get(index);
+            if (seen >= rank) {
+                return Math.min(highestEquivalentValue(index), this.max.get());
+            }
+        }
+
+        return this.max.get();
+    }
+
+    static int bucketIndex(final long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+
+        final int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        final int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    static long highestEquivalentValue(final int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+
+        final int exponent = index / SUB_BUCKET_COUNT + SUB_BUCKET_BITS - 1;
+        final long subBucket = index % SUB_BUCKET_COUNT;
+        return ((SUB_BUCKET_COUNT + subBucket + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+}
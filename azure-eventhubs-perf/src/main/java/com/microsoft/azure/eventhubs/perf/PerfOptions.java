@@ -0,0 +1,240 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+package com.microsoft.azure.eventhubs.perf;
+
+import java.time.Duration;
+import java.util.Locale;
+
+import com.microsoft.azure.eventhubs.EventHubClient;
+
+/**
+ * Settings of a run of the {@link PerfTool} - parsed from the command line.
+ */
+public final class PerfOptions {
+    /**
+     * How events are sent.
+     */
+    public enum Producer {
+        /** {@link EventHubClient#send(Iterable)} - the service picks the partitions */
+        CLIENT,
+        /** a {@link com.microsoft.azure.eventhubs.PartitionSender} per partition - the send lanes are spread over the partitions */
+        PARTITION,
+        /** nothing is sent */
+        NONE
+    }
+
+    /**
+     * How events are received.
+     */
+    public enum Consumer {
+        /** a {@link com.microsoft.azure.eventhubs.PartitionReceiver} with a receive handler per partition */
+        RECEIVER,
+        /** an {@link com.microsoft.azure.eventprocessorhost.EventProcessorHost} - needs a storage connection string */
+        EPH,
+        /** nothing is received */
+        NONE
+    }
+
+    static final String EMULATOR_EVENT_HUB = "perf";
+    static final int EMULATOR_DEFAULT_PARTITION_COUNT = 4;
+
+    private String connectionString;
+    private String storageConnectionString;
+    private String storageContainerName = "eventhubs-perf";
+    private String consumerGroup = EventHubClient.DEFAULT_CONSUMER_GROUP_NAME;
+    private Producer producer = Producer.PARTITION;
+    private Consumer consumer = Consumer.NONE;
+    private int eventSize = 1024;
+    private int batchSize = 1;
+    private int concurrency = 1;
+    private int partitionCount;
+    private Duration duration = Duration.ofSeconds(30);
+    private Duration reportInterval = Duration.ofSeconds(5);
+    private int prefetchCount = 999;
+    private boolean fromStartOfStream;
+    private boolean emulator;
+    private int emulatorThroughputUnits;
+
+    public static PerfOptions parse(final String[] args) {
+        final PerfOptions options = new PerfOptions();
+        for (int index = 0; index < args.length; index++) {
+            final String name = args[index];
+            switch (name) {
+                case "--emulator":
+                    options.emulator = true;
+                    continue;
+                case "--from-start":
+                    options.fromStartOfStream = true;
+                    continue;
+                default:
+                    break;
+            }
+
+            if (index + 1 >= args.length) {
+                throw new IllegalArgumentException(String.format(Locale.US, "%s needs a value", name));
+            }
+
+            final String value = args[++index];
+            switch (name) {
+                case "--connection-string":
+                    options.connectionString = value;
+                    break;
+                case "--storage-connection-string":
+                    options.storageConnectionString = value;
+                    break;
+                case "--storage-container":
+                    options.storageContainerName = value;
+                    break;
+                case "--consumer-group":
+                    options.consumerGroup = value;
+                    break;
+                case "--producer":
+                    options.producer = Producer.valueOf(value.toUpperCase(Locale.US));
+                    break;
+                case "--consumer":
+                    options.consumer = Consumer.valueOf(value.toUpperCase(Locale.US));
+                    break;
+                case "--event-size":
+                    options.eventSize = parseInt(name, value, 0);
+                    break;
+                case "--batch-size":
+                    options.batchSize = parseInt(name, value, 1);
+                    break;
+                case "--concurrency":
+                    options.concurrency = parseInt(name, value, 1);
+                    break;
+                case "--partitions":
+                    options.partitionCount = parseInt(name, value, 1);
+                    break;
+                case "--duration":
+                    options.duration = Duration.ofSeconds(parseInt(name, value, 1));
+                    break;
+                case "--report-interval":
+                    options.reportInterval = Duration.ofSeconds(parseInt(name, value, 1));
+                    break;
+                case "--prefetch":
+                    options.prefetchCount = parseInt(name, value, 10);
+                    break;
+                case "--emulator-throughput-units":
+                    options.emulatorThroughputUnits = parseInt(name, value, 0);
+                    break;
+                default:
+                    throw new IllegalArgumentException(String.format(Locale.US, "unknown option %s", name));
+            }
+        }
+
+        if (options.connectionString == null && !options.emulator) {
+            throw new IllegalArgumentException("either --connection-string or --emulator is needed");
+        }
+
+        if (options.consumer == Consumer.EPH && options.storageConnectionString == null) {
+            throw new IllegalArgumentException("--consumer eph needs --storage-connection-string");
+        }
+
+        return options;
+    }
+
+    static String usage() {
+        return String.join(System.lineSeparator(),
+                "usage: java -jar eventhubs-perf.jar (--connection-string <eventhub connection string> | --emulator) [options]",
+                "  --producer client|partition|none   how events are sent (default: partition)",
+                "  --consumer receiver|eph|none       how events are received (default: none)",
+                "  --event-size <bytes>               size of the event body (default: 1024)",
+                "  --batch-size <events>              events per send (default: 1)",
+                "  --concurrency <sends>              sends in flight (default: 1)",
+                "  --partitions <count>               partitions to send to and receive from (default: all)",
+                "  --duration <seconds>               how long to send (default: 30)",
+                "  --report-interval <seconds>        how often to report (default: 5)",
+                "  --consumer-group <name>            consumer group of the receivers (default: $Default)",
+                "  --prefetch <events>                prefetch count of the receivers (default: 999)",
+                "  --from-start                       receive from the start of the stream, instead of the events sent by this run",
+                "  --storage-connection-string <cs>   storage account for the leases and checkpoints of eph",
+                "  --storage-container <name>         storage container for the leases and checkpoints of eph (default: eventhubs-perf)",
+                "  --emulator                         send to and receive from an in-process emulator, instead of a namespace",
+                "  --emulator-throughput-units <n>    ingress limit of the emulator (default: 0 - unlimited)");
+    }
+
+    private static int parseInt(final String name, final String value, final int minimum) {
+        final int parsed;
+        try {
+            parsed = Integer.parseInt(value);
+        } catch (NumberFormatException exception) {
+            throw new IllegalArgumentException(String.format(Locale.US, "%s should be a number, not %s", name, value));
+        }
+
+        if (parsed < minimum) {
+            throw new IllegalArgumentException(String.format(Locale.US, "%s should be atleast %s", name, minimum));
+        }
+
+        return parsed;
+    }
+
+    public String getConnectionString() {
+        return this.connectionString;
+    }
+
+    public String getStorageConnectionString() {
+        return this.storageConnectionString;
+    }
+
+    public String getStorageContainerName() {
+        return this.storageContainerName;
+    }
+
+    public String getConsumerGroup() {
+        return this.consumerGroup;
+    }
+
+    public Producer getProducer() {
+        return this.producer;
+    }
+
+    public Consumer getConsumer() {
+        return this.consumer;
+    }
+
+    public int getEventSize() {
+        return this.eventSize;
+    }
+
+    public int getBatchSize() {
+        return this.batchSize;
+    }
+
+    public int getConcurrency() {
+        return this.concurrency;
+    }
+
+    /**
+     * @return partitions to use - 0 for all of them
+     */
+    public int getPartitionCount() {
+        return this.partitionCount;
+    }
+
+    public Duration getDuration() {
+        return this.duration;
+    }
+
+    public Duration getReportInterval() {
+        return this.reportInterval;
+    }
+
+    public int getPrefetchCount() {
+        return this.prefetchCount;
+    }
+
+    public boolean isFromStartOfStream() {
+        return this.fromStartOfStream;
+    }
+
+    public boolean isEmulator() {
+        return this.emulator;
+    }
+
+    public int getEmulatorThroughputUnits() {
+        return this.emulatorThroughputUnits;
+    }
+}
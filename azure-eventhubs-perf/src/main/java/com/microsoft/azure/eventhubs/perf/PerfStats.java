@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+package com.microsoft.azure.eventhubs.perf;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.microsoft.azure.eventhubs.EventData;
+
+/**
+ * Counters and latency histograms of a run - updated by the send lanes and receive handlers, read by the reporter.
+ * <p>
+ * End-to-end latency is measured for the events sent by this run only - they carry the {@link #RUN_ID_PROPERTY} of the run and
+ * the {@link System#nanoTime()} at send in {@link #SEND_TIME_PROPERTY}; so, it needs the producer and the consumer in the same process.
+ */
+public final class PerfStats {
+    static final String RUN_ID_PROPERTY = "perf-run-id";
+    static final String SEND_TIME_PROPERTY = "perf-send-time-nanos";
+
+    private static final double BYTES_PER_MB = 1024 * 1024;
+
+    private final String runId;
+    private final Counters sent;
+    private final Counters received;
+    private final LongAdder sendErrors;
+    private final LongAdder receiveErrors;
+    private final LatencyHistogram sendAckLatency;
+    private final LatencyHistogram sendAckLatencyInterval;
+    private final LatencyHistogram endToEndLatency;
+    private final LatencyHistogram endToEndLatencyInterval;
+
+    private volatile Throwable lastError;
+
+    PerfStats(final String runId) {
+        this.runId = runId;
+        this.sent = new Counters();
+        this.received = new Counters();
+        this.sendErrors = new LongAdder();
+        this.receiveErrors = new LongAdder();
+        this.sendAckLatency = new LatencyHistogram();
+        this.sendAckLatencyInterval = new LatencyHistogram();
+        this.endToEndLatency = new LatencyHistogram();
+        this.endToEndLatencyInterval = new LatencyHistogram();
+    }
+
+    String getRunId() {
+        return this.runId;
+    }
+
+    /**
+     * Stamps the event, for end-to-end latency.
+     */
+    void onSending(final EventData event, final long sendTimeNanos) {
+        final Map<String, Object> properties = event.getProperties();
+        properties.put(RUN_ID_PROPERTY, this.runId);
+        properties.put(SEND_TIME_PROPERTY, sendTimeNanos);
+    }
+
+    void onSent(final int eventCount, final long bytes, final long sendTimeNanos) {
+        this.sent.add(eventCount, bytes);
+
+        final long latencyMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - sendTimeNanos);
+        this.sendAckLatency.recordMicros(latencyMicros);
+        this.sendAckLatencyInterval.recordMicros(latencyMicros);
+    }
+
+    void onSendError(final Throwable error) {
+        this.sendErrors.increment();
+        this.lastError = error;
+    }
+
+    void onReceived(final Iterable<EventData> events) {
+        if (events == null) {
+            return;
+        }
+
+        final long receiveTimeNanos = System.nanoTime();
+        int eventCount = 0;
+        long bytes = 0;
+        for (final EventData event : events) {
+            eventCount++;
+            final byte[] body = event.getBytes();
+            bytes += body == null ? 0 : body.length;
+
+            final Map<String, Object> properties = event.getProperties();
+            if (properties != null && this.runId.equals(properties.get(RUN_ID_PROPERTY))) {
+                final Object sendTimeNanos = properties.get(SEND_TIME_PROPERTY);
+                if (sendTimeNanos instanceof Long) {
+                    final long latencyMicros = TimeUnit.NANOSECONDS.toMicros(receiveTimeNanos - (Long) sendTimeNanos);
+                    this.endToEndLatency.recordMicros(latencyMicros);
+                    this.endToEndLatencyInterval.recordMicros(latencyMicros);
+                }
+            }
+        }
+
+        this.received.add(eventCount, bytes);
+    }
+
+    void onReceiveError(final Throwable error) {
+        this.receiveErrors.increment();
+        this.lastError = error;
+    }
+
+    public long getSentEvents() {
+        return this.sent.events.sum();
+    }
+
+    public long getSentBytes() {
+        return this.sent.bytes.sum();
+    }
+
+    public long getReceivedEvents() {
+        return this.received.events.sum();
+    }
+
+    public long getReceivedBytes() {
+        return this.received.bytes.sum();
+    }
+
+    public long getSendErrors() {
+        return this.sendErrors.sum();
+    }
+
+    public long getReceiveErrors() {
+        return this.receiveErrors.sum();
+    }
+
+    public Throwable getLastError() {
+        return this.lastError;
+    }
+
+    /**
+     * @param percentile in the range (0, 100]
+     * @return send-ack latency in microseconds, over the run
+     */
+    public long getSendAckLatencyMicros(final double percentile) {
+        return this.sendAckLatency.getValueAtPercentile(percentile);
+    }
+
+    /**
+     * @param percentile in the range (0, 100]
+     * @return end-to-end latency in microseconds, over the run
+     */
+    public long getEndToEndLatencyMicros(final double percentile) {
+        return this.endToEndLatency.getValueAtPercentile(percentile);
+    }
+
+    /**
+     * @return a report of the interval since the last call - and starts the next interval
+     */
+    String intervalReport(final Snapshot previous, final Snapshot current) {
+        final double seconds = (current.nanoTime - previous.nanoTime) / 1e9;
+        return String.format(Locale.US, "sent %s, send-ack latency %s | received %s, end-to-end latency %s",
+                rates(current.sentEvents - previous.sentEvents, current.sentBytes - previous.sentBytes, seconds),
+                latencies(this.sendAckLatencyInterval.drain()),
+                rates(current.receivedEvents - previous.receivedEvents, current.receivedBytes - previous.receivedBytes, seconds),
+                latencies(this.endToEndLatencyInterval.drain()));
+    }
+
+    String summary(final double seconds) {
+        final StringBuilder summary = new StringBuilder();
+        summary.append(String.format(Locale.US, "sent:     %s events (%.2f MB) in %.1f s, %s, errors %s%n",
+                this.getSentEvents(), this.getSentBytes() / BYTES_PER_MB, seconds, rates(this.getSentEvents(), this.getSentBytes(), seconds), this.getSendErrors()));
+        summary.append(String.format(Locale.US, "          send-ack latency %s%n", latencies(this.sendAckLatency)));
+        summary.append(String.format(Locale.US, "received: %s events (%.2f MB) in %.1f s, %s, errors %s%n",
+                this.getReceivedEvents(), this.getReceivedBytes() / BYTES_PER_MB, seconds, rates(this.getReceivedEvents(), this.getReceivedBytes(), seconds), this.getReceiveErrors()));
+        summary.append(String.format(Locale.US, "          end-to-end latency %s", latencies(this.endToEndLatency)));
+        if (this.lastError != null) {
+            summary.append(String.format(Locale.US, "%nlast error: %s", this.lastError));
+        }
+
+        return summary.toString();
+    }
+
+    Snapshot snapshot() {
+        return new Snapshot(System.nanoTime(), this.getSentEvents(), this.getSentBytes(), this.getReceivedEvents(), this.getReceivedBytes());
+    }
+
+    private static String rates(final long events, final long bytes, final double seconds) {
+        return String.format(Locale.US, "%.1f events/s (%.2f MB/s)", seconds > 0 ? events / seconds : 0, seconds > 0 ? bytes / BYTES_PER_MB / seconds : 0);
+    }
+
+    private static String latencies(final LatencyHistogram histogram) {
+        if (histogram.getCount() == 0) {
+            return "n/a";
+        }
+
+        return String.format(Locale.US, "p50 %.2f ms, p99 %.2f ms, p999 %.2f ms, max %.2f ms",
+                histogram.getValueAtPercentile(50) / 1000.0,
+                histogram.getValueAtPercentile(99) / 1000.0,
+                histogram.getValueAtPercentile(99.9) / 1000.0,
+                histogram.getMaxMicros() / 1000.0);
+    }
+
+    static final class Snapshot {
+        final long nanoTime;
+        final long sentEvents;
+        final long sentBytes;
+        final long receivedEvents;
+        final long receivedBytes;
+
+        Snapshot(final long nanoTime, final long sentEvents, final long sentBytes, final long receivedEvents, final long receivedBytes) {
+            this.nanoTime = nanoTime;
+            this.sentEvents = sentEvents;
+            this.sentBytes = sentBytes;
+            this.receivedEvents = receivedEvents;
+            this.receivedBytes = receivedBytes;
+        }
+    }
+
+    private static final class Counters {
+        final LongAdder events = new LongAdder();
+        final LongAdder bytes = new LongAdder();
+
+        void add(final int eventCount, final long byteCount) {
+            this.events.add(eventCount);
+            this.bytes.add(byteCount);
+        }
+    }
+}
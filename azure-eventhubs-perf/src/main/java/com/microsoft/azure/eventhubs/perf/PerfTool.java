@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+package com.microsoft.azure.eventhubs.perf;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.microsoft.azure.eventhubs.EventHubClient;
+import com.microsoft.azure.eventhubs.emulator.EmulatorOptions;
+import com.microsoft.azure.eventhubs.emulator.EventHubEmulator;
+
+/**
+ * Command-line load generator - sends to and receives from an event hub for a while, and reports events/s, MB/s,
+ * and p50/p99/p999 of the send-ack latency (send till the service acknowledged the send) and of the end-to-end latency
+ * (send till the event is received), every report interval and for the whole run.
+ * <pre>
+ * java -jar eventhubs-perf.jar --connection-string "Endpoint=sb://...;EntityPath=..." --producer partition --consumer receiver \
+ *     --event-size 1024 --batch-size 100 --concurrency 8 --duration 60
+ * java -jar eventhubs-perf.jar --emulator --partitions 8 --consumer receiver
+ * </pre>
+ * Run the same settings against different client versions or settings to compare them. MB are of the event bodies only.
+ */
+public final class PerfTool {
+    // time for the sends in flight to complete, when the run is over
+    static final long STOP_TIMEOUT_MILLIS = 60 * 1000;
+    // time for the receivers to catch up with the last sends, when the run is over
+    static final long DRAIN_MILLIS = 2 * 1000;
+
+    private PerfTool() {
+    }
+
+    public static void main(final String[] args) throws Exception {
+        final PerfOptions options;
+        try {
+            options = PerfOptions.parse(args);
+        } catch (IllegalArgumentException exception) {
+            System.err.println(exception.getMessage());
+            System.err.println(PerfOptions.usage());
+            System.exit(1);
+            return;
+        }
+
+        run(options, System.out);
+        System.exit(0);
+    }
+
+    /**
+     * Runs the load of the options, reporting to the output as it goes.
+     *
+     * @param options what to run
+     * @param output  where to report
+     * @return the stats of the run
+     * @throws Exception if the clients could not be created
+     */
+    public static PerfStats run(final PerfOptions options, final PrintStream output) throws Exception {
+        EventHubEmulator emulator = null;
+        String connectionString = options.getConnectionString();
+        if (options.isEmulator()) {
+            EventHubEmulator.enableAnonymousTls();
+
+            final EmulatorOptions emulatorOptions = new EmulatorOptions();
+            emulatorOptions.addEventHub(PerfOptions.EMULATOR_EVENT_HUB,
+                    options.getPartitionCount() > 0 ? options.getPartitionCount() : PerfOptions.EMULATOR_DEFAULT_PARTITION_COUNT);
+            emulatorOptions.setThroughputUnits(options.getEmulatorThroughputUnits());
+            emulator = EventHubEmulator.start(emulatorOptions);
+            connectionString = emulator.getConnectionString(PerfOptions.EMULATOR_EVENT_HUB);
+        }
+
+        final PerfStats stats = new PerfStats(UUID.randomUUID().toString());
+        final ScheduledExecutorService executor = Executors.newScheduledThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()));
+        EventHubClient ehClient = null;
+        try {
+            ehClient = EventHubClient.createFromConnectionStringSync(connectionString);
+            final List<String> partitionIds = selectPartitions(ehClient, options.getPartitionCount());
+
+            output.println(String.format(Locale.US, "producer %s, consumer %s, partitions %s, event size %s, batch size %s, concurrency %s, duration %s s",
+                    options.getProducer(), options.getConsumer(), partitionIds, options.getEventSize(), options.getBatchSize(),
+                    options.getConcurrency(), options.getDuration().getSeconds()));
+
+            // consumers start first - so that they see the events of the run, when receiving from the end of the stream
+            ReceiverWorkload receiverWorkload = null;
+            EventProcessorHostWorkload hostWorkload = null;
+            if (options.getConsumer() == PerfOptions.Consumer.RECEIVER) {
+                receiverWorkload = new ReceiverWorkload(options, ehClient, partitionIds, stats);
+                receiverWorkload.start();
+            } else if (options.getConsumer() == PerfOptions.Consumer.EPH) {
+                hostWorkload = new EventProcessorHostWorkload(options, connectionString, stats);
+                hostWorkload.start();
+            }
+
+            ProducerWorkload producerWorkload = null;
+            if (options.getProducer() != PerfOptions.Producer.NONE) {
+                producerWorkload = new ProducerWorkload(options, ehClient, partitionIds, stats, executor);
+                producerWorkload.start();
+            }
+
+            final long startNanos = System.nanoTime();
+            final AtomicReference<PerfStats.Snapshot> lastSnapshot = new AtomicReference<>(stats.snapshot());
+            final long reportIntervalMillis = options.getReportInterval().toMillis();
+            executor.scheduleAtFixedRate(new Runnable() {
+                @Override
+                public void run() {
+                    final PerfStats.Snapshot snapshot = stats.snapshot();
+                    output.println(stats.intervalReport(lastSnapshot.getAndSet(snapshot), snapshot));
+                }
+            }, reportIntervalMillis, reportIntervalMillis, TimeUnit.MILLISECONDS);
+
+            Thread.sleep(options.getDuration().toMillis());
+
+            if (producerWorkload != null) {
+                producerWorkload.stop(STOP_TIMEOUT_MILLIS);
+            }
+
+            final double seconds = (System.nanoTime() - startNanos) / 1e9;
+
+            if (receiverWorkload != null || hostWorkload != null) {
+                Thread.sleep(DRAIN_MILLIS);
+            }
+
+            if (receiverWorkload != null) {
+                receiverWorkload.stop();
+            }
+
+            if (hostWorkload != null) {
+                hostWorkload.stop();
+            }
+
+            output.println(stats.summary(seconds));
+            return stats;
+        } finally {
+            executor.shutdownNow();
+
+            if (ehClient != null) {
+                ehClient.closeSync();
+            }
+
+            if (emulator != null) {
+                emulator.close();
+            }
+        }
+    }
+
+    private static List<String> selectPartitions(final EventHubClient ehClient, final int partitionCount) throws Exception {
+        final List<String> partitionIds = new ArrayList<>(Arrays.asList(ehClient.getRuntimeInformation().get().getPartitionIds()));
+        if (partitionCount > 0 && partitionCount < partitionIds.size()) {
+            return partitionIds.subList(0, partitionCount);
+        }
+
+        return partitionIds;
+    }
+}
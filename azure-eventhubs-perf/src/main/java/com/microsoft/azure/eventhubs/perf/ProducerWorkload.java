@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+package com.microsoft.azure.eventhubs.perf;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+import com.microsoft.azure.eventhubs.EventData;
+import com.microsoft.azure.eventhubs.EventHubClient;
+import com.microsoft.azure.eventhubs.EventHubException;
+import com.microsoft.azure.eventhubs.PartitionSender;
+
+/**
+ * Keeps {@link PerfOptions#getConcurrency()} sends in flight - each send lane sends its next batch as soon as the previous one is acknowledged.
+ * <p>
+ * The next send is issued from the executor, not from the thread completing the previous send - which is the Reactor thread.
+ */
+final class ProducerWorkload {
+    // a lane backs off this long after a failed send - the client has already retried it
+    static final long ERROR_BACKOFF_MILLIS = 100;
+
+    private final PerfOptions options;
+    private final EventHubClient ehClient;
+    private final List<String> partitionIds;
+    private final PerfStats stats;
+    private final ScheduledExecutorService executor;
+    private final byte[] payload;
+    private final List<PartitionSender> senders;
+    private final CountDownLatch stoppedLanes;
+
+    private volatile boolean isRunning;
+
+    ProducerWorkload(final PerfOptions options, final EventHubClient ehClient, final List<String> partitionIds,
+                     final PerfStats stats, final ScheduledExecutorService executor) {
+        this.options = options;
+        this.ehClient = ehClient;
+        this.partitionIds = partitionIds;
+        this.stats = stats;
+        this.executor = executor;
+        this.payload = new byte[options.getEventSize()];
+        this.senders = new ArrayList<>();
+        this.stoppedLanes = new CountDownLatch(options.getConcurrency());
+    }
+
+    void start() throws EventHubException {
+        if (this.options.getProducer() == PerfOptions.Producer.PARTITION) {
+            for (final String partitionId : this.partitionIds) {
+                this.senders.add(this.ehClient.createPartitionSenderSync(partitionId));
+            }
+        }
+
+        this.isRunning = true;
+        for (int lane = 0; lane < this.options.getConcurrency(); lane++) {
+            this.scheduleSend(lane, 0);
+        }
+    }
+
+    /**
+     * Stops sending - and waits for the sends in flight to complete.
+     */
+    void stop(final long timeoutMillis) throws EventHubException, InterruptedException {
+        this.isRunning = false;
+        this.stoppedLanes.await(timeoutMillis, TimeUnit.MILLISECONDS);
+
+        for (final PartitionSender sender : this.senders) {
+            sender.closeSync();
+        }
+    }
+
+    private void scheduleSend(final int lane, final long delayMillis) {
+        this.executor.schedule(new Runnable() {
+            @Override
+            public void run() {
+                ProducerWorkload.this.send(lane);
+            }
+        }, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void send(final int lane) {
+        if (!this.isRunning) {
+            this.stoppedLanes.countDown();
+            return;
+        }
+
+        final long sendTimeNanos = System.nanoTime();
+        final List<EventData> batch = new ArrayList<>(this.options.getBatchSize());
+        for (int index = 0; index < this.options.getBatchSize(); index++) {
+            final EventData event = new EventData(this.payload);
+            this.stats.onSending(event, sendTimeNanos);
+            batch.add(event);
+        }
+
+        CompletableFuture<Void> sendTask;
+        try {
+            sendTask = this.senders.isEmpty()
+                    ? this.ehClient.send(batch)
+                    : this.senders.get(lane % this.senders.size()).send(batch);
+        } catch (RuntimeException | EventHubException exception) {
+            sendTask = new CompletableFuture<>();
+            sendTask.completeExceptionally(exception);
+        }
+
+        sendTask.whenComplete(new BiConsumer<Void, Throwable>() {
+            @Override
+            public void accept(Void result, Throwable error) {
+                if (error == null) {
+                    ProducerWorkload.this.stats.onSent(batch.size(), (long) batch.size() * ProducerWorkload.this.payload.length, sendTimeNanos);
+                    ProducerWorkload.this.scheduleSend(lane, 0);
+                } else {
+                    ProducerWorkload.this.stats.onSendError(error);
+                    ProducerWorkload.this.scheduleSend(lane, ERROR_BACKOFF_MILLIS);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+package com.microsoft.azure.eventhubs.perf;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import com.microsoft.azure.eventhubs.EventData;
+import com.microsoft.azure.eventhubs.EventHubClient;
+import com.microsoft.azure.eventhubs.EventHubException;
+import com.microsoft.azure.eventhubs.PartitionReceiveHandler;
+import com.microsoft.azure.eventhubs.PartitionReceiver;
+
+/**
+ * Receives from every partition of the run with a {@link PartitionReceiver} and a {@link PartitionReceiveHandler} - the push model,
+ * which keeps the receivers busy without a thread per partition.
+ */
+final class ReceiverWorkload {
+    // the receive pump stops once its outstanding receive returns - a short timeout keeps stop() short, when the partitions are idle
+    static final Duration RECEIVE_TIMEOUT = Duration.ofSeconds(1);
+
+    private final PerfOptions options;
+    private final EventHubClient ehClient;
+    private final List<String> partitionIds;
+    private final PerfStats stats;
+    private final List<PartitionReceiver> receivers;
+
+    ReceiverWorkload(final PerfOptions options, final EventHubClient ehClient, final List<String> partitionIds, final PerfStats stats) {
+        this.options = options;
+        this.ehClient = ehClient;
+        this.partitionIds = partitionIds;
+        this.stats = stats;
+        this.receivers = new ArrayList<>();
+    }
+
+    void start() throws EventHubException, InterruptedException, ExecutionException {
+        final String startingOffset = this.options.isFromStartOfStream() ? PartitionReceiver.START_OF_STREAM : PartitionReceiver.END_OF_STREAM;
+        for (final String partitionId : this.partitionIds) {
+            final PartitionReceiver receiver = this.ehClient.createReceiverSync(this.options.getConsumerGroup(), partitionId, startingOffset);
+            receiver.setPrefetchCount(this.options.getPrefetchCount());
+            receiver.setReceiveTimeout(RECEIVE_TIMEOUT);
+            this.receivers.add(receiver);
+        }
+
+        for (final PartitionReceiver receiver : this.receivers) {
+            receiver.setReceiveHandler(new PartitionReceiveHandler(this.options.getPrefetchCount()) {
+                @Override
+                public void onReceive(Iterable<EventData> events) {
+                    ReceiverWorkload.this.stats.onReceived(events);
+                }
+
+                @Override
+                public void onError(Throwable error) {
+                    ReceiverWorkload.this.stats.onReceiveError(error);
+                }
+            }).get();
+        }
+    }
+
+    void stop() throws EventHubException, InterruptedException, ExecutionException {
+        final List<CompletableFuture<Void>> stoppedPumps = new ArrayList<>();
+        for (final PartitionReceiver receiver : this.receivers) {
+            stoppedPumps.add(receiver.setReceiveHandler(null));
+        }
+
+        CompletableFuture.allOf(stoppedPumps.toArray(new CompletableFuture<?>[stoppedPumps.size()])).get();
+        for (final PartitionReceiver receiver : this.receivers) {
+            receiver.closeSync();
+        }
+    }
+}
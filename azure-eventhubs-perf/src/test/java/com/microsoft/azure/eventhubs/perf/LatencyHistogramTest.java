@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+package com.microsoft.azure.eventhubs.perf;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LatencyHistogramTest
+{
+	@Test
+	public void percentilesAreWithinBucketPrecision()
+	{
+		final LatencyHistogram histogram = new LatencyHistogram();
+		for (long value = 1; value <= 100000; value++)
+			histogram.recordMicros(value);
+
+		Assert.assertEquals(100000, histogram.getCount());
+		Assert.assertEquals(100000, histogram.getMaxMicros());
+		assertWithinPrecision(50000, histogram.getValueAtPercentile(50));
+		assertWithinPrecision(99000, histogram.getValueAtPercentile(99));
+		assertWithinPrecision(99900, histogram.getValueAtPercentile(99.9));
+		Assert.assertEquals(100000, histogram.getValueAtPercentile(100));
+	}
+
+	@Test
+	public void smallValuesAreExact()
+	{
+		final LatencyHistogram histogram = new LatencyHistogram();
+		for (long value = 0; value < 64; value++)
+		{
+			Assert.assertEquals(value, LatencyHistogram.bucketIndex(value));
+			Assert.assertEquals(value, LatencyHistogram.highestEquivalentValue(LatencyHistogram.bucketIndex(value)));
+		}
+
+		histogram.recordMicros(7);
+		histogram.recordMicros(9);
+		Assert.assertEquals(7, histogram.getValueAtPercentile(50));
+		Assert.assertEquals(9, histogram.getValueAtPercentile(99));
+	}
+
+	@Test
+	public void drainStartsAnEmptyInterval()
+	{
+		final LatencyHistogram histogram = new LatencyHistogram();
+		histogram.recordMicros(1000);
+
+		final LatencyHistogram drained = histogram.drain();
+		Assert.assertEquals(1, drained.getCount());
+		Assert.assertEquals(1000, drained.getMaxMicros());
+		Assert.assertEquals(0, histogram.getCount());
+		Assert.assertEquals(0, histogram.getValueAtPercentile(99));
+	}
+
+	static void assertWithinPrecision(final long expected, final long actual)
+	{
+		Assert.assertTrue(String.format("expected %s, actual %s", expected, actual), Math.abs(expected - actual) <= expected / 64);
+	}
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+package com.microsoft.azure.eventhubs.perf;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PerfToolTest
+{
+	@Test
+	public void partitionSendersAndReceiversAgainstEmulator() throws Exception
+	{
+		final PerfOptions options = PerfOptions.parse(new String[] {
+				"--emulator", "--partitions", "2", "--producer", "partition", "--consumer", "receiver",
+				"--event-size", "256", "--batch-size", "10", "--concurrency", "4", "--duration", "2", "--report-interval", "1" });
+
+		final ByteArrayOutputStream output = new ByteArrayOutputStream();
+		final PerfStats stats = PerfTool.run(options, new PrintStream(output, true));
+
+		Assert.assertTrue(stats.getSentEvents() > 0);
+		Assert.assertEquals(0, stats.getSendErrors());
+		Assert.assertEquals(stats.getSentEvents() * 256, stats.getSentBytes());
+		Assert.assertEquals(stats.getSentEvents(), stats.getReceivedEvents());
+		Assert.assertTrue(stats.getSendAckLatencyMicros(50) > 0);
+		Assert.assertTrue(stats.getEndToEndLatencyMicros(99.9) >= stats.getEndToEndLatencyMicros(50));
+		Assert.assertTrue(output.toString().contains("end-to-end latency p50"));
+	}
+
+	@Test
+	public void optionsAreValidated()
+	{
+		try
+		{
+			PerfOptions.parse(new String[] { "--producer", "client" });
+			Assert.fail("a connection string or the emulator is needed");
+		}
+		catch (IllegalArgumentException expected)
+		{
+		}
+
+		try
+		{
+			PerfOptions.parse(new String[] { "--emulator", "--consumer", "eph" });
+			Assert.fail("eph needs a storage account");
+		}
+		catch (IllegalArgumentException expected)
+		{
+		}
+
+		final PerfOptions options = PerfOptions.parse(new String[] { "--emulator", "--producer", "client", "--batch-size", "100" });
+		Assert.assertEquals(PerfOptions.Producer.CLIENT, options.getProducer());
+		Assert.assertEquals(100, options.getBatchSize());
+	}
+}
@@ -4,6 +4,7 @@
  */
 package com.microsoft.azure.eventhubs;
 
+import java.time.Duration;
 import java.util.Map;
 import java.util.HashMap;
 
@@ -46,6 +47,7 @@ public class CBSChannel {
             final ReactorDispatcher dispatcher,
             final String token,
             final String tokenAudience,
+            final Duration timeout,
             final IOperationResult<Void, Exception> sendTokenCallback) {
 
         final Message request = Proton.message();
@@ -61,7 +63,7 @@ public class CBSChannel {
                 new IOperationResult<RequestResponseChannel, Exception>() {
                     @Override
                     public void onComplete(final RequestResponseChannel result) {
-                        result.request(dispatcher, request,
+                        result.request(dispatcher, request, timeout,
                                 new IOperationResult<Message, Exception>() {
                                     @Override
                                     public void onComplete(final Message response) {
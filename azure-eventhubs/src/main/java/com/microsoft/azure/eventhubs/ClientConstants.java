@@ -35,10 +35,16 @@ public final class ClientConstants {
 
     public final static Duration DEFAULT_RERTRY_MIN_BACKOFF = Duration.ofSeconds(0);
     public final static Duration DEFAULT_RERTRY_MAX_BACKOFF = Duration.ofSeconds(30);
+    public final static Duration RETRY_JITTER_MIN_BASE = Duration.ofMillis(100); // smallest jittered backoff - when the minimum backoff is 0
     public final static Duration TOKEN_REFRESH_INTERVAL = Duration.ofMinutes(10); // renew every 10 mins, which expires 20 mins
     public final static Duration TOKEN_VALIDITY = Duration.ofMinutes(20);
+    public final static Duration TOKEN_RENEWAL_SCAN_INTERVAL = Duration.ofMinutes(1); // tokens due for renewal within the next scan are renewed together
+    public final static Duration DEFAULT_RUNTIME_INFORMATION_CACHE_TTL = Duration.ZERO; // no caching unless enabled on the EventHubClient
 
     public final static int DEFAULT_MAX_RETRY_COUNT = 10;
+    public final static int DEFAULT_RETRY_BUDGET_BURST = 1000; // retries a connection can make at once, before being limited to the refill rate
+    public final static int DEFAULT_RETRY_BUDGET_PER_SECOND = 100;
+    public final static int DEFAULT_MAX_LINKS_PER_SESSION = 1;
 
     public final static String EVENTHUB_CLIENT_TRACE = "eventhub.trace";
 
@@ -47,12 +47,16 @@ public class ConnectionStringBuilder {
     final static String EntityPathConfigName = "EntityPath";
     final static String OperationTimeoutConfigName = "OperationTimeout";
     final static String RetryPolicyConfigName = "RetryPolicy";
+    final static String MaxLinksPerSessionConfigName = "MaxLinksPerSession";
+    final static String SessionWindowSizeConfigName = "SessionWindowSize";
+    final static String SharedSendRateLimitConfigName = "SharedSendRateLimit";
     final static String KeyValueSeparator = "=";
     final static String KeyValuePairDelimiter = ";";
 
     private static final String AllKeyEnumerateRegex = "(" + HostnameConfigName + "|" + EndpointConfigName + "|" + SharedAccessKeyNameConfigName
             + "|" + SharedAccessKeyConfigName + "|" + SharedAccessSignatureConfigName + "|" + EntityPathConfigName + "|" + OperationTimeoutConfigName
-            + "|" + RetryPolicyConfigName + ")";
+            + "|" + RetryPolicyConfigName + "|" + MaxLinksPerSessionConfigName + "|" + SessionWindowSizeConfigName
+            + "|" + SharedSendRateLimitConfigName + ")";
 
     private static final String KeysWithDelimitersRegex = KeyValuePairDelimiter + AllKeyEnumerateRegex
             + KeyValueSeparator;
@@ -64,6 +68,9 @@ public class ConnectionStringBuilder {
     private String sharedAccessSignature;
     private Duration operationTimeout;
     private RetryPolicy retryPolicy;
+    private Integer maxLinksPerSession;
+    private Integer sessionWindowSize;
+    private Boolean sharedSendRateLimit;
 
     private ConnectionStringBuilder(
             final URI endpointAddress,
@@ -237,6 +244,75 @@ public class ConnectionStringBuilder {
         this.operationTimeout = operationTimeout;
     }
 
+    /**
+     * Number of Senders/Receivers multiplexed on one amqp session of the connection. Defaults to 1 - a session per link.
+     *
+     * @return maxLinksPerSession
+     */
+    public int getMaxLinksPerSession() {
+        return (this.maxLinksPerSession == null ? ClientConstants.DEFAULT_MAX_LINKS_PER_SESSION : this.maxLinksPerSession);
+    }
+
+    /**
+     * Set the number of Senders/Receivers which share one amqp session. Sharing sessions saves a begin/end handshake per link,
+     * which shortens the time to open many links (for ex: receivers to all partitions) on one connection.
+     * <p>ConnectionString with maxLinksPerSession is not inter-operable between java and clients in other platforms.
+     *
+     * @param maxLinksPerSession number of links per session - should be a positive number
+     */
+    public void setMaxLinksPerSession(final int maxLinksPerSession) {
+        if (maxLinksPerSession <= 0) {
+            throw new IllegalArgumentException("maxLinksPerSession should be a positive number.");
+        }
+
+        this.maxLinksPerSession = maxLinksPerSession;
+    }
+
+    /**
+     * Incoming and outgoing window of the amqp sessions used by Senders/Receivers - in number of frames. 0 leaves the defaults of the amqp stack.
+     *
+     * @return sessionWindowSize
+     */
+    public int getSessionWindowSize() {
+        return (this.sessionWindowSize == null ? 0 : this.sessionWindowSize);
+    }
+
+    /**
+     * Set the incoming and outgoing window of the amqp sessions used by Senders/Receivers - in number of frames.
+     * Links which share a session also share its window - so, this should grow with {@link #setMaxLinksPerSession(int)}.
+     * <p>ConnectionString with sessionWindowSize is not inter-operable between java and clients in other platforms.
+     *
+     * @param sessionWindowSize session window in number of frames - should be a positive number
+     */
+    public void setSessionWindowSize(final int sessionWindowSize) {
+        if (sessionWindowSize <= 0) {
+            throw new IllegalArgumentException("sessionWindowSize should be a positive number.");
+        }
+
+        this.sessionWindowSize = sessionWindowSize;
+    }
+
+    /**
+     * Whether all Senders to the namespace, in this process, share one adaptive send rate limit. Defaults to false - a limit per Sender.
+     *
+     * @return sharedSendRateLimit
+     * @see SendRateLimiter
+     */
+    public boolean getSharedSendRateLimit() {
+        return (this.sharedSendRateLimit == null ? false : this.sharedSendRateLimit);
+    }
+
+    /**
+     * Senders learn the rate the namespace sustains from throttling (ServerBusy / QuotaExceeded) and pace their sends to stay below it.
+     * Throughput units are shared by all EventHubs in the namespace - sharing the limit lets all Senders back off together.
+     * <p>ConnectionString with sharedSendRateLimit is not inter-operable between java and clients in other platforms.
+     *
+     * @param sharedSendRateLimit true to share one limit per namespace; false for a limit per Sender
+     */
+    public void setSharedSendRateLimit(final boolean sharedSendRateLimit) {
+        this.sharedSendRateLimit = sharedSendRateLimit;
+    }
+
     /**
      * Get the retry policy instance that was created as part of this builder's creation.
      *
@@ -301,6 +377,21 @@ public class ConnectionStringBuilder {
                     KeyValueSeparator, this.retryPolicy.toString(), KeyValuePairDelimiter));
         }
 
+        if (this.maxLinksPerSession != null) {
+            connectionStringBuilder.append(String.format(Locale.US, "%s%s%s%s", MaxLinksPerSessionConfigName,
+                    KeyValueSeparator, this.maxLinksPerSession.toString(), KeyValuePairDelimiter));
+        }
+
+        if (this.sessionWindowSize != null) {
+            connectionStringBuilder.append(String.format(Locale.US, "%s%s%s%s", SessionWindowSizeConfigName,
+                    KeyValueSeparator, this.sessionWindowSize.toString(), KeyValuePairDelimiter));
+        }
+
+        if (this.sharedSendRateLimit != null) {
+            connectionStringBuilder.append(String.format(Locale.US, "%s%s%s%s", SharedSendRateLimitConfigName,
+                    KeyValueSeparator, this.sharedSendRateLimit.toString(), KeyValuePairDelimiter));
+        }
+
         connectionStringBuilder.deleteCharAt(connectionStringBuilder.length() - 1);
         return connectionStringBuilder.toString();
     }
@@ -388,10 +479,40 @@ public class ConnectionStringBuilder {
                     throw new IllegalConnectionStringFormatException(
                             String.format(Locale.US, "Connection string parameter '%s'='%s' is not recognized",
                                     RetryPolicyConfigName, values[valueIndex]));
+            } else if (key.equalsIgnoreCase(MaxLinksPerSessionConfigName)) {
+                this.maxLinksPerSession = parsePositiveInteger(key, values[valueIndex]);
+            } else if (key.equalsIgnoreCase(SessionWindowSizeConfigName)) {
+                this.sessionWindowSize = parsePositiveInteger(key, values[valueIndex]);
+            } else if (key.equalsIgnoreCase(SharedSendRateLimitConfigName)) {
+                this.sharedSendRateLimit = parseBoolean(key, values[valueIndex]);
             } else {
                 throw new IllegalConnectionStringFormatException(
                         String.format(Locale.US, "Illegal connection string parameter name: %s", key));
             }
         }
     }
+
+    private static int parsePositiveInteger(final String key, final String value) {
+        try {
+            final int parsedValue = Integer.parseInt(value);
+            if (parsedValue > 0) {
+                return parsedValue;
+            }
+        } catch (NumberFormatException exception) {
+            throw new IllegalConnectionStringFormatException(
+                    String.format(Locale.US, "Invalid value specified for property '%s' in the ConnectionString.", key), exception);
+        }
+
+        throw new IllegalConnectionStringFormatException(
+                String.format(Locale.US, "Value of property '%s' in the ConnectionString should be a positive number.", key));
+    }
+
+    private static boolean parseBoolean(final String key, final String value) {
+        if (value.equalsIgnoreCase(Boolean.TRUE.toString()) || value.equalsIgnoreCase(Boolean.FALSE.toString())) {
+            return Boolean.parseBoolean(value);
+        }
+
+        throw new IllegalConnectionStringFormatException(
+                String.format(Locale.US, "Value of property '%s' in the ConnectionString should be true or false.", key));
+    }
 }
@@ -0,0 +1,334 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+package com.microsoft.azure.eventhubs;
+
+import java.io.IOException;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.microsoft.azure.eventhubs.amqp.DispatchHandler;
+import com.microsoft.azure.eventhubs.amqp.IOperationResult;
+
+/**
+ * Caches the SAS tokens of one connection ({@link MessagingFactory}) per audience - and renews all of them from a single timer.
+ * <p>
+ * A token put on the CBS link authorizes every link, on that connection, to its audience. So, a link (re)open skips the
+ * put-token round-trip when a valid token is already in place; and concurrent link opens to the same audience share one put-token.
+ * Renewal is done early & in batches: every {@link ClientConstants#TOKEN_RENEWAL_SCAN_INTERVAL}, all tokens which are due
+ * for renewal before the next scan are put in one go - instead of one timer and one CBS round-trip per link.
+ */
+final class ConnectionTokenManager {
+    private static final Logger TRACE_LOGGER = Logger.getLogger(ClientConstants.EVENTHUB_CLIENT_TRACE);
+
+    private final MessagingFactory factory;
+    private final Object tokensLock;
+    private final Map<String, AudienceToken> tokens;
+    private final ScheduledFuture<?> renewTimer;
+
+    // bumped on every connection drop - tokens put on an older generation are gone with that connection
+    private int connectionGeneration;
+
+    ConnectionTokenManager(final MessagingFactory factory) {
+        this.factory = factory;
+        this.tokensLock = new Object();
+        this.tokens = new HashMap<>();
+        this.renewTimer = Timer.schedule(new Runnable() {
+            @Override
+            public void run() {
+                ConnectionTokenManager.this.renewDueTokens();
+            }
+        }, ClientConstants.TOKEN_RENEWAL_SCAN_INTERVAL, TimerType.RepeatRun);
+    }
+
+    /**
+     * Registers a link for token renewals on its audience. Should be paired with {@link #unregister(String)}, when the link is closed.
+     */
+    void register(final String audience) {
+        synchronized (this.tokensLock) {
+            this.getOrCreate(audience).activeLinks++;
+        }
+    }
+
+    void unregister(final String audience) {
+        synchronized (this.tokensLock) {
+            final AudienceToken audienceToken = this.tokens.get(audience);
+            if (audienceToken != null) {
+                audienceToken.activeLinks--;
+            }
+        }
+    }
+
+    /**
+     * @return a cached SAS token for the audience - which is valid for at least {@link ClientConstants#TOKEN_VALIDITY} - {@link ClientConstants#TOKEN_REFRESH_INTERVAL}.
+     */
+    String getToken(final String audience) throws IOException, InvalidKeyException, NoSuchAlgorithmException {
+        synchronized (this.tokensLock) {
+            return this.getOrCreate(audience).getToken(this.factory.getTokenProvider(), false);
+        }
+    }
+
+    /**
+     * Makes sure that a valid token for the audience is put on the connection, before the callback is invoked.
+     * Should be called on the Reactor thread.
+     */
+    void ensureTokenPut(final String audience, final IOperationResult<Void, Exception> callback) {
+        final AudienceToken audienceToken;
+        final boolean isTokenInPlace;
+        boolean startPut = false;
+
+        synchronized (this.tokensLock) {
+            audienceToken = this.getOrCreate(audience);
+            isTokenInPlace = audienceToken.putGeneration == this.connectionGeneration && Instant.now().isBefore(audienceToken.putRenewDueAt);
+            if (!isTokenInPlace) {
+                audienceToken.waiters.add(callback);
+                if (!audienceToken.isPutInProgress) {
+                    audienceToken.isPutInProgress = true;
+                    startPut = true;
+                }
+            }
+        }
+
+        if (isTokenInPlace) {
+            if (TRACE_LOGGER.isLoggable(Level.FINE)) {
+                TRACE_LOGGER.log(Level.FINE, String.format(Locale.US, "audience[%s] - token already in place, skipping put-token", audience));
+            }
+
+            callback.onComplete(null);
+        } else if (startPut) {
+            this.putToken(audienceToken, false);
+        }
+    }
+
+    /**
+     * Invalidates all tokens put on the connection - to be called when the connection is lost.
+     */
+    void onConnectionError() {
+        synchronized (this.tokensLock) {
+            this.connectionGeneration++;
+        }
+    }
+
+    /**
+     * Puts the tokens of all audiences with registered links on the (new) connection - in one pipelined burst on the CBS link.
+     * Links re-opened right after this join the in-flight put-tokens instead of issuing their own.
+     * Should be called on the Reactor thread.
+     */
+    void reauthorize() {
+        final List<AudienceToken> audienceTokens = new LinkedList<>();
+        synchronized (this.tokensLock) {
+            for (AudienceToken audienceToken : this.tokens.values()) {
+                if (audienceToken.activeLinks > 0 && !audienceToken.isPutInProgress && audienceToken.putGeneration != this.connectionGeneration) {
+                    audienceToken.isPutInProgress = true;
+                    audienceTokens.add(audienceToken);
+                }
+            }
+        }
+
+        if (TRACE_LOGGER.isLoggable(Level.FINE)) {
+            TRACE_LOGGER.log(Level.FINE, String.format(Locale.US, "host[%s] - re-authorizing %s audiences", this.factory.getHostName(), audienceTokens.size()));
+        }
+
+        for (AudienceToken audienceToken : audienceTokens) {
+            this.putToken(audienceToken, false);
+        }
+    }
+
+    void cancel() {
+        this.renewTimer.cancel(false);
+    }
+
+    // should be called under tokensLock
+    private AudienceToken getOrCreate(final String audience) {
+        AudienceToken audienceToken = this.tokens.get(audience);
+        if (audienceToken == null) {
+            audienceToken = new AudienceToken(audience);
+            this.tokens.put(audience, audienceToken);
+        }
+
+        return audienceToken;
+    }
+
+    private void putToken(final AudienceToken audienceToken, final boolean renew) {
+        final String token;
+        final Instant tokenRenewDueAt;
+        final int generation;
+        try {
+            synchronized (this.tokensLock) {
+                token = audienceToken.getToken(this.factory.getTokenProvider(), renew);
+                tokenRenewDueAt = audienceToken.renewDueAt;
+                generation = this.connectionGeneration;
+            }
+        } catch (IOException | NoSuchAlgorithmException | InvalidKeyException | RuntimeException exception) {
+            this.onPutTokenComplete(audienceToken, -1, null, exception);
+            return;
+        }
+
+        try {
+            this.factory.getCBSChannel().sendToken(
+                    this.factory.getReactorScheduler(),
+                    token,
+                    audienceToken.audience,
+                    this.factory.getOperationTimeout(),
+                    new IOperationResult<Void, Exception>() {
+                        @Override
+                        public void onComplete(Void result) {
+                            ConnectionTokenManager.this.onPutTokenComplete(audienceToken, generation, tokenRenewDueAt, null);
+                        }
+
+                        @Override
+                        public void onError(Exception error) {
+                            ConnectionTokenManager.this.onPutTokenComplete(audienceToken, generation, tokenRenewDueAt, error);
+                        }
+                    });
+        } catch (RuntimeException exception) {
+            this.onPutTokenComplete(audienceToken, generation, tokenRenewDueAt, exception);
+        }
+    }
+
+    private void onPutTokenComplete(final AudienceToken audienceToken, final int generation, final Instant tokenRenewDueAt, final Exception error) {
+        final List<IOperationResult<Void, Exception>> waiters;
+        synchronized (this.tokensLock) {
+            if (error == null && generation != this.connectionGeneration) {
+                // connection was lost while the put-token was in flight - links waiting on it need the token on the new connection
+                waiters = null;
+            } else {
+                audienceToken.isPutInProgress = false;
+                // on failure, the token put before - if any - is still in place: the next renewal scan retries it
+                if (error == null) {
+                    audienceToken.putGeneration = generation;
+                    audienceToken.putRenewDueAt = tokenRenewDueAt;
+                }
+
+                waiters = new LinkedList<>(audienceToken.waiters);
+                audienceToken.waiters.clear();
+            }
+        }
+
+        if (waiters == null) {
+            this.putToken(audienceToken, false);
+            return;
+        }
+
+        if (error == null) {
+            if (TRACE_LOGGER.isLoggable(Level.FINE)) {
+                TRACE_LOGGER.log(Level.FINE, String.format(Locale.US, "audience[%s], waitingLinks[%s] - token put", audienceToken.audience, waiters.size()));
+            }
+
+            for (IOperationResult<Void, Exception> waiter : waiters) {
+                waiter.onComplete(null);
+            }
+        } else {
+            if (TRACE_LOGGER.isLoggable(Level.WARNING)) {
+                TRACE_LOGGER.log(Level.WARNING, String.format(Locale.US, "audience[%s], waitingLinks[%s] - putTokenFailure[%s]", audienceToken.audience, waiters.size(), error.getMessage()));
+            }
+
+            for (IOperationResult<Void, Exception> waiter : waiters) {
+                waiter.onError(error);
+            }
+        }
+    }
+
+    private void renewDueTokens() {
+        this.renewDueTokens(Instant.now().plus(ClientConstants.TOKEN_RENEWAL_SCAN_INTERVAL));
+    }
+
+    /**
+     * Renews the tokens in place on the connection which are due for renewal before {@code renewBefore}.
+     */
+    void renewDueTokens(final Instant renewBefore) {
+        if (this.factory.getIsClosingOrClosed()) {
+            return;
+        }
+
+        final List<AudienceToken> dueTokens = new LinkedList<>();
+        synchronized (this.tokensLock) {
+            final Iterator<AudienceToken> audienceTokens = this.tokens.values().iterator();
+            while (audienceTokens.hasNext()) {
+                final AudienceToken audienceToken = audienceTokens.next();
+                if (audienceToken.activeLinks <= 0 && !audienceToken.isPutInProgress) {
+                    audienceTokens.remove();
+                    continue;
+                }
+
+                // tokens lost with an older connection are put again when their links are re-created
+                if (audienceToken.putGeneration == this.connectionGeneration && !audienceToken.isPutInProgress
+                        && audienceToken.putRenewDueAt.isBefore(renewBefore)) {
+                    audienceToken.isPutInProgress = true;
+                    dueTokens.add(audienceToken);
+                }
+            }
+        }
+
+        if (dueTokens.isEmpty()) {
+            return;
+        }
+
+        if (TRACE_LOGGER.isLoggable(Level.FINE)) {
+            TRACE_LOGGER.log(Level.FINE, String.format(Locale.US, "host[%s] - renewing %s tokens", this.factory.getHostName(), dueTokens.size()));
+        }
+
+        try {
+            this.factory.scheduleOnReactorThread(new DispatchHandler() {
+                @Override
+                public void onEvent() {
+                    for (AudienceToken audienceToken : dueTokens) {
+                        ConnectionTokenManager.this.putToken(audienceToken, true);
+                    }
+                }
+            });
+        } catch (IOException | RuntimeException exception) {
+            if (TRACE_LOGGER.isLoggable(Level.WARNING)) {
+                TRACE_LOGGER.log(Level.WARNING, String.format(Locale.US, "host[%s] - tokenRenewalScheduleFailure[%s]", this.factory.getHostName(), exception.getMessage()));
+            }
+
+            synchronized (this.tokensLock) {
+                for (AudienceToken audienceToken : dueTokens) {
+                    audienceToken.isPutInProgress = false;
+                }
+            }
+        }
+    }
+
+    private static final class AudienceToken {
+        final String audience;
+        final List<IOperationResult<Void, Exception>> waiters;
+
+        String token;
+        Instant renewDueAt;
+        // renewDueAt of the token which is in place on the connection - getToken() can hand out newer ones
+        Instant putRenewDueAt;
+        int putGeneration;
+        boolean isPutInProgress;
+        int activeLinks;
+
+        AudienceToken(final String audience) {
+            this.audience = audience;
+            this.waiters = new LinkedList<>();
+            this.renewDueAt = Instant.EPOCH;
+            this.putRenewDueAt = Instant.EPOCH;
+            this.putGeneration = -1;
+        }
+
+        String getToken(final SharedAccessSignatureTokenProvider tokenProvider, final boolean renew) throws IOException, InvalidKeyException, NoSuchAlgorithmException {
+            if (renew || this.token == null || !Instant.now().isBefore(this.renewDueAt)) {
+                final Instant issuedAt = Instant.now();
+                this.token = tokenProvider.getToken(this.audience, ClientConstants.TOKEN_VALIDITY);
+                this.renewDueAt = issuedAt.plus(ClientConstants.TOKEN_REFRESH_INTERVAL);
+            }
+
+            return this.token;
+        }
+    }
+}
@@ -12,13 +12,16 @@ import java.time.Duration;
 import java.time.Instant;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Locale;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * Anchor class - all EventHub client operations STARTS here.
@@ -32,15 +35,23 @@ public class EventHubClient extends ClientEntity implements IEventHubClient {
     private final Object senderCreateSync;
 
     private MessagingFactory underlyingFactory;
+    private MessagingFactoryPool underlyingFactoryPool;
+    private MessagingFactory[] linkFactories;
+    private final AtomicInteger nextLinkFactory;
     private MessageSender sender;
     private boolean isSenderCreateStarted;
     private CompletableFuture<Void> createSender;
+    private final ManagementResultCache<EventHubRuntimeInformation> runtimeInformationCache;
+    private final ManagementResultCache<EventHubPartitionRuntimeInformation> partitionRuntimeInformationCache;
 
     private EventHubClient(final ConnectionStringBuilder connectionString) throws IOException, IllegalEntityException {
         super(StringUtil.getRandomString(), null);
 
         this.eventHubName = connectionString.getEntityPath();
         this.senderCreateSync = new Object();
+        this.nextLinkFactory = new AtomicInteger();
+        this.runtimeInformationCache = new ManagementResultCache<>(ClientConstants.DEFAULT_RUNTIME_INFORMATION_CACHE_TTL);
+        this.partitionRuntimeInformationCache = new ManagementResultCache<>(ClientConstants.DEFAULT_RUNTIME_INFORMATION_CACHE_TTL);
     }
 
     /**
@@ -67,8 +78,23 @@ public class EventHubClient extends ClientEntity implements IEventHubClient {
      */
     public static EventHubClient createFromConnectionStringSync(final String connectionString, final RetryPolicy retryPolicy)
             throws EventHubException, IOException {
+        return createFromConnectionStringSync(connectionString, retryPolicy, null);
+    }
+
+    /**
+     * Synchronous version of {@link #createFromConnectionString(String, RetryPolicy, MessagingFactoryPool)}.
+     *
+     * @param connectionString The connection string to be used. See {@link ConnectionStringBuilder} to construct a connectionString.
+     * @param retryPolicy      A custom {@link RetryPolicy} to be used when communicating with EventHub.
+     * @param factoryPool      {@link MessagingFactoryPool} to share the underlying connection from; or null to use a dedicated connection.
+     * @return EventHubClient which can be used to create Senders and Receivers to EventHub
+     * @throws EventHubException If Service Bus service encountered problems during connection creation.
+     * @throws IOException         If the underlying Proton-J layer encounter network errors.
+     */
+    public static EventHubClient createFromConnectionStringSync(final String connectionString, final RetryPolicy retryPolicy, final MessagingFactoryPool factoryPool)
+            throws EventHubException, IOException {
         try {
-            return createFromConnectionString(connectionString, retryPolicy).get();
+            return createFromConnectionString(connectionString, retryPolicy, factoryPool).get();
         } catch (InterruptedException | ExecutionException exception) {
             if (exception instanceof InterruptedException) {
                 // Re-assert the thread's interrupted status
@@ -120,14 +146,50 @@ public class EventHubClient extends ClientEntity implements IEventHubClient {
      */
     public static CompletableFuture<EventHubClient> createFromConnectionString(final String connectionString, final RetryPolicy retryPolicy)
             throws EventHubException, IOException {
+        return createFromConnectionString(connectionString, retryPolicy, null);
+    }
+
+    /**
+     * Factory method to create an instance of {@link EventHubClient} using the supplied connectionString.
+     * When a {@link MessagingFactoryPool} is supplied, the EventHubClient doesn't own a Connection - it shares one with all other clients
+     * created from the same pool, to the same namespace endpoint and credentials; and {@link #close()} releases the client's reference to that Connection.
+     * <p>The {@link EventHubClient} created from this method creates a Sender instance internally, which is used by the {@link #send(EventData)} methods.
+     *
+     * @param connectionString The connection string to be used. See {@link ConnectionStringBuilder} to construct a connectionString.
+     * @param retryPolicy      A custom {@link RetryPolicy} to be used when communicating with EventHub.
+     * @param factoryPool      {@link MessagingFactoryPool} to share the underlying connection from; or null to use a dedicated connection.
+     * @return EventHubClient which can be used to create Senders and Receivers to EventHub
+     * @throws EventHubException If Service Bus service encountered problems during connection creation.
+     * @throws IOException         If the underlying Proton-J layer encounter network errors.
+     */
+    public static CompletableFuture<EventHubClient> createFromConnectionString(final String connectionString, final RetryPolicy retryPolicy, final MessagingFactoryPool factoryPool)
+            throws EventHubException, IOException {
         final ConnectionStringBuilder connStr = new ConnectionStringBuilder(connectionString);
         final EventHubClient eventHubClient = new EventHubClient(connStr);
 
-        return MessagingFactory.createFromConnectionString(connectionString.toString(), retryPolicy)
-                .thenApply(new Function<MessagingFactory, EventHubClient>() {
+        if (factoryPool != null && factoryPool.getSpreadLinksAcrossConnections()) {
+            return factoryPool.acquireAll(connStr, retryPolicy)
+                    .thenApply(new Function<MessagingFactory[], EventHubClient>() {
+                        @Override
+                        public EventHubClient apply(MessagingFactory[] factories) {
+                            eventHubClient.underlyingFactory = factories[0];
+                            eventHubClient.underlyingFactoryPool = factoryPool;
+                            eventHubClient.linkFactories = factories;
+                            return eventHubClient;
+                        }
+                    });
+        }
+
+        final CompletableFuture<MessagingFactory> createFactory = factoryPool != null
+                ? factoryPool.acquire(connStr, retryPolicy)
+                : MessagingFactory.createFromConnectionString(connectionString.toString(), retryPolicy);
+
+        return createFactory.thenApply(new Function<MessagingFactory, EventHubClient>() {
                     @Override
                     public EventHubClient apply(MessagingFactory factory) {
                         eventHubClient.underlyingFactory = factory;
+                        eventHubClient.underlyingFactoryPool = factoryPool;
+                        eventHubClient.linkFactories = new MessagingFactory[] { factory };
                         return eventHubClient;
                     }
                 });
@@ -500,7 +562,60 @@ public class EventHubClient extends ClientEntity implements IEventHubClient {
     @Override
     public final CompletableFuture<PartitionSender> createPartitionSender(final String partitionId)
             throws EventHubException {
-        return PartitionSender.Create(this.underlyingFactory, this.eventHubName, partitionId);
+        return PartitionSender.Create(this.nextLinkFactory(), this.eventHubName, partitionId);
+    }
+
+    /**
+     * Synchronous version of {@link #createPartitionSender(String, SenderOptions)}.
+     *
+     * @param partitionId   partitionId of EventHub to send the {@link EventData}'s to
+     * @param senderOptions the set of options to enable on the event hubs sender
+     * @return PartitionSender which can be used to send events to a specific partition.
+     * @throws EventHubException if Service Bus service encountered problems during connection creation.
+     */
+    @Override
+    public final PartitionSender createPartitionSenderSync(final String partitionId, final SenderOptions senderOptions)
+            throws EventHubException, IllegalArgumentException {
+        try {
+            return this.createPartitionSender(partitionId, senderOptions).get();
+        } catch (InterruptedException | ExecutionException exception) {
+            if (exception instanceof InterruptedException) {
+                // Re-assert the thread's interrupted status
+                Thread.currentThread().interrupt();
+            }
+
+            Throwable throwable = exception.getCause();
+            if (throwable != null) {
+                if (throwable instanceof RuntimeException) {
+                    throw (RuntimeException) throwable;
+                }
+
+                if (throwable instanceof EventHubException) {
+                    throw (EventHubException) throwable;
+                }
+
+                throw new EventHubException(true, throwable);
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Create a {@link PartitionSender} which can publish {@link EventData}'s directly to a specific EventHub partition, with the given {@link SenderOptions}.
+     * <p>
+     * Use {@link SenderOptions#setPresettledSendEnabled(boolean)} to create a fire-and-forget sender for best-effort data.
+     *
+     * @param partitionId   partitionId of EventHub to send the {@link EventData}'s to
+     * @param senderOptions the set of options to enable on the event hubs sender
+     * @return a CompletableFuture that would result in a PartitionSender when it is completed.
+     * @throws EventHubException if Service Bus service encountered problems during connection creation.
+     * @see #createPartitionSender(String)
+     */
+    @Override
+    public final CompletableFuture<PartitionSender> createPartitionSender(final String partitionId, final SenderOptions senderOptions)
+            throws EventHubException {
+        return PartitionSender.Create(this.nextLinkFactory(), this.eventHubName, partitionId, senderOptions);
     }
 
     /**
@@ -782,7 +897,7 @@ public class EventHubClient extends ClientEntity implements IEventHubClient {
     @Override
     public final CompletableFuture<PartitionReceiver> createReceiver(final String consumerGroupName, final String partitionId, final String startingOffset, boolean offsetInclusive, final ReceiverOptions receiverOptions)
             throws EventHubException {
-        return PartitionReceiver.create(this.underlyingFactory, this.eventHubName, consumerGroupName, partitionId, startingOffset, offsetInclusive, null, PartitionReceiver.NULL_EPOCH, false, receiverOptions);
+        return PartitionReceiver.create(this.nextLinkFactory(), this.eventHubName, consumerGroupName, partitionId, startingOffset, offsetInclusive, null, PartitionReceiver.NULL_EPOCH, false, receiverOptions);
     }
 
     /**
@@ -838,7 +953,7 @@ public class EventHubClient extends ClientEntity implements IEventHubClient {
     @Override
     public final CompletableFuture<PartitionReceiver> createReceiver(final String consumerGroupName, final String partitionId, final Instant dateTime, final ReceiverOptions receiverOptions)
             throws EventHubException {
-        return PartitionReceiver.create(this.underlyingFactory, this.eventHubName, consumerGroupName, partitionId, null, false, dateTime, PartitionReceiver.NULL_EPOCH, false, receiverOptions);
+        return PartitionReceiver.create(this.nextLinkFactory(), this.eventHubName, consumerGroupName, partitionId, null, false, dateTime, PartitionReceiver.NULL_EPOCH, false, receiverOptions);
     }
 
     /**
@@ -1166,7 +1281,7 @@ public class EventHubClient extends ClientEntity implements IEventHubClient {
     @Override
     public final CompletableFuture<PartitionReceiver> createEpochReceiver(final String consumerGroupName, final String partitionId, final String startingOffset, boolean offsetInclusive, final long epoch, final ReceiverOptions receiverOptions)
             throws EventHubException {
-        return PartitionReceiver.create(this.underlyingFactory, this.eventHubName, consumerGroupName, partitionId, startingOffset, offsetInclusive, null, epoch, true, receiverOptions);
+        return PartitionReceiver.create(this.nextLinkFactory(), this.eventHubName, consumerGroupName, partitionId, startingOffset, offsetInclusive, null, epoch, true, receiverOptions);
     }
 
     /**
@@ -1232,7 +1347,7 @@ public class EventHubClient extends ClientEntity implements IEventHubClient {
     @Override
     public final CompletableFuture<PartitionReceiver> createEpochReceiver(final String consumerGroupName, final String partitionId, final Instant dateTime, final long epoch, final ReceiverOptions receiverOptions)
             throws EventHubException {
-        return PartitionReceiver.create(this.underlyingFactory, this.eventHubName, consumerGroupName, partitionId, null, false, dateTime, epoch, true, receiverOptions);
+        return PartitionReceiver.create(this.nextLinkFactory(), this.eventHubName, consumerGroupName, partitionId, null, false, dateTime, epoch, true, receiverOptions);
     }
 
     @Override
@@ -1243,10 +1358,10 @@ public class EventHubClient extends ClientEntity implements IEventHubClient {
                         ? this.sender.close().thenCompose(new Function<Void, CompletableFuture<Void>>() {
                     @Override
                     public CompletableFuture<Void> apply(Void voidArg) {
-                        return EventHubClient.this.underlyingFactory.close();
+                        return EventHubClient.this.closeUnderlyingFactory();
                     }
                 })
-                        : this.underlyingFactory.close();
+                        : this.closeUnderlyingFactory();
 
                 return internalSenderClose;
             }
@@ -1255,6 +1370,30 @@ public class EventHubClient extends ClientEntity implements IEventHubClient {
         return CompletableFuture.completedFuture(null);
     }
 
+    private CompletableFuture<Void> closeUnderlyingFactory() {
+        if (this.underlyingFactoryPool == null) {
+            return this.underlyingFactory.close();
+        }
+
+        // a pooled connection is only closed by its last user
+        @SuppressWarnings("unchecked")
+        final CompletableFuture<Void>[] releaseTasks = new CompletableFuture[this.linkFactories.length];
+        for (int index = 0; index < this.linkFactories.length; index++) {
+            releaseTasks[index] = this.underlyingFactoryPool.release(this.linkFactories[index]);
+        }
+
+        return CompletableFuture.allOf(releaseTasks);
+    }
+
+    // PartitionSenders and PartitionReceivers are spread round-robin across the (event-loop) connections leased by this client
+    private MessagingFactory nextLinkFactory() {
+        if (this.linkFactories.length == 1) {
+            return this.underlyingFactory;
+        }
+
+        return this.linkFactories[(this.nextLinkFactory.getAndIncrement() & Integer.MAX_VALUE) % this.linkFactories.length];
+    }
+
     private CompletableFuture<Void> createInternalSender() {
         if (!this.isSenderCreateStarted) {
             synchronized (this.senderCreateSync) {
@@ -1274,15 +1413,58 @@ public class EventHubClient extends ClientEntity implements IEventHubClient {
         return this.createSender;
     }
     
+    /**
+     * Sets how long the result of {@link #getRuntimeInformation()} is reused, instead of querying the service again.
+     * Partition count and ids rarely change - so, callers which ask often can cache them for tens of seconds.
+     * <p>
+     * The default is {@link Duration#ZERO}: every call, which doesn't overlap with an identical one in flight, queries the service.
+     *
+     * @param cacheDuration time to reuse a result for; {@link Duration#ZERO} to not cache
+     */
+    public void setRuntimeInformationCacheDuration(final Duration cacheDuration) {
+        if (cacheDuration == null || cacheDuration.isNegative()) {
+            throw new IllegalArgumentException("cacheDuration should be zero or positive");
+        }
+
+        this.runtimeInformationCache.setTimeToLive(cacheDuration);
+    }
+
+    /**
+     * Sets how long the result of {@link #getPartitionRuntimeInformation(String)} is reused, instead of querying the service again.
+     * The last enqueued sequence number, offset and time returned can then be stale by up to this long.
+     * <p>
+     * The default is {@link Duration#ZERO}: every call, which doesn't overlap with an identical one in flight, queries the service.
+     *
+     * @param cacheDuration time to reuse a result for; {@link Duration#ZERO} to not cache
+     */
+    public void setPartitionRuntimeInformationCacheDuration(final Duration cacheDuration) {
+        if (cacheDuration == null || cacheDuration.isNegative()) {
+            throw new IllegalArgumentException("cacheDuration should be zero or positive");
+        }
+
+        this.partitionRuntimeInformationCache.setTimeToLive(cacheDuration);
+    }
+
     /**
      * Retrieves general information about an event hub (see {@link EventHubRuntimeInformation} for details).
      * Retries until it reaches the operation timeout, then either rethrows the last error if available or
      * returns null to indicate timeout.
+     * <p>
+     * Concurrent calls share one request - and the result is cached, if enabled using {@link #setRuntimeInformationCacheDuration(Duration)}.
      * 
      * @return CompletableFuture which returns an EventHubRuntimeInformation on success, or null on timeout.  
      */
     @Override
     public CompletableFuture<EventHubRuntimeInformation> getRuntimeInformation() {
+        return this.runtimeInformationCache.get(this.eventHubName, new Supplier<CompletableFuture<EventHubRuntimeInformation>>() {
+            @Override
+            public CompletableFuture<EventHubRuntimeInformation> get() {
+                return EventHubClient.this.queryRuntimeInformation();
+            }
+        });
+    }
+
+    private CompletableFuture<EventHubRuntimeInformation> queryRuntimeInformation() {
     	CompletableFuture<EventHubRuntimeInformation> future1 = null;
     	
     	Map<String, String> request = new HashMap<String, String>();
@@ -1314,11 +1496,63 @@ public class EventHubClient extends ClientEntity implements IEventHubClient {
      * details. Retries until it reaches the operation timeout, then either rethrows the last error if available or
      * returns null to indicate timeout.
      * 
+     * <p>
+     * Concurrent calls for the same partition share one request - and the result is cached, if enabled using
+     * {@link #setPartitionRuntimeInformationCacheDuration(Duration)}.
+     * 
      * @param partitionId  Partition to get information about. Must be one of the partition ids returned by getRuntimeInformation.
      * @return CompletableFuture which returns an EventHubPartitionRuntimeInformation on success, or null on timeout.  
      */
     @Override
-    public CompletableFuture<EventHubPartitionRuntimeInformation> getPartitionRuntimeInformation(String partitionId) {
+    public CompletableFuture<EventHubPartitionRuntimeInformation> getPartitionRuntimeInformation(final String partitionId) {
+        return this.partitionRuntimeInformationCache.get(partitionId, new Supplier<CompletableFuture<EventHubPartitionRuntimeInformation>>() {
+            @Override
+            public CompletableFuture<EventHubPartitionRuntimeInformation> get() {
+                return EventHubClient.this.queryPartitionRuntimeInformation(partitionId);
+            }
+        });
+    }
+
+    /**
+     * Retrieves dynamic information about all partitions of an event hub. The partition requests are all sent at once - so, this
+     * takes about one round-trip to the service, instead of one per partition.
+     * 
+     * @return CompletableFuture which returns the EventHubPartitionRuntimeInformation of each partition, keyed by the partition id
+     * (in the order of {@link EventHubRuntimeInformation#getPartitionIds()}); partitions whose request timed out map to null.
+     * Returns null if the event hub information request timed out, and completes exceptionally if any of the requests failed.
+     */
+    @Override
+    public CompletableFuture<Map<String, EventHubPartitionRuntimeInformation>> getAllPartitionsRuntimeInformation() {
+        return this.getRuntimeInformation().thenCompose(new Function<EventHubRuntimeInformation, CompletableFuture<Map<String, EventHubPartitionRuntimeInformation>>>() {
+            @Override
+            public CompletableFuture<Map<String, EventHubPartitionRuntimeInformation>> apply(EventHubRuntimeInformation eventHubInfo) {
+                if (eventHubInfo == null) {
+                    return CompletableFuture.completedFuture(null);
+                }
+
+                final String[] partitionIds = eventHubInfo.getPartitionIds();
+                @SuppressWarnings("unchecked")
+                final CompletableFuture<EventHubPartitionRuntimeInformation>[] partitionInfos = new CompletableFuture[partitionIds.length];
+                for (int index = 0; index < partitionIds.length; index++) {
+                    partitionInfos[index] = EventHubClient.this.getPartitionRuntimeInformation(partitionIds[index]);
+                }
+
+                return CompletableFuture.allOf(partitionInfos).thenApply(new Function<Void, Map<String, EventHubPartitionRuntimeInformation>>() {
+                    @Override
+                    public Map<String, EventHubPartitionRuntimeInformation> apply(Void voidArg) {
+                        final Map<String, EventHubPartitionRuntimeInformation> result = new LinkedHashMap<>();
+                        for (int index = 0; index < partitionIds.length; index++) {
+                            result.put(partitionIds[index], partitionInfos[index].join());
+                        }
+
+                        return result;
+                    }
+                });
+            }
+        });
+    }
+
+    private CompletableFuture<EventHubPartitionRuntimeInformation> queryPartitionRuntimeInformation(final String partitionId) {
     	CompletableFuture<EventHubPartitionRuntimeInformation> future1 = null;
     	
     	Map<String, String> request = new HashMap<String, String>();
@@ -1353,7 +1587,7 @@ public class EventHubClient extends ClientEntity implements IEventHubClient {
     	CompletableFuture<T> retval = null;
         try {
         	String audience = String.format("amqp://%s/%s", this.underlyingFactory.getHostName(), this.eventHubName);
-        	String token = this.underlyingFactory.getTokenProvider().getToken(audience, ClientConstants.TOKEN_REFRESH_INTERVAL);
+        	String token = this.underlyingFactory.getTokenManager().getToken(audience);
 			request.put(ClientConstants.MANAGEMENT_SECURITY_TOKEN_KEY, token);
 		} 
         catch (InvalidKeyException | NoSuchAlgorithmException | IOException e) {
@@ -1367,8 +1601,9 @@ public class EventHubClient extends ClientEntity implements IEventHubClient {
         Instant endTime = Instant.now().plus(this.underlyingFactory.getOperationTimeout());
         CompletableFuture<Map<String, Object>> rawdataFuture = new CompletableFuture<Map<String, Object>>();
         
+        // the first attempt only queues the request on the reactor - no need for a hop through the Timer
         ManagementRetry retrier = new ManagementRetry(rawdataFuture, endTime, this.underlyingFactory, request);
-        Timer.schedule(retrier, Duration.ZERO, TimerType.OneTimeRun);
+        retrier.run();
         
         return rawdataFuture;
     }
@@ -1389,7 +1624,10 @@ public class EventHubClient extends ClientEntity implements IEventHubClient {
     	
 		@Override
 		public void run() {
-			CompletableFuture<Map<String, Object>> intermediateFuture = this.mf.getManagementChannel().request(this.mf.getReactorScheduler(), request);
+			// a lost response fails the attempt once the operation's remaining time is up, instead of leaving it pending
+			final Duration attemptTimeout = Duration.between(Instant.now(), this.endTime);
+			CompletableFuture<Map<String, Object>> intermediateFuture = this.mf.getManagementChannel().request(this.mf.getReactorScheduler(), request,
+					attemptTimeout.isNegative() ? Duration.ZERO : attemptTimeout);
 			intermediateFuture.whenComplete(new BiConsumer<Map<String, Object>, Throwable>() {
 				@Override
 				public void accept(Map<String, Object> result, Throwable error) {
@@ -1415,11 +1653,16 @@ public class EventHubClient extends ClientEntity implements IEventHubClient {
 							else {
 								lastException = (Exception)error;
 							}
+							
+							if (lastException instanceof TimeoutException) {
+								// out of time - reported as null, same as a timeout without an error
+								completeWith = null;
+							}
 						}
 						else {
 							lastException = new Exception("got a throwable: " + error.toString());
 						}
-						Duration waitTime = ManagementRetry.this.mf.getRetryPolicy().getNextRetryInterval(ManagementRetry.this.mf.getClientId(), lastException, remainingTime);
+						Duration waitTime = ManagementRetry.this.mf.getNextRetryInterval(ManagementRetry.this.mf.getClientId(), lastException, remainingTime);
 						if (waitTime == null) {
 							// Do not retry again, give up and report error.
 							if (completeWith == null) {
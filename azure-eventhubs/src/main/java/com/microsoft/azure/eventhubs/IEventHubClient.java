@@ -5,6 +5,7 @@
 package com.microsoft.azure.eventhubs;
 
 import java.time.Instant;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 
 public interface IEventHubClient {
@@ -34,6 +35,12 @@ public interface IEventHubClient {
     CompletableFuture<PartitionSender> createPartitionSender(String partitionId)
                     throws EventHubException;
 
+    PartitionSender createPartitionSenderSync(String partitionId, SenderOptions senderOptions)
+            throws EventHubException, IllegalArgumentException;
+
+    CompletableFuture<PartitionSender> createPartitionSender(String partitionId, SenderOptions senderOptions)
+                    throws EventHubException;
+
     PartitionReceiver createReceiverSync(String consumerGroupName, String partitionId, String startingOffset)
                             throws EventHubException;
 
@@ -111,4 +118,6 @@ public interface IEventHubClient {
     CompletableFuture<EventHubRuntimeInformation> getRuntimeInformation();
 
     CompletableFuture<EventHubPartitionRuntimeInformation> getPartitionRuntimeInformation(String partitionId);
+
+    CompletableFuture<Map<String, EventHubPartitionRuntimeInformation>> getAllPartitionsRuntimeInformation();
 }
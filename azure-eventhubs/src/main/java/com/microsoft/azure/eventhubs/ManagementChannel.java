@@ -4,6 +4,7 @@
  */
 package com.microsoft.azure.eventhubs;
 
+import java.time.Duration;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.logging.Logger;
@@ -42,6 +43,14 @@ public class ManagementChannel {
     }
 	
 	public CompletableFuture<Map<String, Object>> request(final ReactorDispatcher dispatcher, final Map<String, String> request)
+	{
+		return this.request(dispatcher, request, null);
+	}
+
+	/**
+	 * @param timeout the request fails with a {@link TimeoutException} if there is no response within this time; null for no timeout.
+	 */
+	public CompletableFuture<Map<String, Object>> request(final ReactorDispatcher dispatcher, final Map<String, String> request, final Duration timeout)
 	{
 		final Message requestMessage = Proton.message();
         final ApplicationProperties applicationProperties = new ApplicationProperties(request);
@@ -54,7 +63,7 @@ public class ManagementChannel {
                 new IOperationResult<RequestResponseChannel, Exception>() {
                     @Override
                     public void onComplete(final RequestResponseChannel result) {
-                        result.request(dispatcher, requestMessage,
+                        result.request(dispatcher, requestMessage, timeout,
                                 new IOperationResult<Message, Exception>() {
                                     @Override
                                     public void onComplete(final Message response) {
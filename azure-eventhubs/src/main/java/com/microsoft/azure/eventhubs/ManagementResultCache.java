@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+package com.microsoft.azure.eventhubs;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+
+/**
+ * Caches the results of $management queries for a time-to-live (if not zero) - and coalesces concurrent identical queries (single-flight):
+ * callers asking for a key, while a query for it is in flight, share that query's result instead of issuing their own.
+ * <p>
+ * Only successful results are cached. Failures and timeouts (null results) are handed to the callers waiting on that query
+ * and the next caller queries again.
+ */
+final class ManagementResultCache<T> {
+    private final ConcurrentHashMap<String, CachedResult<T>> results;
+    private volatile long timeToLiveNanos;
+
+    ManagementResultCache(final Duration timeToLive) {
+        this.results = new ConcurrentHashMap<>();
+        this.timeToLiveNanos = timeToLive.toNanos();
+    }
+
+    /**
+     * @param key identifies the query - callers with the same key share the result
+     * @param query issues the query - invoked only when there is no usable (in flight or unexpired) result for the key
+     * @return future of the cached, in flight or new query's result
+     */
+    CompletableFuture<T> get(final String key, final Supplier<CompletableFuture<T>> query) {
+        final CachedResult<T> cached = this.results.get(key);
+        if (cached != null && cached.isUsable(System.nanoTime())) {
+            return cached.result;
+        }
+
+        final CachedResult<T> newResult = new CachedResult<>();
+        final CachedResult<T> current = this.results.compute(key, new BiFunction<String, CachedResult<T>, CachedResult<T>>() {
+            @Override
+            public CachedResult<T> apply(String resultKey, CachedResult<T> existing) {
+                return existing != null && existing.isUsable(System.nanoTime()) ? existing : newResult;
+            }
+        });
+
+        if (current != newResult) {
+            return current.result;
+        }
+
+        CompletableFuture<T> queryFuture;
+        try {
+            queryFuture = query.get();
+        } catch (RuntimeException exception) {
+            queryFuture = new CompletableFuture<>();
+            queryFuture.completeExceptionally(exception);
+        }
+
+        queryFuture.whenComplete(new BiConsumer<T, Throwable>() {
+            @Override
+            public void accept(T result, Throwable error) {
+                if (error == null && result != null) {
+                    newResult.expiresAtNanos = System.nanoTime() + ManagementResultCache.this.timeToLiveNanos;
+                    newResult.isCached = true;
+                    newResult.result.complete(result);
+                } else {
+                    ManagementResultCache.this.results.remove(key, newResult);
+                    if (error != null) {
+                        newResult.result.completeExceptionally(error);
+                    } else {
+                        newResult.result.complete(null);
+                    }
+                }
+            }
+        });
+
+        return newResult.result;
+    }
+
+    /**
+     * drops the results cached so far - a zero time-to-live only coalesces concurrent queries
+     */
+    void setTimeToLive(final Duration timeToLive) {
+        this.timeToLiveNanos = timeToLive.toNanos();
+        this.clear();
+    }
+
+    void clear() {
+        this.results.clear();
+    }
+
+    private static final class CachedResult<T> {
+        final CompletableFuture<T> result = new CompletableFuture<>();
+
+        // set before the result is completed - failed & timed out results are never marked cached
+        volatile long expiresAtNanos;
+        volatile boolean isCached;
+
+        boolean isUsable(final long now) {
+            return !this.result.isDone() || (this.isCached && now - this.expiresAtNanos < 0);
+        }
+    }
+}
@@ -5,8 +5,6 @@
 package com.microsoft.azure.eventhubs;
 
 import java.io.IOException;
-import java.security.InvalidKeyException;
-import java.security.NoSuchAlgorithmException;
 import java.time.Duration;
 import java.time.ZonedDateTime;
 import java.util.Collection;
@@ -39,14 +37,22 @@ import org.apache.qpid.proton.message.Message;
 
 import com.microsoft.azure.eventhubs.amqp.DispatchHandler;
 import com.microsoft.azure.eventhubs.amqp.IAmqpReceiver;
+import com.microsoft.azure.eventhubs.amqp.IAmqpRecoverableLink;
 import com.microsoft.azure.eventhubs.amqp.IOperationResult;
 import com.microsoft.azure.eventhubs.amqp.ReceiveLinkHandler;
+import com.microsoft.azure.eventhubs.amqp.SessionPool;
+import com.microsoft.azure.eventhubs.metrics.EventHubMetrics;
+import com.microsoft.azure.eventhubs.metrics.ICounter;
+import com.microsoft.azure.eventhubs.metrics.IGauge;
+import com.microsoft.azure.eventhubs.metrics.IMetricsProvider;
+import com.microsoft.azure.eventhubs.metrics.MetricNames;
+import com.microsoft.azure.eventhubs.metrics.MetricTags;
 
 /**
  * Common Receiver that abstracts all amqp related details
  * translates event-driven reactor model into async receive Api
  */
-public final class MessageReceiver extends ClientEntity implements IAmqpReceiver, IErrorContextProvider {
+public final class MessageReceiver extends ClientEntity implements IAmqpReceiver, IAmqpRecoverableLink, IErrorContextProvider {
     private static final Logger TRACE_LOGGER = Logger.getLogger(ClientConstants.EVENTHUB_CLIENT_TRACE);
     private static final int MIN_TIMEOUT_DURATION_MILLIS = 20;
 
@@ -59,12 +65,14 @@ public final class MessageReceiver extends ClientEntity implements IAmqpReceiver
     private final Object prefetchCountSync;
     private final IReceiverSettingsProvider settingsProvider;
     private final String tokenAudience;
-    private final ActiveClientTokenManager activeClientTokenManager;
     private final WorkItem<MessageReceiver> linkOpen;
     private final ConcurrentLinkedQueue<Message> prefetchedMessages;
     private final ReceiveWork receiveWork;
     private final CreateAndReceive createAndReceive;
     private final Object errorConditionLock;
+    private final ICounter deliveriesMetric;
+    private final IGauge prefetchDepthMetric;
+    private final ICounter creditIssuedMetric;
 
     private int prefetchCount;
     private Receiver receiveLink;
@@ -98,6 +106,12 @@ public final class MessageReceiver extends ClientEntity implements IAmqpReceiver
         this.pendingReceives = new ConcurrentLinkedQueue<>();
         this.errorConditionLock = new Object();
 
+        final IMetricsProvider metrics = EventHubMetrics.getProvider();
+        final MetricTags metricTags = MetricTags.forEntityPath(recvPath);
+        this.deliveriesMetric = metrics.counter(MetricNames.RECEIVER_DELIVERIES, metricTags);
+        this.prefetchDepthMetric = metrics.gauge(MetricNames.RECEIVER_PREFETCH_DEPTH, metricTags);
+        this.creditIssuedMetric = metrics.counter(MetricNames.RECEIVER_CREDIT_ISSUED, metricTags);
+
         // onOperationTimeout delegate - per receive call
         this.onOperationTimedout = new Runnable() {
             public void run() {
@@ -122,45 +136,8 @@ public final class MessageReceiver extends ClientEntity implements IAmqpReceiver
 
         this.tokenAudience = String.format("amqp://%s/%s", underlyingFactory.getHostName(), receivePath);
 
-        this.activeClientTokenManager = new ActiveClientTokenManager(
-                this,
-                new Runnable() {
-                    @Override
-                    public void run() {
-                        try {
-                            underlyingFactory.getCBSChannel().sendToken(
-                                    underlyingFactory.getReactorScheduler(),
-                                    underlyingFactory.getTokenProvider().getToken(tokenAudience, ClientConstants.TOKEN_VALIDITY),
-                                    tokenAudience,
-                                    new IOperationResult<Void, Exception>() {
-                                        @Override
-                                        public void onComplete(Void result) {
-                                            if (TRACE_LOGGER.isLoggable(Level.FINE)) {
-                                                TRACE_LOGGER.log(Level.FINE,
-                                                        String.format(Locale.US,
-                                                                "path[%s], linkName[%s] - token renewed", receivePath, receiveLink.getName()));
-                                            }
-                                        }
-
-                                        @Override
-                                        public void onError(Exception error) {
-                                            if (TRACE_LOGGER.isLoggable(Level.WARNING)) {
-                                                TRACE_LOGGER.log(Level.WARNING,
-                                                        String.format(Locale.US,
-                                                                "path[%s], linkName[%s], tokenRenewalFailure[%s]", receivePath, receiveLink.getName(), error.getMessage()));
-                                            }
-                                        }
-                                    });
-                        } catch (IOException | NoSuchAlgorithmException | InvalidKeyException | RuntimeException exception) {
-                            if (TRACE_LOGGER.isLoggable(Level.WARNING)) {
-                                TRACE_LOGGER.log(Level.WARNING,
-                                        String.format(Locale.US,
-                                                "path[%s], linkName[%s], tokenRenewalScheduleFailure[%s]", receivePath, receiveLink.getName(), exception.getMessage()));
-                            }
-                        }
-                    }
-                },
-                ClientConstants.TOKEN_REFRESH_INTERVAL);
+        // token renewals are batched per connection - see ConnectionTokenManager
+        this.underlyingFactory.getTokenManager().register(this.tokenAudience);
     }
 
     // @param connection Connection on which the MessageReceiver's receive Amqp link need to be created on.
@@ -331,6 +308,8 @@ public final class MessageReceiver extends ClientEntity implements IAmqpReceiver
         delivery.settle();
 
         this.prefetchedMessages.add(message);
+        this.deliveriesMetric.increment(1);
+        this.prefetchDepthMetric.add(1);
         this.underlyingFactory.getRetryPolicy().resetRetryCount(this.getClientId());
 
         this.receiveWork.onEvent();
@@ -338,6 +317,7 @@ public final class MessageReceiver extends ClientEntity implements IAmqpReceiver
 
     @Override
     public void onError(final Exception exception) {
+        this.prefetchDepthMetric.add(-this.prefetchedMessages.size());
         this.prefetchedMessages.clear();
         this.underlyingFactory.deregisterForConnectionError(this.receiveLink);
 
@@ -370,7 +350,7 @@ public final class MessageReceiver extends ClientEntity implements IAmqpReceiver
 
             final WorkItem<Collection<Message>> workItem = this.pendingReceives.peek();
             final Duration nextRetryInterval = workItem != null && workItem.getTimeoutTracker() != null
-                    ? this.underlyingFactory.getRetryPolicy().getNextRetryInterval(this.getClientId(), completionException, workItem.getTimeoutTracker().remaining())
+                    ? this.underlyingFactory.getNextRetryInterval(this.getClientId(), completionException, workItem.getTimeoutTracker().remaining())
                     : null;
 
             boolean recreateScheduled = true;
@@ -401,6 +381,15 @@ public final class MessageReceiver extends ClientEntity implements IAmqpReceiver
         }
     }
 
+    @Override
+    public void onConnectionRecovered() {
+        // not a retry of a failed operation - so, the retry count is left untouched
+        if (!this.getIsClosingOrClosed()
+                && (this.receiveLink.getLocalState() == EndpointState.CLOSED || this.receiveLink.getRemoteState() == EndpointState.CLOSED)) {
+            this.createReceiveLink();
+        }
+    }
+
     private void scheduleOperationTimer(final TimeoutTracker tracker) {
         if (tracker != null) {
             Timer.schedule(this.onOperationTimedout, tracker.remaining(), TimerType.OneTimeRun);
@@ -419,7 +408,7 @@ public final class MessageReceiver extends ClientEntity implements IAmqpReceiver
                 // if the MessageReceiver is closed - we no-longer need to create the link
                 if (MessageReceiver.this.getIsClosingOrClosed()) {
 
-                    session.close();
+                    SessionPool.releaseSession(session);
                     return;
                 }
 
@@ -471,31 +460,26 @@ public final class MessageReceiver extends ClientEntity implements IAmqpReceiver
             }
         };
 
-        try {
-            this.underlyingFactory.getCBSChannel().sendToken(
-                    this.underlyingFactory.getReactorScheduler(),
-                    this.underlyingFactory.getTokenProvider().getToken(tokenAudience, ClientConstants.TOKEN_VALIDITY),
-                    tokenAudience,
-                    new IOperationResult<Void, Exception>() {
-                        @Override
-                        public void onComplete(Void result) {
-                            if (MessageReceiver.this.getIsClosingOrClosed())
-                                return;
-
-                            underlyingFactory.getSession(
-                                    receivePath,
-                                    onSessionOpen,
-                                    onSessionOpenFailed);
-                        }
+        // skips the put-token round-trip if a valid token for the audience is already in place on the connection
+        this.underlyingFactory.getTokenManager().ensureTokenPut(
+                tokenAudience,
+                new IOperationResult<Void, Exception>() {
+                    @Override
+                    public void onComplete(Void result) {
+                        if (MessageReceiver.this.getIsClosingOrClosed())
+                            return;
+
+                        underlyingFactory.getLinkSession(
+                                receivePath,
+                                onSessionOpen,
+                                onSessionOpenFailed);
+                    }
 
-                        @Override
-                        public void onError(Exception error) {
-                            MessageReceiver.this.onError(error);
-                        }
-                    });
-        } catch (IOException | NoSuchAlgorithmException | InvalidKeyException | RuntimeException exception) {
-            MessageReceiver.this.onError(exception);
-        }
+                    @Override
+                    public void onError(Exception error) {
+                        MessageReceiver.this.onError(error);
+                    }
+                });
     }
 
     // CONTRACT: message should be delivered to the caller of MessageReceiver.receive() only via Poll on prefetchqueue
@@ -504,6 +488,7 @@ public final class MessageReceiver extends ClientEntity implements IAmqpReceiver
         if (message != null) {
             // message lastReceivedOffset should be up-to-date upon each poll - as recreateLink will depend on this
             this.lastReceivedMessage = message;
+            this.prefetchDepthMetric.add(-1);
             this.sendFlow(1);
         }
 
@@ -517,6 +502,7 @@ public final class MessageReceiver extends ClientEntity implements IAmqpReceiver
             final int tempFlow = this.nextCreditToFlow;
             this.receiveLink.flow(tempFlow);
             this.nextCreditToFlow = 0;
+            this.creditIssuedMetric.increment(tempFlow);
 
             if (TRACE_LOGGER.isLoggable(Level.FINE)) {
                 TRACE_LOGGER.log(Level.FINE, String.format("receiverPath[%s], linkname[%s], updated-link-credit[%s], sentCredits[%s], ThreadId[%s]",
@@ -623,7 +609,7 @@ public final class MessageReceiver extends ClientEntity implements IAmqpReceiver
     protected CompletableFuture<Void> onClose() {
         if (!this.getIsClosed()) {
             try {
-                this.activeClientTokenManager.cancel();
+                this.underlyingFactory.getTokenManager().unregister(this.tokenAudience);
                 scheduleLinkCloseTimeout(TimeoutTracker.create(operationTimeout));
 
                 this.underlyingFactory.scheduleOnReactorThread(new DispatchHandler() {
@@ -6,8 +6,6 @@ package com.microsoft.azure.eventhubs;
 
 import java.io.IOException;
 import java.nio.BufferOverflowException;
-import java.security.InvalidKeyException;
-import java.security.NoSuchAlgorithmException;
 import java.time.Duration;
 import java.time.Instant;
 import java.time.ZonedDateTime;
@@ -24,6 +22,7 @@ import java.util.PriorityQueue;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -50,15 +49,24 @@ import org.apache.qpid.proton.message.Message;
 import com.microsoft.azure.eventhubs.amqp.AmqpConstants;
 import com.microsoft.azure.eventhubs.amqp.AmqpUtil;
 import com.microsoft.azure.eventhubs.amqp.DispatchHandler;
+import com.microsoft.azure.eventhubs.amqp.IAmqpRecoverableLink;
 import com.microsoft.azure.eventhubs.amqp.IAmqpSender;
 import com.microsoft.azure.eventhubs.amqp.IOperationResult;
 import com.microsoft.azure.eventhubs.amqp.SendLinkHandler;
+import com.microsoft.azure.eventhubs.amqp.SessionPool;
+import com.microsoft.azure.eventhubs.metrics.EventHubMetrics;
+import com.microsoft.azure.eventhubs.metrics.ICounter;
+import com.microsoft.azure.eventhubs.metrics.IGauge;
+import com.microsoft.azure.eventhubs.metrics.IHistogram;
+import com.microsoft.azure.eventhubs.metrics.IMetricsProvider;
+import com.microsoft.azure.eventhubs.metrics.MetricNames;
+import com.microsoft.azure.eventhubs.metrics.MetricTags;
 
 /**
  * Abstracts all amqp related details
  * translates event-driven reactor model into async send Api
  */
-public class MessageSender extends ClientEntity implements IAmqpSender, IErrorContextProvider {
+public class MessageSender extends ClientEntity implements IAmqpSender, IAmqpRecoverableLink, IErrorContextProvider {
     private static final Logger TRACE_LOGGER = Logger.getLogger(ClientConstants.EVENTHUB_CLIENT_TRACE);
     private static final String SEND_TIMED_OUT = "Send operation timed out";
 
@@ -71,9 +79,17 @@ public class MessageSender extends ClientEntity implements IAmqpSender, IErrorCo
     private final ConcurrentHashMap<String, ReplayableWorkItem<Void>> pendingSendsData;
     private final PriorityQueue<WeightedDeliveryTag> pendingSends;
     private final DispatchHandler sendWork;
-    private final ActiveClientTokenManager activeClientTokenManager;
     private final String tokenAudience;
     private final Object errorConditionLock;
+    private final SenderSettleMode settleMode;
+    private final SendRateLimiter sendRateLimiter;
+    private final ICounter sendsMetric;
+    private final ICounter sentBytesMetric;
+    private final ICounter acksMetric;
+    private final ICounter rejectsMetric;
+    private final ICounter retriesMetric;
+    private final IGauge inFlightSendsMetric;
+    private final IHistogram ackLatencyMetric;
 
     private volatile int maxMessageSize;
 
@@ -86,12 +102,21 @@ public class MessageSender extends ClientEntity implements IAmqpSender, IErrorCo
     private boolean creatingLink;
     private ScheduledFuture closeTimer;
     private ScheduledFuture openTimer;
+    private boolean isSendWorkDelayed;
 
     public static CompletableFuture<MessageSender> create(
             final MessagingFactory factory,
             final String sendLinkName,
             final String senderPath) {
-        final MessageSender msgSender = new MessageSender(factory, sendLinkName, senderPath);
+        return create(factory, sendLinkName, senderPath, SenderSettleMode.UNSETTLED);
+    }
+
+    public static CompletableFuture<MessageSender> create(
+            final MessagingFactory factory,
+            final String sendLinkName,
+            final String senderPath,
+            final SenderSettleMode settleMode) {
+        final MessageSender msgSender = new MessageSender(factory, sendLinkName, senderPath, settleMode);
         msgSender.openLinkTracker = TimeoutTracker.create(factory.getOperationTimeout());
         msgSender.initializeLinkOpen(msgSender.openLinkTracker);
 
@@ -109,10 +134,11 @@ public class MessageSender extends ClientEntity implements IAmqpSender, IErrorCo
         return msgSender.linkFirstOpen;
     }
 
-    private MessageSender(final MessagingFactory factory, final String sendLinkName, final String senderPath) {
+    private MessageSender(final MessagingFactory factory, final String sendLinkName, final String senderPath, final SenderSettleMode settleMode) {
         super(sendLinkName, factory);
 
         this.sendPath = senderPath;
+        this.settleMode = settleMode;
         this.underlyingFactory = factory;
         this.operationTimeout = factory.getOperationTimeout();
 
@@ -120,8 +146,19 @@ public class MessageSender extends ClientEntity implements IAmqpSender, IErrorCo
         this.lastKnownErrorReportedAt = Instant.EPOCH;
 
         this.retryPolicy = factory.getRetryPolicy();
+        this.sendRateLimiter = factory.getSendRateLimiter(senderPath);
         this.maxMessageSize = ClientConstants.MAX_MESSAGE_LENGTH_BYTES;
 
+        final IMetricsProvider metrics = EventHubMetrics.getProvider();
+        final MetricTags metricTags = MetricTags.forEntityPath(senderPath);
+        this.sendsMetric = metrics.counter(MetricNames.SENDER_SENDS, metricTags);
+        this.sentBytesMetric = metrics.counter(MetricNames.SENDER_BYTES, metricTags);
+        this.acksMetric = metrics.counter(MetricNames.SENDER_ACKS, metricTags);
+        this.rejectsMetric = metrics.counter(MetricNames.SENDER_REJECTS, metricTags);
+        this.retriesMetric = metrics.counter(MetricNames.SENDER_RETRIES, metricTags);
+        this.inFlightSendsMetric = metrics.gauge(MetricNames.SENDER_IN_FLIGHT, metricTags);
+        this.ackLatencyMetric = metrics.histogram(MetricNames.SENDER_ACK_LATENCY, metricTags);
+
         this.errorConditionLock = new Object();
 
         this.pendingSendLock = new Object();
@@ -139,45 +176,8 @@ public class MessageSender extends ClientEntity implements IAmqpSender, IErrorCo
         };
 
         this.tokenAudience = String.format(ClientConstants.TOKEN_AUDIENCE_FORMAT, underlyingFactory.getHostName(), sendPath);
-        this.activeClientTokenManager = new ActiveClientTokenManager(
-                this,
-                new Runnable() {
-                    @Override
-                    public void run() {
-                        try {
-                            underlyingFactory.getCBSChannel().sendToken(
-                                    underlyingFactory.getReactorScheduler(),
-                                    underlyingFactory.getTokenProvider().getToken(tokenAudience, ClientConstants.TOKEN_VALIDITY),
-                                    tokenAudience,
-                                    new IOperationResult<Void, Exception>() {
-                                        @Override
-                                        public void onComplete(Void result) {
-                                            if (TRACE_LOGGER.isLoggable(Level.FINE)) {
-                                                TRACE_LOGGER.log(Level.FINE,
-                                                        String.format(Locale.US,
-                                                                "path[%s], linkName[%s] - token renewed", sendPath, sendLink.getName()));
-                                            }
-                                        }
-
-                                        @Override
-                                        public void onError(Exception error) {
-                                            if (TRACE_LOGGER.isLoggable(Level.WARNING)) {
-                                                TRACE_LOGGER.log(Level.WARNING,
-                                                        String.format(Locale.US,
-                                                                "path[%s], linkName[%s] - tokenRenewalFailure[%s]", sendPath, sendLink.getName(), error.getMessage()));
-                                            }
-                                        }
-                                    });
-                        } catch (IOException | NoSuchAlgorithmException | InvalidKeyException | RuntimeException exception) {
-                            if (TRACE_LOGGER.isLoggable(Level.WARNING)) {
-                                TRACE_LOGGER.log(Level.WARNING,
-                                        String.format(Locale.US,
-                                                "path[%s], linkName[%s] - tokenRenewalScheduleFailure[%s]", sendPath, sendLink.getName(), exception.getMessage()));
-                            }
-                        }
-                    }
-                },
-                ClientConstants.TOKEN_REFRESH_INTERVAL);
+        // token renewals are batched per connection - see ConnectionTokenManager
+        this.underlyingFactory.getTokenManager().register(this.tokenAudience);
     }
 
     public String getSendPath() {
@@ -199,6 +199,12 @@ public class MessageSender extends ClientEntity implements IAmqpSender, IErrorCo
         this.throwIfClosed();
 
         final boolean isRetrySend = (onSend != null);
+        if (isRetrySend) {
+            this.retriesMetric.increment(1);
+        } else {
+            this.sendsMetric.increment(1);
+            this.sentBytesMetric.increment(arrayOffset);
+        }
 
         final CompletableFuture<Void> onSendFuture = (onSend == null) ? new CompletableFuture<>() : onSend;
 
@@ -207,7 +213,7 @@ public class MessageSender extends ClientEntity implements IAmqpSender, IErrorCo
                 new ReplayableWorkItem<>(bytes, arrayOffset, messageFormat, onSendFuture, tracker);
 
         final TimeoutTracker currentSendTracker = sendWaiterData.getTimeoutTracker();
-        final String deliveryTag = UUID.randomUUID().toString().replace("-", StringUtil.EMPTY) + "_" + currentSendTracker.elapsed().getSeconds();
+        final String deliveryTag = createDeliveryTag(currentSendTracker);
 
         if (lastKnownError != null) {
             sendWaiterData.setLastKnownException(lastKnownError);
@@ -224,6 +230,7 @@ public class MessageSender extends ClientEntity implements IAmqpSender, IErrorCo
 
         synchronized (this.pendingSendLock) {
             this.pendingSendsData.put(deliveryTag, sendWaiterData);
+            this.inFlightSendsMetric.add(1);
             this.pendingSends.offer(new WeightedDeliveryTag(deliveryTag, isRetrySend ? 1 : 0));
         }
 
@@ -237,6 +244,10 @@ public class MessageSender extends ClientEntity implements IAmqpSender, IErrorCo
         return onSendFuture;
     }
 
+    static String createDeliveryTag(final TimeoutTracker sendTracker) {
+        return UUID.randomUUID().toString().replace("-", StringUtil.EMPTY) + "_" + sendTracker.elapsed().getSeconds();
+    }
+
     private CompletableFuture<Void> send(
             final byte[] bytes,
             final int arrayOffset,
@@ -251,19 +262,41 @@ public class MessageSender extends ClientEntity implements IAmqpSender, IErrorCo
             throw new IllegalArgumentException("Sending Empty batch of messages is not allowed.");
         }
 
-        final Message firstMessage = messages.iterator().next();
         if (IteratorUtil.sizeEquals(messages, 1)) {
-            return this.send(firstMessage);
+            return this.send(messages.iterator().next());
         }
 
+        final int maxMessageSizeTemp = this.maxMessageSize;
+
+        final byte[] bytes = new byte[maxMessageSizeTemp];
+        final int encodedSize;
+        try {
+            encodedSize = encodeBatch(messages, bytes);
+        } catch (BufferOverflowException exception) {
+            final CompletableFuture<Void> sendTask = new CompletableFuture<>();
+            sendTask.completeExceptionally(new PayloadSizeExceededException(String.format("Size of the payload exceeded Maximum message size: %s kb", maxMessageSizeTemp / 1024), exception));
+            return sendTask;
+        }
+
+        return this.send(bytes, encodedSize, AmqpConstants.AMQP_BATCH_MESSAGE_FORMAT);
+    }
+
+    /**
+     * Encodes the messages as one batch message - the message annotations of the first message, followed by a data section per message.
+     *
+     * @param messages messages of the batch
+     * @param bytes    buffer to encode into - its length is the max message size
+     * @return number of bytes encoded
+     * @throws BufferOverflowException if the batch doesn't fit in the buffer
+     */
+    static int encodeBatch(final Iterable<Message> messages, final byte[] bytes) {
+        final int maxMessageSizeTemp = bytes.length;
+
         // proton-j doesn't support multiple dataSections to be part of AmqpMessage
         // here's the alternate approach provided by them: https://github.com/apache/qpid-proton/pull/54
         final Message batchMessage = Proton.message();
-        batchMessage.setMessageAnnotations(firstMessage.getMessageAnnotations());
-
-        final int maxMessageSizeTemp = this.maxMessageSize;
+        batchMessage.setMessageAnnotations(messages.iterator().next().getMessageAnnotations());
 
-        final byte[] bytes = new byte[maxMessageSizeTemp];
         int encodedSize = batchMessage.encode(bytes, 0, maxMessageSizeTemp);
         int byteArrayOffset = encodedSize;
 
@@ -277,18 +310,11 @@ public class MessageSender extends ClientEntity implements IAmqpSender, IErrorCo
             int messageSizeBytes = amqpMessage.encode(messageBytes, 0, allocationSize);
             messageWrappedByData.setBody(new Data(new Binary(messageBytes, 0, messageSizeBytes)));
 
-            try {
-                encodedSize = messageWrappedByData.encode(bytes, byteArrayOffset, maxMessageSizeTemp - byteArrayOffset - 1);
-            } catch (BufferOverflowException exception) {
-                final CompletableFuture<Void> sendTask = new CompletableFuture<>();
-                sendTask.completeExceptionally(new PayloadSizeExceededException(String.format("Size of the payload exceeded Maximum message size: %s kb", maxMessageSizeTemp / 1024), exception));
-                return sendTask;
-            }
-
+            encodedSize = messageWrappedByData.encode(bytes, byteArrayOffset, maxMessageSizeTemp - byteArrayOffset - 1);
             byteArrayOffset = byteArrayOffset + encodedSize;
         }
 
-        return this.send(bytes, byteArrayOffset, AmqpConstants.AMQP_BATCH_MESSAGE_FORMAT);
+        return byteArrayOffset;
     }
 
     public CompletableFuture<Void> send(Message msg) {
@@ -388,6 +414,7 @@ public class MessageSender extends ClientEntity implements IAmqpSender, IErrorCo
                             this);
                 }
 
+                this.inFlightSendsMetric.add(-this.pendingSendsData.size());
                 this.pendingSendsData.clear();
                 this.pendingSends.clear();
             }
@@ -410,7 +437,7 @@ public class MessageSender extends ClientEntity implements IAmqpSender, IErrorCo
             if (pendingSendEntry != null && pendingSendEntry.getValue() != null) {
                 final TimeoutTracker tracker = pendingSendEntry.getValue().getTimeoutTracker();
                 if (tracker != null) {
-                    final Duration nextRetryInterval = this.retryPolicy.getNextRetryInterval(this.getClientId(), finalCompletionException, tracker.remaining());
+                    final Duration nextRetryInterval = this.underlyingFactory.getNextRetryInterval(this.getClientId(), finalCompletionException, tracker.remaining());
                     boolean scheduledRecreate = true;
 
                     if (nextRetryInterval != null) {
@@ -435,6 +462,7 @@ public class MessageSender extends ClientEntity implements IAmqpSender, IErrorCo
                                 this.cleanupFailedSend(pendingSend.getValue(), finalCompletionException);
                             }
 
+                            this.inFlightSendsMetric.add(-this.pendingSendsData.size());
                             this.pendingSendsData.clear();
                             this.pendingSends.clear();
                         }
@@ -444,6 +472,15 @@ public class MessageSender extends ClientEntity implements IAmqpSender, IErrorCo
         }
     }
 
+    @Override
+    public void onConnectionRecovered() {
+        // not a retry of a failed operation - so, the retry count is left untouched
+        if (!this.getIsClosingOrClosed()
+                && (this.sendLink.getLocalState() == EndpointState.CLOSED || this.sendLink.getRemoteState() == EndpointState.CLOSED)) {
+            this.createSendLink();
+        }
+    }
+
     @Override
     public void onSendComplete(final Delivery delivery) {
         final DeliveryState outcome = delivery.getRemoteState();
@@ -453,7 +490,7 @@ public class MessageSender extends ClientEntity implements IAmqpSender, IErrorCo
             TRACE_LOGGER.log(Level.FINEST,
                     String.format(Locale.US, "path[%s], linkName[%s], deliveryTag[%s]", MessageSender.this.sendPath, this.sendLink.getName(), deliveryTag));
 
-        final ReplayableWorkItem<Void> pendingSendWorkItem = this.pendingSendsData.remove(deliveryTag);
+        final ReplayableWorkItem<Void> pendingSendWorkItem = this.removePendingSend(deliveryTag);
 
         if (pendingSendWorkItem != null) {
             if (outcome instanceof Accepted) {
@@ -462,14 +499,21 @@ public class MessageSender extends ClientEntity implements IAmqpSender, IErrorCo
                 }
 
                 this.retryPolicy.resetRetryCount(this.getClientId());
+                this.sendRateLimiter.onAccepted(pendingSendWorkItem.getEncodedMessageSize());
+                this.acksMetric.increment(1);
+                this.ackLatencyMetric.record(TimeUnit.NANOSECONDS.toMicros(pendingSendWorkItem.getTimeoutTracker().elapsed().toNanos()));
 
                 pendingSendWorkItem.getTimeoutTask().cancel(false);
                 pendingSendWorkItem.getWork().complete(null);
             } else if (outcome instanceof Rejected) {
+                this.rejectsMetric.increment(1);
                 final Rejected rejected = (Rejected) outcome;
                 final ErrorCondition error = rejected.getError();
 
                 final Exception exception = ExceptionUtil.toException(error);
+                if (exception instanceof ServerBusyException || exception instanceof QuotaExceededException) {
+                    this.sendRateLimiter.onThrottled();
+                }
 
                 if (ExceptionUtil.isGeneralSendError(error.getCondition())) {
                     synchronized (this.errorConditionLock) {
@@ -478,7 +522,7 @@ public class MessageSender extends ClientEntity implements IAmqpSender, IErrorCo
                     }
                 }
 
-                final Duration retryInterval = this.retryPolicy.getNextRetryInterval(
+                final Duration retryInterval = this.underlyingFactory.getNextRetryInterval(
                         this.getClientId(), exception, pendingSendWorkItem.getTimeoutTracker().remaining());
                 if (retryInterval == null) {
                     this.cleanupFailedSend(pendingSendWorkItem, exception);
@@ -536,7 +580,7 @@ public class MessageSender extends ClientEntity implements IAmqpSender, IErrorCo
             public void accept(Session session) {
                 if (MessageSender.this.getIsClosingOrClosed()) {
 
-                    session.close();
+                    SessionPool.releaseSession(session);
                     return;
                 }
 
@@ -548,7 +592,7 @@ public class MessageSender extends ClientEntity implements IAmqpSender, IErrorCo
                 final Source source = new Source();
                 sender.setSource(source);
 
-                sender.setSenderSettleMode(SenderSettleMode.UNSETTLED);
+                sender.setSenderSettleMode(MessageSender.this.settleMode);
 
                 final SendLinkHandler handler = new SendLinkHandler(MessageSender.this);
                 BaseHandler.setHandler(sender, handler);
@@ -572,31 +616,26 @@ public class MessageSender extends ClientEntity implements IAmqpSender, IErrorCo
             }
         };
 
-        try {
-            this.underlyingFactory.getCBSChannel().sendToken(
-                    this.underlyingFactory.getReactorScheduler(),
-                    this.underlyingFactory.getTokenProvider().getToken(tokenAudience, ClientConstants.TOKEN_VALIDITY),
-                    tokenAudience,
-                    new IOperationResult<Void, Exception>() {
-                        @Override
-                        public void onComplete(Void result) {
-                            if (MessageSender.this.getIsClosingOrClosed())
-                                return;
-
-                            underlyingFactory.getSession(
-                                    sendPath,
-                                    onSessionOpen,
-                                    onSessionOpenError);
-                        }
+        // skips the put-token round-trip if a valid token for the audience is already in place on the connection
+        this.underlyingFactory.getTokenManager().ensureTokenPut(
+                tokenAudience,
+                new IOperationResult<Void, Exception>() {
+                    @Override
+                    public void onComplete(Void result) {
+                        if (MessageSender.this.getIsClosingOrClosed())
+                            return;
+
+                        underlyingFactory.getLinkSession(
+                                sendPath,
+                                onSessionOpen,
+                                onSessionOpenError);
+                    }
 
-                        @Override
-                        public void onError(Exception error) {
-                            MessageSender.this.onError(error);
-                        }
-                    });
-        } catch (IOException | NoSuchAlgorithmException | InvalidKeyException | RuntimeException exception) {
-            MessageSender.this.onError(exception);
-        }
+                    @Override
+                    public void onError(Exception error) {
+                        MessageSender.this.onError(error);
+                    }
+                });
     }
 
     // TODO: consolidate common-code written for timeouts in Sender/Receiver
@@ -674,6 +713,29 @@ public class MessageSender extends ClientEntity implements IAmqpSender, IErrorCo
         this.sendWork.onEvent();
     }
 
+    private void scheduleDelayedSendWork(final long delayNanos) {
+        if (this.isSendWorkDelayed) {
+            return;
+        }
+
+        this.isSendWorkDelayed = true;
+        try {
+            this.underlyingFactory.scheduleOnReactorThread((int) Math.max(1, TimeUnit.NANOSECONDS.toMillis(delayNanos)), new DispatchHandler() {
+                @Override
+                public void onEvent() {
+                    MessageSender.this.isSendWorkDelayed = false;
+                    MessageSender.this.processSendWork();
+                }
+            });
+        } catch (IOException ioException) {
+            this.isSendWorkDelayed = false;
+            if (TRACE_LOGGER.isLoggable(Level.WARNING)) {
+                TRACE_LOGGER.log(Level.WARNING, String.format(Locale.US, "path[%s], linkName[%s] - scheduling paced sends failed: %s",
+                        this.sendPath, this.sendLink.getName(), ioException.getMessage()));
+            }
+        }
+    }
+
     private void recreateSendLink() {
         this.createSendLink();
         this.retryPolicy.incrementRetryCount(this.getClientId());
@@ -708,10 +770,21 @@ public class MessageSender extends ClientEntity implements IAmqpSender, IErrorCo
                 if (sendData.getWork() != null && sendData.getWork().isDone()) {
                     // CoreSend could enque Sends into PendingSends Queue and can fail the SendCompletableFuture
                     // (when It fails to schedule the ProcessSendWork on reactor Thread)
-                    this.pendingSendsData.remove(deliveryTag);
+                    this.removePendingSend(deliveryTag);
                     continue;
                 }
 
+                // paced by the rate learnt from throttling - the send stays queued till it fits under the limit
+                final long sendDelayNanos = this.sendRateLimiter.tryAcquire(sendData.getEncodedMessageSize());
+                if (sendDelayNanos > 0) {
+                    synchronized (this.pendingSendLock) {
+                        this.pendingSends.offer(weightedDelivery);
+                    }
+
+                    this.scheduleDelayedSendWork(sendDelayNanos);
+                    break;
+                }
+
                 Delivery delivery = null;
                 boolean linkAdvance = false;
                 int sentMsgSize = 0;
@@ -731,7 +804,19 @@ public class MessageSender extends ClientEntity implements IAmqpSender, IErrorCo
 
                 if (linkAdvance) {
                     this.linkCredit--;
-                    sendData.setWaitingForAck();
+
+                    if (this.settleMode == SenderSettleMode.SETTLED) {
+                        // pre-settled transfers never get a disposition from the service -
+                        // so, release the payload & complete the send as soon as it is handed over to the transport
+                        delivery.settle();
+                        this.removePendingSend(deliveryTag);
+                        if (sendData.getTimeoutTask() != null)
+                            sendData.getTimeoutTask().cancel(false);
+
+                        sendData.getWork().complete(null);
+                    } else {
+                        sendData.setWaitingForAck();
+                    }
                 } else {
                     if (TRACE_LOGGER.isLoggable(Level.FINE)) {
                         TRACE_LOGGER.log(Level.FINE,
@@ -762,6 +847,15 @@ public class MessageSender extends ClientEntity implements IAmqpSender, IErrorCo
         }
     }
 
+    private ReplayableWorkItem<Void> removePendingSend(final String deliveryTag) {
+        final ReplayableWorkItem<Void> pendingSend = this.pendingSendsData.remove(deliveryTag);
+        if (pendingSend != null) {
+            this.inFlightSendsMetric.add(-1);
+        }
+
+        return pendingSend;
+    }
+
     private void throwSenderTimeout(final CompletableFuture<Void> pendingSendWork, final Exception lastKnownException) {
 
         Exception cause = lastKnownException;
@@ -821,7 +915,7 @@ public class MessageSender extends ClientEntity implements IAmqpSender, IErrorCo
     protected CompletableFuture<Void> onClose() {
         if (!this.getIsClosed()) {
             try {
-                this.activeClientTokenManager.cancel();
+                this.underlyingFactory.getTokenManager().unregister(this.tokenAudience);
                 scheduleLinkCloseTimeout(TimeoutTracker.create(operationTimeout));
                 this.underlyingFactory.scheduleOnReactorThread(new DispatchHandler() {
                     @Override
@@ -852,7 +946,7 @@ public class MessageSender extends ClientEntity implements IAmqpSender, IErrorCo
         }
     }
 
-    private static class WeightedDeliveryTag {
+    static class WeightedDeliveryTag {
         private final String deliveryTag;
         private final int priority;
 
@@ -870,7 +964,7 @@ public class MessageSender extends ClientEntity implements IAmqpSender, IErrorCo
         }
     }
 
-    private static class DeliveryTagComparator implements Comparator<WeightedDeliveryTag> {
+    static class DeliveryTagComparator implements Comparator<WeightedDeliveryTag> {
         @Override
         public int compare(WeightedDeliveryTag deliveryTag0, WeightedDeliveryTag deliveryTag1) {
             return deliveryTag1.getPriority() - deliveryTag0.getPriority();
@@ -891,7 +985,7 @@ public class MessageSender extends ClientEntity implements IAmqpSender, IErrorCo
         @Override
         public void run() {
             if (!sendWaiterData.getWork().isDone()) {
-                MessageSender.this.pendingSendsData.remove(deliveryTag);
+                MessageSender.this.removePendingSend(deliveryTag);
                 MessageSender.this.throwSenderTimeout(sendWaiterData.getWork(), sendWaiterData.getLastKnownException());
             }
         }
@@ -12,6 +12,7 @@ import java.util.List;
 import java.util.Locale;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.logging.Level;
@@ -38,6 +39,13 @@ import com.microsoft.azure.eventhubs.amqp.ProtonUtil;
 import com.microsoft.azure.eventhubs.amqp.ReactorHandler;
 import com.microsoft.azure.eventhubs.amqp.ReactorDispatcher;
 import com.microsoft.azure.eventhubs.amqp.SessionHandler;
+import com.microsoft.azure.eventhubs.amqp.SessionPool;
+import com.microsoft.azure.eventhubs.metrics.EventHubMetrics;
+import com.microsoft.azure.eventhubs.metrics.ICounter;
+import com.microsoft.azure.eventhubs.metrics.IGauge;
+import com.microsoft.azure.eventhubs.metrics.IMetricsProvider;
+import com.microsoft.azure.eventhubs.metrics.MetricNames;
+import com.microsoft.azure.eventhubs.metrics.MetricTags;
 
 /**
  * Abstracts all amqp related details and exposes AmqpConnection object
@@ -55,9 +63,18 @@ public class MessagingFactory extends ClientEntity implements IAmqpConnection, I
     private final Object cbsChannelCreateLock;
     private final Object mgmtChannelCreateLock;
     private final SharedAccessSignatureTokenProvider tokenProvider;
-
-    private Reactor reactor;
-    private ReactorDispatcher reactorScheduler;
+    private final ConnectionTokenManager tokenManager;
+    private final SessionPool sessionPool;
+    private final RetryBudget retryBudget;
+    private final SendRateLimiter sharedSendRateLimiter;
+    private final AtomicBoolean isSendRateLimiterReleased;
+    private final ICounter connectionOpensMetric;
+    private final ICounter reconnectsMetric;
+    private final IGauge reactorQueueDepthMetric;
+
+    // written under reactorLock (on reactor (re)start) - read lock-free on every send/receive
+    private volatile Reactor reactor;
+    private volatile ReactorDispatcher reactorScheduler;
     private Connection connection;
     private CBSChannel cbsChannel;
     private ManagementChannel mgmtChannel;
@@ -84,14 +101,33 @@ public class MessagingFactory extends ClientEntity implements IAmqpConnection, I
         this.tokenProvider = builder.getSharedAccessSignature() == null
                 ? new SharedAccessSignatureTokenProvider(builder.getSasKeyName(), builder.getSasKey())
                 : new SharedAccessSignatureTokenProvider(builder.getSharedAccessSignature());
+        this.tokenManager = new ConnectionTokenManager(this);
+        this.sessionPool = new SessionPool(builder.getMaxLinksPerSession(), builder.getSessionWindowSize());
+        this.retryBudget = RetryBudget.getDefault();
+        this.sharedSendRateLimiter = builder.getSharedSendRateLimit() ? SendRateLimiter.acquireShared(this.hostName) : null;
+        this.isSendRateLimiterReleased = new AtomicBoolean();
+
+        final IMetricsProvider metrics = EventHubMetrics.getProvider();
+        final MetricTags metricTags = MetricTags.of(this.hostName, null);
+        this.connectionOpensMetric = metrics.counter(MetricNames.CONNECTION_OPENS, metricTags);
+        this.reconnectsMetric = metrics.counter(MetricNames.CONNECTION_RECONNECTS, metricTags);
+        this.reactorQueueDepthMetric = metrics.gauge(MetricNames.REACTOR_QUEUE_DEPTH, metricTags);
 
         this.closeTask = new CompletableFuture<>();
         this.closeTask.thenAccept(new Consumer<Void>() {
             @Override
             public void accept(Void arg0) {
+                tokenManager.cancel();
                 Timer.unregister(getClientId());
             }
         });
+        this.closeTask.whenComplete(new BiConsumer<Void, Throwable>() {
+            @Override
+            public void accept(Void result, Throwable error) {
+                // also if the close timed out - the factory is not used after it is closed
+                releaseSendRateLimiter();
+            }
+        });
     }
 
     public String getHostName() {
@@ -99,23 +135,32 @@ public class MessagingFactory extends ClientEntity implements IAmqpConnection, I
     }
 
     private Reactor getReactor() {
-        synchronized (this.reactorLock) {
-            return this.reactor;
-        }
+        return this.reactor;
     }
 
     public ReactorDispatcher getReactorScheduler() {
-        synchronized (this.reactorLock) {
-            return this.reactorScheduler;
-        }
+        return this.reactorScheduler;
     }
 
     public SharedAccessSignatureTokenProvider getTokenProvider() {
         return this.tokenProvider;
     }
 
+    ConnectionTokenManager getTokenManager() {
+        return this.tokenManager;
+    }
+
     private void createConnection(ConnectionStringBuilder builder) throws IOException {
         this.open = new CompletableFuture<>();
+        this.open.whenComplete(new BiConsumer<MessagingFactory, Throwable>() {
+            @Override
+            public void accept(MessagingFactory result, Throwable error) {
+                // a factory which failed to open is never handed out - so, it is never closed
+                if (error != null) {
+                    releaseSendRateLimiter();
+                }
+            }
+        });
         this.startReactor(new ReactorHandler() {
             @Override
             public void onReactorInit(Event e) {
@@ -123,6 +168,7 @@ public class MessagingFactory extends ClientEntity implements IAmqpConnection, I
 
                 final Reactor r = e.getReactor();
                 connection = r.connectionToHost(hostName, ClientConstants.AMQPS_PORT, connectionHandler);
+                connectionOpensMetric.increment(1);
             }
         });
     }
@@ -131,7 +177,7 @@ public class MessagingFactory extends ClientEntity implements IAmqpConnection, I
         final Reactor newReactor = ProtonUtil.reactor(reactorHandler);
         synchronized (this.reactorLock) {
             this.reactor = newReactor;
-            this.reactorScheduler = new ReactorDispatcher(newReactor);
+            this.reactorScheduler = new ReactorDispatcher(newReactor, this.reactorQueueDepthMetric);
             reactorHandler.unsafeSetReactorDispatcher(this.reactorScheduler);
         }
 
@@ -167,17 +213,33 @@ public class MessagingFactory extends ClientEntity implements IAmqpConnection, I
             return null;
         }
 
-        if (this.connection == null || this.connection.getLocalState() == EndpointState.CLOSED || this.connection.getRemoteState() == EndpointState.CLOSED) {
-            this.connection = this.getReactor().connectionToHost(this.hostName, ClientConstants.AMQPS_PORT, this.connectionHandler);
-        }
-
-        final Session session = this.connection.session();
+        final Session session = this.getOrCreateConnection().session();
         BaseHandler.setHandler(session, new SessionHandler(path, onRemoteSessionOpen, onRemoteSessionOpenError));
         session.open();
 
         return session;
     }
 
+    // Sender & Receiver links share sessions from the sessionPool - cbs & management links keep dedicated sessions (see getSession)
+    void getLinkSession(final String path, final Consumer<Session> onRemoteSessionOpen, final BiConsumer<ErrorCondition, Exception> onRemoteSessionOpenError) {
+        if (this.getIsClosingOrClosed()) {
+
+            onRemoteSessionOpenError.accept(null, new OperationCancelledException("underlying messagingFactory instance is closed"));
+            return;
+        }
+
+        this.sessionPool.getSession(this.getOrCreateConnection(), path, onRemoteSessionOpen, onRemoteSessionOpenError);
+    }
+
+    private Connection getOrCreateConnection() {
+        if (this.connection == null || this.connection.getLocalState() == EndpointState.CLOSED || this.connection.getRemoteState() == EndpointState.CLOSED) {
+            this.connection = this.getReactor().connectionToHost(this.hostName, ClientConstants.AMQPS_PORT, this.connectionHandler);
+            this.connectionOpensMetric.increment(1);
+        }
+
+        return this.connection;
+    }
+
     public Duration getOperationTimeout() {
         return this.operationTimeout;
     }
@@ -186,6 +248,40 @@ public class MessagingFactory extends ClientEntity implements IAmqpConnection, I
         return this.retryPolicy;
     }
 
+    private void releaseSendRateLimiter() {
+        if (this.sharedSendRateLimiter != null && this.isSendRateLimiterReleased.compareAndSet(false, true)) {
+            this.sharedSendRateLimiter.releaseShared();
+        }
+    }
+
+    /**
+     * @return the limiter shared by all senders to this namespace - or, a new one for the sender, if the limit is not shared.
+     */
+    SendRateLimiter getSendRateLimiter(final String sendPath) {
+        return this.sharedSendRateLimiter != null
+                ? this.sharedSendRateLimiter
+                : new SendRateLimiter(this.hostName + "/" + sendPath);
+    }
+
+    /**
+     * {@link RetryPolicy#getNextRetryInterval(String, Exception, Duration)} - limited by the retry budget of this connection.
+     *
+     * @return returns 'null' Duration when the retry is not allowed by the retryPolicy, or when the retry budget is exhausted
+     */
+    Duration getNextRetryInterval(final String clientId, final Exception lastException, final Duration remainingTime) {
+        final Duration nextRetryInterval = this.retryPolicy.getNextRetryInterval(clientId, lastException, remainingTime);
+        if (nextRetryInterval != null && !this.retryBudget.tryAcquire()) {
+            if (TRACE_LOGGER.isLoggable(Level.WARNING)) {
+                TRACE_LOGGER.log(Level.WARNING, String.format(Locale.US, "hostName[%s], clientId[%s] - retry budget exhausted, not retrying lastException[%s]",
+                        this.hostName, clientId, lastException == null ? null : lastException.getMessage()));
+            }
+
+            return null;
+        }
+
+        return nextRetryInterval;
+    }
+
     public static CompletableFuture<MessagingFactory> createFromConnectionString(final String connectionString) throws IOException {
         return createFromConnectionString(connectionString, RetryPolicy.getDefault());
     }
@@ -230,6 +326,9 @@ public class MessagingFactory extends ClientEntity implements IAmqpConnection, I
         if (!this.open.isDone()) {
             this.onOpenComplete(ExceptionUtil.toException(error));
         } else {
+            // tokens are scoped to the connection - links re-created after this need to put them again
+            this.tokenManager.onConnectionError();
+
             final Connection currentConnection = this.connection;
             final List<Link> registeredLinksCopy = new LinkedList<>(this.registeredLinks);
             final List<Link> closedLinks = new LinkedList<>();
@@ -256,6 +355,10 @@ public class MessagingFactory extends ClientEntity implements IAmqpConnection, I
                     linkHandler.processOnClose(link, error);
                 }
             }
+
+            if (!this.getIsClosingOrClosed() && isTransient(error)) {
+                this.fastReconnect(closedLinks);
+            }
         }
 
         if (this.getIsClosingOrClosed() && !this.closeTask.isDone()) {
@@ -263,16 +366,50 @@ public class MessagingFactory extends ClientEntity implements IAmqpConnection, I
         }
     }
 
+    // reconnects once & re-creates all links which were on the lost connection in parallel - instead of each link
+    // reconnecting on its own retry timer (or on its next send/receive) and putting its own token in turn
+    private void fastReconnect(final List<Link> closedLinks) {
+        if (closedLinks.isEmpty()) {
+            return;
+        }
+
+        if (TRACE_LOGGER.isLoggable(Level.INFO)) {
+            TRACE_LOGGER.log(Level.INFO, String.format(Locale.US, "hostName[%s] - reconnecting and recovering %s links", this.hostName, closedLinks.size()));
+        }
+
+        this.reconnectsMetric.increment(1);
+        this.getOrCreateConnection();
+        this.tokenManager.reauthorize();
+
+        for (Link link : closedLinks) {
+            final Handler handler = BaseHandler.getHandler(link);
+            if (handler != null && handler instanceof BaseLinkHandler) {
+                ((BaseLinkHandler) handler).processOnConnectionRecovered(link);
+            }
+        }
+    }
+
+    private static boolean isTransient(final ErrorCondition error) {
+        if (error == null || error.getCondition() == null) {
+            return true;
+        }
+
+        final Exception exception = ExceptionUtil.toException(error);
+        return exception instanceof EventHubException && ((EventHubException) exception).getIsTransient();
+    }
+
     private void onReactorError(Exception cause) {
         if (!this.open.isDone()) {
             this.onOpenComplete(cause);
         } else {
             final Connection currentConnection = this.connection;
+            this.tokenManager.onConnectionError();
 
             try {
                 if (this.getIsClosingOrClosed()) {
                     return;
                 } else {
+                    this.reconnectsMetric.increment(1);
                     this.startReactor(new ReactorHandler());
                 }
             } catch (IOException e) {
@@ -0,0 +1,315 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+package com.microsoft.azure.eventhubs;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Opt-in pool of shared connections ({@link MessagingFactory}'s) to EventHubs namespaces.
+ * <p>
+ * By default, each {@link EventHubClient} owns one {@link MessagingFactory} - which maps to one Reactor thread, one TLS connection & one CBS link.
+ * {@link EventHubClient}'s created using a {@link MessagingFactoryPool} instead share connections with all other clients
+ * to the same namespace endpoint and credentials: entities (EventHubs, partitions) are multiplexed over
+ * at most {@link #getMaxConnectionsPerNamespace()} connections - and a connection is closed when its last user is closed.
+ * <p> Sample Code:
+ * <pre>{@code
+ * MessagingFactoryPool pool = new MessagingFactoryPool(2);
+ * EventHubClient hub1Client = EventHubClient.createFromConnectionStringSync(hub1ConnectionString, null, pool);
+ * EventHubClient hub2Client = EventHubClient.createFromConnectionStringSync(hub2ConnectionString, null, pool);
+ * }</pre>
+ * Entities on a shared connection also share its {@link RetryPolicy} - the one used by the client which opened the connection.
+ * <p>
+ * Every pooled connection runs on its own Reactor thread - so the pool doubles as an event-loop group.
+ * With {@link #getSpreadLinksAcrossConnections()} enabled, each {@link EventHubClient} leases ALL connections to its namespace and
+ * spreads the links it creates ({@link PartitionSender}'s and {@link PartitionReceiver}'s) across them,
+ * so that the I/O of a single client is no longer bound to one thread.
+ * <pre>{@code
+ * MessagingFactoryPool eventLoopGroup = new MessagingFactoryPool(Runtime.getRuntime().availableProcessors(), true);
+ * EventHubClient ehClient = EventHubClient.createFromConnectionStringSync(connectionString, null, eventLoopGroup);
+ * }</pre>
+ */
+public final class MessagingFactoryPool {
+    private static final Logger TRACE_LOGGER = Logger.getLogger(ClientConstants.EVENTHUB_CLIENT_TRACE);
+
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_NAMESPACE = 1;
+
+    private final int maxConnectionsPerNamespace;
+    private final boolean spreadLinksAcrossConnections;
+    private final Object poolLock;
+    private final Map<String, PooledConnection[]> connections;
+    private final Map<MessagingFactory, PooledConnection> leasedFactories;
+
+    /**
+     * Creates a pool which opens at most 1 connection per namespace endpoint and credentials.
+     */
+    public MessagingFactoryPool() {
+        this(DEFAULT_MAX_CONNECTIONS_PER_NAMESPACE);
+    }
+
+    /**
+     * Creates a pool which opens at most {@code maxConnectionsPerNamespace} connections per namespace endpoint and credentials.
+     *
+     * @param maxConnectionsPerNamespace upper bound of connections to a namespace; clients are spread across them, least used first.
+     */
+    public MessagingFactoryPool(final int maxConnectionsPerNamespace) {
+        this(maxConnectionsPerNamespace, false);
+    }
+
+    /**
+     * Creates a pool which opens at most {@code maxConnectionsPerNamespace} connections (and Reactor threads) per namespace endpoint and credentials.
+     *
+     * @param maxConnectionsPerNamespace   upper bound of connections to a namespace.
+     * @param spreadLinksAcrossConnections if true, every {@link EventHubClient} spreads its links across all connections to the namespace;
+     *                                     otherwise each client is assigned the least used connection.
+     */
+    public MessagingFactoryPool(final int maxConnectionsPerNamespace, final boolean spreadLinksAcrossConnections) {
+        if (maxConnectionsPerNamespace <= 0) {
+            throw new IllegalArgumentException("maxConnectionsPerNamespace should be a positive number.");
+        }
+
+        this.maxConnectionsPerNamespace = maxConnectionsPerNamespace;
+        this.spreadLinksAcrossConnections = spreadLinksAcrossConnections;
+        this.poolLock = new Object();
+        this.connections = new HashMap<>();
+        this.leasedFactories = new HashMap<>();
+    }
+
+    public int getMaxConnectionsPerNamespace() {
+        return this.maxConnectionsPerNamespace;
+    }
+
+    public boolean getSpreadLinksAcrossConnections() {
+        return this.spreadLinksAcrossConnections;
+    }
+
+    /**
+     * Leases every connection to the namespace - opening the missing ones. Each leased {@link MessagingFactory} should be released using {@link #release(MessagingFactory)}.
+     */
+    CompletableFuture<MessagingFactory[]> acquireAll(final ConnectionStringBuilder builder, final RetryPolicy retryPolicy) {
+        final String poolKey = getPoolKey(builder);
+        final PooledConnection[] leasedConnections = new PooledConnection[this.maxConnectionsPerNamespace];
+        final boolean[] createConnection = new boolean[this.maxConnectionsPerNamespace];
+
+        synchronized (this.poolLock) {
+            final PooledConnection[] namespaceConnections = this.getNamespaceConnections(poolKey);
+            for (int slot = 0; slot < namespaceConnections.length; slot++) {
+                if (namespaceConnections[slot] == null) {
+                    namespaceConnections[slot] = new PooledConnection(poolKey, slot);
+                    createConnection[slot] = true;
+                }
+
+                leasedConnections[slot] = namespaceConnections[slot];
+                leasedConnections[slot].referenceCount++;
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        final CompletableFuture<MessagingFactory>[] openConnections = new CompletableFuture[leasedConnections.length];
+        for (int slot = 0; slot < leasedConnections.length; slot++) {
+            if (createConnection[slot]) {
+                this.openConnection(builder, retryPolicy, leasedConnections[slot]);
+            }
+
+            openConnections[slot] = leasedConnections[slot].factory;
+        }
+
+        return CompletableFuture.allOf(openConnections).handle(new BiFunction<Void, Throwable, MessagingFactory[]>() {
+            @Override
+            public MessagingFactory[] apply(final Void result, final Throwable error) {
+                if (error != null) {
+                    // all or nothing - give back the connections which did open
+                    for (CompletableFuture<MessagingFactory> openConnection : openConnections) {
+                        if (!openConnection.isCompletedExceptionally()) {
+                            MessagingFactoryPool.this.release(openConnection.join());
+                        }
+                    }
+
+                    throw error instanceof CompletionException ? (CompletionException) error : new CompletionException(error);
+                }
+
+                final MessagingFactory[] factories = new MessagingFactory[openConnections.length];
+                for (int slot = 0; slot < openConnections.length; slot++) {
+                    factories[slot] = openConnections[slot].join();
+                }
+
+                return factories;
+            }
+        });
+    }
+
+    /**
+     * Leases a shared {@link MessagingFactory} - opening a new connection if all existing ones to the namespace are in use
+     * and the per-namespace limit is not reached yet. Each successful acquire should be paired with a {@link #release(MessagingFactory)}.
+     */
+    CompletableFuture<MessagingFactory> acquire(final ConnectionStringBuilder builder, final RetryPolicy retryPolicy) {
+        final String poolKey = getPoolKey(builder);
+        final PooledConnection pooledConnection;
+        final boolean createConnection;
+
+        synchronized (this.poolLock) {
+            final PooledConnection[] namespaceConnections = this.getNamespaceConnections(poolKey);
+
+            int slot = -1;
+            for (int index = 0; index < namespaceConnections.length; index++) {
+                if (namespaceConnections[index] == null) {
+                    slot = index;
+                    break;
+                }
+
+                if (slot == -1 || namespaceConnections[index].referenceCount < namespaceConnections[slot].referenceCount) {
+                    slot = index;
+                }
+            }
+
+            createConnection = namespaceConnections[slot] == null;
+            if (createConnection) {
+                namespaceConnections[slot] = new PooledConnection(poolKey, slot);
+            }
+
+            pooledConnection = namespaceConnections[slot];
+            pooledConnection.referenceCount++;
+        }
+
+        if (createConnection) {
+            this.openConnection(builder, retryPolicy, pooledConnection);
+        }
+
+        return pooledConnection.factory;
+    }
+
+    /**
+     * Returns a {@link MessagingFactory} leased using {@link #acquire(ConnectionStringBuilder, RetryPolicy)};
+     * closes the underlying connection if this was its last user.
+     */
+    CompletableFuture<Void> release(final MessagingFactory factory) {
+        final PooledConnection pooledConnection;
+        final boolean closeConnection;
+
+        synchronized (this.poolLock) {
+            pooledConnection = this.leasedFactories.get(factory);
+            if (pooledConnection == null) {
+                // not leased from this pool
+                return factory.close();
+            }
+
+            pooledConnection.referenceCount--;
+            closeConnection = pooledConnection.referenceCount <= 0;
+            if (closeConnection) {
+                this.leasedFactories.remove(factory);
+                this.removeSlot(pooledConnection);
+            }
+        }
+
+        if (closeConnection) {
+            if (TRACE_LOGGER.isLoggable(Level.FINE)) {
+                TRACE_LOGGER.log(Level.FINE, String.format(Locale.US, "endpoint[%s], slot[%s] - closing pooled connection, last user released it",
+                        factory.getHostName(), pooledConnection.slot));
+            }
+
+            return factory.close();
+        }
+
+        return CompletableFuture.completedFuture(null);
+    }
+
+    private void openConnection(final ConnectionStringBuilder builder, final RetryPolicy retryPolicy, final PooledConnection pooledConnection) {
+        if (TRACE_LOGGER.isLoggable(Level.FINE)) {
+            TRACE_LOGGER.log(Level.FINE, String.format(Locale.US, "endpoint[%s], slot[%s] - opening pooled connection",
+                    builder.getEndpoint().getHost(), pooledConnection.slot));
+        }
+
+        try {
+            MessagingFactory.createFromConnectionString(builder.toString(), retryPolicy).whenComplete(
+                    new BiConsumer<MessagingFactory, Throwable>() {
+                        @Override
+                        public void accept(final MessagingFactory factory, final Throwable error) {
+                            if (error == null) {
+                                synchronized (MessagingFactoryPool.this.poolLock) {
+                                    MessagingFactoryPool.this.leasedFactories.put(factory, pooledConnection);
+                                }
+
+                                pooledConnection.factory.complete(factory);
+                            } else {
+                                MessagingFactoryPool.this.evict(pooledConnection);
+                                pooledConnection.factory.completeExceptionally(error);
+                            }
+                        }
+                    });
+        } catch (IOException | RuntimeException exception) {
+            this.evict(pooledConnection);
+            pooledConnection.factory.completeExceptionally(exception);
+        }
+    }
+
+    // should be called under poolLock
+    private PooledConnection[] getNamespaceConnections(final String poolKey) {
+        PooledConnection[] namespaceConnections = this.connections.get(poolKey);
+        if (namespaceConnections == null) {
+            namespaceConnections = new PooledConnection[this.maxConnectionsPerNamespace];
+            this.connections.put(poolKey, namespaceConnections);
+        }
+
+        return namespaceConnections;
+    }
+
+    // a connection which failed to open is dropped, so that the next acquire retries it
+    private void evict(final PooledConnection pooledConnection) {
+        synchronized (this.poolLock) {
+            this.removeSlot(pooledConnection);
+        }
+    }
+
+    // should be called under poolLock
+    private void removeSlot(final PooledConnection pooledConnection) {
+        final PooledConnection[] namespaceConnections = this.connections.get(pooledConnection.poolKey);
+        if (namespaceConnections == null || namespaceConnections[pooledConnection.slot] != pooledConnection) {
+            return;
+        }
+
+        namespaceConnections[pooledConnection.slot] = null;
+        for (PooledConnection connection : namespaceConnections) {
+            if (connection != null) {
+                return;
+            }
+        }
+
+        this.connections.remove(pooledConnection.poolKey);
+    }
+
+    private static String getPoolKey(final ConnectionStringBuilder builder) {
+        // EntityPath is intentionally left out - entities of a namespace are multiplexed on the same connection
+        return String.format(Locale.US, "%s|%s|%s|%s|%s|%s|%s|%s",
+                builder.getEndpoint().getHost(),
+                builder.getSasKeyName(),
+                builder.getSasKey(),
+                builder.getSharedAccessSignature(),
+                builder.getOperationTimeout(),
+                builder.getMaxLinksPerSession(),
+                builder.getSessionWindowSize(),
+                builder.getSharedSendRateLimit());
+    }
+
+    private static final class PooledConnection {
+        final String poolKey;
+        final int slot;
+        final CompletableFuture<MessagingFactory> factory;
+        int referenceCount;
+
+        PooledConnection(final String poolKey, final int slot) {
+            this.poolKey = poolKey;
+            this.slot = slot;
+            this.factory = new CompletableFuture<>();
+        }
+    }
+}
@@ -7,6 +7,8 @@ package com.microsoft.azure.eventhubs;
 import java.util.concurrent.*;
 import java.util.function.*;
 
+import org.apache.qpid.proton.amqp.transport.SenderSettleMode;
+
 /**
  * This sender class is a logical representation of sending events to a specific EventHub partition. Do not use this class
  * if you do not care about sending events to specific partitions. Instead, use {@link EventHubClient#send} method.
@@ -18,22 +20,31 @@ public final class PartitionSender extends ClientEntity {
     private final String partitionId;
     private final String eventHubName;
     private final MessagingFactory factory;
+    private final SenderOptions senderOptions;
 
     private MessageSender internalSender;
 
-    private PartitionSender(MessagingFactory factory, String eventHubName, String partitionId) {
+    private PartitionSender(MessagingFactory factory, String eventHubName, String partitionId, SenderOptions senderOptions) {
         super(null, null);
 
         this.partitionId = partitionId;
         this.eventHubName = eventHubName;
         this.factory = factory;
+        this.senderOptions = senderOptions;
     }
 
     /**
      * Internal-Only: factory pattern to Create EventHubSender
      */
     static CompletableFuture<PartitionSender> Create(MessagingFactory factory, String eventHubName, String partitionId) throws EventHubException {
-        final PartitionSender sender = new PartitionSender(factory, eventHubName, partitionId);
+        return Create(factory, eventHubName, partitionId, null);
+    }
+
+    /**
+     * Internal-Only: factory pattern to Create EventHubSender
+     */
+    static CompletableFuture<PartitionSender> Create(MessagingFactory factory, String eventHubName, String partitionId, SenderOptions senderOptions) throws EventHubException {
+        final PartitionSender sender = new PartitionSender(factory, eventHubName, partitionId, senderOptions);
         return sender.createInternalSender()
                 .thenApply(new Function<Void, PartitionSender>() {
                     public PartitionSender apply(Void a) {
@@ -43,8 +54,12 @@ public final class PartitionSender extends ClientEntity {
     }
 
     private CompletableFuture<Void> createInternalSender() throws EventHubException {
+        final SenderSettleMode settleMode = this.senderOptions != null && this.senderOptions.getPresettledSendEnabled()
+                ? SenderSettleMode.SETTLED
+                : SenderSettleMode.UNSETTLED;
+
         return MessageSender.create(this.factory, StringUtil.getRandomString(),
-                String.format("%s/Partitions/%s", this.eventHubName, this.partitionId))
+                String.format("%s/Partitions/%s", this.eventHubName, this.partitionId), settleMode)
                 .thenAccept(new Consumer<MessageSender>() {
                     public void accept(MessageSender a) {
                         PartitionSender.this.internalSender = a;
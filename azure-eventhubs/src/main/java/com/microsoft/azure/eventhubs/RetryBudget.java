@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+package com.microsoft.azure.eventhubs;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token-bucket limit on the number of retries made over one connection ({@link MessagingFactory}) - across all its senders, receivers & management calls.
+ * Upto burst retries can be made at once; after that, retries are allowed at the refill rate. A retry which doesn't fit in the budget is not made -
+ * the operation fails with its last error, instead of adding load to a service which is already failing or throttling.
+ * <p>
+ * Lock-free: the bucket is tracked as the time at which it would be full again (generic cell rate algorithm), updated with a single compare-and-set.
+ */
+public final class RetryBudget {
+    private final long refillIntervalNanos;
+    private final long burstNanos;
+    private final AtomicLong fullAtNanos;
+
+    /**
+     * @param burst            retries allowed at once, on a full budget
+     * @param retriesPerSecond rate at which the budget refills
+     */
+    public RetryBudget(final int burst, final int retriesPerSecond) {
+        if (burst <= 0) {
+            throw new IllegalArgumentException("burst should be greater than 0");
+        }
+
+        if (retriesPerSecond <= 0) {
+            throw new IllegalArgumentException("retriesPerSecond should be greater than 0");
+        }
+
+        this.refillIntervalNanos = TimeUnit.SECONDS.toNanos(1) / retriesPerSecond;
+        this.burstNanos = this.refillIntervalNanos * burst;
+        this.fullAtNanos = new AtomicLong(System.nanoTime());
+    }
+
+    public static RetryBudget getDefault() {
+        return new RetryBudget(ClientConstants.DEFAULT_RETRY_BUDGET_BURST, ClientConstants.DEFAULT_RETRY_BUDGET_PER_SECOND);
+    }
+
+    /**
+     * @return true if the retry fits in the budget (and is accounted for); false if the budget is exhausted.
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            final long now = System.nanoTime();
+            final long fullAt = this.fullAtNanos.get();
+            final long newFullAt = Math.max(fullAt, now) + this.refillIntervalNanos;
+            if (newFullAt - now > this.burstNanos) {
+                return false;
+            }
+
+            if (this.fullAtNanos.compareAndSet(fullAt, newFullAt)) {
+                return true;
+            }
+        }
+    }
+}
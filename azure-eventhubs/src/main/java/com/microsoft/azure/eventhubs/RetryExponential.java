@@ -5,17 +5,21 @@
 package com.microsoft.azure.eventhubs;
 
 import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * RetryPolicy implementation where the delay between retries will grow in an exponential manner.
  * RetryPolicy can be set on the client operations using {@link ConnectionStringBuilder}.
- * RetryIntervals will be computed using a retryFactor which is a function of deltaBackOff (MaximumBackoff - MinimumBackoff) and MaximumRetryCount
+ * RetryIntervals are "decorrelated jitter" backoffs: each interval is picked at random between MinimumBackoff and 3 times the previous interval
+ * of the same client, capped at MaximumBackoff - so that clients which failed together, during an outage, do not retry in lockstep.
  */
 public final class RetryExponential extends RetryPolicy {
     private final Duration minimumBackoff;
     private final Duration maximumBackoff;
     private final int maximumRetryCount;
-    private final double retryFactor;
+    private final Duration jitterBase;
+    private final ConcurrentHashMap<String, Long> lastRetryIntervalNanos;
 
     public RetryExponential(final Duration minimumBackoff, final Duration maximumBackoff, final int maximumRetryCount, final String name) {
         super(name);
@@ -23,7 +27,8 @@ public final class RetryExponential extends RetryPolicy {
         this.minimumBackoff = minimumBackoff;
         this.maximumBackoff = maximumBackoff;
         this.maximumRetryCount = maximumRetryCount;
-        this.retryFactor = this.computeRetryFactor();
+        this.jitterBase = minimumBackoff.compareTo(ClientConstants.RETRY_JITTER_MIN_BASE) > 0 ? minimumBackoff : ClientConstants.RETRY_JITTER_MIN_BASE;
+        this.lastRetryIntervalNanos = new ConcurrentHashMap<String, Long>();
     }
 
     @Override
@@ -38,25 +43,24 @@ public final class RetryExponential extends RetryPolicy {
             return null;
         }
 
-        double nextRetryInterval = Math.pow(this.retryFactor, (double) currentRetryCount);
-        long nextRetryIntervalSeconds = (long) nextRetryInterval;
-        long nextRetryIntervalNano = (long) ((nextRetryInterval - (double) nextRetryIntervalSeconds) * 1000000000);
-        if (remainingTime.getSeconds() < Math.max(nextRetryInterval, ClientConstants.TIMER_TOLERANCE.getSeconds())) {
+        final long baseNanos = this.jitterBase.toNanos();
+        final long maximumNanos = Math.max(this.minimumBackoff.toNanos(), this.maximumBackoff.toNanos());
+        final Long lastIntervalNanos = this.lastRetryIntervalNanos.get(clientId);
+        final long upperBoundNanos = Math.max(baseNanos, lastIntervalNanos == null ? baseNanos : lastIntervalNanos * 3);
+        final long nextRetryIntervalNanos = Math.min(maximumNanos, ThreadLocalRandom.current().nextLong(baseNanos, upperBoundNanos + 1));
+
+        final Duration nextRetryInterval = Duration.ofNanos(nextRetryIntervalNanos);
+        if (remainingTime.compareTo(nextRetryInterval.compareTo(ClientConstants.TIMER_TOLERANCE) > 0 ? nextRetryInterval : ClientConstants.TIMER_TOLERANCE) < 0) {
             return null;
         }
 
-        Duration retryAfter = this.minimumBackoff.plus(Duration.ofSeconds(nextRetryIntervalSeconds, nextRetryIntervalNano));
-        retryAfter = retryAfter.plus(Duration.ofSeconds(baseWaitTimeSecs));
+        this.lastRetryIntervalNanos.put(clientId, nextRetryIntervalNanos);
 
-        return retryAfter;
+        return nextRetryInterval.plus(Duration.ofSeconds(baseWaitTimeSecs));
     }
 
-    private double computeRetryFactor() {
-        long deltaBackoff = this.maximumBackoff.minus(this.minimumBackoff).getSeconds();
-        if (deltaBackoff <= 0 || this.maximumRetryCount <= 0) {
-            return 0;
-        }
-
-        return (Math.log(deltaBackoff) / Math.log(this.maximumRetryCount));
+    @Override
+    protected void onResetRetryCount(final String clientId) {
+        this.lastRetryIntervalNanos.remove(clientId);
     }
 }
@@ -6,31 +6,48 @@ package com.microsoft.azure.eventhubs;
 
 import java.time.Duration;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
-// TODO: SIMPLIFY retryPolicy - ConcurrentHashMap is not needed
 public abstract class RetryPolicy {
     private static final RetryPolicy NO_RETRY = new RetryExponential(Duration.ofSeconds(0), Duration.ofSeconds(0), 0, ClientConstants.NO_RETRY);
+    private static final Function<String, AtomicInteger> NEW_RETRY_COUNT = new Function<String, AtomicInteger>() {
+        @Override
+        public AtomicInteger apply(String clientId) {
+            return new AtomicInteger();
+        }
+    };
 
     private final String name;
-    private ConcurrentHashMap<String, Integer> retryCounts;
-    private Object serverBusySync;
+    // one counter per client entity - all updates are atomic on the counter, with no lock shared across clients
+    private final ConcurrentHashMap<String, AtomicInteger> retryCounts;
 
     protected RetryPolicy(final String name) {
         this.name = name;
-        this.retryCounts = new ConcurrentHashMap<String, Integer>();
-        this.serverBusySync = new Object();
+        this.retryCounts = new ConcurrentHashMap<String, AtomicInteger>();
     }
 
     public void incrementRetryCount(String clientId) {
-        Integer retryCount = this.retryCounts.get(clientId);
-        this.retryCounts.put(clientId, retryCount == null ? 1 : retryCount + 1);
+        this.retryCounts.computeIfAbsent(clientId, NEW_RETRY_COUNT).incrementAndGet();
     }
 
     public void resetRetryCount(String clientId) {
-        Integer currentRetryCount = this.retryCounts.get(clientId);
-        if (currentRetryCount != null && currentRetryCount.intValue() != 0) {
-            this.retryCounts.put(clientId, 0);
+        final AtomicInteger currentRetryCount = this.retryCounts.get(clientId);
+        if (currentRetryCount != null) {
+            currentRetryCount.set(0);
         }
+
+        // some callers retry without ever incrementing the count - so, there can be per-client state to reset even without a count
+        this.onResetRetryCount(clientId);
+    }
+
+    /**
+     * Invoked when the retry count of a client is reset - after a successful operation.
+     * Policies which track per-client state, in addition to the retry count, should reset it here.
+     *
+     * @param clientId clientId
+     */
+    protected void onResetRetryCount(String clientId) {
     }
 
     public static boolean isRetryableException(Exception exception) {
@@ -58,8 +75,8 @@ public abstract class RetryPolicy {
     }
 
     protected int getRetryCount(String clientId) {
-        Integer retryCount = this.retryCounts.get(clientId);
-        return retryCount == null ? 0 : retryCount;
+        final AtomicInteger retryCount = this.retryCounts.get(clientId);
+        return retryCount == null ? 0 : retryCount.get();
     }
 
     /**
@@ -72,11 +89,9 @@ public abstract class RetryPolicy {
      */
     public Duration getNextRetryInterval(String clientId, Exception lastException, Duration remainingTime) {
         int baseWaitTime = 0;
-        synchronized (this.serverBusySync) {
-            if (lastException != null &&
-                    (lastException instanceof ServerBusyException || (lastException.getCause() != null && lastException.getCause() instanceof ServerBusyException))) {
-                baseWaitTime += ClientConstants.SERVER_BUSY_BASE_SLEEP_TIME_IN_SECS;
-            }
+        if (lastException != null &&
+                (lastException instanceof ServerBusyException || (lastException.getCause() != null && lastException.getCause() instanceof ServerBusyException))) {
+            baseWaitTime += ClientConstants.SERVER_BUSY_BASE_SLEEP_TIME_IN_SECS;
         }
 
         return this.onGetNextRetryInterval(clientId, lastException, remainingTime, baseWaitTime);
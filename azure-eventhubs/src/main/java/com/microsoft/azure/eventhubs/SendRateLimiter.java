@@ -0,0 +1,255 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+package com.microsoft.azure.eventhubs;
+
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * AIMD (additive-increase / multiplicative-decrease) limiter on the rate of sends - in events and bytes per second.
+ * <p>
+ * Doesn't limit anything until the service throttles (ServerBusy or QuotaExceeded). On a throttle, the limit drops to a fraction of the rate
+ * which was just accepted; every second without a throttle, it grows back by a small step. Sends are paced to stay under the limit - so that
+ * traffic converges just below the sustainable rate (throughput units), instead of cycling through rejects and 4 second retries.
+ * <p>
+ * A limiter is either owned by one {@link MessageSender} or shared by all senders to a namespace - see {@link ConnectionStringBuilder#setSharedSendRateLimit(boolean)}.
+ * A shared limiter is kept while any client to the namespace is open.
+ */
+public final class SendRateLimiter {
+    private static final Logger TRACE_LOGGER = Logger.getLogger(ClientConstants.EVENTHUB_CLIENT_TRACE);
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+    private static final double DECREASE_FACTOR = 0.7;
+    private static final double INCREASE_STEP_FACTOR = 0.05;
+    private static final double MIN_EVENTS_PER_SECOND = 1;
+    private static final double MIN_BYTES_PER_SECOND = 1024;
+    // sends are paced with upto this much of burst - so that a limited sender doesn't need a timer per send
+    private static final long MAX_BURST_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+    // rejects of the sends in flight, when the throttle was hit, are one signal - not many
+    private static final long DECREASE_COOLDOWN_NANOS = NANOS_PER_SECOND;
+    private static final long INCREASE_INTERVAL_NANOS = NANOS_PER_SECOND;
+    private static final long RELEASE_AFTER_NANOS = TimeUnit.MINUTES.toNanos(5);
+
+    private static final ConcurrentHashMap<String, SendRateLimiter> NAMESPACE_LIMITERS = new ConcurrentHashMap<>();
+    private static final BiFunction<String, SendRateLimiter, SendRateLimiter> ACQUIRE_NAMESPACE_LIMITER = new BiFunction<String, SendRateLimiter, SendRateLimiter>() {
+        @Override
+        public SendRateLimiter apply(String namespace, SendRateLimiter existing) {
+            final SendRateLimiter limiter = existing == null ? new SendRateLimiter(namespace) : existing;
+            limiter.sharedUsers++;
+            return limiter;
+        }
+    };
+
+    private final String name;
+
+    // guarded by the NAMESPACE_LIMITERS entry of the limiter - only used by shared limiters
+    private int sharedUsers;
+
+    // fast path: no lock is taken on sends, till the first throttle
+    private volatile boolean isLimiting;
+
+    private double eventsPerSecondLimit;
+    private double bytesPerSecondLimit;
+    private double eventsPerSecondStep;
+    private double bytesPerSecondStep;
+    private long nextSendAtNanos;
+    private long lastDecreaseAtNanos;
+    private long lastIncreaseAtNanos;
+
+    // events & bytes accepted by the service - counted without a lock, as every ack is
+    private final AtomicReference<AcceptedWindow> acceptedWindow;
+
+    public SendRateLimiter(final String name) {
+        this.name = name;
+        final long now = System.nanoTime();
+        this.acceptedWindow = new AtomicReference<>(new AcceptedWindow(now, 0, 0));
+        this.lastDecreaseAtNanos = now - RELEASE_AFTER_NANOS;
+    }
+
+    /**
+     * Every acquire must be paired with a {@link #releaseShared()} - when the client which acquired it is closed.
+     *
+     * @param namespace hostName of the EventHubs namespace
+     * @return the limiter shared by all senders, in this process, to the namespace
+     */
+    public static SendRateLimiter acquireShared(final String namespace) {
+        return NAMESPACE_LIMITERS.compute(namespace, ACQUIRE_NAMESPACE_LIMITER);
+    }
+
+    /**
+     * Releases a limiter returned by {@link #acquireShared(String)}. The limiter of the namespace is dropped with its last user.
+     */
+    public void releaseShared() {
+        NAMESPACE_LIMITERS.computeIfPresent(this.name, new BiFunction<String, SendRateLimiter, SendRateLimiter>() {
+            @Override
+            public SendRateLimiter apply(String namespace, SendRateLimiter limiter) {
+                if (limiter != SendRateLimiter.this) {
+                    return limiter;
+                }
+
+                limiter.sharedUsers--;
+                return limiter.sharedUsers > 0 ? limiter : null;
+            }
+        });
+    }
+
+    public boolean isLimiting() {
+        return this.isLimiting;
+    }
+
+    public synchronized double getEventsPerSecondLimit() {
+        return this.isLimiting ? this.eventsPerSecondLimit : Double.POSITIVE_INFINITY;
+    }
+
+    public synchronized double getBytesPerSecondLimit() {
+        return this.isLimiting ? this.bytesPerSecondLimit : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Takes a slot for a send of the given size, if it can go out now.
+     *
+     * @param sizeInBytes encoded size of the send
+     * @return 0 if the send can go out now (and is accounted for); otherwise, the nanoseconds after which it should be attempted again
+     */
+    public long tryAcquire(final int sizeInBytes) {
+        if (!this.isLimiting) {
+            return 0;
+        }
+
+        synchronized (this) {
+            final long now = System.nanoTime();
+            this.increaseIfDue(now);
+            if (!this.isLimiting) {
+                return 0;
+            }
+
+            final long startAt = Math.max(this.nextSendAtNanos, now - MAX_BURST_NANOS);
+            if (startAt > now) {
+                return startAt - now;
+            }
+
+            final double costInSeconds = Math.max(1 / this.eventsPerSecondLimit, sizeInBytes / this.bytesPerSecondLimit);
+            this.nextSendAtNanos = startAt + (long) (costInSeconds * NANOS_PER_SECOND);
+            return 0;
+        }
+    }
+
+    /**
+     * to be invoked when a send is accepted by the service
+     */
+    public void onAccepted(final int sizeInBytes) {
+        final long now = System.nanoTime();
+        final AcceptedWindow window = this.currentWindow(now);
+        window.events.increment();
+        window.bytes.add(sizeInBytes);
+
+        if (this.isLimiting) {
+            synchronized (this) {
+                this.increaseIfDue(now);
+            }
+        }
+    }
+
+    /**
+     * to be invoked when a send is rejected with ServerBusy or QuotaExceeded
+     */
+    public void onThrottled() {
+        synchronized (this) {
+            final long now = System.nanoTime();
+            if (now - this.lastDecreaseAtNanos < DECREASE_COOLDOWN_NANOS) {
+                return;
+            }
+
+            final AcceptedWindow window = this.currentWindow(now);
+            // the current window is partial - extrapolating it would over-estimate a burst; so, it counts as is
+            final double observedEventsPerSecond = Math.max(window.lastWindowEvents, window.events.sum());
+            final double observedBytesPerSecond = Math.max(window.lastWindowBytes, window.bytes.sum());
+
+            if (!this.isLimiting && observedEventsPerSecond == 0) {
+                // nothing was accepted lately - there is no rate to learn from; the retry policy backs off this one
+                return;
+            }
+
+            // the first throttle has no limit to decrease from - so, start from what the service was accepting
+            final double eventsBase = this.isLimiting ? this.eventsPerSecondLimit : observedEventsPerSecond;
+            final double bytesBase = this.isLimiting ? this.bytesPerSecondLimit : observedBytesPerSecond;
+
+            this.eventsPerSecondLimit = Math.max(MIN_EVENTS_PER_SECOND, eventsBase * DECREASE_FACTOR);
+            this.bytesPerSecondLimit = Math.max(MIN_BYTES_PER_SECOND, bytesBase * DECREASE_FACTOR);
+            this.eventsPerSecondStep = Math.max(MIN_EVENTS_PER_SECOND, this.eventsPerSecondLimit * INCREASE_STEP_FACTOR);
+            this.bytesPerSecondStep = Math.max(MIN_BYTES_PER_SECOND, this.bytesPerSecondLimit * INCREASE_STEP_FACTOR);
+            this.lastDecreaseAtNanos = now;
+            this.lastIncreaseAtNanos = now;
+            this.isLimiting = true;
+
+            if (TRACE_LOGGER.isLoggable(Level.INFO)) {
+                TRACE_LOGGER.log(Level.INFO, String.format(Locale.US, "limiter[%s] - throttled, limiting sends to eventsPerSecond[%.1f], bytesPerSecond[%.0f]",
+                        this.name, this.eventsPerSecondLimit, this.bytesPerSecondLimit));
+            }
+        }
+    }
+
+    // should be called under lock
+    private void increaseIfDue(final long now) {
+        if (now - this.lastDecreaseAtNanos >= RELEASE_AFTER_NANOS) {
+            this.isLimiting = false;
+            if (TRACE_LOGGER.isLoggable(Level.INFO)) {
+                TRACE_LOGGER.log(Level.INFO, String.format(Locale.US, "limiter[%s] - not throttled for %s minutes, removing the limit",
+                        this.name, TimeUnit.NANOSECONDS.toMinutes(RELEASE_AFTER_NANOS)));
+            }
+
+            return;
+        }
+
+        final long increments = (now - this.lastIncreaseAtNanos) / INCREASE_INTERVAL_NANOS;
+        if (increments > 0) {
+            this.eventsPerSecondLimit += increments * this.eventsPerSecondStep;
+            this.bytesPerSecondLimit += increments * this.bytesPerSecondStep;
+            this.lastIncreaseAtNanos += increments * INCREASE_INTERVAL_NANOS;
+        }
+    }
+
+    // the 1 second window which 'now' falls in - the window is rolled over, if it has ended
+    private AcceptedWindow currentWindow(final long now) {
+        while (true) {
+            final AcceptedWindow window = this.acceptedWindow.get();
+            final long elapsed = now - window.startNanos;
+            if (elapsed < NANOS_PER_SECOND) {
+                return window;
+            }
+
+            // an idle gap (more than one window) means nothing was accepted in the last window.
+            // an ack racing with the roll-over can be counted in the old window after it was summed - that's one event, out of a second's worth
+            final boolean isContiguous = elapsed < 2 * NANOS_PER_SECOND;
+            final AcceptedWindow next = new AcceptedWindow(now,
+                    isContiguous ? window.events.sum() : 0,
+                    isContiguous ? window.bytes.sum() : 0);
+            if (this.acceptedWindow.compareAndSet(window, next)) {
+                return next;
+            }
+        }
+    }
+
+    // events & bytes accepted by the service - in one 1 second window, and in the window before it
+    private static final class AcceptedWindow {
+        final long startNanos;
+        final long lastWindowEvents;
+        final long lastWindowBytes;
+        final LongAdder events = new LongAdder();
+        final LongAdder bytes = new LongAdder();
+
+        AcceptedWindow(final long startNanos, final long lastWindowEvents, final long lastWindowBytes) {
+            this.startNanos = startNanos;
+            this.lastWindowEvents = lastWindowEvents;
+            this.lastWindowBytes = lastWindowBytes;
+        }
+    }
+}
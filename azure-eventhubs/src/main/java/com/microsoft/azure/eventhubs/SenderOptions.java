@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+package com.microsoft.azure.eventhubs;
+
+/**
+ * Represents various optional behaviors which can be turned on or off during the creation of a {@link PartitionSender}.
+ */
+public final class SenderOptions {
+    private boolean presettledSendEnabled;
+
+    /**
+     * Knob to enable/disable fire-and-forget sends on the {@link PartitionSender}.
+     * <p>
+     * When enabled, events are transferred pre-settled - the EventHubs service doesn't acknowledge them individually and
+     * the {@link java.util.concurrent.CompletableFuture} returned by {@link PartitionSender#send(EventData)} completes as soon as the event is handed to the transport.
+     * An event that is lost in-flight (for ex: due to a connection drop or throttling) is NOT retried and is NOT reported to the caller.
+     *
+     * @return the {@link boolean} indicating, whether, pre-settled sends are enabled
+     */
+    public boolean getPresettledSendEnabled() {
+        return this.presettledSendEnabled;
+    }
+
+    /**
+     * Knob to enable/disable fire-and-forget sends on the {@link PartitionSender}.
+     * Use this only for best-effort data (ex: telemetry), where throughput matters more than delivery guarantees.
+     *
+     * @param value the {@link boolean} to indicate, whether, pre-settled sends should be enabled
+     * @see #getPresettledSendEnabled()
+     */
+    public void setPresettledSendEnabled(final boolean value) {
+        this.presettledSendEnabled = value;
+    }
+}
@@ -79,8 +79,18 @@ public class BaseLinkHandler extends BaseHandler {
         this.underlyingEntity.onError(exception);
     }
 
+    public void processOnConnectionRecovered(Link link) {
+        if (this.underlyingEntity instanceof IAmqpRecoverableLink) {
+            if (TRACE_LOGGER.isLoggable(Level.FINE)) {
+                TRACE_LOGGER.log(Level.FINE, String.format("linkName[%s] - recovering on new connection", link.getName()));
+            }
+
+            ((IAmqpRecoverableLink) this.underlyingEntity).onConnectionRecovered();
+        }
+    }
+
     private void closeSession(Link link) {
-        if (link.getSession() != null && link.getSession().getLocalState() != EndpointState.CLOSED)
-            link.getSession().close();
+        // a pooled session is ended only with its last link
+        SessionPool.releaseSession(link.getSession());
     }
 }
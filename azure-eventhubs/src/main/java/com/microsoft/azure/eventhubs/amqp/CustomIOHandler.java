@@ -21,4 +21,16 @@ public class CustomIOHandler extends IOHandler {
         transport.setEmitFlowEventOnSend(false);
         transport.bind(connection);
     }
+
+    @Override
+    public void onTransportClosed(Event event) {
+        final Transport transport = event.getTransport();
+        final Connection connection = event.getConnection();
+
+        // ConnectionHandler unbinds the transport when the service closes the connection first - unbinding it again
+        // would release the connection twice
+        if (transport != null && connection != null && connection.getTransport() != null) {
+            transport.unbind();
+        }
+    }
 }
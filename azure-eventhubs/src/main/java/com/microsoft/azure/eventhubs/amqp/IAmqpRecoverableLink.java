@@ -0,0 +1,15 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+package com.microsoft.azure.eventhubs.amqp;
+
+/**
+ * A link which can be re-created proactively - as soon as its connection is re-established - instead of on its next operation.
+ */
+public interface IAmqpRecoverableLink extends IAmqpLink {
+    /**
+     * invoked on the Reactor thread, after the connection which carried the link was lost and a new one is being opened
+     */
+    void onConnectionRecovered();
+}
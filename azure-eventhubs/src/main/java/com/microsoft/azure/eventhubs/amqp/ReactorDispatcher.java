@@ -9,6 +9,7 @@ import java.nio.ByteBuffer;
 import java.nio.channels.ClosedChannelException;
 import java.nio.channels.Pipe;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.qpid.proton.engine.BaseHandler;
 import org.apache.qpid.proton.engine.Event;
@@ -17,6 +18,10 @@ import org.apache.qpid.proton.reactor.Reactor;
 import org.apache.qpid.proton.reactor.Selectable;
 import org.apache.qpid.proton.reactor.Selectable.Callback;
 
+import com.microsoft.azure.eventhubs.metrics.IGauge;
+import com.microsoft.azure.eventhubs.metrics.MetricNames;
+import com.microsoft.azure.eventhubs.metrics.NoopMetricsProvider;
+
 /**
  * {@link Reactor} is not thread-safe - all calls to {@link Proton} API's should be - on the Reactor Thread.
  * {@link Reactor} works out-of-box for all event driven API - ex: onReceive - which could raise upon onSocketRead.
@@ -25,18 +30,33 @@ import org.apache.qpid.proton.reactor.Selectable.Callback;
  * It uses a {@link Pipe} as the IO on which Reactor Listens to.
  * Cardinality: multiple {@link ReactorDispatcher}'s could be attached to 1 {@link Reactor}.
  * Each {@link ReactorDispatcher} should be initialized Synchronously - as it calls API in {@link Reactor} which is not thread-safe.
+ * Wakeups are coalesced: the {@link Pipe} is signalled only when there is no wakeup outstanding - i.e., when the work queue transitions
+ * from drained to non-empty - as a single signal makes the Reactor drain the whole work queue.
+ * The depth of the work queue is reported to the {@link IGauge} it is created with.
  */
 public final class ReactorDispatcher {
     private final Reactor reactor;
     private final Pipe ioSignal;
     private final ConcurrentLinkedQueue<BaseHandler> workQueue;
     private final ScheduleHandler workScheduler;
+    private final AtomicBoolean wakeupPending;
+    private final ByteBuffer signalReadBuffer; // only used on the Reactor Thread
+    private final ByteBuffer signalWriteBuffer; // guarded by its own monitor
+    private final IGauge workQueueDepth;
 
     public ReactorDispatcher(final Reactor reactor) throws IOException {
+        this(reactor, NoopMetricsProvider.INSTANCE.gauge(MetricNames.REACTOR_QUEUE_DEPTH, null));
+    }
+
+    public ReactorDispatcher(final Reactor reactor, final IGauge workQueueDepth) throws IOException {
         this.reactor = reactor;
+        this.workQueueDepth = workQueueDepth;
         this.ioSignal = Pipe.open();
         this.workQueue = new ConcurrentLinkedQueue<>();
         this.workScheduler = new ScheduleHandler();
+        this.wakeupPending = new AtomicBoolean(false);
+        this.signalReadBuffer = ByteBuffer.allocate(1024);
+        this.signalWriteBuffer = ByteBuffer.allocate(1);
 
         initializeSelectable();
     }
@@ -54,19 +74,33 @@ public final class ReactorDispatcher {
 
     public void invoke(final DispatchHandler timerCallback) throws IOException {
         this.workQueue.offer(timerCallback);
+        this.workQueueDepth.add(1);
         this.signalWorkQueue();
     }
 
     public void invoke(final int delay, final DispatchHandler timerCallback) throws IOException {
         this.workQueue.offer(new DelayHandler(this.reactor, delay, timerCallback));
+        this.workQueueDepth.add(1);
         this.signalWorkQueue();
     }
 
     private void signalWorkQueue() throws IOException {
+        // a wakeup is already outstanding - the Reactor is guaranteed to drain the workQueue after this enqueue
+        if (!this.wakeupPending.compareAndSet(false, true))
+            return;
+
         try {
-            while (this.ioSignal.sink().write(ByteBuffer.allocate(1)) == 0) {
+            // the Reactor may reset wakeupPending - letting another thread signal - as soon as the byte is written
+            synchronized (this.signalWriteBuffer) {
+                this.signalWriteBuffer.clear();
+                while (this.ioSignal.sink().write(this.signalWriteBuffer) == 0) {
+                }
             }
         } catch (ClosedChannelException ignorePipeClosedDuringReactorShutdown) {
+        } catch (IOException | RuntimeException signalFailure) {
+            // no wakeup is outstanding after all - let the next invoke try to signal again
+            this.wakeupPending.set(false);
+            throw signalFailure;
         }
     }
 
@@ -91,15 +125,19 @@ public final class ReactorDispatcher {
         @Override
         public void run(Selectable selectable) {
             try {
-                ioSignal.source().read(ByteBuffer.allocate(1024));
+                signalReadBuffer.clear();
+                ioSignal.source().read(signalReadBuffer);
             } catch (ClosedChannelException ignorePipeClosedDuringReactorShutdown) {
             } catch (IOException ioException) {
                 throw new RuntimeException(ioException);
             }
 
+            // reset before draining - work enqueued from here on will signal again, if it misses this drain
+            wakeupPending.set(false);
 
             BaseHandler topWork;
             while ((topWork = workQueue.poll()) != null) {
+                workQueueDepth.add(-1);
                 topWork.onTimerTask(null);
             }
         }
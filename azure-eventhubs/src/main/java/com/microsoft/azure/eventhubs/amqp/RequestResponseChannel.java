@@ -5,8 +5,11 @@
 package com.microsoft.azure.eventhubs.amqp;
 
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.UUID;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -25,14 +28,29 @@ import org.apache.qpid.proton.message.Message;
 import org.apache.qpid.proton.Proton;
 import org.apache.qpid.proton.engine.EndpointState;
 
-import com.microsoft.azure.eventhubs.StringUtil;
-
+import com.microsoft.azure.eventhubs.ClientConstants;
+import com.microsoft.azure.eventhubs.OperationCancelledException;
+import com.microsoft.azure.eventhubs.TimeoutException;
+
+/**
+ * Request-response over a pair of links - with any number of requests in flight.
+ * <p>
+ * Requests can be issued from any thread: they are encoded on the caller's thread, correlated to their responses through a
+ * concurrent table and sent in batches - all requests queued by the time the Reactor gets to them go out in one pass, as far as
+ * the send link has credit (the rest go out as credit is issued). Request timeouts are enforced by a single sweep per channel,
+ * which runs every {@link ClientConstants#TIMER_TOLERANCE} while requests with a timeout are in flight - not by a timer per request.
+ */
 public class RequestResponseChannel implements IIOObject {
 
+    private static final long NO_DEADLINE = Long.MAX_VALUE;
+    private static final int TIMEOUT_SWEEP_INTERVAL_MS = (int) ClientConstants.TIMER_TOLERANCE.toMillis();
+
     private final Sender sendLink;
     private final Receiver receiveLink;
     private final String replyTo;
-    private final HashMap<Object, IOperationResult<Message, Exception>> inflightRequests;
+    private final ConcurrentHashMap<Object, InflightRequest> inflightRequests;
+    private final ConcurrentLinkedQueue<InflightRequest> pendingSends;
+    private final AtomicBoolean isSendScheduled;
     private final AtomicLong requestId;
     private final AtomicInteger openRefCount;
     private final AtomicInteger closeRefCount;
@@ -41,6 +59,9 @@ public class RequestResponseChannel implements IIOObject {
     private IOperationResult<Void, Exception> onClose; // handles closeLink due to failures
     private IOperationResult<Void, Exception> onGraceFullClose; // handles intentional close
 
+    private volatile ReactorDispatcher dispatcher;
+    private boolean isTimeoutSweepScheduled; // accessed only on the Reactor thread
+
     public RequestResponseChannel(
             final String linkName,
             final String path,
@@ -49,7 +70,9 @@ public class RequestResponseChannel implements IIOObject {
         this.replyTo = path.replace("$", "") + "-client-reply-to";
         this.openRefCount = new AtomicInteger(2);
         this.closeRefCount = new AtomicInteger(2);
-        this.inflightRequests = new HashMap<>();
+        this.inflightRequests = new ConcurrentHashMap<>();
+        this.pendingSends = new ConcurrentLinkedQueue<>();
+        this.isSendScheduled = new AtomicBoolean();
         this.requestId = new AtomicLong(0);
 
         this.sendLink = session.sender(linkName + ":sender");
@@ -102,6 +125,18 @@ public class RequestResponseChannel implements IIOObject {
             final Message message,
             final IOperationResult<Message, Exception> onResponse) {
 
+        this.request(dispatcher, message, null, onResponse);
+    }
+
+    /**
+     * @param timeout if there is no response within this time, onResponse fails with a {@link TimeoutException}; null for no timeout.
+     */
+    public void request(
+            final ReactorDispatcher dispatcher,
+            final Message message,
+            final Duration timeout,
+            final IOperationResult<Message, Exception> onResponse) {
+
         if (message == null)
             throw new IllegalArgumentException("message cannot be null");
 
@@ -111,31 +146,124 @@ public class RequestResponseChannel implements IIOObject {
         if (message.getReplyTo() != null)
             throw new IllegalArgumentException("message.getReplyTo() should be null");
 
-        message.setMessageId("request" + UnsignedLong.valueOf(this.requestId.incrementAndGet()).toString());
+        final String messageId = "request" + UnsignedLong.valueOf(this.requestId.incrementAndGet()).toString();
+        message.setMessageId(messageId);
         message.setReplyTo(this.replyTo);
 
-        this.inflightRequests.put(message.getMessageId(), onResponse);
+        final int payloadSize = AmqpUtil.getDataSerializedSize(message) + 512; // need buffer for headers
+        final byte[] bytes = new byte[payloadSize];
+        final int encodedSize = message.encode(bytes, 0, payloadSize);
+
+        final long deadlineNanos = timeout == null ? NO_DEADLINE : System.nanoTime() + timeout.toNanos();
+        final InflightRequest inflightRequest = new InflightRequest(messageId, bytes, encodedSize, deadlineNanos, onResponse);
+
+        this.dispatcher = dispatcher;
+        this.inflightRequests.put(messageId, inflightRequest);
+        this.pendingSends.offer(inflightRequest);
+
+        // one dispatch sends all requests queued till the Reactor gets to it
+        if (this.isSendScheduled.compareAndSet(false, true)) {
+            try {
+                dispatcher.invoke(new DispatchHandler() {
+                    @Override
+                    public void onEvent() {
+                        sendPendingRequests();
+                    }
+                });
+            } catch (IOException ioException) {
+                this.isSendScheduled.set(false);
+
+                InflightRequest pendingRequest;
+                while ((pendingRequest = this.pendingSends.poll()) != null) {
+                    if (this.inflightRequests.remove(pendingRequest.messageId, pendingRequest)) {
+                        pendingRequest.onResponse.onError(ioException);
+                    }
+                }
+            }
+        }
+    }
+
+    // should be called on the Reactor thread
+    private void sendPendingRequests() {
+
+        this.isSendScheduled.set(false);
+
+        int sent = 0;
+        boolean hasDeadlines = false;
+        while (this.sendLink.getCredit() > 0) {
+            final InflightRequest request = this.pendingSends.poll();
+            if (request == null)
+                break;
+
+            // timed out or failed while it was waiting to be sent
+            if (this.inflightRequests.get(request.messageId) != request)
+                continue;
+
+            this.sendLink.delivery(request.messageId.getBytes());
+            this.sendLink.send(request.bytes, 0, request.length);
+            this.sendLink.advance();
+
+            hasDeadlines |= request.deadlineNanos != NO_DEADLINE;
+            sent++;
+        }
+
+        if (sent > 0)
+            this.receiveLink.flow(sent);
 
+        if (hasDeadlines || !this.pendingSends.isEmpty())
+            this.scheduleTimeoutSweep();
+    }
+
+    // should be called on the Reactor thread
+    private void scheduleTimeoutSweep() {
+
+        if (this.isTimeoutSweepScheduled || this.dispatcher == null)
+            return;
+
+        this.isTimeoutSweepScheduled = true;
         try {
-            dispatcher.invoke(new DispatchHandler() {
+            this.dispatcher.invoke(TIMEOUT_SWEEP_INTERVAL_MS, new DispatchHandler() {
                 @Override
                 public void onEvent() {
+                    sweepTimedOutRequests();
+                }
+            });
+        } catch (IOException ignore) {
+            // the Reactor is shutting down - requests are failed as the links close
+            this.isTimeoutSweepScheduled = false;
+        }
+    }
 
-                    final Delivery delivery = sendLink.delivery(UUID.randomUUID().toString().replace("-", StringUtil.EMPTY).getBytes());
-                    final int payloadSize = AmqpUtil.getDataSerializedSize(message) + 512; // need buffer for headers
+    private void sweepTimedOutRequests() {
 
-                    delivery.setContext(onResponse);
+        this.isTimeoutSweepScheduled = false;
 
-                    final byte[] bytes = new byte[payloadSize];
-                    final int encodedSize = message.encode(bytes, 0, payloadSize);
+        final long now = System.nanoTime();
+        boolean hasDeadlines = false;
+        for (InflightRequest request : this.inflightRequests.values()) {
+            if (request.deadlineNanos == NO_DEADLINE)
+                continue;
 
-                    receiveLink.flow(1);
-                    sendLink.send(bytes, 0, encodedSize);
-                    sendLink.advance();
+            if (now - request.deadlineNanos >= 0) {
+                if (this.inflightRequests.remove(request.messageId, request)) {
+                    request.onResponse.onError(new TimeoutException(String.format(Locale.US,
+                            "request[%s] to [%s] timed out", request.messageId, this.sendLink.getName())));
                 }
-            });
-        } catch (IOException ioException) {
-            onResponse.onError(ioException);
+            } else {
+                hasDeadlines = true;
+            }
+        }
+
+        if (hasDeadlines)
+            this.scheduleTimeoutSweep();
+    }
+
+    private void failInflightRequests(final Exception exception) {
+
+        this.pendingSends.clear();
+        for (InflightRequest request : this.inflightRequests.values()) {
+            if (this.inflightRequests.remove(request.messageId, request))
+                request.onResponse.onError(exception);
         }
     }
 
@@ -158,7 +286,12 @@ public class RequestResponseChannel implements IIOObject {
 
     private void onLinkCloseComplete(final Exception exception) {
 
-        if (closeRefCount.decrementAndGet() <= 0)
+        if (closeRefCount.decrementAndGet() <= 0) {
+            // no responses can arrive once the links are closed
+            this.failInflightRequests(exception != null
+                    ? exception
+                    : new OperationCancelledException(String.format(Locale.US, "request-response channel[%s] closed", this.sendLink.getName())));
+
             if (exception == null) {
                 onClose.onComplete(null);
                 if (onGraceFullClose != null)
@@ -168,6 +301,7 @@ public class RequestResponseChannel implements IIOObject {
                 if (onGraceFullClose != null)
                     onGraceFullClose.onError(exception);
             }
+        }
     }
 
     @Override
@@ -191,6 +325,8 @@ public class RequestResponseChannel implements IIOObject {
 
         @Override
         public void onFlow(int creditIssued) {
+
+            sendPendingRequests();
         }
 
         @Override
@@ -234,9 +370,10 @@ public class RequestResponseChannel implements IIOObject {
             response.decode(buffer, 0, read);
             delivery.settle();
 
-            final IOperationResult<Message, Exception> responseCallback = inflightRequests.remove(response.getCorrelationId());
-            if (responseCallback != null)
-                responseCallback.onComplete(response);
+            final Object correlationId = response.getCorrelationId();
+            final InflightRequest request = correlationId != null ? inflightRequests.remove(correlationId) : null;
+            if (request != null)
+                request.onResponse.onComplete(response);
         }
 
         @Override
@@ -248,10 +385,7 @@ public class RequestResponseChannel implements IIOObject {
         @Override
         public void onError(Exception exception) {
 
-            for (IOperationResult<Message, Exception> responseCallback : inflightRequests.values())
-                responseCallback.onError(exception);
-
-            inflightRequests.clear();
+            failInflightRequests(exception);
 
             if (onClose != null)
                 onLinkCloseComplete(exception);
@@ -266,4 +400,21 @@ public class RequestResponseChannel implements IIOObject {
                 onError(new AmqpException(condition));
         }
     }
+
+    private static final class InflightRequest {
+        final String messageId;
+        final byte[] bytes;
+        final int length;
+        final long deadlineNanos;
+        final IOperationResult<Message, Exception> onResponse;
+
+        InflightRequest(final String messageId, final byte[] bytes, final int length, final long deadlineNanos,
+                final IOperationResult<Message, Exception> onResponse) {
+            this.messageId = messageId;
+            this.bytes = bytes;
+            this.length = length;
+            this.deadlineNanos = deadlineNanos;
+            this.onResponse = onResponse;
+        }
+    }
 }
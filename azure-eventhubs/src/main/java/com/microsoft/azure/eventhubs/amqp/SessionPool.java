@@ -0,0 +1,231 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+package com.microsoft.azure.eventhubs.amqp;
+
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.qpid.proton.amqp.transport.ErrorCondition;
+import org.apache.qpid.proton.engine.BaseHandler;
+import org.apache.qpid.proton.engine.Connection;
+import org.apache.qpid.proton.engine.EndpointState;
+import org.apache.qpid.proton.engine.Event;
+import org.apache.qpid.proton.engine.Handler;
+import org.apache.qpid.proton.engine.Link;
+import org.apache.qpid.proton.engine.Session;
+
+import com.microsoft.azure.eventhubs.ClientConstants;
+
+/**
+ * Multiplexes links on a connection over a pool of sessions - upto maxLinksPerSession links per session.
+ * A session is ended when its last link is closed. With maxLinksPerSession = 1, every link gets its own session.
+ * <p>
+ * Not thread-safe - should only be accessed on the Reactor thread.
+ */
+public final class SessionPool {
+    private static final Logger TRACE_LOGGER = Logger.getLogger(ClientConstants.EVENTHUB_CLIENT_TRACE);
+
+    private static final EnumSet<EndpointState> OPEN_STATES = EnumSet.of(EndpointState.UNINITIALIZED, EndpointState.ACTIVE);
+    private static final EnumSet<EndpointState> ANY_STATE = EnumSet.allOf(EndpointState.class);
+
+    private final int maxLinksPerSession;
+    private final int sessionWindowSize;
+    private final List<PooledSessionHandler> sessions;
+
+    /**
+     * @param maxLinksPerSession number of links multiplexed on one session.
+     * @param sessionWindowSize  incoming & outgoing session window - in number of frames; 0 leaves the proton-j defaults.
+     */
+    public SessionPool(final int maxLinksPerSession, final int sessionWindowSize) {
+        this.maxLinksPerSession = maxLinksPerSession;
+        this.sessionWindowSize = sessionWindowSize;
+        this.sessions = new LinkedList<>();
+    }
+
+    /**
+     * Hands out an opened session on the connection, which has room for one more link - opening a new one, if none has.
+     * The caller should create its link in onSessionOpen; or return the session using {@link #releaseSession(Session)} if it no longer needs it.
+     */
+    public void getSession(
+            final Connection connection,
+            final String path,
+            final Consumer<Session> onSessionOpen,
+            final BiConsumer<ErrorCondition, Exception> onSessionOpenError) {
+        PooledSessionHandler pooledSession = null;
+        final Iterator<PooledSessionHandler> pooledSessions = this.sessions.iterator();
+        while (pooledSessions.hasNext()) {
+            final PooledSessionHandler current = pooledSessions.next();
+            if (current.isDead(connection)) {
+                pooledSessions.remove();
+                continue;
+            }
+
+            if (pooledSession == null && current.getLinkCount() < this.maxLinksPerSession) {
+                pooledSession = current;
+            }
+        }
+
+        if (pooledSession == null) {
+            final Session session = connection.session();
+            if (this.sessionWindowSize > 0) {
+                session.setIncomingCapacity(this.sessionWindowSize * ClientConstants.MAX_FRAME_SIZE_BYTES);
+                session.setOutgoingWindow(this.sessionWindowSize);
+            }
+
+            pooledSession = new PooledSessionHandler(session, path);
+            BaseHandler.setHandler(session, pooledSession);
+            this.sessions.add(pooledSession);
+            pooledSession.addWaiter(onSessionOpen, onSessionOpenError);
+            session.open();
+            return;
+        }
+
+        if (TRACE_LOGGER.isLoggable(Level.FINE)) {
+            TRACE_LOGGER.log(Level.FINE, String.format(Locale.US, "entityName[%s], reusing session of entityName[%s], links[%s]",
+                    path, pooledSession.getEntityName(), pooledSession.getLinkCount()));
+        }
+
+        pooledSession.addWaiter(onSessionOpen, onSessionOpenError);
+    }
+
+    /**
+     * Ends the session - unless it is a pooled session which still carries other links.
+     * Safe to call multiple times for the same link.
+     */
+    public static void releaseSession(final Session session) {
+        if (session == null || session.getLocalState() == EndpointState.CLOSED) {
+            return;
+        }
+
+        final Handler handler = BaseHandler.getHandler(session);
+        if (handler instanceof PooledSessionHandler && ((PooledSessionHandler) handler).getLinkCount() > 0) {
+            return;
+        }
+
+        session.close();
+    }
+
+    private static final class PooledSessionHandler extends SessionHandler {
+        private final Session session;
+        private final String entityName;
+        private final List<Consumer<Session>> openWaiters;
+        private final List<BiConsumer<ErrorCondition, Exception>> errorWaiters;
+
+        private boolean isOpened;
+
+        PooledSessionHandler(final Session session, final String entityName) {
+            this(session, entityName, new LinkedList<Consumer<Session>>(), new LinkedList<BiConsumer<ErrorCondition, Exception>>());
+        }
+
+        private PooledSessionHandler(
+                final Session session,
+                final String entityName,
+                final List<Consumer<Session>> openWaiters,
+                final List<BiConsumer<ErrorCondition, Exception>> errorWaiters) {
+            super(entityName,
+                    new Consumer<Session>() {
+                        @Override
+                        public void accept(Session openedSession) {
+                            final List<Consumer<Session>> waiters = new LinkedList<>(openWaiters);
+                            openWaiters.clear();
+                            errorWaiters.clear();
+                            for (Consumer<Session> waiter : waiters) {
+                                waiter.accept(openedSession);
+                            }
+                        }
+                    },
+                    new BiConsumer<ErrorCondition, Exception>() {
+                        @Override
+                        public void accept(ErrorCondition condition, Exception exception) {
+                            final List<BiConsumer<ErrorCondition, Exception>> waiters = new LinkedList<>(errorWaiters);
+                            openWaiters.clear();
+                            errorWaiters.clear();
+                            for (BiConsumer<ErrorCondition, Exception> waiter : waiters) {
+                                waiter.accept(condition, exception);
+                            }
+                        }
+                    });
+
+            this.session = session;
+            this.entityName = entityName;
+            this.openWaiters = openWaiters;
+            this.errorWaiters = errorWaiters;
+        }
+
+        void addWaiter(final Consumer<Session> onSessionOpen, final BiConsumer<ErrorCondition, Exception> onSessionOpenError) {
+            if (this.isOpened) {
+                onSessionOpen.accept(this.session);
+                return;
+            }
+
+            this.openWaiters.add(onSessionOpen);
+            this.errorWaiters.add(onSessionOpenError);
+        }
+
+        // links which are not yet closed + links waiting for the session to open
+        int getLinkCount() {
+            int linkCount = this.openWaiters.size();
+            final Connection connection = this.session.getConnection();
+            Link link = connection != null ? connection.linkHead(OPEN_STATES, ANY_STATE) : null;
+            while (link != null) {
+                if (link.getSession() == this.session) {
+                    linkCount++;
+                }
+
+                link = link.next(OPEN_STATES, ANY_STATE);
+            }
+
+            return linkCount;
+        }
+
+        boolean isDead(final Connection currentConnection) {
+            return this.session.getConnection() != currentConnection
+                    || this.session.getLocalState() == EndpointState.CLOSED
+                    || this.session.getRemoteState() == EndpointState.CLOSED;
+        }
+
+        @Override
+        public void onSessionRemoteOpen(Event e) {
+            this.isOpened = true;
+            super.onSessionRemoteOpen(e);
+        }
+
+        @Override
+        public void onSessionRemoteClose(Event e) {
+            // ending a session implicitly detaches all its links - and a shared session might carry links of many entities
+            final List<Link> closedLinks = new LinkedList<>();
+            final Connection connection = this.session.getConnection();
+            Link link = connection != null ? connection.linkHead(OPEN_STATES, ANY_STATE) : null;
+            while (link != null) {
+                if (link.getSession() == this.session) {
+                    closedLinks.add(link);
+                }
+
+                link = link.next(OPEN_STATES, ANY_STATE);
+            }
+
+            super.onSessionRemoteClose(e);
+
+            for (Link closedLink : closedLinks) {
+                closedLink.close();
+                final Handler handler = BaseHandler.getHandler(closedLink);
+                if (handler instanceof BaseLinkHandler) {
+                    ((BaseLinkHandler) handler).processOnClose(closedLink, this.session.getRemoteCondition());
+                }
+            }
+        }
+
+        String getEntityName() {
+            return this.entityName;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+package com.microsoft.azure.eventhubs.metrics;
+
+/**
+ * The process-wide {@link IMetricsProvider} of the client - like a java.util.logging handler, it is installed once, at startup.
+ * <p>
+ * Until a provider is set, the client reports to {@link NoopMetricsProvider}. Senders, receivers and connections pick up the provider
+ * when they are created; so, set it before creating an {@link com.microsoft.azure.eventhubs.EventHubClient}.
+ * <pre>{@code
+ * InMemoryMetricsProvider metrics = new InMemoryMetricsProvider();
+ * EventHubMetrics.setProvider(metrics);
+ * ...
+ * long acks = metrics.getCount(MetricNames.SENDER_ACKS, MetricTags.of("hub", "0"));
+ * }</pre>
+ */
+public final class EventHubMetrics {
+    private static volatile IMetricsProvider provider = NoopMetricsProvider.INSTANCE;
+
+    private EventHubMetrics() {
+    }
+
+    public static IMetricsProvider getProvider() {
+        return provider;
+    }
+
+    /**
+     * @param metricsProvider the provider - null to stop reporting
+     */
+    public static void setProvider(final IMetricsProvider metricsProvider) {
+        provider = metricsProvider == null ? NoopMetricsProvider.INSTANCE : metricsProvider;
+    }
+}
@@ -0,0 +1,13 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+package com.microsoft.azure.eventhubs.metrics;
+
+/**
+ * A count which only goes up - ex: sends, deliveries, reconnects.
+ * Implementations have to be thread-safe and cheap: counters are incremented on the send and receive paths.
+ */
+public interface ICounter {
+    void increment(long count);
+}
@@ -0,0 +1,13 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+package com.microsoft.azure.eventhubs.metrics;
+
+/**
+ * A level which goes up and down - ex: sends in flight, prefetched events, queued reactor work.
+ * The client adds to it as items come and go; so, its value is the sum of all deltas. Implementations have to be thread-safe.
+ */
+public interface IGauge {
+    void add(long delta);
+}
@@ -0,0 +1,12 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+package com.microsoft.azure.eventhubs.metrics;
+
+/**
+ * A distribution of values - ex: send acknowledgement latency in microseconds. Implementations have to be thread-safe.
+ */
+public interface IHistogram {
+    void record(long value);
+}
@@ -0,0 +1,22 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+package com.microsoft.azure.eventhubs.metrics;
+
+/**
+ * Creates the instruments, which the client reports its operational numbers to - see {@link MetricNames} for what is reported.
+ * <p>
+ * The client asks for its instruments once, when a sender, receiver or connection is created - and then updates them on every operation;
+ * so, implementations can do the lookup work here, and keep the instruments themselves cheap.
+ * Asking twice for the same name and tags should return instruments which report to the same metric.
+ *
+ * @see EventHubMetrics#setProvider(IMetricsProvider)
+ */
+public interface IMetricsProvider {
+    ICounter counter(String name, MetricTags tags);
+
+    IGauge gauge(String name, MetricTags tags);
+
+    IHistogram histogram(String name, MetricTags tags);
+}
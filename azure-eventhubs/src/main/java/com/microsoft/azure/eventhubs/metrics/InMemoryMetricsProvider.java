@@ -0,0 +1,239 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+package com.microsoft.azure.eventhubs.metrics;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps the metrics in memory - for tests, diagnostics, or to be polled and published by the application.
+ * Counters and gauges are {@link LongAdder}s; histograms keep count, sum, min and max.
+ */
+public final class InMemoryMetricsProvider implements IMetricsProvider {
+    private final ConcurrentMap<MetricKey, Counter> counters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<MetricKey, Gauge> gauges = new ConcurrentHashMap<>();
+    private final ConcurrentMap<MetricKey, Histogram> histograms = new ConcurrentHashMap<>();
+
+    @Override
+    public ICounter counter(final String name, final MetricTags tags) {
+        final MetricKey key = new MetricKey(name, tags);
+        Counter counter = this.counters.get(key);
+        if (counter == null) {
+            final Counter newCounter = new Counter();
+            counter = this.counters.putIfAbsent(key, newCounter);
+            if (counter == null) {
+                counter = newCounter;
+            }
+        }
+
+        return counter;
+    }
+
+    @Override
+    public IGauge gauge(final String name, final MetricTags tags) {
+        final MetricKey key = new MetricKey(name, tags);
+        Gauge gauge = this.gauges.get(key);
+        if (gauge == null) {
+            final Gauge newGauge = new Gauge();
+            gauge = this.gauges.putIfAbsent(key, newGauge);
+            if (gauge == null) {
+                gauge = newGauge;
+            }
+        }
+
+        return gauge;
+    }
+
+    @Override
+    public IHistogram histogram(final String name, final MetricTags tags) {
+        final MetricKey key = new MetricKey(name, tags);
+        Histogram histogram = this.histograms.get(key);
+        if (histogram == null) {
+            final Histogram newHistogram = new Histogram();
+            histogram = this.histograms.putIfAbsent(key, newHistogram);
+            if (histogram == null) {
+                histogram = newHistogram;
+            }
+        }
+
+        return histogram;
+    }
+
+    /**
+     * @return value of the counter - 0 if nothing was reported to it
+     */
+    public long getCount(final String name, final MetricTags tags) {
+        final Counter counter = this.counters.get(new MetricKey(name, tags));
+        return counter == null ? 0 : counter.value.sum();
+    }
+
+    /**
+     * @return sum of the counters of the name, across all tags
+     */
+    public long getTotalCount(final String name) {
+        long total = 0;
+        for (Map.Entry<MetricKey, Counter> counter : this.counters.entrySet()) {
+            if (counter.getKey().name.equals(name)) {
+                total += counter.getValue().value.sum();
+            }
+        }
+
+        return total;
+    }
+
+    /**
+     * @return value of the gauge - 0 if nothing was reported to it
+     */
+    public long getGaugeValue(final String name, final MetricTags tags) {
+        final Gauge gauge = this.gauges.get(new MetricKey(name, tags));
+        return gauge == null ? 0 : gauge.value.sum();
+    }
+
+    /**
+     * @return the values recorded in the histogram so far - empty if nothing was reported to it
+     */
+    public HistogramSnapshot getHistogram(final String name, final MetricTags tags) {
+        final Histogram histogram = this.histograms.get(new MetricKey(name, tags));
+        return histogram == null ? new HistogramSnapshot(0, 0, 0, 0) : histogram.snapshot();
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder metrics = new StringBuilder();
+        for (Map.Entry<MetricKey, Counter> counter : this.counters.entrySet()) {
+            metrics.append(String.format(Locale.US, "%s %s: %s%n", counter.getKey().name, counter.getKey().tags, counter.getValue().value.sum()));
+        }
+
+        for (Map.Entry<MetricKey, Gauge> gauge : this.gauges.entrySet()) {
+            metrics.append(String.format(Locale.US, "%s %s: %s%n", gauge.getKey().name, gauge.getKey().tags, gauge.getValue().value.sum()));
+        }
+
+        for (Map.Entry<MetricKey, Histogram> histogram : this.histograms.entrySet()) {
+            metrics.append(String.format(Locale.US, "%s %s: %s%n", histogram.getKey().name, histogram.getKey().tags, histogram.getValue().snapshot()));
+        }
+
+        return metrics.toString();
+    }
+
+    public static final class HistogramSnapshot {
+        private final long count;
+        private final long sum;
+        private final long min;
+        private final long max;
+
+        HistogramSnapshot(final long count, final long sum, final long min, final long max) {
+            this.count = count;
+            this.sum = sum;
+            this.min = min;
+            this.max = max;
+        }
+
+        public long getCount() {
+            return this.count;
+        }
+
+        public long getSum() {
+            return this.sum;
+        }
+
+        /**
+         * @return the smallest value recorded - 0 if none were
+         */
+        public long getMin() {
+            return this.min;
+        }
+
+        /**
+         * @return the largest value recorded - 0 if none were
+         */
+        public long getMax() {
+            return this.max;
+        }
+
+        public double getMean() {
+            return this.count == 0 ? 0 : (double) this.sum / this.count;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "count[%s], min[%s], mean[%.1f], max[%s]", this.count, this.min, this.getMean(), this.max);
+        }
+    }
+
+    private static final class MetricKey {
+        final String name;
+        final MetricTags tags;
+
+        MetricKey(final String name, final MetricTags tags) {
+            this.name = name;
+            this.tags = tags;
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            if (!(other instanceof MetricKey)) {
+                return false;
+            }
+
+            final MetricKey otherKey = (MetricKey) other;
+            return this.name.equals(otherKey.name) && Objects.equals(this.tags, otherKey.tags);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * this.name.hashCode() + Objects.hashCode(this.tags);
+        }
+    }
+
+    private static final class Counter implements ICounter {
+        final LongAdder value = new LongAdder();
+
+        @Override
+        public void increment(final long count) {
+            this.value.add(count);
+        }
+    }
+
+    private static final class Gauge implements IGauge {
+        final LongAdder value = new LongAdder();
+
+        @Override
+        public void add(final long delta) {
+            this.value.add(delta);
+        }
+    }
+
+    private static final class Histogram implements IHistogram {
+        final LongAdder count = new LongAdder();
+        final LongAdder sum = new LongAdder();
+        final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+        final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+
+        @Override
+        public void record(final long value) {
+            this.count.increment();
+            this.sum.add(value);
+
+            long current;
+            while (value < (current = this.min.get()) && !this.min.compareAndSet(current, value)) {
+            }
+
+            while (value > (current = this.max.get()) && !this.max.compareAndSet(current, value)) {
+            }
+        }
+
+        HistogramSnapshot snapshot() {
+            final long recorded = this.count.sum();
+            return recorded == 0
+                    ? new HistogramSnapshot(0, 0, 0, 0)
+                    : new HistogramSnapshot(recorded, this.sum.sum(), this.min.get(), this.max.get());
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+package com.microsoft.azure.eventhubs.metrics;
+
+/**
+ * Names of the metrics the client reports. Latencies are in microseconds; sizes are in bytes.
+ */
+public final class MetricNames {
+    /** counter: sends started by the application - a batch is one send */
+    public static final String SENDER_SENDS = "eventhubs.sender.sends";
+    /** counter: encoded bytes of the sends started by the application */
+    public static final String SENDER_BYTES = "eventhubs.sender.bytes";
+    /** counter: sends acknowledged (accepted) by the service */
+    public static final String SENDER_ACKS = "eventhubs.sender.acks";
+    /** counter: sends rejected by the service - each attempt of a retried send counts */
+    public static final String SENDER_REJECTS = "eventhubs.sender.rejects";
+    /** counter: send attempts made after a reject */
+    public static final String SENDER_RETRIES = "eventhubs.sender.retries";
+    /** gauge: sends which are not yet acknowledged, failed or timed out */
+    public static final String SENDER_IN_FLIGHT = "eventhubs.sender.inflight";
+    /** histogram: time from the send till the service acknowledged it - including retries */
+    public static final String SENDER_ACK_LATENCY = "eventhubs.sender.ack.latency";
+
+    /** counter: events delivered by the service to the receiver */
+    public static final String RECEIVER_DELIVERIES = "eventhubs.receiver.deliveries";
+    /** gauge: events prefetched - received from the service, but not yet by the application */
+    public static final String RECEIVER_PREFETCH_DEPTH = "eventhubs.receiver.prefetch.depth";
+    /** counter: link credit issued to the service */
+    public static final String RECEIVER_CREDIT_ISSUED = "eventhubs.receiver.credit.issued";
+
+    /** counter: connections opened - tagged with the host name of the namespace */
+    public static final String CONNECTION_OPENS = "eventhubs.connection.opens";
+    /** counter: connection recoveries - after a connection or reactor failure */
+    public static final String CONNECTION_RECONNECTS = "eventhubs.connection.reconnects";
+    /** gauge: work items queued for the reactor thread, and not yet run */
+    public static final String REACTOR_QUEUE_DEPTH = "eventhubs.reactor.queue.depth";
+
+    /** counter: scans of all the leases by an EventProcessorHost */
+    public static final String EPH_LEASE_SCANS = "eventhubs.eph.lease.scans";
+    /** counter: expired leases acquired */
+    public static final String EPH_LEASE_ACQUIRES = "eventhubs.eph.lease.acquires";
+    /** counter: leases stolen from other hosts, for load balancing */
+    public static final String EPH_LEASE_STEALS = "eventhubs.eph.lease.steals";
+    /** counter: renewals of owned leases, by the renewal timers */
+    public static final String EPH_LEASE_RENEWALS = "eventhubs.eph.lease.renewals";
+    /** histogram: how late lease renewals started, after they were due */
+    public static final String EPH_LEASE_RENEWAL_LATENESS = "eventhubs.eph.lease.renewal.lateness";
+    /** counter: owned leases found lost by a renewal */
+    public static final String EPH_LEASES_LOST = "eventhubs.eph.leases.lost";
+    /** histogram: time to persist a checkpoint */
+    public static final String EPH_CHECKPOINT_LATENCY = "eventhubs.eph.checkpoint.latency";
+    /** gauge: lease and checkpoint store calls queued for a storage I/O thread */
+    public static final String EPH_STORAGE_QUEUE_DEPTH = "eventhubs.eph.storage.queue.depth";
+    /** gauge: lease and checkpoint store calls running on the storage I/O threads */
+    public static final String EPH_STORAGE_ACTIVE = "eventhubs.eph.storage.active";
+    /** histogram: how long lease and checkpoint store calls waited for a storage I/O thread */
+    public static final String EPH_STORAGE_QUEUE_WAIT = "eventhubs.eph.storage.queue.wait";
+
+    private MetricNames() {
+    }
+}
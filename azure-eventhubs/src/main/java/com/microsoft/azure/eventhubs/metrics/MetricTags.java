@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+package com.microsoft.azure.eventhubs.metrics;
+
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Identifies what a metric is about: the entity - an event hub path (with the consumer group, for receivers), or the host name of the
+ * namespace for connection metrics - and the partition, if the metric is about one.
+ */
+public final class MetricTags {
+    private static final String PARTITIONS_SEGMENT = "/Partitions/";
+
+    private final String entity;
+    private final String partitionId;
+
+    private MetricTags(final String entity, final String partitionId) {
+        this.entity = entity;
+        this.partitionId = partitionId;
+    }
+
+    /**
+     * @param entity      the event hub path, or the host name of the namespace
+     * @param partitionId the partition - null if the metric isn't about one partition
+     * @return the tags
+     */
+    public static MetricTags of(final String entity, final String partitionId) {
+        return new MetricTags(entity, partitionId);
+    }
+
+    /**
+     * @param entityPath address of a link - ex: "hub", "hub/Partitions/0" or "hub/ConsumerGroups/$Default/Partitions/0"
+     * @return the tags - with the path before "/Partitions/" as the entity
+     */
+    public static MetricTags forEntityPath(final String entityPath) {
+        final int partitionsIndex = entityPath.lastIndexOf(PARTITIONS_SEGMENT);
+        return partitionsIndex < 0
+                ? new MetricTags(entityPath, null)
+                : new MetricTags(entityPath.substring(0, partitionsIndex), entityPath.substring(partitionsIndex + PARTITIONS_SEGMENT.length()));
+    }
+
+    public String getEntity() {
+        return this.entity;
+    }
+
+    /**
+     * @return the partition - null if the metric isn't about one partition
+     */
+    public String getPartitionId() {
+        return this.partitionId;
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        if (this == other) {
+            return true;
+        }
+
+        if (!(other instanceof MetricTags)) {
+            return false;
+        }
+
+        final MetricTags otherTags = (MetricTags) other;
+        return Objects.equals(this.entity, otherTags.entity) && Objects.equals(this.partitionId, otherTags.partitionId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(this.entity, this.partitionId);
+    }
+
+    @Override
+    public String toString() {
+        return this.partitionId == null
+                ? String.format(Locale.US, "entity[%s]", this.entity)
+                : String.format(Locale.US, "entity[%s], partition[%s]", this.entity, this.partitionId);
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+package com.microsoft.azure.eventhubs.metrics;
+
+/**
+ * Discards everything - the default provider, so that the client pays nothing for metrics unless a provider is set.
+ */
+public final class NoopMetricsProvider implements IMetricsProvider {
+    public static final NoopMetricsProvider INSTANCE = new NoopMetricsProvider();
+
+    private static final NoopInstrument NOOP_INSTRUMENT = new NoopInstrument();
+
+    private NoopMetricsProvider() {
+    }
+
+    @Override
+    public ICounter counter(final String name, final MetricTags tags) {
+        return NOOP_INSTRUMENT;
+    }
+
+    @Override
+    public IGauge gauge(final String name, final MetricTags tags) {
+        return NOOP_INSTRUMENT;
+    }
+
+    @Override
+    public IHistogram histogram(final String name, final MetricTags tags) {
+        return NOOP_INSTRUMENT;
+    }
+
+    private static final class NoopInstrument implements ICounter, IGauge, IHistogram {
+        @Override
+        public void increment(final long count) {
+        }
+
+        @Override
+        public void add(final long delta) {
+        }
+
+        @Override
+        public void record(final long value) {
+        }
+    }
+}
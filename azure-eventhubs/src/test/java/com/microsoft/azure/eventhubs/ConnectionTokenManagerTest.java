@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+package com.microsoft.azure.eventhubs;
+
+import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.microsoft.azure.eventhubs.amqp.DispatchHandler;
+import com.microsoft.azure.eventhubs.amqp.IOperationResult;
+import com.microsoft.azure.eventhubs.lib.Mock.FaultInjectingServerHandler;
+import com.microsoft.azure.eventhubs.lib.Mock.MockServer;
+import com.microsoft.azure.eventhubs.lib.TestBase;
+
+/**
+ * Runs against a local mock server (no EventHubs namespace needed) - and counts the put-token requests which reach it.
+ */
+public class ConnectionTokenManagerTest extends TestBase
+{
+	static final long PUT_TOKEN_WAIT_MS = 10000;
+
+	static FaultInjectingServerHandler serverHandler;
+	static MockServer server;
+	static MessagingFactory factory;
+
+	@BeforeClass
+	public static void startServer() throws Exception
+	{
+		MockServer.allowAnonymousTls();
+
+		serverHandler = new FaultInjectingServerHandler();
+		server = MockServer.Create(serverHandler);
+
+		final ConnectionStringBuilder connectionString = new ConnectionStringBuilder(new URI("amqps://" + MockServer.HostName), "hub", "keyName", "key");
+		connectionString.setOperationTimeout(Duration.ofSeconds(30));
+		factory = MessagingFactory.createFromConnectionString(connectionString.toString()).get(30, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void failedRenewalIsRetriedByTheNextScan() throws Exception
+	{
+		final ConnectionTokenManager tokenManager = factory.getTokenManager();
+		final String audience = String.format(Locale.US, ClientConstants.TOKEN_AUDIENCE_FORMAT, MockServer.HostName, "hub");
+		tokenManager.register(audience);
+		ensureTokenPut(tokenManager, audience).get(30, TimeUnit.SECONDS);
+
+		// a scan which looks far enough ahead finds the token due - its renewal fails
+		final int putTokensBefore = serverHandler.getPutTokenRequests();
+		serverHandler.failPutTokens(1);
+		tokenManager.renewDueTokens(Instant.now().plus(ClientConstants.TOKEN_VALIDITY));
+		awaitPutTokenRequests(putTokensBefore + 1);
+
+		// the token put before is still in place - a link open doesn't put it again
+		ensureTokenPut(tokenManager, audience).get(30, TimeUnit.SECONDS);
+		Assert.assertEquals(putTokensBefore + 1, serverHandler.getPutTokenRequests());
+
+		// the next scans renew it again - the first one might still see the failed put in flight
+		final long deadline = System.currentTimeMillis() + PUT_TOKEN_WAIT_MS;
+		while (serverHandler.getPutTokenRequests() < putTokensBefore + 2 && System.currentTimeMillis() < deadline)
+		{
+			tokenManager.renewDueTokens(Instant.now().plus(ClientConstants.TOKEN_VALIDITY));
+			Thread.sleep(50);
+		}
+
+		Assert.assertTrue(serverHandler.getPutTokenRequests() >= putTokensBefore + 2);
+		tokenManager.unregister(audience);
+	}
+
+	private static CompletableFuture<Void> ensureTokenPut(final ConnectionTokenManager tokenManager, final String audience) throws Exception
+	{
+		final CompletableFuture<Void> tokenPut = new CompletableFuture<>();
+		factory.scheduleOnReactorThread(new DispatchHandler()
+		{
+			@Override
+			public void onEvent()
+			{
+				tokenManager.ensureTokenPut(audience, new IOperationResult<Void, Exception>()
+				{
+					@Override
+					public void onComplete(Void result)
+					{
+						tokenPut.complete(null);
+					}
+
+					@Override
+					public void onError(Exception error)
+					{
+						tokenPut.completeExceptionally(error);
+					}
+				});
+			}
+		});
+
+		return tokenPut;
+	}
+
+	private static void awaitPutTokenRequests(final int expected) throws InterruptedException
+	{
+		final long deadline = System.currentTimeMillis() + PUT_TOKEN_WAIT_MS;
+		while (serverHandler.getPutTokenRequests() < expected && System.currentTimeMillis() < deadline)
+			Thread.sleep(10);
+
+		Assert.assertEquals(expected, serverHandler.getPutTokenRequests());
+	}
+
+	@AfterClass
+	public static void stopServer() throws Exception
+	{
+		if (factory != null)
+			factory.closeSync();
+
+		if (server != null)
+			server.close();
+
+		MockServer.restoreTls();
+	}
+}
@@ -62,4 +62,79 @@ public class EventHubClientTest extends ApiTestBase
 		}
 	}
 	
+	@Test()
+	public void testPooledEventHubClientsOutliveEachOther() throws EventHubException, InterruptedException, ExecutionException, IOException
+	{
+		final String consumerGroupName = TestContext.getConsumerGroupName();
+		final String partitionId = "0";
+		final MessagingFactoryPool factoryPool = new MessagingFactoryPool(2);
+		final ConnectionStringBuilder connectionString = TestContext.getConnectionString();
+		
+		final EventHubClient[] ehClients = new EventHubClient[4];
+		for (int i = 0; i < 4; i++)
+		{
+			ehClients[i] = EventHubClient.createFromConnectionStringSync(connectionString.toString(), null, factoryPool);
+		}
+		
+		try
+		{
+			TestBase.pushEventsToPartition(ehClients[0], partitionId, 10).get();
+			
+			// closing a client should only release its reference to the shared connection
+			ehClients[0].closeSync();
+			ehClients[1].closeSync();
+			
+			for (int i = 2; i < 4; i++)
+			{
+				PartitionReceiver receiver = ehClients[i].createReceiverSync(consumerGroupName, partitionId, PartitionReceiver.START_OF_STREAM, false);
+				try
+				{
+					Assert.assertTrue(receiver.receiveSync(100).iterator().hasNext());
+				}
+				finally
+				{
+					receiver.closeSync();
+				}
+			}
+		}
+		finally
+		{
+			for (EventHubClient ehClient : ehClients)
+			{
+				ehClient.closeSync();
+			}
+		}
+	}
+
+	@Test()
+	public void testLinksSpreadAcrossPooledConnections() throws EventHubException, InterruptedException, ExecutionException, IOException
+	{
+		final String consumerGroupName = TestContext.getConsumerGroupName();
+		final int partitionCount = Math.min(TestContext.getPartitionCount(), 4);
+		final MessagingFactoryPool eventLoopGroup = new MessagingFactoryPool(2, true);
+		final EventHubClient ehClient = EventHubClient.createFromConnectionStringSync(TestContext.getConnectionString().toString(), null, eventLoopGroup);
+		
+		try
+		{
+			for (int partition = 0; partition < partitionCount; partition++)
+			{
+				final String partitionId = Integer.toString(partition);
+				TestBase.pushEventsToPartition(ehClient, partitionId, 1).get();
+				
+				PartitionReceiver receiver = ehClient.createReceiverSync(consumerGroupName, partitionId, PartitionReceiver.START_OF_STREAM, false);
+				try
+				{
+					Assert.assertTrue(receiver.receiveSync(100).iterator().hasNext());
+				}
+				finally
+				{
+					receiver.closeSync();
+				}
+			}
+		}
+		finally
+		{
+			ehClient.closeSync();
+		}
+	}
 }
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+package com.microsoft.azure.eventhubs.concurrency;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.logging.Level;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.microsoft.azure.eventhubs.ConnectionStringBuilder;
+import com.microsoft.azure.eventhubs.EventData;
+import com.microsoft.azure.eventhubs.EventHubClient;
+import com.microsoft.azure.eventhubs.PartitionSender;
+import com.microsoft.azure.eventhubs.lib.Mock.FaultInjectingServerHandler;
+import com.microsoft.azure.eventhubs.lib.Mock.MockServer;
+import com.microsoft.azure.eventhubs.lib.TestBase;
+
+/**
+ * Runs against a local fault-injecting server (no EventHubs namespace needed).
+ * Measures how long each link takes to be usable again after the connection is force-closed - the distribution is traced at FINE level.
+ */
+public class FastReconnectTest extends TestBase
+{
+	static final int LINK_COUNT = 32;
+	static final int FAULT_COUNT = 20;
+
+	static FaultInjectingServerHandler serverHandler;
+	static MockServer server;
+
+	@BeforeClass
+	public static void startServer() throws Exception
+	{
+		MockServer.allowAnonymousTls();
+
+		serverHandler = new FaultInjectingServerHandler();
+		server = MockServer.Create(serverHandler);
+	}
+
+	@Test
+	public void allLinksRecoverAfterConnectionDrop() throws Exception
+	{
+		final ConnectionStringBuilder connectionString = new ConnectionStringBuilder(new URI("amqps://" + MockServer.HostName), "hub", "keyName", "key");
+		connectionString.setOperationTimeout(Duration.ofSeconds(30));
+		final EventHubClient ehClient = EventHubClient.createFromConnectionStringSync(connectionString.toString());
+
+		try
+		{
+			final PartitionSender[] senders = new PartitionSender[LINK_COUNT];
+			for (int index = 0; index < LINK_COUNT; index++)
+				senders[index] = ehClient.createPartitionSenderSync(Integer.toString(index));
+
+			final long[] recoveryMillis = new long[LINK_COUNT * FAULT_COUNT];
+			final long[] lastRecoveryMillis = new long[FAULT_COUNT];
+			for (int fault = 0; fault < FAULT_COUNT; fault++)
+			{
+				final int putTokensBeforeFault = serverHandler.getPutTokenRequests();
+				serverHandler.dropConnections();
+				final long faultInjectedAt = System.nanoTime();
+
+				// the client might not have observed the drop yet - sends race with it, like they would under steady traffic
+				@SuppressWarnings("unchecked")
+				final CompletableFuture<Void>[] sends = new CompletableFuture[LINK_COUNT];
+				for (int index = 0; index < LINK_COUNT; index++)
+				{
+					final int sample = fault * LINK_COUNT + index;
+					sends[index] = senders[index].send(new EventData("recover".getBytes()));
+					sends[index].whenComplete(new BiConsumer<Void, Throwable>()
+					{
+						@Override
+						public void accept(Void result, Throwable error)
+						{
+							recoveryMillis[sample] = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - faultInjectedAt);
+						}
+					});
+				}
+
+				CompletableFuture.allOf(sends).get(60, TimeUnit.SECONDS);
+				lastRecoveryMillis[fault] = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - faultInjectedAt);
+
+				if (TEST_LOGGER.isLoggable(Level.FINE))
+				{
+					TEST_LOGGER.log(Level.FINE, String.format("fault[%s]: all %s links recovered in %s ms, putTokenRequests[%s]",
+							fault, LINK_COUNT, lastRecoveryMillis[fault], serverHandler.getPutTokenRequests() - putTokensBeforeFault));
+				}
+			}
+
+			Arrays.sort(recoveryMillis);
+			Arrays.sort(lastRecoveryMillis);
+			if (TEST_LOGGER.isLoggable(Level.FINE))
+			{
+				TEST_LOGGER.log(Level.FINE, String.format("per-link recovery (ms): p50[%s], p90[%s], p99[%s], max[%s]; full recovery: p50[%s], max[%s]",
+						percentile(recoveryMillis, 50), percentile(recoveryMillis, 90), percentile(recoveryMillis, 99), recoveryMillis[recoveryMillis.length - 1],
+						percentile(lastRecoveryMillis, 50), lastRecoveryMillis[lastRecoveryMillis.length - 1]));
+			}
+
+			for (PartitionSender sender : senders)
+				sender.closeSync();
+		}
+		finally
+		{
+			ehClient.closeSync();
+		}
+	}
+
+	static long percentile(final long[] sortedValues, final int percentile)
+	{
+		return sortedValues[Math.min(sortedValues.length - 1, (sortedValues.length * percentile) / 100)];
+	}
+
+	@AfterClass
+	public static void stopServer() throws Exception
+	{
+		if (server != null)
+			server.close();
+
+		MockServer.restoreTls();
+	}
+}
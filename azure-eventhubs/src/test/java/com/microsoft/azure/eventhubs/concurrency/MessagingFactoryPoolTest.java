@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+package com.microsoft.azure.eventhubs.concurrency;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.microsoft.azure.eventhubs.ConnectionStringBuilder;
+import com.microsoft.azure.eventhubs.EventHubClient;
+import com.microsoft.azure.eventhubs.MessagingFactoryPool;
+import com.microsoft.azure.eventhubs.lib.Mock.FaultInjectingServerHandler;
+import com.microsoft.azure.eventhubs.lib.Mock.MockServer;
+import com.microsoft.azure.eventhubs.lib.TestBase;
+
+/**
+ * Runs against a local mock server (no EventHubs namespace needed) - and counts the connections the pooled clients open to it.
+ */
+public class MessagingFactoryPoolTest extends TestBase
+{
+	static final long CONNECTION_WAIT_MS = 10000;
+
+	static FaultInjectingServerHandler serverHandler;
+	static MockServer server;
+
+	@BeforeClass
+	public static void startServer() throws Exception
+	{
+		MockServer.allowAnonymousTls();
+
+		serverHandler = new FaultInjectingServerHandler();
+		server = MockServer.Create(serverHandler);
+	}
+
+	@Test
+	public void clientsWithTheSameKeyShareAConnection() throws Exception
+	{
+		final MessagingFactoryPool pool = new MessagingFactoryPool();
+		final EventHubClient hub1Client = EventHubClient.createFromConnectionStringSync(connectionString("hub1", "keyName"), null, pool);
+		final EventHubClient hub2Client = EventHubClient.createFromConnectionStringSync(connectionString("hub2", "keyName"), null, pool);
+		awaitOpenConnections(1);
+
+		// the pool key includes the credentials
+		final EventHubClient otherKeyClient = EventHubClient.createFromConnectionStringSync(connectionString("hub1", "otherKeyName"), null, pool);
+		awaitOpenConnections(2);
+
+		otherKeyClient.closeSync();
+		awaitOpenConnections(1);
+
+		// the shared connection stays open till its last user releases it
+		hub1Client.closeSync();
+		Thread.sleep(500);
+		Assert.assertEquals(1, serverHandler.getOpenConnections());
+
+		hub2Client.closeSync();
+		awaitOpenConnections(0);
+	}
+
+	@Test
+	public void clientsAreSpreadOverTheLeastUsedConnections() throws Exception
+	{
+		final MessagingFactoryPool pool = new MessagingFactoryPool(2);
+		final EventHubClient client1 = EventHubClient.createFromConnectionStringSync(connectionString("hub", "keyName"), null, pool);
+		final EventHubClient client2 = EventHubClient.createFromConnectionStringSync(connectionString("hub", "keyName"), null, pool);
+		awaitOpenConnections(2);
+
+		// both connections have one user - a third client shares one of them
+		final EventHubClient client3 = EventHubClient.createFromConnectionStringSync(connectionString("hub", "keyName"), null, pool);
+		Thread.sleep(500);
+		Assert.assertEquals(2, serverHandler.getOpenConnections());
+
+		client1.closeSync();
+		client2.closeSync();
+		awaitOpenConnections(1);
+
+		client3.closeSync();
+		awaitOpenConnections(0);
+	}
+
+	@Test
+	public void failedAcquireAllReleasesTheConnectionsWhichOpened() throws Exception
+	{
+		final MessagingFactoryPool pool = new MessagingFactoryPool(2, true);
+		serverHandler.refuseConnections(1);
+		try
+		{
+			EventHubClient.createFromConnectionString(connectionString("hub", "keyName"), null, pool).get(30, TimeUnit.SECONDS);
+			Assert.fail("a client should not be created when one of its connections fails to open");
+		}
+		catch (ExecutionException expected)
+		{
+		}
+
+		// all or nothing - the connection which did open is closed again
+		awaitOpenConnections(0);
+
+		// and the failed one is retried by the next client
+		final EventHubClient ehClient = EventHubClient.createFromConnectionStringSync(connectionString("hub", "keyName"), null, pool);
+		awaitOpenConnections(2);
+		ehClient.closeSync();
+		awaitOpenConnections(0);
+	}
+
+	private static String connectionString(final String eventHubName, final String keyName) throws Exception
+	{
+		final ConnectionStringBuilder connectionString = new ConnectionStringBuilder(new URI("amqps://" + MockServer.HostName), eventHubName, keyName, "key");
+		connectionString.setOperationTimeout(Duration.ofSeconds(30));
+		return connectionString.toString();
+	}
+
+	private static void awaitOpenConnections(final int expected) throws InterruptedException
+	{
+		final long deadline = System.currentTimeMillis() + CONNECTION_WAIT_MS;
+		while (serverHandler.getOpenConnections() != expected && System.currentTimeMillis() < deadline)
+			Thread.sleep(10);
+
+		Assert.assertEquals(expected, serverHandler.getOpenConnections());
+	}
+
+	@AfterClass
+	public static void stopServer() throws Exception
+	{
+		if (server != null)
+			server.close();
+
+		MockServer.restoreTls();
+	}
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+package com.microsoft.azure.eventhubs.concurrency;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+import org.apache.qpid.proton.reactor.Reactor;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.microsoft.azure.eventhubs.amqp.DispatchHandler;
+import com.microsoft.azure.eventhubs.amqp.ProtonUtil;
+import com.microsoft.azure.eventhubs.amqp.ReactorDispatcher;
+import com.microsoft.azure.eventhubs.amqp.ReactorHandler;
+import com.microsoft.azure.eventhubs.lib.TestBase;
+
+/**
+ * Runs against a local Reactor (no EventHubs namespace needed).
+ * Doubles as a microbenchmark for {@link ReactorDispatcher#invoke(DispatchHandler)} - throughput is traced at FINE level.
+ */
+public class ReactorDispatcherTest extends TestBase
+{
+	static final int PRODUCER_COUNT = 4;
+	static final int INVOKES_PER_PRODUCER = 250000;
+
+	Reactor reactor;
+	ReactorDispatcher dispatcher;
+	Thread reactorThread;
+
+	@Before
+	public void startReactor() throws IOException
+	{
+		final ReactorHandler reactorHandler = new ReactorHandler();
+		this.reactor = ProtonUtil.reactor(reactorHandler);
+		this.dispatcher = new ReactorDispatcher(this.reactor);
+		reactorHandler.unsafeSetReactorDispatcher(this.dispatcher);
+
+		this.reactorThread = new Thread(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				reactor.setTimeout(3141);
+				reactor.start();
+				while (!Thread.interrupted() && reactor.process()) {
+				}
+				reactor.stop();
+			}
+		});
+		this.reactorThread.start();
+	}
+
+	@Test
+	public void allInvokesRunWithCoalescedWakeups() throws Exception
+	{
+		final int totalInvokes = PRODUCER_COUNT * INVOKES_PER_PRODUCER;
+		final AtomicInteger executed = new AtomicInteger();
+		final CountDownLatch allExecuted = new CountDownLatch(1);
+		final DispatchHandler work = new DispatchHandler()
+		{
+			@Override
+			public void onEvent()
+			{
+				if (executed.incrementAndGet() == totalInvokes)
+					allExecuted.countDown();
+			}
+		};
+
+		final Thread[] producers = new Thread[PRODUCER_COUNT];
+		for (int index = 0; index < PRODUCER_COUNT; index++)
+		{
+			producers[index] = new Thread(new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					try
+					{
+						for (int count = 0; count < INVOKES_PER_PRODUCER; count++)
+							dispatcher.invoke(work);
+					}
+					catch (IOException exception)
+					{
+						throw new RuntimeException(exception);
+					}
+				}
+			});
+		}
+
+		final long start = System.nanoTime();
+		for (Thread producer : producers)
+			producer.start();
+
+		for (Thread producer : producers)
+			producer.join();
+
+		Assert.assertTrue("not all dispatched work ran on the reactor", allExecuted.await(60, TimeUnit.SECONDS));
+		final long elapsedNanos = System.nanoTime() - start;
+
+		if (TEST_LOGGER.isLoggable(Level.FINE))
+		{
+			TEST_LOGGER.log(Level.FINE, String.format("ReactorDispatcher.invoke: %s invokes from %s threads in %s ms (%.0f invokes/sec)",
+					totalInvokes, PRODUCER_COUNT, TimeUnit.NANOSECONDS.toMillis(elapsedNanos), totalInvokes / (elapsedNanos / 1e9)));
+		}
+
+		Assert.assertEquals(totalInvokes, executed.get());
+	}
+
+	@Test
+	public void invokeAfterDrainWakesReactor() throws Exception
+	{
+		// every invoke here lands on an empty, drained queue - so each one has to signal the reactor on its own
+		for (int count = 0; count < 100; count++)
+		{
+			final CountDownLatch executed = new CountDownLatch(1);
+			this.dispatcher.invoke(new DispatchHandler()
+			{
+				@Override
+				public void onEvent()
+				{
+					executed.countDown();
+				}
+			});
+
+			Assert.assertTrue(executed.await(10, TimeUnit.SECONDS));
+		}
+	}
+
+	@After
+	public void stopReactor() throws Exception
+	{
+		this.dispatcher.invoke(new DispatchHandler()
+		{
+			@Override
+			public void onEvent()
+			{
+				reactor.stop();
+			}
+		});
+
+		this.reactorThread.join(TimeUnit.SECONDS.toMillis(10));
+		this.reactor.free();
+	}
+}
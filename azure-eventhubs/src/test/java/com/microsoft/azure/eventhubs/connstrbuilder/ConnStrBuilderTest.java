@@ -77,4 +77,39 @@ public class ConnStrBuilderTest extends ApiTestBase
 		Assert.assertTrue(testConnStrBuilder1.getRetryPolicy().toString().equals(RetryPolicy.getDefault().toString()));
 		Assert.assertTrue(testConnStrBuilder1.getOperationTimeout().getSeconds() == 8);
 	}
+	
+	@Test
+	public void sessionSettingsRoundTrip()
+	{
+		final ConnectionStringBuilder connStrBuilder = new ConnectionStringBuilder(correctConnectionString);
+		Assert.assertTrue(connStrBuilder.getMaxLinksPerSession() == 1);
+		Assert.assertTrue(connStrBuilder.getSessionWindowSize() == 0);
+		
+		connStrBuilder.setMaxLinksPerSession(16);
+		connStrBuilder.setSessionWindowSize(5000);
+		
+		final ConnectionStringBuilder testConnStrBuilder = new ConnectionStringBuilder(connStrBuilder.toString());
+		validateConnStrBuilder.accept(testConnStrBuilder);
+		Assert.assertTrue(testConnStrBuilder.getMaxLinksPerSession() == 16);
+		Assert.assertTrue(testConnStrBuilder.getSessionWindowSize() == 5000);
+	}
+	
+	@Test (expected = IllegalConnectionStringFormatException.class)
+	public void throwOnNonPositiveMaxLinksPerSession()
+	{
+		new ConnectionStringBuilder(correctConnectionString + ";MaxLinksPerSession=0");
+	}
+	
+	@Test
+	public void sharedSendRateLimitRoundTrip()
+	{
+		final ConnectionStringBuilder connStrBuilder = new ConnectionStringBuilder(correctConnectionString);
+		Assert.assertFalse(connStrBuilder.getSharedSendRateLimit());
+		
+		connStrBuilder.setSharedSendRateLimit(true);
+		
+		final ConnectionStringBuilder testConnStrBuilder = new ConnectionStringBuilder(connStrBuilder.toString());
+		validateConnStrBuilder.accept(testConnStrBuilder);
+		Assert.assertTrue(testConnStrBuilder.getSharedSendRateLimit());
+	}
 }
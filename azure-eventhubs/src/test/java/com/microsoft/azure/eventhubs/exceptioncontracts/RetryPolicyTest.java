@@ -5,6 +5,11 @@
 package com.microsoft.azure.eventhubs.exceptioncontracts;
 
 import java.time.Duration;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 
 import org.junit.Assert;
@@ -12,6 +17,7 @@ import org.junit.Test;
 
 import com.microsoft.azure.eventhubs.lib.TestBase;
 import com.microsoft.azure.eventhubs.AuthorizationFailedException;
+import com.microsoft.azure.eventhubs.RetryBudget;
 import com.microsoft.azure.eventhubs.RetryPolicy;
 import com.microsoft.azure.eventhubs.ServerBusyException;
 
@@ -22,67 +28,108 @@ public class RetryPolicyTest extends TestBase
 	{
 		String clientId = "someClientEntity";
 		RetryPolicy retry = RetryPolicy.getDefault();
+		Duration serverBusyWait = Duration.ofSeconds(4);
 		
-		retry.incrementRetryCount(clientId);
-		Duration firstRetryInterval = retry.getNextRetryInterval(clientId, new ServerBusyException(), Duration.ofSeconds(60));
-		TestBase.TEST_LOGGER.log(Level.FINE, "firstRetryInterval: " + firstRetryInterval.toString());
-		Assert.assertTrue(firstRetryInterval != null);
-		
-		retry.incrementRetryCount(clientId);
-		Duration secondRetryInterval = retry.getNextRetryInterval(clientId, new ServerBusyException(), Duration.ofSeconds(60));
-		TestBase.TEST_LOGGER.log(Level.FINE, "secondRetryInterval: " + secondRetryInterval.toString());
-		
-		Assert.assertTrue(secondRetryInterval != null);
-		Assert.assertTrue(secondRetryInterval.getSeconds() > firstRetryInterval.getSeconds() ||
-				(secondRetryInterval.getSeconds() == firstRetryInterval.getSeconds() && secondRetryInterval.getNano() > firstRetryInterval.getNano()));
+		Duration previousRetryInterval = null;
+		for (int retryCount = 1; retryCount < 10; retryCount++)
+		{
+			retry.incrementRetryCount(clientId);
+			Duration retryInterval = retry.getNextRetryInterval(clientId, new ServerBusyException(), Duration.ofSeconds(60));
+			TestBase.TEST_LOGGER.log(Level.FINE, "retryInterval[" + retryCount + "]: " + retryInterval);
+			
+			Assert.assertTrue(retryInterval != null);
+			Assert.assertTrue(retryInterval.compareTo(serverBusyWait.plus(Duration.ofMillis(100))) >= 0);
+			Assert.assertTrue(retryInterval.compareTo(serverBusyWait.plus(Duration.ofSeconds(30))) <= 0);
+			
+			// decorrelated jitter - never more than 3 times the previous backoff
+			if (previousRetryInterval != null)
+				Assert.assertTrue(retryInterval.minus(serverBusyWait).compareTo(previousRetryInterval.minus(serverBusyWait).multipliedBy(3)) <= 0);
+			
+			previousRetryInterval = retryInterval;
+		}
 		
 		retry.incrementRetryCount(clientId);
-		Duration thirdRetryInterval = retry.getNextRetryInterval(clientId, new ServerBusyException(), Duration.ofSeconds(60));
-		TestBase.TEST_LOGGER.log(Level.FINE, "thirdRetryInterval: " + thirdRetryInterval.toString());
-		
-		Assert.assertTrue(thirdRetryInterval != null);
-		Assert.assertTrue(thirdRetryInterval.getSeconds() > secondRetryInterval.getSeconds() ||
-				(thirdRetryInterval.getSeconds() == secondRetryInterval.getSeconds() && thirdRetryInterval.getNano() > secondRetryInterval.getNano()));
+		Assert.assertTrue(retry.getNextRetryInterval(clientId, new ServerBusyException(), Duration.ofSeconds(60)) == null);
 		
+		retry.resetRetryCount(clientId);
 		retry.incrementRetryCount(clientId);
-		Duration fourthRetryInterval = retry.getNextRetryInterval(clientId, new ServerBusyException(), Duration.ofSeconds(60));
-		TestBase.TEST_LOGGER.log(Level.FINE, "fourthRetryInterval: " + fourthRetryInterval.toString());
-		
-		Assert.assertTrue(fourthRetryInterval != null);
-		Assert.assertTrue(fourthRetryInterval.getSeconds() > thirdRetryInterval.getSeconds() ||
-				(fourthRetryInterval.getSeconds() == thirdRetryInterval.getSeconds() && fourthRetryInterval.getNano() > thirdRetryInterval.getNano()));
+		Duration nextRetryInterval = retry.getNextRetryInterval(clientId, new AuthorizationFailedException("authorizationerror"), Duration.ofSeconds(60));
+		Assert.assertTrue(nextRetryInterval == null);
 		
-		retry.incrementRetryCount(clientId);
-		Duration fifthRetryInterval = retry.getNextRetryInterval(clientId, new ServerBusyException(), Duration.ofSeconds(60));
-		TestBase.TEST_LOGGER.log(Level.FINE, "fifthRetryInterval: " + fifthRetryInterval.toString());
+		Duration firstRetryIntervalAfterReset = retry.getNextRetryInterval(clientId, new ServerBusyException(), Duration.ofSeconds(60));
+		Assert.assertTrue(firstRetryIntervalAfterReset.compareTo(serverBusyWait.plus(Duration.ofMillis(300))) <= 0);
+	}
+	
+	@Test
+	public void testResetWithoutIncrementResetsTheJitter() throws Exception
+	{
+		// like the management and rejected-send retries, which never increment the retry count
+		String clientId = "neverIncrementedClientEntity";
+		RetryPolicy retry = RetryPolicy.getDefault();
+		Duration serverBusyWait = Duration.ofSeconds(4);
 		
-		Assert.assertTrue(fifthRetryInterval != null);
-		Assert.assertTrue(fifthRetryInterval.getSeconds() > fourthRetryInterval.getSeconds() ||
-				(fifthRetryInterval.getSeconds() == fourthRetryInterval.getSeconds() && fifthRetryInterval.getNano() > fourthRetryInterval.getNano()));
+		for (int retryCount = 0; retryCount < 20; retryCount++)
+			Assert.assertTrue(retry.getNextRetryInterval(clientId, new ServerBusyException(), Duration.ofSeconds(60)) != null);
 		
-		retry.incrementRetryCount(clientId);
-		Duration sixthRetryInterval = retry.getNextRetryInterval(clientId, new ServerBusyException(), Duration.ofSeconds(60));
-		TestBase.TEST_LOGGER.log(Level.FINE, "sixthRetryInterval: " + sixthRetryInterval.toString());
+		// the interval starts over from the minimum, instead of climbing on from the previous ones
+		for (int operation = 0; operation < 20; operation++)
+		{
+			retry.resetRetryCount(clientId);
+			Duration firstRetryInterval = retry.getNextRetryInterval(clientId, new ServerBusyException(), Duration.ofSeconds(60));
+			Assert.assertTrue(firstRetryInterval.compareTo(serverBusyWait.plus(Duration.ofMillis(300))) <= 0);
+		}
+	}
+	
+	@Test
+	public void testRetryCountsAreAtomic() throws Exception
+	{
+		final RetryPolicy retry = RetryPolicy.getDefault();
+		final String clientId = "concurrentClientEntity";
+		final int threadCount = 8;
+		final int retriesPerThread = 10000;
 		
-		Assert.assertTrue(sixthRetryInterval != null);
-		Assert.assertTrue(sixthRetryInterval.getSeconds() > fifthRetryInterval.getSeconds() ||
-				(sixthRetryInterval.getSeconds() == fifthRetryInterval.getSeconds() && sixthRetryInterval.getNano() > fifthRetryInterval.getNano()));
+		final ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+		try
+		{
+			final List<Future<?>> tasks = new LinkedList<>();
+			for (int thread = 0; thread < threadCount; thread++)
+			{
+				tasks.add(executor.submit(new Runnable()
+				{
+					@Override
+					public void run()
+					{
+						for (int retryCount = 0; retryCount < retriesPerThread; retryCount++)
+							retry.incrementRetryCount(clientId);
+					}
+				}));
+			}
+			
+			for (Future<?> task : tasks)
+				task.get();
+		}
+		finally
+		{
+			executor.shutdown();
+		}
 		
-		retry.incrementRetryCount(clientId);
-		Duration seventhRetryInterval = retry.getNextRetryInterval(clientId, new ServerBusyException(), Duration.ofSeconds(60));
-		TestBase.TEST_LOGGER.log(Level.FINE, "seventhRetryInterval: " + seventhRetryInterval.toString());
+		// a lost increment would leave the count below the maximum
+		Assert.assertTrue(retry.getNextRetryInterval(clientId, new ServerBusyException(), Duration.ofSeconds(60)) == null);
+		retry.resetRetryCount(clientId);
+		Assert.assertTrue(retry.getNextRetryInterval(clientId, new ServerBusyException(), Duration.ofSeconds(60)) != null);
+	}
+	
+	@Test
+	public void testRetryBudget() throws Exception
+	{
+		RetryBudget budget = new RetryBudget(5, 1);
+		for (int retryCount = 0; retryCount < 5; retryCount++)
+			Assert.assertTrue(budget.tryAcquire());
 		
-		Assert.assertTrue(seventhRetryInterval != null);
-		Assert.assertTrue(seventhRetryInterval.getSeconds() > sixthRetryInterval.getSeconds() ||
-				(seventhRetryInterval.getSeconds() == sixthRetryInterval.getSeconds() && seventhRetryInterval.getNano() > sixthRetryInterval.getNano()));
-				
-		retry.incrementRetryCount(clientId);
-		Duration nextRetryInterval = retry.getNextRetryInterval(clientId, new AuthorizationFailedException("authorizationerror"), Duration.ofSeconds(60));
-		Assert.assertTrue(nextRetryInterval == null);
+		Assert.assertFalse(budget.tryAcquire());
 		
-		retry.resetRetryCount(clientId);
-		retry.incrementRetryCount(clientId);
-		Duration firstRetryIntervalAfterReset = retry.getNextRetryInterval(clientId, new ServerBusyException(), Duration.ofSeconds(60));
-		Assert.assertTrue(firstRetryInterval.equals(firstRetryIntervalAfterReset));
+		Thread.sleep(1100);
+		Assert.assertTrue(budget.tryAcquire());
+		Assert.assertFalse(budget.tryAcquire());
 	}
 }
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+package com.microsoft.azure.eventhubs.exceptioncontracts;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.microsoft.azure.eventhubs.SendRateLimiter;
+import com.microsoft.azure.eventhubs.lib.TestBase;
+
+public class SendRateLimiterTest extends TestBase
+{
+	@Test
+	public void noLimitTillThrottled()
+	{
+		final SendRateLimiter limiter = new SendRateLimiter("noLimitTillThrottled");
+		for (int send = 0; send < 10000; send++)
+		{
+			Assert.assertTrue(limiter.tryAcquire(1024) == 0);
+			limiter.onAccepted(1024);
+		}
+		
+		Assert.assertFalse(limiter.isLimiting());
+	}
+	
+	@Test
+	public void throttleWithoutAcceptedTrafficIsIgnored()
+	{
+		final SendRateLimiter limiter = new SendRateLimiter("throttleWithoutAcceptedTrafficIsIgnored");
+		limiter.onThrottled();
+		
+		Assert.assertFalse(limiter.isLimiting());
+		Assert.assertTrue(limiter.tryAcquire(1024) == 0);
+	}
+	
+	@Test
+	public void throttleDecreasesAndPacesSends() throws Exception
+	{
+		final SendRateLimiter limiter = new SendRateLimiter("throttleDecreasesAndPacesSends");
+		for (int send = 0; send < 1000; send++)
+			limiter.onAccepted(1024);
+		
+		limiter.onThrottled();
+		Assert.assertTrue(limiter.isLimiting());
+		
+		final double eventsPerSecondLimit = limiter.getEventsPerSecondLimit();
+		Assert.assertTrue(eventsPerSecondLimit > 0 && eventsPerSecondLimit < 1000);
+		Assert.assertTrue(limiter.getBytesPerSecondLimit() < 1000 * 1024);
+		
+		// rejects of the other sends in flight are the same signal
+		limiter.onThrottled();
+		Assert.assertTrue(limiter.getEventsPerSecondLimit() == eventsPerSecondLimit);
+		
+		// sends beyond the (small) burst allowance are paced
+		int sendsAllowed = 0;
+		long sendDelayNanos = 0;
+		while (sendDelayNanos == 0 && sendsAllowed < 1000)
+		{
+			sendDelayNanos = limiter.tryAcquire(1024);
+			if (sendDelayNanos == 0)
+				sendsAllowed++;
+		}
+		
+		Assert.assertTrue(sendDelayNanos > 0);
+		Assert.assertTrue(sendsAllowed < 1000);
+		
+		// additive increase - after a second without throttling
+		Thread.sleep(1100);
+		limiter.onAccepted(1024);
+		Assert.assertTrue(limiter.getEventsPerSecondLimit() > eventsPerSecondLimit);
+	}
+	
+	@Test
+	public void sharedLimiterIsDroppedWithItsLastUser()
+	{
+		final SendRateLimiter first = SendRateLimiter.acquireShared("sharedLimiterIsDroppedWithItsLastUser");
+		final SendRateLimiter second = SendRateLimiter.acquireShared("sharedLimiterIsDroppedWithItsLastUser");
+		Assert.assertSame(first, second);
+		
+		first.releaseShared();
+		Assert.assertSame(second, SendRateLimiter.acquireShared("sharedLimiterIsDroppedWithItsLastUser"));
+		
+		second.releaseShared();
+		second.releaseShared();
+		final SendRateLimiter next = SendRateLimiter.acquireShared("sharedLimiterIsDroppedWithItsLastUser");
+		Assert.assertNotSame(second, next);
+		next.releaseShared();
+	}
+}
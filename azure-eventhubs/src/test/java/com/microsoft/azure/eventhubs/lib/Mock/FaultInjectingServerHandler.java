@@ -0,0 +1,311 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+package com.microsoft.azure.eventhubs.lib.Mock;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.qpid.proton.Proton;
+import org.apache.qpid.proton.amqp.UnsignedLong;
+import org.apache.qpid.proton.amqp.messaging.Accepted;
+import org.apache.qpid.proton.amqp.messaging.AmqpValue;
+import org.apache.qpid.proton.amqp.messaging.ApplicationProperties;
+import org.apache.qpid.proton.amqp.messaging.Target;
+import org.apache.qpid.proton.amqp.transport.ConnectionError;
+import org.apache.qpid.proton.amqp.transport.ErrorCondition;
+import org.apache.qpid.proton.engine.Connection;
+import org.apache.qpid.proton.engine.Delivery;
+import org.apache.qpid.proton.engine.EndpointState;
+import org.apache.qpid.proton.engine.Event;
+import org.apache.qpid.proton.engine.Link;
+import org.apache.qpid.proton.engine.Receiver;
+import org.apache.qpid.proton.engine.Sender;
+import org.apache.qpid.proton.engine.Session;
+import org.apache.qpid.proton.message.Message;
+
+/**
+ * Accepts all links, answers $cbs put-token requests with 200 (or 500, see {@link #failPutTokens(int)}), answers $management runtime information reads (for an event hub
+ * with {@link #PARTITION_COUNT} partitions) and accepts every event sent to it.
+ * {@link #dropConnections()} force-closes all client connections - to exercise client-side recovery.
+ */
+public class FaultInjectingServerHandler extends ServerTraceHandler
+{
+	static final int LINK_CREDIT = 1000;
+	static final int FAULT_POLL_INTERVAL_MS = 5;
+	static final long MAX_MESSAGE_SIZE = 256 * 1024;
+	public static final int PARTITION_COUNT = 8;
+
+	final AtomicReference<CountDownLatch> dropRequest = new AtomicReference<>();
+	final AtomicInteger putTokenRequests = new AtomicInteger();
+	final AtomicInteger managementRequests = new AtomicInteger();
+	final AtomicInteger openConnections = new AtomicInteger();
+	final AtomicInteger connectionsToRefuse = new AtomicInteger();
+	final AtomicInteger putTokensToFail = new AtomicInteger();
+	volatile boolean isManagementResponseDropped;
+	final List<Connection> connections = new LinkedList<>();
+	boolean faultPollerStarted;
+
+	/**
+	 * force-closes all open client connections with amqp:connection:forced - returns once the server closed them
+	 */
+	public void dropConnections() throws InterruptedException
+	{
+		final CountDownLatch dropped = new CountDownLatch(1);
+		this.dropRequest.set(dropped);
+		if (!dropped.await(5, TimeUnit.SECONDS))
+			throw new IllegalStateException("server did not drop the connections in time");
+	}
+
+	public int getPutTokenRequests()
+	{
+		return this.putTokenRequests.get();
+	}
+
+	public int getManagementRequests()
+	{
+		return this.managementRequests.get();
+	}
+
+	/**
+	 * the next {@code count} $cbs put-token requests are answered with 500
+	 */
+	public void failPutTokens(final int count)
+	{
+		this.putTokensToFail.set(count);
+	}
+
+	/**
+	 * client connections which are open - and not closed by either side since
+	 */
+	public int getOpenConnections()
+	{
+		return this.openConnections.get();
+	}
+
+	/**
+	 * the next {@code count} client connections are dropped at the transport, instead of being opened
+	 */
+	public void refuseConnections(final int count)
+	{
+		this.connectionsToRefuse.set(count);
+	}
+
+	/**
+	 * when set, $management requests are accepted but never answered
+	 */
+	public void setManagementResponseDropped(final boolean isManagementResponseDropped)
+	{
+		this.isManagementResponseDropped = isManagementResponseDropped;
+	}
+
+	@Override
+	public void onConnectionRemoteOpen(Event event)
+	{
+		if (this.connectionsToRefuse.get() > 0 && this.connectionsToRefuse.decrementAndGet() >= 0)
+		{
+			event.getTransport().close_head();
+			event.getTransport().close_tail();
+			return;
+		}
+
+		super.onConnectionRemoteOpen(event);
+		this.connections.add(event.getConnection());
+		this.openConnections.incrementAndGet();
+
+		if (!this.faultPollerStarted)
+		{
+			this.faultPollerStarted = true;
+			event.getReactor().schedule(FAULT_POLL_INTERVAL_MS, this);
+		}
+	}
+
+	@Override
+	public void onConnectionRemoteClose(Event event)
+	{
+		final Connection connection = event.getConnection();
+		if (connection.getLocalState() != EndpointState.CLOSED)
+			connection.close();
+
+		if (this.connections.remove(connection))
+			this.openConnections.decrementAndGet();
+	}
+
+	@Override
+	public void onTimerTask(Event event)
+	{
+		final CountDownLatch dropped = this.dropRequest.getAndSet(null);
+		if (dropped != null)
+		{
+			for (Connection connection : this.connections)
+			{
+				if (connection.getLocalState() == EndpointState.ACTIVE)
+				{
+					connection.setCondition(new ErrorCondition(ConnectionError.CONNECTION_FORCED, "fault injected by test"));
+					connection.close();
+				}
+			}
+
+			this.openConnections.addAndGet(-this.connections.size());
+			this.connections.clear();
+			dropped.countDown();
+		}
+
+		event.getReactor().schedule(FAULT_POLL_INTERVAL_MS, this);
+	}
+
+	@Override
+	public void onSessionRemoteOpen(Event event)
+	{
+		final Session session = event.getSession();
+		if (session.getLocalState() == EndpointState.UNINITIALIZED)
+			session.open();
+	}
+
+	@Override
+	public void onSessionRemoteClose(Event event)
+	{
+		final Session session = event.getSession();
+		if (session.getLocalState() != EndpointState.CLOSED)
+			session.close();
+	}
+
+	@Override
+	public void onLinkRemoteOpen(Event event)
+	{
+		final Link link = event.getLink();
+		if (link.getLocalState() != EndpointState.UNINITIALIZED)
+			return;
+
+		link.setSource(link.getRemoteSource());
+		link.setTarget(link.getRemoteTarget());
+		link.setMaxMessageSize(UnsignedLong.valueOf(MAX_MESSAGE_SIZE));
+		link.open();
+
+		if (link instanceof Receiver)
+			((Receiver) link).flow(LINK_CREDIT);
+	}
+
+	@Override
+	public void onLinkRemoteClose(Event event)
+	{
+		final Link link = event.getLink();
+		if (link.getLocalState() != EndpointState.CLOSED)
+			link.close();
+	}
+
+	@Override
+	public void onLinkRemoteDetach(Event event)
+	{
+		this.onLinkRemoteClose(event);
+	}
+
+	@Override
+	public void onDelivery(Event event)
+	{
+		final Delivery delivery = event.getDelivery();
+		if (!(event.getLink() instanceof Receiver) || !delivery.isReadable() || delivery.isPartial())
+			return;
+
+		final Receiver receiver = (Receiver) event.getLink();
+		final byte[] buffer = new byte[delivery.pending()];
+		final int read = receiver.recv(buffer, 0, buffer.length);
+		receiver.advance();
+
+		final String address = receiver.getRemoteTarget() != null ? ((Target) receiver.getRemoteTarget()).getAddress() : null;
+		if ("$cbs".equals(address))
+		{
+			final Message request = Proton.message();
+			request.decode(buffer, 0, read);
+			this.putTokenRequests.incrementAndGet();
+			final boolean fail = this.putTokensToFail.get() > 0 && this.putTokensToFail.decrementAndGet() >= 0;
+			this.respond(receiver.getSession().getConnection(), request, null, fail ? 500 : 200);
+		}
+		else if ("$management".equals(address))
+		{
+			final Message request = Proton.message();
+			request.decode(buffer, 0, read);
+			this.managementRequests.incrementAndGet();
+			if (!this.isManagementResponseDropped)
+				this.respond(receiver.getSession().getConnection(), request, runtimeInformation(request), 200);
+		}
+
+		if (!delivery.remotelySettled())
+			delivery.disposition(Accepted.getInstance());
+
+		delivery.settle();
+		receiver.flow(1);
+	}
+
+	private static Map<String, Object> runtimeInformation(final Message request)
+	{
+		final Map<?, ?> requestProperties = request.getApplicationProperties().getValue();
+		final Map<String, Object> result = new HashMap<>();
+		result.put("name", requestProperties.get("name"));
+		if (requestProperties.containsKey("partition"))
+		{
+			result.put("partition", requestProperties.get("partition"));
+			result.put("begin_sequence_number", 0L);
+			result.put("last_enqueued_sequence_number", 99L);
+			result.put("last_enqueued_offset", "9900");
+			result.put("last_enqueued_time_utc", new Date());
+		}
+		else
+		{
+			final String[] partitionIds = new String[PARTITION_COUNT];
+			for (int index = 0; index < PARTITION_COUNT; index++)
+				partitionIds[index] = Integer.toString(index);
+
+			result.put("created_at", new Date());
+			result.put("partition_count", PARTITION_COUNT);
+			result.put("partition_ids", partitionIds);
+		}
+
+		return result;
+	}
+
+	private void respond(final Connection connection, final Message request, final Map<String, Object> body, final int statusCode)
+	{
+		final Sender replySender = findReplySender(connection, request.getReplyTo());
+		if (replySender == null)
+			return;
+
+		final Message response = Proton.message();
+		response.setCorrelationId(request.getMessageId());
+		final Map<String, Object> properties = new HashMap<>();
+		properties.put("status-code", statusCode);
+		properties.put("status-description", statusCode == 200 ? "OK" : "fault injected by test");
+		response.setApplicationProperties(new ApplicationProperties(properties));
+		if (body != null)
+			response.setBody(new AmqpValue(body));
+
+		final byte[] bytes = new byte[1024];
+		final int length = response.encode(bytes, 0, bytes.length);
+		replySender.delivery(String.valueOf(request.getMessageId()).getBytes());
+		replySender.send(bytes, 0, length);
+		replySender.advance();
+	}
+
+	private static Sender findReplySender(final Connection connection, final String replyTo)
+	{
+		Link link = connection.linkHead(null, null);
+		while (link != null)
+		{
+			if (link instanceof Sender && link.getLocalState() == EndpointState.ACTIVE && link.getRemoteTarget() != null
+					&& replyTo.equals(((Target) link.getRemoteTarget()).getAddress()))
+				return (Sender) link;
+
+			link = link.next(null, null);
+		}
+
+		return null;
+	}
+}
@@ -6,6 +6,8 @@ package com.microsoft.azure.eventhubs.lib.Mock;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.net.BindException;
+import java.security.Security;
 import java.util.logging.Level;
 
 import org.apache.qpid.proton.Proton;
@@ -22,6 +24,10 @@ public class MockServer implements Closeable
 {
 	public final static String HostName = "127.0.0.1";
 	public final static int Port = 5671;
+	static final int BIND_ATTEMPTS = 50;
+	static final int BIND_RETRY_INTERVAL_MS = 100;
+	
+	private static String disabledTlsAlgorithms;
 	
 	private Reactor reactor;
 	private Acceptor acceptor;
@@ -30,6 +36,24 @@ public class MockServer implements Closeable
 	{
 		this.reactor = Proton.reactor();
 		
+		// the acceptor has to be in place before the reactor runs - a reactor with nothing to do stops right away
+		// the listener of a previous server is released only when its reactor gets to it - so, the port can still be in use for a bit
+		for (int attempt = 1; this.acceptor == null; attempt++)
+		{
+			try
+			{
+				this.acceptor = this.reactor.acceptor(MockServer.HostName, MockServer.Port, 
+						handler == null ? new ServerTraceHandler() : handler);
+			}
+			catch (BindException exception)
+			{
+				if (attempt >= BIND_ATTEMPTS)
+					throw exception;
+				
+				Thread.sleep(BIND_RETRY_INTERVAL_MS);
+			}
+		}
+		
 		new Thread(new Runnable()
 		{
 			@Override
@@ -43,9 +67,6 @@ public class MockServer implements Closeable
 				reactor.run();
 			}
 		}).start();
-		
-		this.acceptor = this.reactor.acceptor(MockServer.HostName, MockServer.Port, 
-				handler == null ? new ServerTraceHandler() : handler);
 	}
 
 	public static MockServer Create(BaseHandler handler) throws IOException, InterruptedException
@@ -53,6 +74,27 @@ public class MockServer implements Closeable
 		MockServer server = new MockServer(handler);
 		return server;
 	}
+	
+	/**
+	 * the mock server has no certificate - anonymous cipher suites are only available with TLSv1.2.
+	 * To be paired with {@link #restoreTls()}.
+	 */
+	public static void allowAnonymousTls()
+	{
+		disabledTlsAlgorithms = Security.getProperty("jdk.tls.disabledAlgorithms");
+		Security.setProperty("jdk.tls.disabledAlgorithms", "");
+		System.setProperty("jdk.tls.server.protocols", "TLSv1.2");
+		System.setProperty("jdk.tls.client.protocols", "TLSv1.2");
+	}
+	
+	public static void restoreTls()
+	{
+		if (disabledTlsAlgorithms != null)
+			Security.setProperty("jdk.tls.disabledAlgorithms", disabledTlsAlgorithms);
+		
+		System.clearProperty("jdk.tls.server.protocols");
+		System.clearProperty("jdk.tls.client.protocols");
+	}
 
 	@Override
 	public void close() throws IOException
@@ -60,6 +102,7 @@ public class MockServer implements Closeable
 		if (this.acceptor != null)
 		{
 			this.acceptor.close();
+			this.reactor.wakeup();
 		}
 	}
 }
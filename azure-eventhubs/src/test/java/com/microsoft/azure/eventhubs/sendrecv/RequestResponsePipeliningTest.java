@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+package com.microsoft.azure.eventhubs.sendrecv;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.microsoft.azure.eventhubs.ClientConstants;
+import com.microsoft.azure.eventhubs.ConnectionStringBuilder;
+import com.microsoft.azure.eventhubs.MessagingFactory;
+import com.microsoft.azure.eventhubs.TimeoutException;
+import com.microsoft.azure.eventhubs.lib.Mock.FaultInjectingServerHandler;
+import com.microsoft.azure.eventhubs.lib.Mock.MockServer;
+import com.microsoft.azure.eventhubs.lib.TestBase;
+
+/**
+ * Runs against a local mock server (no EventHubs namespace needed).
+ */
+public class RequestResponsePipeliningTest extends TestBase
+{
+	static final int REQUEST_COUNT = 256;
+
+	static FaultInjectingServerHandler serverHandler;
+	static MockServer server;
+	static MessagingFactory factory;
+
+	@BeforeClass
+	public static void startServer() throws Exception
+	{
+		MockServer.allowAnonymousTls();
+
+		serverHandler = new FaultInjectingServerHandler();
+		server = MockServer.Create(serverHandler);
+
+		final ConnectionStringBuilder connectionString = new ConnectionStringBuilder(new URI("amqps://" + MockServer.HostName), "hub", "keyName", "key");
+		factory = MessagingFactory.createFromConnectionString(connectionString.toString()).get();
+	}
+
+	@Test
+	public void manyRequestsInFlight() throws Exception
+	{
+		@SuppressWarnings("unchecked")
+		final CompletableFuture<Map<String, Object>>[] responses = new CompletableFuture[REQUEST_COUNT];
+		final long start = System.nanoTime();
+		for (int index = 0; index < REQUEST_COUNT; index++)
+			responses[index] = factory.getManagementChannel().request(factory.getReactorScheduler(),
+					partitionRequest(Integer.toString(index % FaultInjectingServerHandler.PARTITION_COUNT)), Duration.ofSeconds(30));
+
+		CompletableFuture.allOf(responses).get(30, TimeUnit.SECONDS);
+		if (TEST_LOGGER.isLoggable(Level.FINE))
+		{
+			TEST_LOGGER.log(Level.FINE, String.format("%s requests answered in %s ms",
+					REQUEST_COUNT, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+		}
+
+		for (int index = 0; index < REQUEST_COUNT; index++)
+			Assert.assertEquals(Integer.toString(index % FaultInjectingServerHandler.PARTITION_COUNT),
+					responses[index].get().get(ClientConstants.MANAGEMENT_PARTITION_NAME_KEY));
+	}
+
+	@Test
+	public void unansweredRequestTimesOut() throws Exception
+	{
+		serverHandler.setManagementResponseDropped(true);
+		try
+		{
+			final CompletableFuture<Map<String, Object>> response = factory.getManagementChannel().request(factory.getReactorScheduler(),
+					partitionRequest("0"), Duration.ofMillis(500));
+			try
+			{
+				response.get(10, TimeUnit.SECONDS);
+				Assert.fail("request without a response should time out");
+			}
+			catch (ExecutionException exception)
+			{
+				Assert.assertTrue(exception.getCause() instanceof TimeoutException);
+			}
+		}
+		finally
+		{
+			serverHandler.setManagementResponseDropped(false);
+		}
+	}
+
+	static Map<String, String> partitionRequest(final String partitionId)
+	{
+		final Map<String, String> request = new HashMap<>();
+		request.put(ClientConstants.MANAGEMENT_ENTITY_TYPE_KEY, ClientConstants.MANAGEMENT_PARTITION_ENTITY_TYPE);
+		request.put(ClientConstants.MANAGEMENT_ENTITY_NAME_KEY, "hub");
+		request.put(ClientConstants.MANAGEMENT_PARTITION_NAME_KEY, partitionId);
+		request.put(ClientConstants.MANAGEMENT_OPERATION_KEY, ClientConstants.READ_OPERATION_VALUE);
+		return request;
+	}
+
+	@AfterClass
+	public static void stopServer() throws Exception
+	{
+		if (factory != null)
+			factory.closeSync();
+
+		if (server != null)
+			server.close();
+
+		MockServer.restoreTls();
+	}
+}
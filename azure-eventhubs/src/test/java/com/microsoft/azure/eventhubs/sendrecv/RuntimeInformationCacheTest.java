@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+package com.microsoft.azure.eventhubs.sendrecv;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.microsoft.azure.eventhubs.ConnectionStringBuilder;
+import com.microsoft.azure.eventhubs.EventHubClient;
+import com.microsoft.azure.eventhubs.EventHubPartitionRuntimeInformation;
+import com.microsoft.azure.eventhubs.lib.Mock.FaultInjectingServerHandler;
+import com.microsoft.azure.eventhubs.lib.Mock.MockServer;
+import com.microsoft.azure.eventhubs.lib.TestBase;
+
+/**
+ * Runs against a local mock server (no EventHubs namespace needed) - and counts the $management requests which reach it.
+ */
+public class RuntimeInformationCacheTest extends TestBase
+{
+	static final int CALLER_COUNT = 16;
+
+	static FaultInjectingServerHandler serverHandler;
+	static MockServer server;
+	static EventHubClient ehClient;
+
+	@BeforeClass
+	public static void startServer() throws Exception
+	{
+		MockServer.allowAnonymousTls();
+
+		serverHandler = new FaultInjectingServerHandler();
+		server = MockServer.Create(serverHandler);
+
+		final ConnectionStringBuilder connectionString = new ConnectionStringBuilder(new URI("amqps://" + MockServer.HostName), "hub", "keyName", "key");
+		connectionString.setOperationTimeout(Duration.ofSeconds(30));
+		ehClient = EventHubClient.createFromConnectionStringSync(connectionString.toString());
+	}
+
+	@Test
+	public void concurrentQueriesShareOneRequest() throws Exception
+	{
+		final int requestsBefore = serverHandler.getManagementRequests();
+		final CountDownLatch start = new CountDownLatch(1);
+		@SuppressWarnings("unchecked")
+		final CompletableFuture<EventHubPartitionRuntimeInformation>[] results = new CompletableFuture[CALLER_COUNT];
+		final Thread[] callers = new Thread[CALLER_COUNT];
+		for (int index = 0; index < CALLER_COUNT; index++)
+		{
+			final int caller = index;
+			callers[index] = new Thread(new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					try
+					{
+						start.await();
+					}
+					catch (InterruptedException exception)
+					{
+						Thread.currentThread().interrupt();
+					}
+
+					results[caller] = ehClient.getPartitionRuntimeInformation("3");
+				}
+			});
+			callers[index].start();
+		}
+
+		start.countDown();
+		for (Thread caller : callers)
+			caller.join();
+
+		for (CompletableFuture<EventHubPartitionRuntimeInformation> result : results)
+			Assert.assertEquals("3", result.get(30, TimeUnit.SECONDS).getPartitionId());
+
+		Assert.assertEquals(1, serverHandler.getManagementRequests() - requestsBefore);
+	}
+
+	@Test
+	public void resultsAreNotCachedByDefault() throws Exception
+	{
+		ehClient.getPartitionRuntimeInformation("5").get(30, TimeUnit.SECONDS);
+
+		final int requestsBefore = serverHandler.getManagementRequests();
+		ehClient.getPartitionRuntimeInformation("5").get(30, TimeUnit.SECONDS);
+		Assert.assertEquals(1, serverHandler.getManagementRequests() - requestsBefore);
+	}
+
+	@Test
+	public void allPartitionsInOneCall() throws Exception
+	{
+		ehClient.setRuntimeInformationCacheDuration(Duration.ofSeconds(30));
+		ehClient.setPartitionRuntimeInformationCacheDuration(Duration.ofSeconds(30));
+		final Map<String, EventHubPartitionRuntimeInformation> partitionInfos = ehClient.getAllPartitionsRuntimeInformation().get(30, TimeUnit.SECONDS);
+		Assert.assertEquals(FaultInjectingServerHandler.PARTITION_COUNT, partitionInfos.size());
+
+		int partition = 0;
+		for (Map.Entry<String, EventHubPartitionRuntimeInformation> partitionInfo : partitionInfos.entrySet())
+		{
+			Assert.assertEquals(Integer.toString(partition++), partitionInfo.getKey());
+			Assert.assertEquals(partitionInfo.getKey(), partitionInfo.getValue().getPartitionId());
+			Assert.assertEquals(99L, partitionInfo.getValue().getLastEnqueuedSequenceNumber());
+		}
+
+		// answered from the cache
+		final int requestsBefore = serverHandler.getManagementRequests();
+		ehClient.getAllPartitionsRuntimeInformation().get(30, TimeUnit.SECONDS);
+		Assert.assertEquals(0, serverHandler.getManagementRequests() - requestsBefore);
+
+		ehClient.setRuntimeInformationCacheDuration(Duration.ZERO);
+		ehClient.setPartitionRuntimeInformationCacheDuration(Duration.ZERO);
+	}
+
+	@AfterClass
+	public static void stopServer() throws Exception
+	{
+		if (ehClient != null)
+			ehClient.closeSync();
+
+		if (server != null)
+			server.close();
+
+		MockServer.restoreTls();
+	}
+}
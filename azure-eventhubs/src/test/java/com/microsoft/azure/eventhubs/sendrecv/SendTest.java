@@ -72,7 +72,39 @@ public class SendTest extends ApiTestBase
 		
 		validator.get(25, TimeUnit.SECONDS);
 	}
-	
+
+	@Test
+	public void presettledSendBatchIsReceived() throws EventHubException, InterruptedException, ExecutionException, TimeoutException
+	{
+		LinkedList<EventData> batchEvents = new LinkedList<>();
+		final int batchSize = 50;
+		for (int count = 0; count< batchSize; count++)
+		{
+			EventData event = new EventData("a".getBytes());
+			event.getProperties().put(ORDER_PROPERTY, count);
+			batchEvents.add(event);
+		}
+
+		final CompletableFuture<Void> validator = new CompletableFuture<>();
+		final PartitionReceiver receiver = ehClient.createReceiverSync(cgName, partitionId, Instant.now());
+		this.receivers.add(receiver);
+		receiver.setReceiveTimeout(Duration.ofSeconds(1));
+		receiver.setReceiveHandler(new OrderValidator(validator, batchSize));
+
+                // run out of messages in that specific partition - to account for clock-skew with Instant.now() on test machine vs eventhubs service
+                Iterable<EventData> clockSkewEvents;
+                do {
+                    clockSkewEvents = receiver.receiveSync(100);
+                } while (clockSkewEvents != null && clockSkewEvents.iterator().hasNext());
+
+		final SenderOptions senderOptions = new SenderOptions();
+		senderOptions.setPresettledSendEnabled(true);
+		sender = ehClient.createPartitionSenderSync(partitionId, senderOptions);
+		sender.sendSync(batchEvents);
+
+		validator.get(25, TimeUnit.SECONDS);
+	}
+
 	@Test
 	public void sendResultsInSysPropertiesWithPartitionKey() throws EventHubException, InterruptedException, ExecutionException, TimeoutException
 	{